@@ -677,7 +677,7 @@ class DRDAStatement
 		}
 		else
 		{
-			ps = database.getConnection().prepareStatement(
+			ps = database.getConnection().prepareAutoParameterizedStatement(
 				sqlStmt, scrollType, concurType, withHoldCursor);
 		}
 
@@ -698,6 +698,27 @@ public abstract class BrokeredConnection implements EngineConnection
     	}
     }
 
+    /**
+     * Prepare statement with its literals replaced by parameters.
+     * See EmbedConnection#prepareAutoParameterizedStatement
+     */
+    public final PreparedStatement prepareAutoParameterizedStatement(String sql,
+            int resultSetType, int resultSetConcurrency,
+            int resultSetHoldability) throws SQLException {
+    	try {
+            resultSetHoldability = statementHoldabilityCheck(resultSetHoldability);
+
+    		return control.wrapStatement(
+    			getRealConnection().prepareAutoParameterizedStatement(sql, resultSetType,
+                        resultSetConcurrency, resultSetHoldability), sql, null);
+    	}
+    	catch (SQLException se)
+    	{
+    		notifyException(se);
+    		throw se;
+    	}
+    }
+
     /**
      * Get the holdability for statements created by this connection
      * when holdability is not passed in.
@@ -25,6 +25,7 @@
 package com.splicemachine.db.iapi.jdbc;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 
@@ -128,6 +129,19 @@ public interface EngineConnection extends Connection {
      */
     public ExceptionFactory getExceptionFactory();
 
+    /**
+     * Prepare a statement which has no parameters of its own with its literals
+     * replaced by parameters when the connection auto-parameterizes statements,
+     * so that the network server shares one plan between statements which differ
+     * only in their literals. The returned statement reports no parameters and
+     * otherwise behaves as if {@code sql} had been prepared as written.
+     *
+     * @see java.sql.Connection#prepareStatement(String, int, int, int)
+     */
+    public PreparedStatement prepareAutoParameterizedStatement(String sql,
+            int resultSetType, int resultSetConcurrency,
+            int resultSetHoldability) throws SQLException;
+
     ////////////////////////////////////////////////////////////////////
     //
     // INTRODUCED BY JDBC 4.1 IN JAVA 7
@@ -129,6 +129,15 @@ public interface LanguageConnectionContext extends Context {
 	 */
 	public void setLogStatementText(boolean logStatementText);
 
+	/**
+	 * Get value of autoParameterize.
+	 * (Whether or not to replace the literals of statements executed
+	 * through java.sql.Statement with parameters before compiling them.)
+	 *
+	 * @return value of autoParameterize
+	 */
+	public boolean getAutoParameterize();
+
 	/**
 	 * Get value of logQueryPlan.
 	 * (Whether or not to write query plan info on currently
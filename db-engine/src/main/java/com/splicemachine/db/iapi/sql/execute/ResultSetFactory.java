@@ -1928,6 +1928,13 @@ public interface ResultSetFactory {
 
     public NoPutResultSet getExplainResultSet(NoPutResultSet source, Activation activation, int resultSetNumber) throws StandardException;
 
+    /**
+     * @param analyze whether to run the statement and show what each of its operations actually did
+     */
+    public NoPutResultSet getExplainResultSet(ResultSet source, Activation activation, int resultSetNumber, boolean analyze) throws StandardException;
+
+    public NoPutResultSet getExplainResultSet(NoPutResultSet source, Activation activation, int resultSetNumber, boolean analyze) throws StandardException;
+
     /**
      * Export
      */
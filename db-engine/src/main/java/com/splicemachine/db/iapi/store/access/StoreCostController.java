@@ -30,6 +30,7 @@ import com.splicemachine.db.iapi.sql.compile.CostEstimate;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.RowLocation;
 import java.util.BitSet;
+import java.util.List;
 
 /**
  * The StoreCostController interface provides methods that an access client
@@ -174,6 +175,35 @@ public interface StoreCostController extends RowCountable{
      */
     long cardinality(int columnNumber);
 
+    /**
+     *
+     * Retrieve the groups of columns for which statistics on their combined values are available.
+     *
+     * @return the groups, each as the ids of its columns (indexed from 1), or an empty list if there are none.
+     */
+    List<int[]> columnGroups();
+
+    /**
+     * Get the selectivity fraction of an equality predicate on each column of a group, estimated from
+     * the statistics of the group's combined values rather than those of each column on its own.
+     * <p/>
+     * If no statistics exist for the group, then this should be 1.0d
+     *
+     * @param columnGroup the ids of the group's columns (indexed from 1), as returned by {@link #columnGroups()}
+     * @param values      the value each column is compared with, in the same order as {@code columnGroup}
+     * @return an estimate of the selectivity fraction
+     */
+    double getSelectivity(int[] columnGroup,DataValueDescriptor[] values) throws StandardException;
+
+    /**
+     *
+     * Retrieve the number of distinct combinations of values of a group of columns.  If not available, returns 0.
+     *
+     * @param columnGroup the ids of the group's columns (indexed from 1), as returned by {@link #columnGroups()}
+     * @return an estimate of the number of distinct combinations (cardinality).
+     */
+    long cardinality(int[] columnGroup);
+
     /**
      *
      * Get Average Row Width of the Conglomerate
@@ -78,6 +78,7 @@ import java.util.Iterator;
 import com.splicemachine.db.iapi.jdbc.EngineLOB;
 import com.splicemachine.db.iapi.jdbc.ExceptionFactory;
 import com.splicemachine.db.iapi.util.InterruptStatus;
+import com.splicemachine.db.impl.sql.AutoParameterizedStatement;
 import com.splicemachine.db.impl.jdbc.authentication.NoneAuthenticationServiceImpl;
 
 /**
@@ -2653,6 +2654,39 @@ public abstract class EmbedConnection implements EngineConnection
 		return getLanguageConnection().getPrepareIsolationLevel();
 	}
 
+	/**
+	 * Prepare a statement with its literals replaced by parameters when the
+	 * connection auto-parameterizes statements (used for network server). If
+	 * the normalized text doesn't compile, or a literal doesn't fit the type
+	 * inferred for its parameter, the statement is prepared as written.
+	 *
+	 * @see EngineConnection#prepareAutoParameterizedStatement
+	 */
+	public final PreparedStatement prepareAutoParameterizedStatement(String sql,
+			int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+		throws SQLException
+	{
+		AutoParameterizedStatement normalized = getLanguageConnection().getAutoParameterize() ?
+			AutoParameterizedStatement.normalize(sql) : null;
+		if (normalized != null) {
+			EmbedPreparedStatement ps = null;
+			try {
+				ps = (EmbedPreparedStatement) prepareStatement(normalized.getText(),
+					resultSetType, resultSetConcurrency, resultSetHoldability);
+			} catch (SQLException se) {
+				// the error code of an embedded exception is its severity
+				if (se.getErrorCode() > ExceptionSeverity.STATEMENT_SEVERITY)
+					throw se;
+			}
+			if (ps != null) {
+				if (ps.bindLiterals(normalized))
+					return ps;
+				ps.close();
+			}
+		}
+		return prepareStatement(sql, resultSetType, resultSetConcurrency, resultSetHoldability);
+	}
+
 	/**
 		Return a unique order number for a result set.
 		A unique value is only needed if the result set is
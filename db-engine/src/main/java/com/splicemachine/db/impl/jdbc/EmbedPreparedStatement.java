@@ -52,6 +52,7 @@ import com.splicemachine.db.iapi.jdbc.EnginePreparedStatement;
 import com.splicemachine.db.iapi.services.loader.GeneratedClass;
 import com.splicemachine.db.iapi.types.StringDataValue;
 import com.splicemachine.db.iapi.util.InterruptStatus;
+import com.splicemachine.db.impl.sql.AutoParameterizedStatement;
 
 /**
  *
@@ -86,6 +87,12 @@ public abstract class EmbedPreparedStatement extends EmbedStatement implements E
         
     private BrokeredConnectionControl bcc=null;
 
+    /*
+     * Whether the parameters of this statement hold literals taken out of its text by
+     * auto-parameterization, so that the statement as written has no parameters.
+     */
+    private boolean literalParameters;
+
     /**
         Constructor assumes caller will setup context stack
         and restore it.
@@ -1087,6 +1094,8 @@ public abstract class EmbedPreparedStatement extends EmbedStatement implements E
     @Override
     public void clearParameters() throws SQLException {
         checkStatus();
+        if (literalParameters)
+            return;
 
         ParameterValueSet pvs = getParms();
         if (pvs != null)
@@ -1558,6 +1567,38 @@ public abstract class EmbedPreparedStatement extends EmbedStatement implements E
         return activation.getParameterValueSet();
     }
 
+    /**
+     * Bind the literals which auto-parameterization took out of the text of this statement to
+     * its parameters. From then on the statement presents itself as written, with no parameters.
+     *
+     * @return false if a literal does not fit the type of its parameter, in which case the
+     * statement should be prepared as written instead
+     */
+    final boolean bindLiterals(AutoParameterizedStatement normalized) {
+        if (!normalized.bind(preparedStatement.getParameterTypes(), getParms()))
+            return false;
+        literalParameters = true;
+        return true;
+    }
+
+    /**
+     * @return the parameters of the statement as written, which excludes any bound literals
+     */
+    protected final ParameterValueSet getVisibleParms() {
+        if (literalParameters)
+            return lcc.getLanguageFactory().newParameterValueSet(
+                    lcc.getLanguageConnectionFactory().getClassFactory().getClassInspector(), 0, false);
+        return getParms();
+    }
+
+    /**
+     * @return the types of the parameters of the statement as written, which excludes any
+     * bound literals
+     */
+    protected final DataTypeDescriptor[] getVisibleParameterTypes() {
+        return literalParameters ? new DataTypeDescriptor[0] : preparedStatement.getParameterTypes();
+    }
+
 
     /**
         Check the parameterINdex is in range and return the
@@ -1569,7 +1610,7 @@ public abstract class EmbedPreparedStatement extends EmbedStatement implements E
 
         DataTypeDescriptor[] types = preparedStatement.getParameterTypes();
 
-        if (types == null) {
+        if (types == null || literalParameters) {
             throw newSQLException(SQLState.NO_INPUT_PARAMETERS);
         }
 
@@ -1666,7 +1707,7 @@ public abstract class EmbedPreparedStatement extends EmbedStatement implements E
     {
       checkExecStatus();
       return new EmbedParameterSetMetaData(
-                getParms(), preparedStatement.getParameterTypes());
+                getVisibleParms(), getVisibleParameterTypes());
 
     }
     /**
@@ -77,7 +77,7 @@ public class EmbedPreparedStatement30 extends EmbedPreparedStatement20
 	{
 	  checkStatus();
 	  return new EmbedParameterMetaData30(
-				getParms(), preparedStatement.getParameterTypes());
+				getVisibleParms(), getVisibleParameterTypes());
 	}
 }
 
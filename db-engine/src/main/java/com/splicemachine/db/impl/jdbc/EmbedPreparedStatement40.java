@@ -101,7 +101,7 @@ public class EmbedPreparedStatement40 extends  EmbedPreparedStatement30 {
     {
 	  checkStatus();
 	  return new EmbedParameterMetaData40(
-				getParms(), preparedStatement.getParameterTypes());
+				getVisibleParms(), getVisibleParameterTypes());
     }
     
     /**
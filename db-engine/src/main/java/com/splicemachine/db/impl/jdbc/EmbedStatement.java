@@ -32,6 +32,7 @@ import com.splicemachine.db.iapi.sql.PreparedStatement;
 import com.splicemachine.db.iapi.sql.ResultSet;
 import com.splicemachine.db.iapi.sql.ParameterValueSet;
 import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.error.ExceptionSeverity;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.jdbc.EngineStatement;
 import java.sql.SQLException;
@@ -39,6 +40,7 @@ import java.sql.SQLWarning;
 import java.sql.Statement;
 import java.util.Vector;
 import com.splicemachine.db.iapi.util.InterruptStatus;
+import com.splicemachine.db.impl.sql.AutoParameterizedStatement;
 /*
  We would import these, but have name-overlap
 import java.sql.Statement;
@@ -609,12 +611,15 @@ public class EmbedStatement extends ConnectionChild implements EngineStatement {
             try {
                 Activation activation;
                 try {
-                    PreparedStatement preparedStatement = lcc.prepareInternalStatement
-                            (lcc.getDefaultSchema(), sql, resultSetConcurrency ==
-                                    java.sql.ResultSet.CONCUR_READ_ONLY, false);
-                    activation =
-                            preparedStatement.getActivation(lcc, resultSetType ==
-                                    java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE);
+                    activation = lcc.getAutoParameterize() ? getAutoParameterizedActivation(sql) : null;
+                    if (activation == null) {
+                        PreparedStatement preparedStatement = lcc.prepareInternalStatement
+                                (lcc.getDefaultSchema(), sql, resultSetConcurrency ==
+                                        java.sql.ResultSet.CONCUR_READ_ONLY, false);
+                        activation =
+                                preparedStatement.getActivation(lcc, resultSetType ==
+                                        java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE);
+                    }
                     checkRequiresCallableStatement(activation);
                     InterruptStatus.restoreIntrFlagIfSeen(lcc);
                 } catch (Throwable t) {
@@ -1515,6 +1520,46 @@ public class EmbedStatement extends ConnectionChild implements EngineStatement {
             throw sqle;
     }
 
+    /**
+     * Prepare {@code sql} with its literals replaced by parameters, so that the compiled
+     * plan is shared by every execution which differs only in those literals.
+     *
+     * @return an activation with the literals bound to its parameters, or null if the
+     * statement should be prepared as written
+     */
+    private Activation getAutoParameterizedActivation(String sql) throws StandardException {
+        AutoParameterizedStatement normalized = AutoParameterizedStatement.normalize(sql);
+        if (normalized == null)
+            return null;
+
+        PreparedStatement preparedStatement;
+        int statementDepth = lcc.getStatementDepth();
+        try {
+            preparedStatement = lcc.prepareInternalStatement
+                    (lcc.getDefaultSchema(), normalized.getText(), resultSetConcurrency ==
+                            java.sql.ResultSet.CONCUR_READ_ONLY, false);
+        } catch (StandardException se) {
+            if (se.getSeverity() > ExceptionSeverity.STATEMENT_SEVERITY)
+                throw se;
+            // the normalized text doesn't compile, e.g. because the type of a parameter can't be
+            // inferred where its literal's could. Nothing reports this error to the context stack,
+            // so pop the statement context the compilation pushed before preparing the original.
+            while (lcc.getStatementDepth() > statementDepth) {
+                lcc.popStatementContext(lcc.getStatementContext(), null);
+            }
+            return null;
+        }
+        Activation activation =
+                preparedStatement.getActivation(lcc, resultSetType ==
+                        java.sql.ResultSet.TYPE_SCROLL_INSENSITIVE);
+        if (!normalized.bind(preparedStatement.getParameterTypes(), activation.getParameterValueSet())) {
+            // a literal doesn't fit the type inferred for its parameter
+            activation.close();
+            return null;
+        }
+        return activation;
+    }
+
     /**
      * Check to see if a statement requires to be executed via a callable statement.
      */
@@ -0,0 +1,358 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.ParameterValueSet;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.iapi.types.TypeId;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The text of a statement with its comparison literals replaced by parameters.
+ * <p>
+ * Statements are cached by their text, so statements which differ only in their constants
+ * (<code>WHERE id = 4711</code>, <code>WHERE id = 4712</code>) are each parsed, optimized and
+ * generated. When <code>derby.language.autoParameterize</code> is set, a statement executed
+ * through java.sql.Statement (or prepared by the network server without parameter markers) is
+ * first normalized here: each numeric or string literal which is the right hand side of a
+ * comparison in a predicate, or a whole element of a row of a VALUES clause, is replaced with a
+ * <code>?</code>. The normalized text is prepared (and cached) in its place, and the literals are
+ * bound to the parameters of the activation by {@link #bind}.
+ * <p>
+ * Literals which decide the shape of the plan are left in the text: LIKE patterns (whose prefix
+ * becomes a scan range), IN lists, BETWEEN bounds, row limits and anything inside comments
+ * (optimizer hints), as well as negative numbers and literals in arithmetic. The assignments of
+ * an UPDATE's SET clause are not predicates, and are left as written too. Only SELECT, INSERT,
+ * UPDATE and DELETE statements are normalized. The replaced comparisons are costed without knowing
+ * their values, which is why this is off by default.
+ * <p>
+ * If the normalized text does not compile (a parameter's type can't always be inferred where the
+ * literal's could), or a literal does not convert exactly to the type inferred for its parameter,
+ * the caller should prepare the original text instead, so normalization never changes the result
+ * of a statement.
+ */
+public class AutoParameterizedStatement{
+    private static final int NUMBER=1;
+    private static final int STRING=2;
+
+    // the clauses whose literals are treated specially
+    private static final int OTHER=0;
+    private static final int SET=1;
+    private static final int VALUES=2;
+
+    private final String text;
+    private final List<String> literals;
+    private final List<Integer> kinds;
+
+    private AutoParameterizedStatement(String text,List<String> literals,List<Integer> kinds){
+        this.text=text;
+        this.literals=literals;
+        this.kinds=kinds;
+    }
+
+    /**
+     * @param sql the text of the statement
+     * @return the normalized statement, or {@code null} if {@code sql} is not eligible or has no
+     * literals to replace
+     */
+    public static AutoParameterizedStatement normalize(String sql){
+        if(!isEligible(sql))
+            return null;
+
+        StringBuilder normalized=new StringBuilder(sql.length());
+        List<String> literals=new ArrayList<>();
+        List<Integer> kinds=new ArrayList<>();
+        // the clause at each level of parentheses
+        List<Integer> clauses=new ArrayList<>();
+        clauses.add(OTHER);
+        boolean afterComparison=false;
+        // whether the next token starts an element of a VALUES row
+        boolean startsElement=false;
+        // whether the next = is the assignment of a SET clause
+        boolean expectAssignment=false;
+        int length=sql.length();
+        int pos=0;
+        while(pos<length){
+            char c=sql.charAt(pos);
+            int clause=clauses.get(clauses.size()-1);
+            int end;
+            if(Character.isWhitespace(c)){
+                normalized.append(c);
+                pos++;
+                continue;
+            }else if(isCommentStart(sql,pos)){
+                end=skipComment(sql,pos);
+                normalized.append(sql,pos,end);
+                pos=end;
+                continue;
+            }else if(c=='?'){
+                // already parameterized, the positions of the hidden parameters would not line up
+                return null;
+            }else if(c=='\''){
+                end=skipQuoted(sql,pos,'\'');
+                if(end<0)
+                    return null;
+                if((afterComparison && endsOperand(sql,end)) || (startsElement && endsElement(sql,end))){
+                    literals.add(sql.substring(pos+1,end-1).replace("''","'"));
+                    kinds.add(STRING);
+                    normalized.append('?');
+                }else
+                    normalized.append(sql,pos,end);
+                afterComparison=startsElement=false;
+            }else if(c=='"'){
+                end=skipQuoted(sql,pos,'"');
+                if(end<0)
+                    return null;
+                normalized.append(sql,pos,end);
+                afterComparison=startsElement=false;
+            }else if(Character.isDigit(c)){
+                end=skipNumber(sql,pos);
+                boolean exact=end==length || !Character.isLetterOrDigit(sql.charAt(end)) && sql.charAt(end)!='_';
+                if(exact && ((afterComparison && endsOperand(sql,end)) || (startsElement && endsElement(sql,end)))){
+                    literals.add(sql.substring(pos,end));
+                    kinds.add(NUMBER);
+                    normalized.append('?');
+                }else
+                    normalized.append(sql,pos,end);
+                afterComparison=startsElement=false;
+            }else if(isIdentifierPart(c)){
+                end=pos+1;
+                while(end<length && isIdentifierPart(sql.charAt(end)))
+                    end++;
+                String word=sql.substring(pos,end);
+                normalized.append(word);
+                afterComparison=startsElement=false;
+                if(word.equalsIgnoreCase("SET")){
+                    clauses.set(clauses.size()-1,SET);
+                    expectAssignment=true;
+                }else if(word.equalsIgnoreCase("VALUES")){
+                    clauses.set(clauses.size()-1,VALUES);
+                    startsElement=true;
+                }else if(word.equalsIgnoreCase("WHERE") || word.equalsIgnoreCase("SELECT") || word.equalsIgnoreCase("FROM")){
+                    clauses.set(clauses.size()-1,OTHER);
+                    expectAssignment=false;
+                }
+            }else if(c=='=' || c=='<' || c=='>' || c=='!'){
+                end=pos+1;
+                while(end<length && "=<>".indexOf(sql.charAt(end))>=0)
+                    end++;
+                normalized.append(sql,pos,end);
+                // the = of a SET assignment is not a comparison, its value is left alone
+                afterComparison=!(clause==SET && expectAssignment && end==pos+1 && c=='=');
+                if(!afterComparison)
+                    expectAssignment=false;
+                startsElement=false;
+            }else{
+                end=pos+1;
+                normalized.append(c);
+                afterComparison=false;
+                if(c=='('){
+                    // the parentheses of a VALUES row, rather than of an expression within it
+                    boolean row=startsElement && clause==VALUES;
+                    clauses.add(row?VALUES:OTHER);
+                    startsElement=row;
+                }else if(c==')'){
+                    if(clauses.size()>1)
+                        clauses.remove(clauses.size()-1);
+                    startsElement=false;
+                }else if(c==','){
+                    startsElement=clause==VALUES;
+                    if(clause==SET)
+                        expectAssignment=true;
+                }else
+                    startsElement=false;
+            }
+            pos=end;
+        }
+        if(literals.isEmpty())
+            return null;
+        return new AutoParameterizedStatement(normalized.toString(),literals,kinds);
+    }
+
+    /**
+     * @return the text of the statement with its literals replaced by parameters
+     */
+    public String getText(){
+        return text;
+    }
+
+    public int getParameterCount(){
+        return literals.size();
+    }
+
+    /**
+     * Set the parameters of an activation of the normalized statement to the literals
+     * which were taken out of it.
+     *
+     * @param types the parameter types of the prepared normalized statement
+     * @param pvs   the parameters of the activation
+     * @return false if a literal does not convert exactly to the type of its parameter, in which
+     * case the original text should be prepared instead
+     */
+    public boolean bind(DataTypeDescriptor[] types,ParameterValueSet pvs){
+        if(types==null || types.length!=literals.size() || pvs.getParameterCount()!=literals.size())
+            return false;
+        try{
+            for(int i=0;i<literals.size();i++){
+                if(types[i]==null)
+                    return false;
+                TypeId typeId=types[i].getTypeId();
+                DataValueDescriptor literal;
+                if(kinds.get(i)==NUMBER){
+                    if(!typeId.isNumericTypeId())
+                        return false;
+                    literal=numericLiteral(literals.get(i));
+                }else{
+                    if(!typeId.isStringTypeId() || typeId.isLongConcatableTypeId())
+                        return false;
+                    literal=new SQLVarchar(literals.get(i));
+                }
+                DataValueDescriptor parameter=pvs.getParameterForSet(i);
+                parameter.setValue(literal);
+                // refuse anything that was rounded or truncated on the way in
+                if(parameter.compare(literal)!=0)
+                    return false;
+            }
+            return true;
+        }catch(StandardException | NumberFormatException e){
+            return false;
+        }
+    }
+
+    private static DataValueDescriptor numericLiteral(String value){
+        if(value.indexOf('.')<0 && value.length()<19)
+            return new SQLLongint(Long.parseLong(value));
+        return new SQLDecimal(new BigDecimal(value));
+    }
+
+    private static boolean isEligible(String sql){
+        int pos=skipBlanks(sql,0);
+        int end=pos;
+        while(end<sql.length() && isIdentifierPart(sql.charAt(end)))
+            end++;
+        String first=sql.substring(pos,end);
+        return first.equalsIgnoreCase("SELECT")
+                || first.equalsIgnoreCase("INSERT")
+                || first.equalsIgnoreCase("UPDATE")
+                || first.equalsIgnoreCase("DELETE");
+    }
+
+    /*
+     * Whether the token after position pos ends the operand of a comparison, so that the literal
+     * before it is the whole of that operand and not part of an expression
+     */
+    private static boolean endsOperand(String sql,int pos){
+        pos=skipBlanks(sql,pos);
+        if(pos==sql.length())
+            return true;
+        char c=sql.charAt(pos);
+        return c==')' || c==',' || c==';' || Character.isLetter(c);
+    }
+
+    /*
+     * Whether the token after position pos ends an element of a VALUES row, so that the literal
+     * before it is the whole of that element
+     */
+    private static boolean endsElement(String sql,int pos){
+        pos=skipBlanks(sql,pos);
+        if(pos==sql.length())
+            return true;
+        char c=sql.charAt(pos);
+        return c==')' || c==',' || c==';';
+    }
+
+    private static int skipBlanks(String sql,int pos){
+        int length=sql.length();
+        while(pos<length){
+            if(Character.isWhitespace(sql.charAt(pos)))
+                pos++;
+            else if(isCommentStart(sql,pos))
+                pos=skipComment(sql,pos);
+            else
+                break;
+        }
+        return pos;
+    }
+
+    private static boolean isIdentifierPart(char c){
+        return Character.isLetterOrDigit(c) || c=='_';
+    }
+
+    private static boolean isCommentStart(String sql,int pos){
+        if(pos+1>=sql.length())
+            return false;
+        char c=sql.charAt(pos);
+        char next=sql.charAt(pos+1);
+        return (c=='-' && next=='-') || (c=='/' && next=='*');
+    }
+
+    private static int skipComment(String sql,int pos){
+        if(sql.charAt(pos)=='-'){
+            int end=sql.indexOf('\n',pos);
+            return end<0?sql.length():end;
+        }
+        int end=sql.indexOf("*/",pos+2);
+        return end<0?sql.length():end+2;
+    }
+
+    /*
+     * The position after the closing quote of the quoted token starting at pos, or -1 if it is not closed
+     */
+    private static int skipQuoted(String sql,int pos,char quote){
+        int end=pos+1;
+        while(end<sql.length()){
+            if(sql.charAt(end)==quote){
+                if(end+1<sql.length() && sql.charAt(end+1)==quote)
+                    end+=2;
+                else
+                    return end+1;
+            }else
+                end++;
+        }
+        return -1;
+    }
+
+    private static int skipNumber(String sql,int pos){
+        int end=pos;
+        int length=sql.length();
+        while(end<length && Character.isDigit(sql.charAt(end)))
+            end++;
+        if(end<length && sql.charAt(end)=='.'){
+            end++;
+            while(end<length && Character.isDigit(sql.charAt(end)))
+                end++;
+        }
+        return end;
+    }
+}
@@ -73,9 +73,21 @@ public class GenericStatement implements Statement{
      */
 
     public GenericStatement(SchemaDescriptor compilationSchema,String statementText,boolean isForReadOnly){
+        this(compilationSchema,statementText,isForReadOnly,ExecutionContext.UNSPECIFIED_ISOLATION_LEVEL);
+    }
+
+    /**
+     * Constructor for a Statement with the isolation level it is prepared with, which is
+     * part of its identity in the statement cache. Preparing the statement replaces the
+     * level with the one of the LanguageConnectionContext it is prepared on.
+     *
+     * @param prepareIsolationLevel the prepare isolation level (see ExecutionContext)
+     */
+    public GenericStatement(SchemaDescriptor compilationSchema,String statementText,boolean isForReadOnly,int prepareIsolationLevel){
         this.compilationSchema=compilationSchema;
         this.statementText=statementText;
         this.isForReadOnly=isForReadOnly;
+        this.prepareIsolationLevel=prepareIsolationLevel;
     }
 
     public PreparedStatement prepare(LanguageConnectionContext lcc) throws StandardException{
@@ -194,6 +206,10 @@ public class GenericStatement implements Statement{
 
     public String getCompilationSchema(){ return compilationSchema.getDescriptorName(); }
 
+    public boolean isForReadOnly(){ return isForReadOnly; }
+
+    public int getPrepareIsolationLevel(){ return prepareIsolationLevel; }
+
     /**
      * Return the {@link PreparedStatement} currently associated with this
      * statement.
@@ -426,6 +442,7 @@ public class GenericStatement implements Statement{
                                   boolean foundInCache,
                                   CompilerContext cc) throws StandardException{
         HeaderPrintWriter istream=lcc.getLogStatementText()?Monitor.getStream():null;
+        long compileStart=System.currentTimeMillis();
         try{
             // Statement logging if lcc.getLogStatementText() is true
             if(istream!=null){
@@ -455,6 +472,17 @@ public class GenericStatement implements Statement{
              * we mark it valid.
              */
             Timestamp endTimestamp=generate(lcc,timestamps,cc,qt);
+            /*
+             * The phase timestamps are only taken when STATISTICS TIMING is on, but the total compile
+             * time is always kept, so that it can be reported with the statement's runtime statistics
+             */
+            preparedStmt.setCompileTimeMillis(timestamps[1]-timestamps[0],
+                    timestamps[2]-timestamps[1],
+                    timestamps[3]-timestamps[2],
+                    timestamps[4]-timestamps[3],
+                    System.currentTimeMillis()-compileStart,
+                    beginTimestamp,
+                    endTimestamp);
 
             saveTree(qt, CompilationPhase.AFTER_GENERATE);
 
@@ -56,6 +56,9 @@ public class GenericStorablePreparedStatement extends GenericPreparedStatement
     private ByteArray byteCode;
     private String className;
 
+    // approximate, updates from concurrent lookups may be lost
+    private volatile long cacheHits;
+
     /**
      * Default constructor, for formatable only.
      */
@@ -67,6 +70,20 @@ public class GenericStorablePreparedStatement extends GenericPreparedStatement
         super(stmt);
     }
 
+    /**
+     * Note that this statement was found in the statement cache.
+     */
+    public void recordCacheHit() {
+        cacheHits++;
+    }
+
+    /**
+     * @return the (approximate) number of times this statement was found in the statement cache
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
     /**
      * Get our byte code array.  Used by others to save off our byte code for us.
      *
@@ -40,7 +40,12 @@ import org.sparkproject.guava.cache.Cache;
 import org.sparkproject.guava.cache.CacheBuilder;
 
 import javax.management.MXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -363,9 +368,29 @@ public class DataDictionaryCache {
         GenericStorablePreparedStatement gsps = statementCache.getIfPresent(gs);
         if (LOG.isDebugEnabled())
             LOG.debug("statementCacheFind " + gs.toString() +(gsps != null ? " found" : " null"));
+        if (gsps != null)
+            gsps.recordCacheHit();
         return gsps;
     }
 
+    /**
+     * @return the keys of up to {@code max} cached statements, the most frequently reused first
+     */
+    public List<GenericStatement> statementCacheHottest(int max) {
+        // copy the hit counts first, since they can change while we sort
+        final Map<GenericStatement,Long> hits = new HashMap<>();
+        for (Map.Entry<GenericStatement,GenericStorablePreparedStatement> entry : statementCache.asMap().entrySet())
+            hits.put(entry.getKey(), entry.getValue().getCacheHits());
+        List<GenericStatement> hottest = new ArrayList<>(hits.keySet());
+        Collections.sort(hottest, new Comparator<GenericStatement>() {
+            @Override
+            public int compare(GenericStatement o1, GenericStatement o2) {
+                return Long.compare(hits.get(o2), hits.get(o1));
+            }
+        });
+        return hottest.size() > max ? new ArrayList<>(hottest.subList(0, max)) : hottest;
+    }
+
     public void roleCacheAdd(String roleName, Optional<RoleGrantDescriptor> optional) throws StandardException {
         if (!dd.canUseCache(null))
             return;
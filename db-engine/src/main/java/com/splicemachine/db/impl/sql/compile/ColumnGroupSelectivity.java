@@ -0,0 +1,55 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+package com.splicemachine.db.impl.sql.compile;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.store.access.StoreCostController;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+/**
+ *
+ * Selectivity of equality predicates on every column of a group, taken from the statistics on the group's
+ * combined values instead of multiplying the selectivities of the columns.
+ *
+ */
+public class ColumnGroupSelectivity extends AbstractSelectivityHolder {
+    private final StoreCostController storeCost;
+    private final int[] columnGroup;
+    private final DataValueDescriptor[] values;
+
+    public ColumnGroupSelectivity(StoreCostController storeCost, int[] columnGroup, DataValueDescriptor[] values, QualifierPhase phase){
+        super(columnGroup[0],phase);
+        this.storeCost = storeCost;
+        this.columnGroup = columnGroup;
+        this.values = values;
+    }
+
+    public double getSelectivity() throws StandardException {
+        if (selectivity == -1.0d)
+            selectivity = storeCost.getSelectivity(columnGroup,values);
+        return selectivity;
+    }
+}
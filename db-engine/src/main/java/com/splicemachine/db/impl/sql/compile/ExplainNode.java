@@ -47,12 +47,19 @@ import java.util.Collection;
 public class ExplainNode extends DMLStatementNode {
 
     StatementNode node;
+    /*
+     * EXPLAIN ANALYZE: run the statement, and show what each operation actually did next to the estimates
+     */
+    boolean analyze;
 
     int activationKind() { return StatementNode.NEED_NOTHING_ACTIVATION; }
 
     public String statementToString() { return "Explain"; }
 
-    public void init(Object statementNode) { node = (StatementNode)statementNode; }
+    public void init(Object statementNode, Object analyze) {
+        node = (StatementNode)statementNode;
+        this.analyze = (Boolean)analyze;
+    }
 
     /**
      * Used by splice. Provides direct access to the node underlying the explain node.
@@ -63,6 +70,10 @@ public class ExplainNode extends DMLStatementNode {
         return node;
     }
 
+    public boolean isAnalyze(){
+        return analyze;
+    }
+
     @Override
     public void optimizeStatement() throws StandardException {
         node.optimizeStatement();
@@ -79,16 +90,20 @@ public class ExplainNode extends DMLStatementNode {
          * Explain Operations should always use the control side (since they don't actually move any data).
          * If you don't set this here, and if the underlying tablescan is believed to cost more than a
          * certain fixed number, then we will perform the Explain in Spark, which will be brutal and useless.
-         * This forces us to use control-side execution
+         * This forces us to use control-side execution.
+         *
+         * EXPLAIN ANALYZE runs the statement, so it has to run it wherever the statement would have run.
          */
-        getCompilerContext().setDataSetProcessorType(CompilerContext.DataSetProcessorType.FORCED_CONTROL);
+        if (!analyze)
+            getCompilerContext().setDataSetProcessorType(CompilerContext.DataSetProcessorType.FORCED_CONTROL);
         acb.pushGetResultSetFactoryExpression(mb);
         // parameter
         node.generate(acb, mb);
         acb.pushThisAsActivation(mb);
         int resultSetNumber = getCompilerContext().getNextResultSetNumber();
         mb.push(resultSetNumber);
-        mb.callMethod(VMOpcode.INVOKEINTERFACE,null, "getExplainResultSet", ClassName.NoPutResultSet, 3);
+        mb.push(analyze);
+        mb.callMethod(VMOpcode.INVOKEINTERFACE,null, "getExplainResultSet", ClassName.NoPutResultSet, 4);
     }
 
     @Override
@@ -50,6 +50,7 @@ public class OrderByList extends OrderedColumnList implements RequiredRowOrderin
     private ColumnOrdering[] columnOrdering;
     private boolean sortNeeded=true;
     private int resultSetNumber=-1;
+    private long rowLimit;
 
     /**
      * Add a column to the list
@@ -362,6 +363,20 @@ public class OrderByList extends OrderedColumnList implements RequiredRowOrderin
         alwaysSort=true;
     }
 
+    /**
+     * Only the first {@code rowLimit} rows of the ordered output will be read (because of an OFFSET/FETCH FIRST
+     * whose values are known when the statement is compiled), so the sort may keep just those rows.
+     *
+     * @param rowLimit the number of rows read from the sort, or 0 if they all are (or it is not known)
+     */
+    public void setRowLimit(long rowLimit){
+        this.rowLimit=rowLimit;
+    }
+
+    public long getRowLimit(){
+        return rowLimit;
+    }
+
     /**
      * Are all columns in the list ascending.
      *
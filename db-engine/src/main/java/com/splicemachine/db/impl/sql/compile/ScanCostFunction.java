@@ -223,6 +223,7 @@ public class ScanCostFunction{
 
     public void generateCost() throws StandardException {
 
+        addColumnGroupSelectivity();
         double baseTableSelectivity = computePhaseSelectivity(selectivityHolder,QualifierPhase.BASE);
         double filterBaseTableSelectivity = computePhaseSelectivity(selectivityHolder,QualifierPhase.BASE,QualifierPhase.FILTER_BASE);
         double projectionSelectivity = computePhaseSelectivity(selectivityHolder,QualifierPhase.FILTER_PROJECTION);
@@ -382,6 +383,57 @@ public class ScanCostFunction{
         return selectivity;
     }
 
+    /**
+     *
+     * Replace the equality selectivities of the columns of a group with a single selectivity taken from the
+     * statistics on the group's combined values, where such statistics exist. Multiplying the selectivities of
+     * correlated columns (even with the sqrt backoff) underestimates the number of rows returned, whereas the
+     * group statistics count the rows matching all the values at once.
+     *
+     * The largest groups are tried first, and each column's equality is used by at most one group. All the
+     * equalities of a group must be applied in the same phase.
+     *
+     * @throws StandardException
+     */
+    private void addColumnGroupSelectivity() throws StandardException {
+        List<int[]> columnGroups = new ArrayList<>(scc.columnGroups());
+        if (columnGroups.isEmpty())
+            return;
+        Collections.sort(columnGroups, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] o1, int[] o2) {
+                return Integer.compare(o2.length, o1.length);
+            }
+        });
+        GROUPS: for (int[] columnGroup : columnGroups) {
+            RangeSelectivity[] equalities = new RangeSelectivity[columnGroup.length];
+            for (int i = 0; i < columnGroup.length; i++) {
+                int colNum = columnGroup[i];
+                if (colNum <= 0 || colNum >= selectivityHolder.length || selectivityHolder[colNum] == null)
+                    continue GROUPS;
+                for (SelectivityHolder holder : selectivityHolder[colNum]) {
+                    if (holder.isRangeSelectivity() && isEquality((RangeSelectivity) holder)
+                            && (i == 0 || holder.getPhase() == equalities[0].getPhase())) {
+                        equalities[i] = (RangeSelectivity) holder;
+                        break;
+                    }
+                }
+                if (equalities[i] == null)
+                    continue GROUPS;
+            }
+            DataValueDescriptor[] values = new DataValueDescriptor[columnGroup.length];
+            for (int i = 0; i < columnGroup.length; i++) {
+                selectivityHolder[columnGroup[i]].remove(equalities[i]);
+                values[i] = equalities[i].start;
+            }
+            addSelectivity(new ColumnGroupSelectivity(scc, columnGroup, values, equalities[0].getPhase()));
+        }
+    }
+
+    private static boolean isEquality(RangeSelectivity rs) {
+        return rs.start != null && rs.start == rs.stop && rs.includeStart && rs.includeStop;
+    }
+
     /**
      *
      * Method to combine range qualifiers a>12 and a< 15 -> range qualifier (12<a<15)
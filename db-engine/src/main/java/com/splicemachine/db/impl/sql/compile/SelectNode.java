@@ -1477,6 +1477,9 @@ public class SelectNode extends ResultSetNode{
             // the optimizer will optimize away the sort.
             orderByList.setAlwaysSort();
         }
+        if(orderByList!=null && !isDistinct){
+            orderByList.setRowLimit(constantRowLimit());
+        }
 
 		/* Get a new optimizer */
         optimizer=getOptimizer(fromList, wherePredicates, dataDictionary, orderByList);
@@ -1868,6 +1871,18 @@ public class SelectNode extends ResultSetNode{
         orderByQuery=true;
     }
 
+    /*
+     * @return offset+fetch first if both are constants (or there is no offset), else 0
+     */
+    private long constantRowLimit() throws StandardException{
+        if(!(fetchFirst instanceof ConstantNode) || (offset!=null && !(offset instanceof ConstantNode)))
+            return 0;
+        long rowLimit=((ConstantNode)fetchFirst).getValue().getLong();
+        if(offset!=null)
+            rowLimit+=((ConstantNode)offset).getValue().getLong();
+        return rowLimit;
+    }
+
     /**
      * Push down the offset and fetch first parameters to this node.
      *
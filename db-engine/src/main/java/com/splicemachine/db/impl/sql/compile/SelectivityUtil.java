@@ -30,7 +30,10 @@ import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.compile.*;
 import com.splicemachine.db.iapi.sql.dictionary.ConglomerateDescriptor;
 import com.splicemachine.db.iapi.sql.dictionary.IndexRowGenerator;
+import com.splicemachine.db.iapi.store.access.StoreCostController;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -84,10 +87,85 @@ public class SelectivityUtil {
                 if (!p.isJoinPredicate()) continue;
                 selectivity = Math.min(selectivity, p.joinSelectivity(innerTable, innerCD, innerRowCount, outerRowCount, selectivityJoinType));
             }
+            if (selectivityJoinType == SelectivityJoinType.INNER)
+                selectivity = Math.min(selectivity, columnGroupJoinSelectivity(innerTable, predList));
         }
         return selectivity;
     };
 
+    /**
+     *
+     * Selectivity of the equality join predicates between the inner table and an outer table, taken from the
+     * statistics on the combined values of a group of join columns on each side. A join on several correlated
+     * columns is then estimated from the number of distinct combinations, rather than from the most selective
+     * column alone.
+     *
+     * @return the selectivity, or 1.0d if no group of the inner table's join columns has statistics on both sides
+     * @throws StandardException
+     */
+    private static double columnGroupJoinSelectivity(Optimizable innerTable, OptimizablePredicateList predList) throws StandardException {
+        List<ColumnReference> innerColumns = new ArrayList<>();
+        List<ColumnReference> outerColumns = new ArrayList<>();
+        for (int i = 0; i < predList.size(); i++) {
+            Predicate p = (Predicate) predList.getOptPredicate(i);
+            if (!p.isJoinPredicate() || !(p.getRelop() instanceof BinaryRelationalOperatorNode)) continue;
+            BinaryRelationalOperatorNode bron = (BinaryRelationalOperatorNode) p.getRelop();
+            if (bron.getOperator() != RelationalOperator.EQUALS_RELOP
+                    || !isBaseColumn(bron.getLeftOperand()) || !isBaseColumn(bron.getRightOperand())) continue;
+            ColumnReference left = (ColumnReference) bron.getLeftOperand();
+            ColumnReference right = (ColumnReference) bron.getRightOperand();
+            ColumnReference inner = right.getTableNumber() == innerTable.getTableNumber() ? right : left;
+            ColumnReference outer = inner == right ? left : right;
+            if (inner.getTableNumber() != innerTable.getTableNumber() || outer.getTableNumber() == innerTable.getTableNumber())
+                continue;
+            // only the columns of a single outer table can make up a group
+            if (!outerColumns.isEmpty() && outerColumns.get(0).getTableNumber() != outer.getTableNumber())
+                continue;
+            innerColumns.add(inner);
+            outerColumns.add(outer);
+        }
+        if (innerColumns.size() < 2)
+            return 1.0d;
+
+        StoreCostController innerScc = innerColumns.get(0).getStoreCostController();
+        StoreCostController outerScc = outerColumns.get(0).getStoreCostController();
+        double selectivity = 1.0d;
+        GROUPS: for (int[] innerGroup : innerScc.columnGroups()) {
+            int[] outerGroup = new int[innerGroup.length];
+            for (int i = 0; i < innerGroup.length; i++) {
+                int position = indexOfColumn(innerColumns, innerGroup[i]);
+                if (position < 0)
+                    continue GROUPS;
+                outerGroup[i] = outerColumns.get(position).getSource().getColumnPosition();
+            }
+            Arrays.sort(outerGroup);
+            for (int[] candidate : outerScc.columnGroups()) {
+                int[] sorted = Arrays.copyOf(candidate, candidate.length);
+                Arrays.sort(sorted);
+                if (!Arrays.equals(sorted, outerGroup))
+                    continue;
+                long innerCardinality = innerScc.cardinality(innerGroup);
+                long outerCardinality = outerScc.cardinality(candidate);
+                if (innerCardinality > 0 && outerCardinality > 0)
+                    selectivity = Math.min(selectivity, 1.0d / Math.min(innerCardinality, outerCardinality));
+            }
+        }
+        return selectivity;
+    }
+
+    private static boolean isBaseColumn(ValueNode operand) {
+        return operand instanceof ColumnReference && ((ColumnReference) operand).getSource() != null
+                && ((ColumnReference) operand).getSource().getTableColumnDescriptor() != null;
+    }
+
+    private static int indexOfColumn(List<ColumnReference> columns, int columnPosition) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getSource().getColumnPosition() == columnPosition)
+                return i;
+        }
+        return -1;
+    }
+
     public static double estimateScanSelectivity(Optimizable innerTable, OptimizablePredicateList predList) throws StandardException {
         double selectivity = 1d;
         if (innerTable == null) {
@@ -36,6 +36,7 @@ import com.splicemachine.db.iapi.sql.compile.AggregateDefinition;
 import com.splicemachine.db.iapi.sql.compile.CompilerContext;
 import com.splicemachine.db.iapi.sql.compile.TypeCompilerFactory;
 import com.splicemachine.db.iapi.sql.dictionary.AliasDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.SchemaDescriptor;
 import com.splicemachine.db.iapi.types.DataTypeDescriptor;
 import com.splicemachine.db.iapi.types.JSQLType;
 
@@ -146,7 +147,8 @@ class UserAggregateDefinition implements AggregateDefinition
             Class<?>       expectedReturnClass = getJavaClass( classFactory, expectedReturnType );
 
             // the input operand must be coercible to the expected input type of the aggregate
-            if ( !tcf.getTypeCompiler( expectedInputType.getTypeId() ).storable( inputType.getTypeId(), classFactory ) )
+            if ( !tcf.getTypeCompiler( expectedInputType.getTypeId() ).storable( inputType.getTypeId(), classFactory )
+                 && !castableToSystemStringInput( tcf, expectedInputType, inputType ) )
             { return null; }
             
             //
@@ -188,6 +190,19 @@ class UserAggregateDefinition implements AggregateDefinition
 		catch (ClassNotFoundException cnfe) { throw aggregatorInstantiation( cnfe ); }
 	}
 
+    /**
+     * System aggregates which take a string, such as APPROX_COUNT_DISTINCT, work on the string form of their
+     * operand, so they accept any operand which can be cast to a string, and not just those which can be stored
+     * in one.
+     */
+    private boolean castableToSystemStringInput
+        ( TypeCompilerFactory tcf, DataTypeDescriptor expectedInputType, DataTypeDescriptor inputType )
+    {
+        return SchemaDescriptor.IBM_SYSTEM_FUN_SCHEMA_NAME.equals( _alias.getSchemaName() ) &&
+            expectedInputType.getTypeId().isStringTypeId() &&
+            tcf.getTypeCompiler( inputType.getTypeId() ).convertible( expectedInputType.getTypeId(), false );
+    }
+
     /**
      * Verify that an actual type is compatible with the expected type.
      */
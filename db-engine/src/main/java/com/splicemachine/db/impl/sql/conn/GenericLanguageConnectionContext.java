@@ -238,6 +238,7 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
     // Whether or not to write executing statement info to db2j.log
     private boolean logStatementText;
     private boolean logQueryPlan;
+    private boolean autoParameterize;
     private HeaderPrintWriter istream;
 
     // this used to be computed in OptimizerFactoryContextImpl; i.e everytime a
@@ -329,6 +330,9 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
         String logQueryPlanProperty=PropertyUtil.getServiceProperty(getTransactionCompile(),"derby.language.logQueryPlan");
         logQueryPlan=Boolean.valueOf(logQueryPlanProperty);
 
+        String autoParameterizeProperty=PropertyUtil.getServiceProperty(getTransactionCompile(),Property.AUTO_PARAMETERIZE);
+        autoParameterize=Boolean.valueOf(autoParameterizeProperty);
+
         lockEscalationThreshold=Property.DEFAULT_LOCKS_ESCALATION_THRESHOLD;
         stmtValidators=new ArrayList<>();
         triggerTables=new ArrayList<>();
@@ -460,6 +464,11 @@ public class GenericLanguageConnectionContext extends ContextImpl implements Lan
         this.logStatementText=logStatementText;
     }
 
+    @Override
+    public boolean getAutoParameterize(){
+        return autoParameterize;
+    }
+
     @Override
     public boolean getLogQueryPlan(){
         return logQueryPlan;
@@ -0,0 +1,145 @@
+/*
+ * Apache Derby is a subproject of the Apache DB project, and is licensed under
+ * the Apache License, Version 2.0 (the "License"); you may not use these files
+ * except in compliance with the License. You may obtain a copy of the License at:
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ * Splice Machine, Inc. has modified this file.
+ *
+ * All Splice Machine modifications are Copyright 2012 - 2016 Splice Machine, Inc.,
+ * and are licensed to you under the License; you may not use this file except in
+ * compliance with the License.
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ *
+ */
+
+package com.splicemachine.db.impl.sql;
+
+import com.splicemachine.db.iapi.sql.ParameterValueSet;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test case for AutoParameterizedStatement.
+ */
+public class AutoParameterizedStatementTest {
+
+    @Test
+    public void testReplacesComparisonLiterals() {
+        AutoParameterizedStatement s = AutoParameterizedStatement.normalize(
+                "select * from t where id = 4711 and name<>'O''Brien' and (x >= 1.5)");
+        assertEquals("select * from t where id = ? and name<>? and (x >= ?)", s.getText());
+        assertEquals(3, s.getParameterCount());
+    }
+
+    @Test
+    public void testDifferentConstantsShareText() {
+        assertEquals(AutoParameterizedStatement.normalize("delete from t where a = 1 and b = 'x'").getText(),
+                AutoParameterizedStatement.normalize("delete from t where a = 2 and b = 'y'").getText());
+    }
+
+    @Test
+    public void testLeavesSetAssignments() {
+        AutoParameterizedStatement s = AutoParameterizedStatement.normalize(
+                "update t set a = 1, b = 'x', c = (select max(d) from u where e = 2) where f = 3 and g = 'y'");
+        assertEquals("update t set a = 1, b = 'x', c = (select max(d) from u where e = ?) where f = ? and g = ?",
+                s.getText());
+        assertEquals(3, s.getParameterCount());
+        assertNull(AutoParameterizedStatement.normalize("update t set a = 1, b = 'x'"));
+    }
+
+    @Test
+    public void testReplacesValuesElements() {
+        assertEquals("insert into t values (?, ?), (?, ?)",
+                AutoParameterizedStatement.normalize("insert into t values (1, 'a'), (2.5, 'b')").getText());
+        assertEquals("insert into t values (?, abs(1), 1 + 2, -1, ?)",
+                AutoParameterizedStatement.normalize("insert into t values (1, abs(1), 1 + 2, -1, 'a')").getText());
+        assertEquals("insert into t select * from u where a = ?",
+                AutoParameterizedStatement.normalize("insert into t select * from u where a = 1").getText());
+    }
+
+    @Test
+    public void testBindsLiteralsInOrder() throws Exception {
+        AutoParameterizedStatement s = AutoParameterizedStatement.normalize(
+                "select * from t where a = 4711 and b = 'O''Brien' and c = 1.25 and d = 12345678901234567890");
+        DataTypeDescriptor[] types = {
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER),
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR, 10),
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DECIMAL),
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.DECIMAL)};
+        ParameterValueSet pvs = parameters(types);
+        assertTrue(s.bind(types, pvs));
+        assertEquals(4711, pvs.getParameter(0).getInt());
+        assertEquals("O'Brien", pvs.getParameter(1).getString());
+        assertEquals(0, new BigDecimal("1.25").compareTo((BigDecimal) pvs.getParameter(2).getObject()));
+        assertEquals(0, new BigDecimal("12345678901234567890").compareTo((BigDecimal) pvs.getParameter(3).getObject()));
+        assertTrue(pvs.allAreSet());
+    }
+
+    @Test
+    public void testRefusesLiteralsWhichDontFit() throws Exception {
+        DataTypeDescriptor[] smallint = {DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.SMALLINT)};
+        assertFalse(AutoParameterizedStatement.normalize("select * from t where a = 100000")
+                .bind(smallint, parameters(smallint)));
+
+        DataTypeDescriptor[] integer = {DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER)};
+        assertFalse(AutoParameterizedStatement.normalize("select * from t where a = 1.5")
+                .bind(integer, parameters(integer)));
+        assertFalse(AutoParameterizedStatement.normalize("select * from t where a = '1'")
+                .bind(integer, parameters(integer)));
+
+        DataTypeDescriptor[] varchar = {DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.VARCHAR, 10)};
+        assertFalse(AutoParameterizedStatement.normalize("select * from t where a = 1")
+                .bind(varchar, parameters(varchar)));
+        // the statement compiled to a different number of parameters
+        assertFalse(AutoParameterizedStatement.normalize("select * from t where a = 'x' and b = 'y'")
+                .bind(varchar, parameters(varchar)));
+    }
+
+    @Test
+    public void testLeavesPlanShapingLiterals() {
+        assertNull(AutoParameterizedStatement.normalize(
+                "select * from t where a like 'ab%' and b in (1, 2) and c between 3 and 4 fetch first 5 rows only"));
+        assertEquals("select * from t --splice-properties index=IX_1\n where a = ? and b = -1 and c = 2 + d",
+                AutoParameterizedStatement.normalize(
+                        "select * from t --splice-properties index=IX_1\n where a = 1 and b = -1 and c = 2 + d").getText());
+    }
+
+    @Test
+    public void testIgnoresQuotedText() {
+        assertEquals("select \"a=1\" from t where b = ?",
+                AutoParameterizedStatement.normalize("select \"a=1\" from t where b = 'c=2'").getText());
+    }
+
+    @Test
+    public void testIneligibleStatements() {
+        assertNull(AutoParameterizedStatement.normalize("insert into t values (?, 1)"));
+        assertNull(AutoParameterizedStatement.normalize("create view v as select * from t where a = 1"));
+        assertNull(AutoParameterizedStatement.normalize("select * from t where a = ? and b = 1"));
+        assertNull(AutoParameterizedStatement.normalize("select * from t where a = 1e3"));
+    }
+
+    private static ParameterValueSet parameters(DataTypeDescriptor[] types) throws Exception {
+        ParameterValueSet pvs = new GenericParameterValueSet(null, types.length, false);
+        pvs.initialize(types);
+        return pvs;
+    }
+}
@@ -667,6 +667,19 @@ public interface Property {
 	String STATEMENT_CACHE_SIZE = "derby.language.statementCacheSize";
 	int STATEMENT_CACHE_SIZE_DEFAULT = 100;
 
+	/**
+	  derby.language.autoParameterize
+
+	  <P>
+	  If true, the comparison literals and VALUES elements of statements
+	  executed through java.sql.Statement, or prepared by the network server
+	  without parameter markers, are replaced with parameters before the
+	  statement cache is searched, so that statements which differ only in
+	  their constants share one compiled plan. The assignments of a SET
+	  clause are left as written. Database. Default false.
+	 */
+	String AUTO_PARAMETERIZE = "derby.language.autoParameterize";
+
 	/**
 	 * Tells if the system stored procedures should be updated during database boot up.
 	 * Default is false.  System property.  Loaded once (static initializer).
@@ -23,6 +23,7 @@ import com.splicemachine.constants.EnvUtils;
 import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.lifecycle.DatabaseLifecycleManager;
 import com.splicemachine.lifecycle.PipelineLoadService;
+import com.splicemachine.pipeline.PartitionWritePipeline;
 import com.splicemachine.pipeline.PipelineDriver;
 import com.splicemachine.pipeline.PipelineEnvironment;
 import com.splicemachine.pipeline.api.PipelineExceptionFactory;
@@ -31,6 +32,7 @@ import com.splicemachine.pipeline.context.WriteContext;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryDriver;
 import com.splicemachine.pipeline.contextfactory.ContextFactoryLoader;
 import com.splicemachine.pipeline.contextfactory.WriteContextFactory;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.api.server.TransactionalRegion;
 import com.splicemachine.si.api.txn.TxnView;
@@ -44,12 +46,16 @@ import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.hadoop.hbase.*;
 import org.apache.hadoop.hbase.client.Durability;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.BaseRegionObserver;
 import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.filter.PageFilter;
 import org.apache.hadoop.hbase.regionserver.RegionCoprocessorHost;
 import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
 import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Pair;
 import org.apache.log4j.Logger;
 
 import javax.annotation.Nullable;
@@ -65,8 +71,15 @@ import java.util.List;
  */
 public class SpliceIndexObserver extends BaseRegionObserver {
     private static final Logger LOG = Logger.getLogger(SpliceIndexObserver.class);
+    /*
+     * The most a server's clock may differ from the master's; the master refuses servers whose clocks differ
+     * by more. The clocks of two servers may therefore differ by twice as much
+     */
+    private static final String MAX_CLOCK_SKEW="hbase.master.maxclockskew";
+    private static final long DEFAULT_MAX_CLOCK_SKEW=30000l;
 
     private long conglomId=-1L;
+    private long maxClockSkew=DEFAULT_MAX_CLOCK_SKEW;
     private TransactionalRegion region;
     private TxnOperationFactory operationFactory;
     private PipelineExceptionFactory exceptionFactory;
@@ -77,6 +90,7 @@ public class SpliceIndexObserver extends BaseRegionObserver {
     @Override
     public void start(final CoprocessorEnvironment e) throws IOException{
         RegionCoprocessorEnvironment rce=((RegionCoprocessorEnvironment)e);
+        maxClockSkew=rce.getConfiguration().getLong(MAX_CLOCK_SKEW,DEFAULT_MAX_CLOCK_SKEW);
 
         String tableName=rce.getRegion().getTableDesc().getTableName().getQualifierAsString();
         TableType table=EnvUtils.getTableType(HConfiguration.getConfiguration(),rce);
@@ -159,6 +173,10 @@ public class SpliceIndexObserver extends BaseRegionObserver {
         if (LOG.isTraceEnabled())
             SpliceLogUtils.trace(LOG, "prePut %s",put);
         if(conglomId>0){
+            byte[] txnData = put.getAttribute(SIConstants.SI_TRANSACTION_ID_KEY);
+            TxnView txn = txnData==null || operationFactory==null?null:operationFactory.fromWrites(txnData,0,txnData.length);
+            if(put.has(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES))
+                markWritten(txn);
             if(put.getAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME)!=null) return;
             if(factoryLoader==null){
                 try{
@@ -180,13 +198,34 @@ public class SpliceIndexObserver extends BaseRegionObserver {
             }else{
                 kv = new KVPair(row, HConstants.EMPTY_BYTE_ARRAY);
             }
-            byte[] txnData = put.getAttribute(SIConstants.SI_TRANSACTION_ID_KEY);
-            TxnView txn = operationFactory.fromWrites(txnData,0,txnData.length);
+            if(txn==null)
+                txn = operationFactory.fromWrites(txnData,0,txnData.length);
             mutate(kv,txn);
         }
         super.prePut(e, put, edit, durability);
     }
 
+    @Override
+    public void preBulkLoadHFile(ObserverContext<RegionCoprocessorEnvironment> ctx,List<Pair<byte[], String>> familyPaths) throws IOException{
+        markWritten(null);
+        super.preBulkLoadHFile(ctx,familyPaths);
+    }
+
+    @Override
+    public RegionScanner preScannerOpen(ObserverContext<RegionCoprocessorEnvironment> e,Scan scan,RegionScanner s) throws IOException{
+        byte[] unchangedSince=scan.getAttribute(SIConstants.UNCHANGED_SINCE_ATTRIBUTE_NAME);
+        if(unchangedSince!=null){
+            /*
+             * The time comes from another server's clock, so only trust that the region is unchanged
+             * if it would be even with that clock running as far ahead as it is allowed to
+             */
+            PartitionWritePipeline pipeline=service==null?null:service.getWritePipeline();
+            if(pipeline!=null && pipeline.isUnchangedSince(Bytes.toLong(unchangedSince)-2*maxClockSkew))
+                scan.setFilter(new PageFilter(0l)); //return no rows
+        }
+        return super.preScannerOpen(e,scan,s);
+    }
+
     @Override
     public void postRollBackSplit(ObserverContext<RegionCoprocessorEnvironment> ctx) throws IOException{
         RegionCoprocessorEnvironment rce=ctx.getEnvironment();
@@ -201,6 +240,16 @@ public class SpliceIndexObserver extends BaseRegionObserver {
      * ***************************************************************************************************************
      */
     /*private helper methods*/
+    private void markWritten(TxnView txn){
+        PartitionWritePipeline pipeline=service==null?null:service.getWritePipeline();
+        if(pipeline==null)
+            return;
+        if(txn==null)
+            pipeline.markWritten();
+        else
+            pipeline.markWritten(txn);
+    }
+
     private void mutate(KVPair mutation,TxnView txn) throws IOException {
         if (LOG.isTraceEnabled())
             SpliceLogUtils.trace(LOG, "mutate %s", mutation);
@@ -256,7 +256,9 @@ public class SpliceDefaultCompactor extends DefaultCompactor {
                     SIDriver driver=SIDriver.driver();
                     SICompactionState state = new SICompactionState(driver.getTxnSupplier(),
                             driver.getRollForward(),
-                            driver.getConfiguration().getActiveTransactionCacheSize());
+                            driver.getConfiguration().getActiveTransactionCacheSize(),
+                            driver.getTxnLowWaterMark(),
+                            request.isAllFiles());
                     scanner = new SICompactionScanner(state,scanner);
                 }
                 if (scanner == null) {
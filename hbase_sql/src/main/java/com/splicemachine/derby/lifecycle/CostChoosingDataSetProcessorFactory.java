@@ -28,6 +28,8 @@ import com.splicemachine.db.impl.sql.execute.BaseActivation;
 import com.splicemachine.derby.iapi.sql.execute.DataSetProcessorFactory;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.stream.control.ControlDataSetProcessor;
+import com.splicemachine.derby.stream.control.ControlRowBudget;
+import com.splicemachine.derby.stream.control.ControlUtils;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.DistributedDataSetProcessor;
 import com.splicemachine.derby.stream.spark.HregionDataSetProcessor;
@@ -75,7 +77,18 @@ public class CostChoosingDataSetProcessorFactory implements DataSetProcessorFact
         }
         if (((BaseActivation)activation).useSpark())
             return new SparkDataSetProcessor();
-        return new ControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
+        if (ControlRowBudget.previouslyExceeded(activation.getPreparedStatement())) {
+            if (LOG.isTraceEnabled())
+                SpliceLogUtils.trace(LOG, "chooseProcessor(): op %s exceeded its control-side row budget before, using Spark", op==null?"null":op.getName());
+            return new SparkDataSetProcessor();
+        }
+        ControlDataSetProcessor dsp = new ControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
+        long rowLimit = ControlUtils.adaptiveRowLimit();
+        if (rowLimit > 0 && op != null && op.returnsRows() && !SpliceBaseOperation.isOlapServer()) {
+            // the plan may have underestimated the query, so allow the operation to resubmit it to Spark
+            dsp.setRowBudget(new ControlRowBudget(rowLimit));
+        }
+        return dsp;
     }
 
     @Override
@@ -112,7 +125,7 @@ public class CostChoosingDataSetProcessorFactory implements DataSetProcessorFact
 
     private boolean allowsDistributedExecution(){ // corresponds to master_dataset isRunningOnSpark
         if(Thread.currentThread().getName().contains("DRDAConn")) return true; //we are on the derby execution thread
-        else if(Thread.currentThread().getName().startsWith("olap-worker")) return true; //we are on the OlapServer thread
+        else if(SpliceBaseOperation.isOlapServer()) return true; //we are on the OlapServer thread
         else if(Thread.currentThread().getName().contains("Executor task launch worker")) return false; //we are definitely in spark
         else return RegionServerLifecycleObserver.isHbaseJVM; //we can run in spark as long as are in the HBase JVM
     }
@@ -59,6 +59,7 @@ public class HregionDataSetProcessor extends ControlDataSetProcessor {
         return new TableScannerBuilder<V>(){
             @Override
             public DataSet<V> buildDataSet() throws StandardException{
+                sampleFraction=1d; //sampling is only done by the Spark record reader; read every row
                 try{
                     SIDriver driver = SIDriver.driver();
                     PartitionFactory tableFactory = driver.getTableFactory();
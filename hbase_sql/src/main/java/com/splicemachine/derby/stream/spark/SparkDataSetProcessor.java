@@ -18,8 +18,10 @@ package com.splicemachine.derby.stream.spark;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import com.google.common.collect.Lists;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.LongWritable;
@@ -27,7 +29,9 @@ import org.apache.hadoop.io.Text;
 import org.apache.log4j.Logger;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkStatusTracker;
 import org.apache.spark.api.java.function.Function;
+import org.apache.spark.SparkJobInfo;
 import scala.Tuple2;
 import com.splicemachine.access.HConfiguration;
 import com.splicemachine.access.api.FileInfo;
@@ -252,6 +256,22 @@ public class SparkDataSetProcessor implements DistributedDataSetProcessor, Seria
         SpliceSpark.getContext().cancelJobGroup(jobName);
     }
 
+    @Override
+    public List<Integer> getStageIds(String jobName) {
+        JavaSparkStatusTracker tracker = SpliceSpark.getContext().statusTracker();
+        List<Integer> stageIds = new ArrayList<>();
+        for (int jobId : tracker.getJobIdsForGroup(jobName)) {
+            SparkJobInfo info = tracker.getJobInfo(jobId);
+            if (info == null)
+                continue; // no longer retained
+            for (int stageId : info.stageIds()) {
+                stageIds.add(stageId);
+            }
+        }
+        Collections.sort(stageIds);
+        return stageIds;
+    }
+
     private transient ThreadLocal<BroadcastedActivation> broadcastedActivation = new ThreadLocal<>();
 
     private void setupBroadcastedActivation(Activation activation, SpliceOperation root){
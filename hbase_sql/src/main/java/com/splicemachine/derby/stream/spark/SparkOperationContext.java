@@ -55,6 +55,7 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
     public Accumulator<Long> rowsProduced;
     public Accumulator<Long> rowsFiltered;
     public Accumulator<Long> rowsWritten;
+    public Accumulator<Long> bytesRead;
     public Accumulator<Long> retryAttempts;
     public Accumulator<Long> regionTooBusyExceptions;
 
@@ -93,6 +94,7 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         this.rowsJoinedLeft=SpliceSpark.getContext().accumulator(0l,baseName+" rows joined left",param);
         this.rowsJoinedRight=SpliceSpark.getContext().accumulator(0l,baseName+" rows joined right",param);
         this.rowsProduced=SpliceSpark.getContext().accumulator(0l,baseName+" rows produced",param);
+        this.bytesRead=SpliceSpark.getContext().accumulator(0l,baseName+" bytes read",param);
 
         this.retryAttempts =SpliceSpark.getContext().accumulator(0L, "(WritePipeline) retry attempts", param);
         this.regionTooBusyExceptions =SpliceSpark.getContext().accumulator(0L, "(WritePipeline) region too busy exceptions", param);
@@ -122,6 +124,7 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         this.rowsJoinedLeft=SpliceSpark.getContext().accumulator(0l,"rows joined left",param);
         this.rowsJoinedRight=SpliceSpark.getContext().accumulator(0l,"rows joined right",param);
         this.rowsProduced=SpliceSpark.getContext().accumulator(0l,"rows produced",param);
+        this.bytesRead=SpliceSpark.getContext().accumulator(0l,"bytes read",param);
 
         this.retryAttempts =SpliceSpark.getContext().accumulator(0L, "(WritePipeline) retry attempts", param);
         this.regionTooBusyExceptions =SpliceSpark.getContext().accumulator(0L, "(WritePipeline) region too busy exceptions", param);
@@ -159,6 +162,7 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         out.writeObject(rowsJoinedLeft);
         out.writeObject(rowsJoinedRight);
         out.writeObject(rowsProduced);
+        out.writeObject(bytesRead);
         out.writeObject(badRecordsAccumulator);
         out.writeObject(thrownErrorsRows);
         out.writeObject(retriedRows);
@@ -194,6 +198,7 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         rowsJoinedLeft=(Accumulator<Long>)in.readObject();
         rowsJoinedRight=(Accumulator<Long>)in.readObject();
         rowsProduced=(Accumulator<Long>)in.readObject();
+        bytesRead=(Accumulator<Long>)in.readObject();
         badRecordsAccumulator = (Accumulable<BadRecordsRecorder,String>) in.readObject();
 
         thrownErrorsRows=(Accumulator<Long>)in.readObject();
@@ -334,6 +339,11 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         rowsProduced.add(1l);
     }
 
+    @Override
+    public void recordBytesRead(long bytes){
+        bytesRead.add(bytes);
+    }
+
     @Override
     public long getRecordsRead(){
         return rowsRead.value();
@@ -349,6 +359,26 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         return rowsWritten.value();
     }
 
+    @Override
+    public long getRecordsJoinedLeft(){
+        return rowsJoinedLeft.value();
+    }
+
+    @Override
+    public long getRecordsJoinedRight(){
+        return rowsJoinedRight.value();
+    }
+
+    @Override
+    public long getRecordsProduced(){
+        return rowsProduced.value();
+    }
+
+    @Override
+    public long getBytesRead(){
+        return bytesRead.value();
+    }
+
     @Override
     public long getRetryAttempts(){
         return retryAttempts.value();
@@ -36,6 +36,7 @@ import com.splicemachine.derby.lifecycle.MonitoredLifecycleService;
 import com.splicemachine.derby.lifecycle.NetworkLifecycleService;
 import com.splicemachine.lifecycle.DatabaseLifecycleManager;
 import com.splicemachine.lifecycle.RegionServerLifecycle;
+import com.splicemachine.lifecycle.TxnLowWaterMarkService;
 import com.splicemachine.si.data.hbase.coprocessor.HBaseSIEnvironment;
 import com.splicemachine.si.impl.driver.SIDriver;
 import org.apache.log4j.Logger;
@@ -91,6 +92,8 @@ public class RegionServerLifecycleObserver extends BaseRegionServerObserver{
             ManagerLoader.load().getEncryptionManager();
             HBaseConnectionFactory connFactory = HBaseConnectionFactory.getInstance(driver.getConfiguration());
             RegionServerLifecycle distributedStartupSequence=new RegionServerLifecycle(driver.getClock(),connFactory);
+            //must be started before the engine begins any transactions
+            manager.registerEngineService(new TxnLowWaterMarkService(driver,regionServerZNode,false));
             manager.registerEngineService(new MonitoredLifecycleService(distributedStartupSequence,config));
 
             //register the network boot service
@@ -36,6 +36,7 @@ import com.splicemachine.concurrent.SystemClock;
 import com.splicemachine.derby.lifecycle.EngineLifecycleService;
 import com.splicemachine.lifecycle.DatabaseLifecycleManager;
 import com.splicemachine.lifecycle.MasterLifecycle;
+import com.splicemachine.lifecycle.TxnLowWaterMarkService;
 import com.splicemachine.olap.OlapServer;
 import com.splicemachine.si.data.hbase.coprocessor.HBaseSIEnvironment;
 import com.splicemachine.si.impl.driver.SIDriver;
@@ -56,6 +57,7 @@ public class SpliceMasterObserver extends BaseMasterObserver {
     private TimestampServer timestampServer;
     private DatabaseLifecycleManager manager;
     private OlapServer olapServer;
+    private String serverName;
 
     @Override
     public void start(CoprocessorEnvironment ctx) throws IOException {
@@ -64,6 +66,7 @@ public class SpliceMasterObserver extends BaseMasterObserver {
         LOG.info("Starting Timestamp Master Observer");
 
         ZooKeeperWatcher zkw = ((MasterCoprocessorEnvironment)ctx).getMasterServices().getZooKeeper();
+        serverName = ((MasterCoprocessorEnvironment)ctx).getMasterServices().getServerName().getServerName();
         RecoverableZooKeeper rzk = zkw.getRecoverableZooKeeper();
 
         HBaseSIEnvironment env=HBaseSIEnvironment.loadEnvironment(new SystemClock(),rzk);
@@ -138,6 +141,8 @@ public class SpliceMasterObserver extends BaseMasterObserver {
         //register the engine boot service
         try{
             MasterLifecycle distributedStartupSequence=new MasterLifecycle();
+            //must be started before the engine begins any transactions
+            manager.registerEngineService(new TxnLowWaterMarkService(driver,serverName,true));
             manager.registerEngineService(new EngineLifecycleService(distributedStartupSequence,config));
             manager.start();
         }catch(Exception e1){
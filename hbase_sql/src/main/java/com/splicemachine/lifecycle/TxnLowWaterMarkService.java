@@ -0,0 +1,162 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.lifecycle;
+
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.concurrent.MoreExecutors;
+import com.splicemachine.hbase.ZkUtils;
+import com.splicemachine.si.api.txn.TxnStore;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.si.impl.txn.ActiveTxnTracker;
+import com.splicemachine.timestamp.api.TimestampSource;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.zookeeper.RecoverableZooKeeper;
+import org.apache.log4j.Logger;
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.ZooDefs;
+
+import javax.management.MBeanServer;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maintains the transaction low water mark: a timestamp below which no active or future transaction began.
+ * Compactions use it to purge the versions of data which no transaction can see any more.
+ * <p/>
+ * Every server periodically publishes the low water mark of the transactions it has begun (see
+ * {@link ActiveTxnTracker}) to an ephemeral node in ZooKeeper. The master then combines those with the oldest
+ * active transaction in the transaction table (which covers the writable transactions of servers which have
+ * since died) and records the result as the remembered timestamp of the {@link TimestampSource}.
+ * <p/>
+ * A server's node is created (holding 0, which disables purging) before the server begins any transaction, so
+ * the master never misses a server's transactions.
+ */
+public class TxnLowWaterMarkService implements DatabaseLifecycleService{
+    private static final Logger LOG=Logger.getLogger(TxnLowWaterMarkService.class);
+
+    private final boolean master;
+    private final String lowWaterMarksPath;
+    private final String serverPath;
+    private final long interval;
+    private final ActiveTxnTracker tracker;
+    private final TimestampSource timestampSource;
+    private final TxnStore txnStore;
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param driver the SI driver of this server
+     * @param serverName the name of this server, which must be unique in the cluster
+     * @param master whether this server computes the low water mark for the whole cluster
+     */
+    public TxnLowWaterMarkService(SIDriver driver,String serverName,boolean master){
+        SConfiguration config=driver.getConfiguration();
+        this.master=master;
+        this.lowWaterMarksPath=config.getSpliceRootPath()+HConfiguration.LOW_WATER_MARK_PATH;
+        this.serverPath=lowWaterMarksPath+"/"+serverName;
+        this.interval=config.getTransactionLowWaterMarkInterval();
+        this.tracker=driver.getActiveTxnTracker();
+        this.timestampSource=driver.getTimestampSource();
+        this.txnStore=driver.getTxnStore();
+    }
+
+    @Override
+    public void start() throws Exception{
+        if(interval<=0) return; //purging is disabled, so there's nothing to maintain
+
+        //a node left behind by an earlier session of this server would disappear when that session expires
+        ZkUtils.safeDelete(serverPath,-1);
+        createServerNode(0l);
+
+        executor=MoreExecutors.namedSingleThreadScheduledExecutor("txn-low-water-mark-%d");
+        executor.scheduleWithFixedDelay(new Runnable(){
+            @Override
+            public void run(){
+                try{
+                    publish();
+                    if(master)
+                        computeClusterLowWaterMark();
+                }catch(Exception e){
+                    LOG.warn("Unable to update the transaction low water mark",e);
+                }
+            }
+        },0l,interval,TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void registerJMX(MBeanServer mbs) throws Exception{
+        //no JMX for this service
+    }
+
+    @Override
+    public void shutdown() throws Exception{
+        if(executor!=null)
+            executor.shutdownNow();
+        if(interval>0)
+            ZkUtils.safeDelete(serverPath,-1);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void publish() throws KeeperException, InterruptedException{
+        long lowWaterMark=tracker.lowWaterMark(timestampSource);
+        try{
+            ZkUtils.getRecoverableZooKeeper().setData(serverPath,Bytes.toBytes(lowWaterMark),-1);
+        }catch(KeeperException.NoNodeException nne){
+            createServerNode(lowWaterMark);
+        }
+    }
+
+    private void createServerNode(long lowWaterMark) throws KeeperException, InterruptedException{
+        ZkUtils.recursiveSafeCreate(serverPath,Bytes.toBytes(lowWaterMark),ZooDefs.Ids.OPEN_ACL_UNSAFE,CreateMode.EPHEMERAL);
+    }
+
+    private void computeClusterLowWaterMark() throws Exception{
+        long previous=timestampSource.retrieveTimestamp();
+        /*
+         * Servers which publish for the first time after we read the nodes will only begin transactions after
+         * this timestamp
+         */
+        long lowWaterMark=timestampSource.nextTimestamp();
+
+        RecoverableZooKeeper rzk=ZkUtils.getRecoverableZooKeeper();
+        List<String> servers=rzk.getChildren(lowWaterMarksPath,false);
+        for(String server : servers){
+            byte[] data;
+            try{
+                data=rzk.getData(lowWaterMarksPath+"/"+server,false,null);
+            }catch(KeeperException.NoNodeException nne){
+                continue; //the server has gone away, its writable transactions are still in the transaction table
+            }
+            lowWaterMark=Math.min(lowWaterMark,Bytes.toLong(data));
+        }
+
+        //the previous low water mark is still a valid bound, so there's no need to look below it
+        long[] activeTxnIds=txnStore.getActiveTransactionIds(previous,lowWaterMark,null);
+        for(long activeTxnId : activeTxnIds){
+            lowWaterMark=Math.min(lowWaterMark,activeTxnId);
+        }
+
+        if(lowWaterMark>previous){
+            timestampSource.rememberTimestamp(lowWaterMark);
+            if(LOG.isDebugEnabled())
+                LOG.debug("Transaction low water mark advanced from "+previous+" to "+lowWaterMark);
+        }
+    }
+}
@@ -76,8 +76,9 @@ public abstract class AbstractSMInputFormat<K,V> extends InputFormat<K, V> imple
         if (LOG.isDebugEnabled())
             SpliceLogUtils.debug(LOG, "getSplits with context=%s",context);
         Scan s;
+        TableScannerBuilder tsb;
         try {
-            TableScannerBuilder tsb = TableScannerBuilder.getTableScannerBuilderFromBase64String(conf.get(MRConstants.SPLICE_SCAN_INFO));
+            tsb = TableScannerBuilder.getTableScannerBuilderFromBase64String(conf.get(MRConstants.SPLICE_SCAN_INFO));
             s = ((HScan)tsb.getScan()).unwrapDelegate();
         } catch (StandardException e) {
             SpliceLogUtils.error(LOG, e);
@@ -92,7 +93,7 @@ public abstract class AbstractSMInputFormat<K,V> extends InputFormat<K, V> imple
         boolean refresh = false;
         while (true) {
             try {
-                List<Partition> splits = clientPartition.subPartitions(s.getStartRow(), s.getStopRow(), refresh);
+                List<Partition> splits = tsb.readPartitions(clientPartition.subPartitions(s.getStartRow(), s.getStopRow(), refresh));
 
                 if (oneSplitPerRegion(conf))
                     return toSMSplits(splits);
@@ -46,6 +46,7 @@ import org.apache.log4j.Logger;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class SMRecordReaderImpl extends RecordReader<RowLocation, ExecRow> {
     protected static final Logger LOG = Logger.getLogger(SMRecordReaderImpl.class);
@@ -159,6 +160,8 @@ public class SMRecordReaderImpl extends RecordReader<RowLocation, ExecRow> {
         if (activationHolder!=null) {
             //activationHolder.close();
         }
+        if (siTableScanner != null && builder.getOperationContext() != null)
+            builder.getOperationContext().recordBytesRead(siTableScanner.getBytesVisited());
 
         for (AutoCloseable c : closeables) {
 			if (c != null) {
@@ -199,12 +202,25 @@ public class SMRecordReaderImpl extends RecordReader<RowLocation, ExecRow> {
             if (statisticsRun)
                 driver.getPartitionInfoCache().invalidate(htable.getName());
             Partition clientPartition = new ClientPartition(instance.getConnection(),htable.getName(),htable,clock,driver.getPartitionInfoCache());
-			SplitRegionScanner srs = new SplitRegionScanner(scan,
-					htable,
-					clock,
-                    clientPartition);
-			this.hregion = srs.getRegion();
-			this.mrs = srs;
+            DataScanner dataScanner;
+            List<Scan> sample = statisticsRun ? sampleRanges(clientPartition) : null;
+            if (sample != null) {
+                SampledRegionDataScanner sampledScanner = new SampledRegionDataScanner(sample,
+                        htable,
+                        clock,
+                        clientPartition,
+                        Metrics.basicMetricFactory());
+                this.hregion = sampledScanner.getRegion();
+                dataScanner = sampledScanner;
+            } else {
+                SplitRegionScanner srs = new SplitRegionScanner(scan,
+                        htable,
+                        clock,
+                        clientPartition);
+                this.hregion = srs.getRegion();
+                this.mrs = srs;
+                dataScanner = new RegionDataScanner(new RegionPartition(hregion),mrs,statisticsRun?Metrics.basicMetricFactory():Metrics.noOpMetricFactory());
+            }
 			ExecRow template = SMSQLUtil.getExecRow(builder.getExecRowTypeFormatIds());
             assert this.hregion !=null:"Returned null HRegion for htable "+htable.getName();
 			long conglomId = Long.parseLong(hregion.getTableDesc().getTableName().getQualifierAsString());
@@ -215,7 +231,7 @@ public class SMRecordReaderImpl extends RecordReader<RowLocation, ExecRow> {
                     .template(template)
                     .transaction(localTxn)
                     .scan(new HScan(scan))
-                    .scanner(new RegionDataScanner(new RegionPartition(hregion),mrs,statisticsRun?Metrics.basicMetricFactory():Metrics.noOpMetricFactory()));
+                    .scanner(dataScanner);
 			if (LOG.isTraceEnabled())
 				SpliceLogUtils.trace(LOG, "restart with builder=%s",builder);
 			siTableScanner = builder.build();
@@ -227,6 +243,51 @@ public class SMRecordReaderImpl extends RecordReader<RowLocation, ExecRow> {
 	}
 
 
+    /**
+     * Choose the key ranges to read when statistics are collected from a sample of the region. The region
+     * is cut into ranges at the same block boundaries used to split ordinary scans, and the ranges are picked
+     * evenly spaced from a random offset, so that the sample covers the whole region without favouring any
+     * part of it.
+     *
+     * Records the fraction actually sampled in the builder, so the collected statistics are scaled by it.
+     *
+     * @return the ranges to read, or {@code null} to read the whole region
+     */
+    private List<Scan> sampleRanges(Partition clientPartition) {
+        double fraction = builder.getSampleFraction();
+        if (fraction >= 1d)
+            return null;
+        List<InputSplit> splits;
+        try {
+            splits = new HBaseSubregionSplitter().getSubSplits(htable,
+                    clientPartition.subPartitions(scan.getStartRow(), scan.getStopRow(), false));
+        } catch (Exception e) {
+            LOG.warn("Unable to compute ranges to sample, reading the whole region", e);
+            builder.sampleFraction(1d);
+            return null;
+        }
+        int n = splits.size();
+        int k = (int) Math.max(1, Math.ceil(fraction * n));
+        if (k >= n) {
+            // region too small to sample
+            builder.sampleFraction(1d);
+            return null;
+        }
+        double offset = ThreadLocalRandom.current().nextDouble();
+        List<Scan> ranges = new ArrayList<>(k);
+        for (int i = 0; i < k; i++) {
+            TableSplit split = ((SMSplit) splits.get((int) ((i + offset) * n / k))).getSplit();
+            Scan range = new Scan(scan);
+            range.setStartRow(split.getStartRow());
+            range.setStopRow(split.getEndRow());
+            ranges.add(range);
+        }
+        if (LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG, "sampling %d of %d ranges of %s", k, n, htable.getName());
+        builder.sampleFraction(((double) k) / n);
+        return ranges;
+    }
+
     public int[] getExecRowTypeFormatIds() {
 		if (builder == null) {
 			String tableScannerAsString = config.get(MRConstants.SPLICE_SCAN_INFO);
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.mrio.api.core;
+
+import com.splicemachine.concurrent.Clock;
+import com.splicemachine.metrics.MetricFactory;
+import com.splicemachine.metrics.Metrics;
+import com.splicemachine.metrics.MultiTimeView;
+import com.splicemachine.metrics.TimeView;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.storage.RegionDataScanner;
+import com.splicemachine.storage.RegionPartition;
+import com.splicemachine.storage.SplitRegionScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads a sample of a region: a number of key ranges within it, one after the other, as if they were a
+ * single scan. Each range is read by its own {@link SplitRegionScanner}, which is only opened once the
+ * previous range is exhausted. Metrics add up over all the ranges read so far.
+ */
+public class SampledRegionDataScanner implements DataScanner{
+    private final List<Scan> ranges;
+    private final Table htable;
+    private final Clock clock;
+    private final Partition clientPartition;
+    private final MetricFactory metricFactory;
+    private final HRegion region;
+    private final Partition partition;
+
+    private int nextRange;
+    private RegionDataScanner current;
+    private long bytesOutput;
+    private long rowsFiltered;
+    private long rowsVisited;
+    private final MultiTimeView readTime=Metrics.multiTimeView();
+
+    public SampledRegionDataScanner(List<Scan> ranges,
+                                    Table htable,
+                                    Clock clock,
+                                    Partition clientPartition,
+                                    MetricFactory metricFactory) throws IOException{
+        assert !ranges.isEmpty():"No ranges to sample";
+        this.ranges=ranges;
+        this.htable=htable;
+        this.clock=clock;
+        this.clientPartition=clientPartition;
+        this.metricFactory=metricFactory;
+        SplitRegionScanner first=openNext();
+        this.region=first.getRegion();
+        this.partition=current.getPartition();
+    }
+
+    /**
+     * @return the region the first range is read from
+     */
+    public HRegion getRegion(){
+        return region;
+    }
+
+    @Override
+    public Partition getPartition(){
+        return partition;
+    }
+
+    @Override
+    public @Nonnull List<DataCell> next(int limit) throws IOException{
+        List<DataCell> cells=current.next(limit);
+        while(cells.isEmpty() && nextRange<ranges.size()){
+            finishCurrent();
+            openNext();
+            cells=current.next(limit);
+        }
+        return cells;
+    }
+
+    @Override
+    public TimeView getReadTime(){
+        MultiTimeView time=Metrics.multiTimeView();
+        time.update(readTime);
+        time.update(current.getReadTime());
+        return time;
+    }
+
+    @Override public long getBytesOutput(){ return bytesOutput+current.getBytesOutput(); }
+    @Override public long getRowsFiltered(){ return rowsFiltered+current.getRowsFiltered(); }
+    @Override public long getRowsVisited(){ return rowsVisited+current.getRowsVisited(); }
+
+    @Override
+    public void close() throws IOException{
+        current.close();
+    }
+
+    /* *********************************************************************************************************/
+    /*private helper methods*/
+
+    private SplitRegionScanner openNext() throws IOException{
+        SplitRegionScanner srs=new SplitRegionScanner(ranges.get(nextRange++),htable,clock,clientPartition);
+        current=new RegionDataScanner(new RegionPartition(srs.getRegion()),srs,metricFactory);
+        return srs;
+    }
+
+    private void finishCurrent() throws IOException{
+        bytesOutput+=current.getBytesOutput();
+        rowsFiltered+=current.getRowsFiltered();
+        rowsVisited+=current.getRowsVisited();
+        readTime.update(current.getReadTime());
+        current.close();
+    }
+}
@@ -35,12 +35,16 @@ import org.junit.Test;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 public class TableScannerBuilderTest{
     protected static Scan scan=new Scan(Bytes.toBytes("1"));
     protected static int[] array1={1,2};
     protected static int[] array2={2,3};
     protected static int[] array3={3,4};
+    protected static Set<String> skipped=new HashSet<>(Arrays.asList("region-1","region-3"));
     protected static TxnView txn=ReadOnlyTxn.create(23,IsolationLevel.READ_UNCOMMITTED,null,null);
 
 
@@ -51,7 +55,8 @@ public class TableScannerBuilderTest{
                 .scan(new HScan(scan))
                 .transaction(txn)
                 .keyDecodingMap(array2)
-                .keyColumnTypes(array3);
+                .keyColumnTypes(array3)
+                .skippedPartitions(skipped);
         String base64=((TableScannerBuilder)scanSetBuilder).getTableScannerBuilderBase64String();
 
         TableScannerBuilder builder=TableScannerBuilder.getTableScannerBuilderFromBase64String(base64);
@@ -60,6 +65,7 @@ public class TableScannerBuilderTest{
         Assert.assertArrayEquals(array3,builder.keyColumnTypes);
         Assert.assertEquals(SpliceTableMapReduceUtil.convertScanToString(scan),SpliceTableMapReduceUtil.convertScanToString(((HScan)builder.scan).unwrapDelegate()));
         Assert.assertEquals(txn,builder.txn);
+        Assert.assertEquals(skipped,builder.skippedPartitions);
 
     }
 
@@ -46,6 +46,8 @@ public class SICompactionScanner implements InternalScanner {
         rawList.clear();
         final boolean more = delegate.next(rawList);
         compactionState.mutate(rawList, list);
+        if(!more)
+            compactionState.finish(list);
         return more;
     }
 
@@ -107,7 +107,7 @@ public class HBaseSIEnvironment implements SIEnvironment{
         this.txnStore = new CoprocessorTxnStore(txnNetworkLayerFactory,timestampSource,null);
         int completedTxnCacheSize = config.getCompletedTxnCacheSize();
         int completedTxnConcurrency = config.getCompletedTxnConcurrency();
-        this.txnSupplier = new CompletedTxnCacheSupplier(txnStore,completedTxnCacheSize,completedTxnConcurrency);
+        this.txnSupplier = new CompletedTxnCacheSupplier(txnStore,completedTxnCacheSize,completedTxnConcurrency,config.getCompletedTxnOffHeap());
         this.txnStore.setCache(txnSupplier);
         this.opFactory =HOperationFactory.INSTANCE;
         this.txnOpFactory = new SimpleTxnOperationFactory(exceptionFactory(),opFactory);
@@ -133,7 +133,7 @@ public class HBaseSIEnvironment implements SIEnvironment{
         this.txnStore = new CoprocessorTxnStore(txnNetworkLayerFactory,timestampSource,null);
         int completedTxnCacheSize = config.getCompletedTxnCacheSize();
         int completedTxnConcurrency = config.getCompletedTxnConcurrency();
-        this.txnSupplier = new CompletedTxnCacheSupplier(txnStore,completedTxnCacheSize,completedTxnConcurrency);
+        this.txnSupplier = new CompletedTxnCacheSupplier(txnStore,completedTxnCacheSize,completedTxnConcurrency,config.getCompletedTxnOffHeap());
         this.txnStore.setCache(txnSupplier);
         this.opFactory =HOperationFactory.INSTANCE;
         this.txnOpFactory = new SimpleTxnOperationFactory(exceptionFactory(),opFactory);
@@ -168,7 +168,9 @@ public class SIObserver extends BaseRegionObserver{
             SIDriver driver=SIDriver.driver();
             SICompactionState state = new SICompactionState(driver.getTxnSupplier(),
                     driver.getRollForward(),
-                    driver.getConfiguration().getActiveTransactionCacheSize());
+                    driver.getConfiguration().getActiveTransactionCacheSize(),
+                    driver.getTxnLowWaterMark(),
+                    compactionRequest!=null && compactionRequest.isAllFiles());
             return new SICompactionScanner(state,scanner);
         }else{
             return super.preCompact(e,store,scanner,scanType,compactionRequest);
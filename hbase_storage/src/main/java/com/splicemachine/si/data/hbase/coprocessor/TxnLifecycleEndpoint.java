@@ -172,6 +172,20 @@ public class TxnLifecycleEndpoint extends TxnMessage.TxnLifecycleService impleme
         }
     }
 
+    @Override
+    public void getTransactions(RpcController controller,TxnMessage.MultiTxnRequest request,RpcCallback<TxnMessage.MultiTxnResponse> done){
+        try{
+            int count=request.getTxnIdsCount();
+            long[] txnIds=new long[count];
+            for(int i=0;i<count;i++){
+                txnIds[i]=request.getTxnIds(i);
+            }
+            done.run(lifecycleStore.getTransactions(txnIds));
+        }catch(IOException ioe){
+            ResponseConverter.setControllerException(controller,ioe);
+        }
+    }
+
     @Override
     public void getActiveTransactionIds(RpcController controller,TxnMessage.ActiveTxnRequest request,RpcCallback<TxnMessage.ActiveTxnIdResponse> done){
         long endTxnId=request.getEndTxnId();
@@ -15,6 +15,9 @@
 
 package com.splicemachine.si.impl;
 
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongObjectOpenHashMap;
+import com.carrotsearch.hppc.LongOpenHashSet;
 import org.sparkproject.guava.collect.Iterators;
 import org.sparkproject.guava.collect.Lists;
 import org.sparkproject.guava.primitives.Longs;
@@ -30,6 +33,7 @@ import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnStore;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.coprocessor.TxnMessage;
 import com.splicemachine.si.impl.txn.InheritingTxnView;
 import com.splicemachine.timestamp.api.TimestampSource;
@@ -242,6 +246,57 @@ public class CoprocessorTxnStore implements TxnStore {
         }
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        if(txnIds.length<=0) return txns;
+        /*
+         * The transaction table is split into buckets by the low bits of the transaction id, so group
+         * the ids by bucket and ask for each bucket's ids in a single call. A bucket may have been split
+         * across regions, in which case the region we reach only answers for its own ids; we fall back
+         * to looking up the others one at a time.
+         */
+        LongArrayList[] buckets=new LongArrayList[SIConstants.TRANSACTION_TABLE_BUCKET_COUNT];
+        for(long txnId : txnIds){
+            int bucket=(int)(txnId&(SIConstants.TRANSACTION_TABLE_BUCKET_COUNT-1));
+            if(buckets[bucket]==null)
+                buckets[bucket]=new LongArrayList();
+            buckets[bucket].add(txnId);
+        }
+
+        LongObjectOpenHashMap<TxnMessage.Txn> found=LongObjectOpenHashMap.newInstance(txnIds.length,0.75f);
+        LongOpenHashSet missing=new LongOpenHashSet();
+        try(TxnNetworkLayer table=tableFactory.accessTxnNetwork()){
+            for(LongArrayList bucket : buckets){
+                if(bucket==null) continue;
+                lookups.incrementAndGet();
+                TxnMessage.MultiTxnRequest.Builder request=TxnMessage.MultiTxnRequest.newBuilder();
+                for(int i=0;i<bucket.size();i++){
+                    request.addTxnIds(bucket.get(i));
+                }
+                TxnMessage.MultiTxnResponse response=table.getTxns(getTransactionRowKey(bucket.get(0)),request.build());
+                for(TxnMessage.Txn txn : response.getTxnsList()){
+                    found.put(txn.getInfo().getTxnId(),txn);
+                }
+                for(int i=0;i<response.getMissingTxnIdsCount();i++){
+                    missing.add(response.getMissingTxnIds(i));
+                }
+            }
+        }catch(Throwable throwable){
+            throw new IOException(throwable);
+        }
+
+        for(int i=0;i<txnIds.length;i++){
+            long txnId=txnIds[i];
+            TxnMessage.Txn txn=found.get(txnId);
+            if(txn!=null)
+                txns[i]=decode(txn);
+            else if(!missing.contains(txnId))
+                txns[i]=getTransaction(txnId);
+        }
+        return txns;
+    }
+
     /*caching methods--since we don't have a cache, these are no-ops*/
     @Override
     public boolean transactionCached(long txnId){
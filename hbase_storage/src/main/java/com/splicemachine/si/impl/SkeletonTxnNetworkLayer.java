@@ -119,6 +119,16 @@ public abstract class SkeletonTxnNetworkLayer implements TxnNetworkLayer{
         return done.get();
     }
 
+    @Override
+    public TxnMessage.MultiTxnResponse getTxns(byte[] rowKey,TxnMessage.MultiTxnRequest request) throws IOException{
+        TxnMessage.TxnLifecycleService service=getLifecycleService(rowKey);
+        SpliceRpcController controller=new SpliceRpcController();
+        BlockingRpcCallback<TxnMessage.MultiTxnResponse> done=new BlockingRpcCallback<>();
+        service.getTransactions(controller,request,done);
+        dealWithError(controller);
+        return done.get();
+    }
+
     protected abstract TxnMessage.TxnLifecycleService getLifecycleService(byte[] rowKey) throws IOException;
 
     protected abstract <C> Map<byte[],C> coprocessorService(Class<TxnMessage.TxnLifecycleService> txnLifecycleServiceClass,
@@ -38,5 +38,7 @@ public interface TxnNetworkLayer extends AutoCloseable{
 
     TxnMessage.Txn getTxn(byte[] rowKey,TxnMessage.TxnRequest request) throws IOException;
 
+    TxnMessage.MultiTxnResponse getTxns(byte[] rowKey,TxnMessage.MultiTxnRequest request) throws IOException;
+
     void close() throws IOException;
 }
@@ -31,11 +31,18 @@ import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.RegionTooBusyException;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -46,6 +53,7 @@ import java.io.IOException;
 @ThreadSafe
 public class SynchronousReadResolver implements KeyedReadResolver{
     private static final Logger LOG=Logger.getLogger(SynchronousReadResolver.class);
+    private static final int MAX_BATCH_ATTEMPTS=2;
 
     //don't instantiate me, I'm a singleton!
     private SynchronousReadResolver(){
@@ -90,19 +98,13 @@ public class SynchronousReadResolver implements KeyedReadResolver{
                 }finally{
                     trafficControl.release(1);
                 }
-            }else{
-                TxnView t=transaction;
-                while(t.getState()==Txn.State.COMMITTED){
-                    t=t.getParentTxnView();
-                }
-                if(t==Txn.ROOT_TRANSACTION){
-                    trafficControl.acquire(1);
-                    try{
-                        SynchronousReadResolver.INSTANCE.resolveCommitted(region,rowKey,txnId,transaction.getEffectiveCommitTimestamp(),failOnError);
-                        resolved=true;
-                    }finally{
-                        trafficControl.release(1);
-                    }
+            }else if(isCommittedToRoot(transaction)){
+                trafficControl.acquire(1);
+                try{
+                    SynchronousReadResolver.INSTANCE.resolveCommitted(region,rowKey,txnId,transaction.getEffectiveCommitTimestamp(),failOnError);
+                    resolved=true;
+                }finally{
+                    trafficControl.release(1);
                 }
             }
             status.rowResolved();
@@ -119,8 +121,136 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         }
     }
 
+    @Override
+    public Collection<ByteSlice> resolve(Partition region,Collection<ByteSlice> rowKeys,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        int size=rowKeys.size();
+        if(size<=0) return Collections.emptyList();
+        try{
+            TxnView transaction=supplier.getTransaction(txnId);
+            ByteSlice[] rows=rowKeys.toArray(new ByteSlice[size]);
+            Mutation[] mutations=new Mutation[size];
+            if(transaction.getEffectiveState()==Txn.State.ROLLEDBACK){
+                for(int i=0;i<size;i++){
+                    mutations[i]=rolledbackDelete(rows[i],txnId);
+                }
+            }else if(isCommittedToRoot(transaction)){
+                long commitTimestamp=transaction.getEffectiveCommitTimestamp();
+                for(int i=0;i<size;i++){
+                    mutations[i]=committedPut(rows[i],txnId,commitTimestamp);
+                }
+            }else{
+                //nothing to resolve yet, same as a single row
+                for(int i=0;i<size;i++){
+                    status.rowResolved();
+                }
+                return Collections.emptyList();
+            }
+            List<ByteSlice> resolved;
+            trafficControl.acquire(size);
+            try{
+                resolved=writeBatch(region,rows,mutations,failOnError);
+            }finally{
+                trafficControl.release(size);
+            }
+            for(int i=0;i<resolved.size();i++){
+                status.rowResolved();
+            }
+            return resolved;
+        }catch(IOException e){
+            LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve",e);
+            if(failOnError)
+                throw new RuntimeException(e);
+            return Collections.emptyList();
+        }catch(InterruptedException e){
+            LOG.debug("Interrupted which performing read resolution, will not resolve");
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        }
+    }
+
     /******************************************************************************************************************/
     /*private helper methods */
+    private static boolean isCommittedToRoot(TxnView transaction){
+        TxnView t=transaction;
+        while(t.getState()==Txn.State.COMMITTED){
+            t=t.getParentTxnView();
+        }
+        return t==Txn.ROOT_TRANSACTION;
+    }
+
+    private static Put committedPut(ByteSlice rowKey,long txnId,long commitTimestamp){
+        Put put=new Put(rowKey.getByteCopy());
+        put.add(SIConstants.DEFAULT_FAMILY_BYTES,
+                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
+                Bytes.toBytes(commitTimestamp));
+        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
+        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        put.setDurability(Durability.SKIP_WAL);
+        return put;
+    }
+
+    private static Delete rolledbackDelete(ByteSlice rowKey,long txnId){
+        Delete delete=new Delete(rowKey.getByteCopy(),txnId)
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
+        delete.setDurability(Durability.SKIP_WAL);
+        delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        return delete;
+    }
+
+    /**
+     * @return the rows whose mutation was applied
+     */
+    private List<ByteSlice> writeBatch(Partition region,ByteSlice[] rows,Mutation[] mutations,boolean failOnError){
+        assert region instanceof RegionPartition: "Not on a region!";
+        /*
+         * Like the single-row writes, these bypass SI and the WAL; writing them as one batch means we take
+         * the region's locks and update the memstore once for the whole lot, rather than once per row.
+         */
+        if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
+            return Collections.emptyList(); //do nothing if we are closing or rollforward is disabled
+
+        /*
+         * The batch can partially succeed, so only the rows which come back SUCCESS are resolved. Rows which
+         * were not run get one more attempt; anything else is left for the next read to resolve.
+         */
+        List<ByteSlice> written=new ArrayList<>(rows.length);
+        try{
+            for(int attempt=0;attempt<MAX_BATCH_ATTEMPTS && mutations.length>0;attempt++){
+                OperationStatus[] statuses=((RegionPartition)region).unwrapDelegate().batchMutate(mutations);
+                int notRun=0;
+                for(int i=0;i<statuses.length;i++){
+                    switch(statuses[i].getOperationStatusCode()){
+                        case SUCCESS:
+                            written.add(rows[i]);
+                            break;
+                        case NOT_RUN:
+                            rows[notRun]=rows[i];
+                            mutations[notRun]=mutations[i];
+                            notRun++;
+                            break;
+                        default:
+                            LOG.info("Unable to resolve row "+rows[i].toHexString()+": "+statuses[i].getExceptionMsg());
+                            if(failOnError)
+                                throw new RuntimeException(new IOException(statuses[i].getExceptionMsg()));
+                    }
+                }
+                rows=Arrays.copyOf(rows,notRun);
+                mutations=Arrays.copyOf(mutations,notRun);
+            }
+            if(mutations.length>0 && LOG.isDebugEnabled())
+                LOG.debug(mutations.length+" rows were not run, will not resolve");
+        }catch(IOException e){
+            if(!(e instanceof RegionTooBusyException) && !(e instanceof NotServingRegionException)){
+                LOG.info("Exception encountered when attempting to resolve a batch of rows",e);
+                if(failOnError)
+                    throw new RuntimeException(e);
+            }
+        }
+        return written;
+    }
+
     private void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
         assert region instanceof RegionPartition: "Not on a region!";
         /*
@@ -131,13 +261,7 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing or rollforward is disabled
 
-        Put put=new Put(rowKey.getByteCopy());
-        put.add(SIConstants.DEFAULT_FAMILY_BYTES,
-                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
-                Bytes.toBytes(commitTimestamp));
-        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
-        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
-        put.setDurability(Durability.SKIP_WAL);
+        Put put=committedPut(rowKey,txnId,commitTimestamp);
         try{
             ((RegionPartition)region).unwrapDelegate().put(put);
         }catch(IOException e){
@@ -159,12 +283,7 @@ public class SynchronousReadResolver implements KeyedReadResolver{
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing
 
-        Delete delete=new Delete(rowKey.getByteCopy(),txnId)
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
-        delete.setDurability(Durability.SKIP_WAL);
-        delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        Delete delete=rolledbackDelete(rowKey,txnId);
         try{
             ((RegionPartition)region).unwrapDelegate().delete(delete);
         }catch(IOException ioe){
@@ -32,6 +32,7 @@ import com.splicemachine.utils.Source;
 import com.splicemachine.utils.SpliceLogUtils;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.client.*;
 import org.apache.hadoop.hbase.regionserver.HRegion;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
@@ -88,6 +89,24 @@ public class RegionTxnStore implements TxnPartition{
         return decode(txnId,result);
     }
 
+    @Override
+    public TxnMessage.MultiTxnResponse getTransactions(long[] txnIds) throws IOException{
+        if(LOG.isTraceEnabled())
+            SpliceLogUtils.trace(LOG,"getTransactions count=%d",txnIds.length);
+        HRegionInfo regionInfo=region.getRegionInfo();
+        TxnMessage.MultiTxnResponse.Builder response=TxnMessage.MultiTxnResponse.newBuilder();
+        for(long txnId : txnIds){
+            byte[] rowKey=getRowKey(txnId);
+            if(!regionInfo.containsRow(rowKey)) continue; //another region holds it
+            Result result=region.get(new Get(rowKey));
+            if(result==null||result.isEmpty())
+                response.addMissingTxnIds(txnId);
+            else
+                response.addTxns(decode(txnId,result));
+        }
+        return response.build();
+    }
+
     @Override
     public void addDestinationTable(long txnId,byte[] destinationTable) throws IOException{
         if(LOG.isTraceEnabled())
@@ -29,10 +29,12 @@ import com.splicemachine.storage.CellType;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -42,6 +44,13 @@ import java.util.TreeSet;
  * guts for SICompactionScanner.
  * <p/>
  * It is handed key-values and can change them.
+ * <p/>
+ * When given a low water mark (a timestamp below which no active or future transaction began), it also purges the
+ * versions of a row which no transaction can see any more: everything at or below a tombstone which was committed
+ * before the low water mark, and everything below such an anti-tombstone. The delete markers themselves can only be
+ * dropped when the compaction covers every file of the store, since older versions may live in the other files.
+ * Versions which are merely superseded by a later update are kept, because an update only writes the columns it
+ * changes.
  */
 public class SICompactionState {
     private static final Logger LOG = Logger.getLogger(SICompactionState.class);
@@ -49,27 +58,125 @@ public class SICompactionState {
     private SortedSet<Cell> dataToReturn;
     private final RollForward rollForward;
     private ByteSlice rowSlice = new ByteSlice();
+    private final long lowWaterMark;
+    private final boolean allFiles;
+    /*
+     * A compaction may hand us a row over several batches, so when purging we hold on to the cells
+     * of the current row until we have seen all of them
+     */
+    private final List<Cell> currentRow = new ArrayList<>();
 
     public SICompactionState(TxnSupplier transactionStore,RollForward rollForward,int activeTransactionCacheSize) {
+        this(transactionStore,rollForward,activeTransactionCacheSize,-1l,false);
+    }
+
+    /**
+     * @param lowWaterMark the timestamp below which no active or future transaction began, or a value {@code <=0}
+     *                     to keep every committed version
+     * @param allFiles whether the compaction covers every file of the store
+     */
+    public SICompactionState(TxnSupplier transactionStore,
+                             RollForward rollForward,
+                             int activeTransactionCacheSize,
+                             long lowWaterMark,
+                             boolean allFiles) {
         this.rollForward = rollForward;
         this.transactionStore = new ActiveTxnCacheSupplier(transactionStore,activeTransactionCacheSize);
         this.dataToReturn  =new TreeSet<>(KeyValue.COMPARATOR);
+        this.lowWaterMark = lowWaterMark;
+        this.allFiles = allFiles;
     }
 
     /**
      * Given a list of key-values, populate the results list with possibly mutated values.
+     * <p/>
+     * When purging, the last row seen is held back until the next call, or until {@link #finish(List)}.
      *
      * @param rawList - the input of key values to process
      * @param results - the output key values
      */
     public void mutate(List<Cell> rawList, List<Cell> results) throws IOException {
         dataToReturn.clear();
-        for (Cell aRawList : rawList) {
-            mutate(aRawList);
+        if(lowWaterMark<=0){
+            for (Cell aRawList : rawList) {
+                mutate(aRawList);
+            }
+        }else{
+            for(Cell cell : rawList){
+                if(!currentRow.isEmpty() && !CellUtil.matchingRow(currentRow.get(0),cell))
+                    purgeRow();
+                currentRow.add(cell);
+            }
         }
         results.addAll(dataToReturn);
     }
 
+    /**
+     * Populate the results list with the row held back by {@link #mutate(List,List)}. Called once the compaction
+     * has read all of its input.
+     *
+     * @param results - the output key values
+     */
+    public void finish(List<Cell> results) throws IOException {
+        if(currentRow.isEmpty()) return;
+        dataToReturn.clear();
+        purgeRow();
+        results.addAll(dataToReturn);
+    }
+
+    /**
+     * Apply the SI mutation logic to the cells of the current row, dropping the versions hidden by a delete marker
+     * which every transaction can see.
+     */
+    private void purgeRow() throws IOException {
+        long marker = -1l;
+        boolean tombstone = false;
+        for(Cell cell : currentRow){
+            CellType cellType = getKeyValueType(cell);
+            if(cellType==CellType.COMMIT_TIMESTAMP)
+                ensureTransactionCached(cell.getTimestamp(),cell);
+            else if((cellType==CellType.TOMBSTONE || cellType==CellType.ANTI_TOMBSTONE) && isVisibleToAll(cell.getTimestamp())){
+                //delete markers are sorted newest first, so this is the newest marker which everyone can see
+                marker = cell.getTimestamp();
+                tombstone = cellType==CellType.TOMBSTONE;
+                break;
+            }
+        }
+        for(Cell cell : currentRow){
+            if(marker<0 || !isPurged(cell,marker,tombstone))
+                mutate(cell);
+        }
+        currentRow.clear();
+    }
+
+    /*
+     * A tombstone hides the data written at or below it, and an anti-tombstone the data below it. Markers below
+     * the visible one make no difference to any reader, and neither do the commit timestamps of purged versions.
+     */
+    private boolean isPurged(Cell cell,long marker,boolean tombstone){
+        long timestamp = cell.getTimestamp();
+        switch(getKeyValueType(cell)){
+            case COMMIT_TIMESTAMP:
+                return timestamp<marker || (timestamp==marker && tombstone && allFiles);
+            case TOMBSTONE:
+            case ANTI_TOMBSTONE:
+                return timestamp<marker || (timestamp==marker && allFiles);
+            case USER_DATA:
+                return timestamp<marker || (timestamp==marker && tombstone);
+            default:
+                return false;
+        }
+    }
+
+    /*
+     * Whether the version written at this timestamp was committed before any active or future transaction began
+     */
+    private boolean isVisibleToAll(long timestamp) throws IOException {
+        TxnView transaction = transactionStore.getTransaction(timestamp);
+        return transaction.getEffectiveState()==Txn.State.COMMITTED
+                && transaction.getEffectiveCommitTimestamp()<lowWaterMark;
+    }
+
     /**
      * Apply SI mutation logic to an individual key-value. Return the "new" key-value.
      */
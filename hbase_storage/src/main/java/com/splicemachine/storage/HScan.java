@@ -160,6 +160,16 @@ public class HScan implements DataScan{
         return this;
     }
 
+    @Override
+    public DataScan copy(){
+        try{
+            return new HScan(new Scan(scan));
+        }catch(IOException e){
+            //the copy constructor only throws when copying the filter, which can't fail for in-memory filters
+            throw new RuntimeException(e);
+        }
+    }
+
     public Scan unwrapDelegate(){
         return scan;
     }
@@ -34,23 +34,36 @@ import com.splicemachine.si.impl.txn.WritableTxn;
 import com.splicemachine.storage.DataFilter;
 import com.splicemachine.storage.HCell;
 import com.splicemachine.storage.RegionPartition;
+import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.GreenLight;
 import com.splicemachine.utils.TrafficControl;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.OperationStatus;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 /**
  * Tests around the possibilities for the SynchronousReadResolver
@@ -220,4 +233,118 @@ public class SynchronousReadResolverTest {
         Assert.assertEquals("Incorrect committed txnId", childTxn.getTxnId(), commitTs.getTimestamp());
         Assert.assertEquals("Incorrect commit timestamp!", childTxn.getEffectiveCommitTimestamp(), Bytes.toLong(CellUtil.cloneValue(commitTs)));
     }
+
+    @Test
+    public void testResolvingCommittedRowsInOneBatch() throws Exception {
+        HRegion region = MockRegionUtils.getMockRegion();
+        RegionPartition rp = new RegionPartition(region);
+
+        TestingTimestampSource commitTsGenerator = new TestingTimestampSource();
+        TxnStore store = new TestingTxnStore(new IncrementingClock(),commitTsGenerator,HExceptionFactory.INSTANCE,Long.MAX_VALUE);
+        Txn committedTxn = committedTxn(store, commitTsGenerator);
+        List<ByteSlice> rowKeys = writeRows(region, committedTxn, 10);
+
+        Collection<ByteSlice> resolved = SynchronousReadResolver.INSTANCE.resolve(rp, rowKeys, committedTxn.getTxnId(), store,
+                new RollForwardStatus(), true, GreenLight.INSTANCE);
+        Assert.assertEquals("Rows were not resolved!", rowKeys, resolved);
+        verify(region, times(1)).batchMutate(any(Mutation[].class));
+
+        for (ByteSlice rowKey : rowKeys) {
+            assertResolved(region, rowKey, committedTxn);
+        }
+    }
+
+    @Test
+    public void testOnlyRowsWrittenByTheBatchAreResolved() throws Exception {
+        HRegion region = MockRegionUtils.getMockRegion();
+        RegionPartition rp = new RegionPartition(region);
+
+        TestingTimestampSource commitTsGenerator = new TestingTimestampSource();
+        TxnStore store = new TestingTxnStore(new IncrementingClock(),commitTsGenerator,HExceptionFactory.INSTANCE,Long.MAX_VALUE);
+        Txn committedTxn = committedTxn(store, commitTsGenerator);
+        List<ByteSlice> rowKeys = writeRows(region, committedTxn, 10);
+
+        //the first batch fails one row and doesn't run another, the retry succeeds
+        final HRegion fakeRegion = region;
+        final byte[] failedRow = rowKeys.get(3).getByteCopy();
+        final byte[] notRunRow = rowKeys.get(5).getByteCopy();
+        final AtomicInteger batches = new AtomicInteger();
+        doAnswer(new Answer<OperationStatus[]>() {
+            @Override
+            public OperationStatus[] answer(InvocationOnMock invocationOnMock) throws Throwable {
+                boolean firstBatch = batches.getAndIncrement() == 0;
+                Mutation[] mutations = (Mutation[]) invocationOnMock.getArguments()[0];
+                OperationStatus[] statuses = new OperationStatus[mutations.length];
+                for (int i = 0; i < mutations.length; i++) {
+                    if (firstBatch && Bytes.equals(failedRow, mutations[i].getRow()))
+                        statuses[i] = new OperationStatus(HConstants.OperationStatusCode.FAILURE, "failed");
+                    else if (firstBatch && Bytes.equals(notRunRow, mutations[i].getRow()))
+                        statuses[i] = OperationStatus.NOT_RUN;
+                    else {
+                        fakeRegion.put((Put) mutations[i]);
+                        statuses[i] = OperationStatus.SUCCESS;
+                    }
+                }
+                return statuses;
+            }
+        }).when(region).batchMutate(any(Mutation[].class));
+
+        RollForwardStatus status = new RollForwardStatus();
+        for (int i = 0; i < rowKeys.size(); i++) {
+            status.rowWritten();
+        }
+        Collection<ByteSlice> resolved = SynchronousReadResolver.INSTANCE.resolve(rp, rowKeys, committedTxn.getTxnId(), store,
+                status, false, GreenLight.INSTANCE);
+        Assert.assertEquals("The not-run row was not retried", 2, batches.get());
+        Assert.assertEquals("Incorrect number of resolved rows", 9, resolved.size());
+        Assert.assertFalse("The failed row was reported as resolved", resolved.contains(rowKeys.get(3)));
+        Assert.assertTrue("The retried row was not reported as resolved", resolved.contains(rowKeys.get(5)));
+        Assert.assertEquals("The failed row should still be waiting to be resolved", 1, status.getTotalRowsToResolve());
+
+        for (ByteSlice rowKey : rowKeys) {
+            if (rowKey.equals(rowKeys.get(3)))
+                Assert.assertEquals("The failed row was resolved!", 1, region.get(new Get(rowKey.getByteCopy())).size());
+            else
+                assertResolved(region, rowKey, committedTxn);
+        }
+    }
+
+    private static Txn committedTxn(final TxnStore store, final TestingTimestampSource commitTsGenerator) throws IOException {
+        TxnLifecycleManager tc = mock(TxnLifecycleManager.class);
+        doAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocationOnMock) throws Throwable {
+                long next = commitTsGenerator.nextTimestamp();
+                store.commit((Long) invocationOnMock.getArguments()[0]);
+                return next + 1;
+            }
+        }).when(tc).commit(anyLong());
+        Txn committedTxn = new WritableTxn(1l, 1l, Txn.IsolationLevel.SNAPSHOT_ISOLATION, Txn.ROOT_TRANSACTION, tc, false,HExceptionFactory.INSTANCE);
+        store.recordNewTransaction(committedTxn);
+        committedTxn.commit();
+        return committedTxn;
+    }
+
+    private static List<ByteSlice> writeRows(HRegion region, Txn txn, int numRows) throws IOException {
+        List<ByteSlice> rowKeys = new ArrayList<>();
+        for (int i = 0; i < numRows; i++) {
+            byte[] rowKey = Encoding.encode("hello" + i);
+            Put testPut = new Put(rowKey);
+            testPut.add(SIConstants.DEFAULT_FAMILY_BYTES,
+                    SIConstants.PACKED_COLUMN_BYTES,
+                    txn.getTxnId(), Encoding.encode("hello2"));
+            region.put(testPut);
+            rowKeys.add(ByteSlice.wrap(rowKey));
+        }
+        return rowKeys;
+    }
+
+    private static void assertResolved(HRegion region, ByteSlice rowKey, Txn committedTxn) throws IOException {
+        Result result = region.get(new Get(rowKey.getByteCopy()));
+        Assert.assertEquals("Incorrect result size after read resolve!", 2, result.size());
+        Cell commitTs = result.getColumnLatestCell(SIConstants.DEFAULT_FAMILY_BYTES, SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES);
+        Assert.assertNotNull("No Commit TS column found!", commitTs);
+        Assert.assertEquals("Incorrect committed txnId", committedTxn.getTxnId(), commitTs.getTimestamp());
+        Assert.assertEquals("Incorrect commit timestamp!", committedTxn.getEffectiveCommitTimestamp(), Bytes.toLong(CellUtil.cloneValue(commitTs)));
+    }
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.server;
+
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.rollforward.NoopRollForward;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.RolledBackTxn;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for the purging of invisible versions by SICompactionState.
+ */
+public class SICompactionStateTest{
+    private static final long LOW_WATER_MARK=100l;
+
+    private final Txns txns=new Txns();
+
+    @Test
+    public void purgesEverythingBelowVisibleTombstoneInMajorCompaction() throws Exception{
+        txns.committed(10,15);
+        txns.committed(30,35);
+        List<Cell> results=compact(LOW_WATER_MARK,true,
+                Arrays.asList(tombstone("a",30),data("a",10)));
+        Assert.assertEquals(Collections.<String>emptyList(),describe(results));
+    }
+
+    @Test
+    public void keepsVisibleTombstoneInMinorCompaction() throws Exception{
+        txns.committed(10,15);
+        txns.committed(30,35);
+        List<Cell> results=compact(LOW_WATER_MARK,false,
+                Arrays.asList(commitTimestamp("a",30,35),commitTimestamp("a",10,15),tombstone("a",30),data("a",10)));
+        Assert.assertEquals(Arrays.asList("a/0@30","a/1@30"),describe(results));
+    }
+
+    @Test
+    public void keepsVersionsBelowTombstoneCommittedAfterLowWaterMark() throws Exception{
+        txns.committed(10,15);
+        txns.committed(30,120);
+        List<Cell> results=compact(LOW_WATER_MARK,true,
+                Arrays.asList(tombstone("a",30),data("a",10)));
+        Assert.assertEquals(Arrays.asList("a/0@30","a/0@10","a/1@30","a/7@10"),describe(results));
+    }
+
+    @Test
+    public void purgesVersionsBelowVisibleAntiTombstone() throws Exception{
+        txns.committed(10,15);
+        txns.committed(30,35);
+        txns.committed(50,55);
+        List<Cell> results=compact(LOW_WATER_MARK,false,
+                Arrays.asList(antiTombstone("a",50),tombstone("a",30),data("a",50),data("a",10)));
+        Assert.assertEquals(Arrays.asList("a/0@50","a/1@50","a/7@50"),describe(results));
+
+        results=compact(LOW_WATER_MARK,true,
+                Arrays.asList(antiTombstone("a",50),tombstone("a",30),data("a",50),data("a",10)));
+        Assert.assertEquals(Arrays.asList("a/0@50","a/7@50"),describe(results));
+    }
+
+    @Test
+    public void keepsEveryCommittedVersionWithoutLowWaterMark() throws Exception{
+        txns.committed(10,15);
+        txns.committed(30,35);
+        txns.rolledBack(20);
+        List<Cell> results=compact(-1l,true,
+                Arrays.asList(tombstone("a",30),data("a",20),data("a",10)));
+        Assert.assertEquals(Arrays.asList("a/0@30","a/0@10","a/1@30","a/7@10"),describe(results));
+    }
+
+    @Test
+    public void holdsBackRowsWhichSpanBatches() throws Exception{
+        txns.committed(10,15);
+        txns.committed(30,35);
+        txns.committed(40,45);
+        SICompactionState state=new SICompactionState(txns,NoopRollForward.INSTANCE,16,LOW_WATER_MARK,false);
+        List<Cell> results=new ArrayList<>();
+        state.mutate(Collections.singletonList(tombstone("a",30)),results);
+        Assert.assertTrue("Row was returned before all of its cells were seen",results.isEmpty());
+        state.mutate(Arrays.asList(data("a",10),data("b",40)),results);
+        Assert.assertEquals(Arrays.asList("a/0@30","a/1@30"),describe(results));
+        results.clear();
+        state.finish(results);
+        Assert.assertEquals(Arrays.asList("b/0@40","b/7@40"),describe(results));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private List<Cell> compact(long lowWaterMark,boolean allFiles,List<Cell> cells) throws IOException{
+        SICompactionState state=new SICompactionState(txns,NoopRollForward.INSTANCE,16,lowWaterMark,allFiles);
+        List<Cell> results=new ArrayList<>();
+        state.mutate(cells,results);
+        state.finish(results);
+        return results;
+    }
+
+    private static List<String> describe(List<Cell> cells){
+        List<String> descriptions=new ArrayList<>(cells.size());
+        for(Cell cell : cells){
+            descriptions.add(Bytes.toString(cell.getRowArray(),cell.getRowOffset(),cell.getRowLength())+"/"
+                    +Bytes.toString(cell.getQualifierArray(),cell.getQualifierOffset(),cell.getQualifierLength())+"@"
+                    +cell.getTimestamp());
+        }
+        return descriptions;
+    }
+
+    private static Cell commitTimestamp(String row,long timestamp,long commitTimestamp){
+        return cell(row,SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,timestamp,Bytes.toBytes(commitTimestamp));
+    }
+
+    private static Cell tombstone(String row,long timestamp){
+        return cell(row,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,timestamp,SIConstants.EMPTY_BYTE_ARRAY);
+    }
+
+    private static Cell antiTombstone(String row,long timestamp){
+        return cell(row,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,timestamp,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES);
+    }
+
+    private static Cell data(String row,long timestamp){
+        return cell(row,SIConstants.PACKED_COLUMN_BYTES,timestamp,Bytes.toBytes("data"));
+    }
+
+    private static Cell cell(String row,byte[] qualifier,long timestamp,byte[] value){
+        return new KeyValue(Bytes.toBytes(row),SIConstants.DEFAULT_FAMILY_BYTES,qualifier,timestamp,value);
+    }
+
+    private static class Txns implements TxnSupplier{
+        private final Map<Long,TxnView> txns=new HashMap<>();
+
+        void committed(long beginTimestamp,long commitTimestamp){
+            txns.put(beginTimestamp,new CommittedTxn(beginTimestamp,commitTimestamp));
+        }
+
+        void rolledBack(long txnId){
+            txns.put(txnId,new RolledBackTxn(txnId));
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId) throws IOException{
+            return txns.get(txnId);
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
+            return getTransaction(txnId);
+        }
+
+        @Override
+        public TxnView[] getTransactions(long[] txnIds) throws IOException{
+            TxnView[] views=new TxnView[txnIds.length];
+            for(int i=0;i<txnIds.length;i++){
+                views[i]=txns.get(txnIds[i]);
+            }
+            return views;
+        }
+
+        @Override
+        public boolean transactionCached(long txnId){
+            return txns.containsKey(txnId);
+        }
+
+        @Override
+        public void cache(TxnView toCache){
+            txns.put(toCache.getTxnId(),toCache);
+        }
+
+        @Override
+        public TxnView getTransactionFromCache(long txnId){
+            return txns.get(txnId);
+        }
+    }
+}
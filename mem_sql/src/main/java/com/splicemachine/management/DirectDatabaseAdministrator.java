@@ -18,6 +18,8 @@ package com.splicemachine.management;
 import org.sparkproject.guava.collect.Sets;
 import com.splicemachine.EngineDriver;
 import com.splicemachine.access.api.DatabaseVersion;
+import com.splicemachine.derby.management.StatementManagementImpl;
+import com.splicemachine.derby.management.StatementStatistics;
 import com.splicemachine.derby.utils.DatabasePropertyManagementImpl;
 import com.splicemachine.pipeline.PipelineDriver;
 import com.splicemachine.utils.logging.LogManager;
@@ -88,4 +90,14 @@ public class DirectDatabaseAdministrator implements DatabaseAdministrator{
     public void emptyGlobalStatementCache() throws SQLException{
         //TODO -sf- no-op for now --eventually may need to implement
     }
+
+    @Override
+    public Map<String, List<StatementStatistics>> getStatementStatistics() throws SQLException{
+        return Collections.singletonMap("mem",StatementManagementImpl.instance().getStatementStatistics());
+    }
+
+    @Override
+    public void resetStatementStatistics() throws SQLException{
+        StatementManagementImpl.instance().resetStatementStatistics();
+    }
 }
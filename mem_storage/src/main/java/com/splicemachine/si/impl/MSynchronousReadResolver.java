@@ -30,6 +30,9 @@ import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -113,6 +116,17 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
         }
     }
 
+    @Override
+    public Collection<ByteSlice> resolve(Partition region,Collection<ByteSlice> rowKeys,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        //there's nothing to be saved by batching writes to memory, so just resolve each row in turn
+        List<ByteSlice> resolved=new ArrayList<>(rowKeys.size());
+        for(ByteSlice rowKey : rowKeys){
+            if(resolve(region,rowKey,txnId,supplier,status,failOnError,trafficControl))
+                resolved.add(rowKey);
+        }
+        return resolved;
+    }
+
     /******************************************************************************************************************/
     /*private helper methods */
     private void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
@@ -83,6 +83,14 @@ public class MemTxnStore implements TxnStore{
         return getTransaction(txnId);
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
 
     @Override
     public boolean transactionCached(long txnId){
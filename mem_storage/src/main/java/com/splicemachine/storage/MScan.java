@@ -125,6 +125,19 @@ public class MScan implements DataScan{
 
     }
 
+    @Override
+    public DataScan copy(){
+        MScan copy = new MScan();
+        copy.startKey = startKey;
+        copy.stopKey = stopKey;
+        copy.filter = filter;
+        copy.attrs.putAll(attrs);
+        copy.highTs = highTs;
+        copy.lowTs = lowTs;
+        copy.descending = descending;
+        return copy;
+    }
+
     @Override
     public Map<String, byte[]> allAttributes(){
         return attrs;
@@ -19,6 +19,8 @@ import akka.event.NoLogging$;
 import com.splicemachine.pipeline.api.WritePipelineFactory;
 import org.apache.log4j.Logger;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -46,6 +48,13 @@ public class MappedPipelineFactory implements WritePipelineFactory{
         return partitionWritePipeline;
     }
 
+    /**
+     * @return a view of the registered pipelines, by partition name
+     */
+    public Map<String,PartitionWritePipeline> getPipelines(){
+        return Collections.unmodifiableMap(map);
+    }
+
     public void deregisterPipeline(String name){
         if(LOG.isDebugEnabled())
             LOG.debug("De-registering region "+ name);
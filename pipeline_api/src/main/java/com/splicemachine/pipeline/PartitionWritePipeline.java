@@ -31,12 +31,17 @@ import com.splicemachine.pipeline.contextfactory.WriteContextFactory;
 import com.splicemachine.pipeline.exception.IndexNotSetUpException;
 import com.splicemachine.pipeline.writehandler.SharedCallBufferFactory;
 import com.splicemachine.si.api.server.TransactionalRegion;
+import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.storage.Partition;
 
 import java.io.IOException;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The entry/starting point for BulkWrites remotely (on the region server for the table they will mutate).
@@ -49,6 +54,11 @@ public class PartitionWritePipeline{
     private static final BulkWriteResult NOT_SERVING_REGION=new BulkWriteResult(null,WriteResult.notServingRegion());
     private static final BulkWriteResult INTERRUPTED=new BulkWriteResult(null,WriteResult.interrupted());
     private static final BulkWriteResult INDEX_NOT_SETUP=new BulkWriteResult(null,WriteResult.indexNotSetup());
+    /*
+     * How many transactions may have written to the partition without our knowing whether they finished, before
+     * a write checks on them rather than waiting for the partition to be asked whether it has changed
+     */
+    private static final int MAX_UNFINISHED_WRITERS=1024;
 
     private final WriteContextFactory<TransactionalRegion> ctxFactory;
     private final Partition region;
@@ -56,6 +66,27 @@ public class PartitionWritePipeline{
     private final PipelineMeter pipelineMeters;
     private final ServerControl rce;
     private final PipelineExceptionFactory exceptionFactory;
+    /*
+     * Rows successfully written to the partition since it was opened, by kind of write. They count what
+     * the writes did to the partition whether or not their transactions commit, which is close enough to
+     * tell how much of the partition has changed.
+     */
+    private final AtomicLong insertCount=new AtomicLong();
+    private final AtomicLong updateCount=new AtomicLong();
+    private final AtomicLong deleteCount=new AtomicLong();
+    /*
+     * When the pipeline started serving the partition, and when rows were last written to it (or -1 if they
+     * never were), in milliseconds. A write is marked before it is applied, so anyone who can see its rows
+     * also sees that the partition has changed.
+     */
+    private final long openTimestamp=System.currentTimeMillis();
+    private final AtomicLong lastWriteTimestamp=new AtomicLong(-1l);
+    /*
+     * The transactions which have written to the partition, and which were not known to have finished the last
+     * time we looked. Their rows only become visible when they commit, which may be long after they were written,
+     * so the partition counts as changed until they have finished, and a commit counts as a write of its own.
+     */
+    private final Set<Long> unfinishedWriters=Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
 
     public PartitionWritePipeline(ServerControl rce,
                                   Partition region,
@@ -134,6 +165,7 @@ public class PartitionWritePipeline{
                 throw nsre;
         }
         try{
+            markWritten(ctx.getTxn());
             ctx.flush();
             Map<KVPair, WriteResult> rowResultMap=ctx.close();
             BulkWriteResult response=new BulkWriteResult();
@@ -151,6 +183,8 @@ public class PartitionWritePipeline{
                 }
                 if(!result.isSuccess())
                     failed++;
+                else
+                    countModification(kvPair.getType());
                 response.addResult(i,result);
                 i++;
             }
@@ -185,4 +219,116 @@ public class PartitionWritePipeline{
     public WriteContextFactory<TransactionalRegion> getContextFactory(){
         return ctxFactory;
     }
+
+    public Partition getPartition(){
+        return region;
+    }
+
+    public long getInsertCount(){
+        return insertCount.get();
+    }
+
+    public long getUpdateCount(){
+        return updateCount.get();
+    }
+
+    public long getDeleteCount(){
+        return deleteCount.get();
+    }
+
+    /**
+     * @return the number of rows inserted, updated or deleted in the partition since it was opened
+     */
+    public long getModificationCount(){
+        return insertCount.get()+updateCount.get()+deleteCount.get();
+    }
+
+    /**
+     * Note that rows are about to be written to the partition outside of any transaction, such as by a bulk load.
+     * Writes made through the pipeline are marked already; this is for those which reach the partition some other way.
+     */
+    public void markWritten(){
+        advanceLastWrite(System.currentTimeMillis());
+    }
+
+    /**
+     * Note that rows are about to be written to the partition by a transaction. Writes made through the pipeline
+     * are marked already; this is for those which reach the partition some other way.
+     */
+    public void markWritten(TxnView txn){
+        markWritten();
+        if(txn==null || !unfinishedWriters.add(txn.getTxnId()) || unfinishedWriters.size()<=MAX_UNFINISHED_WRITERS)
+            return;
+        try{
+            settleWriters();
+        }catch(IOException ignored){
+            //we'll look again on the next write, or when asked whether the partition has changed
+        }
+    }
+
+    /**
+     * @return true if the partition was already served by this pipeline at {@code timestamp} (in milliseconds),
+     * no rows have been written to it since, and every transaction which wrote to it before has finished--and,
+     * if it committed, was already known to have done so at {@code timestamp}
+     * @throws IOException if we can't find out whether the transactions which wrote to the partition have finished
+     */
+    public boolean isUnchangedSince(long timestamp) throws IOException{
+        if(openTimestamp>=timestamp || lastWriteTimestamp.get()>=timestamp)
+            return false;
+        return settleWriters() && lastWriteTimestamp.get()<timestamp;
+    }
+
+    /*
+     * Forget the writers which have finished, counting a commit as a write made when we learned of it (which can
+     * only be after the commit, and so after anyone who began before it, and cannot see its rows, had started).
+     * Returns false if any of them are still active.
+     */
+    private boolean settleWriters() throws IOException{
+        if(unfinishedWriters.isEmpty())
+            return true;
+        Long[] writers=unfinishedWriters.toArray(new Long[unfinishedWriters.size()]);
+        long[] txnIds=new long[writers.length];
+        for(int i=0;i<writers.length;i++){
+            txnIds[i]=writers[i];
+        }
+        TxnView[] txns=txnRegion.getTxnSupplier().getTransactions(txnIds);
+        boolean finished=true;
+        for(int i=0;i<writers.length;i++){
+            Txn.State state=txns[i]==null?null:txns[i].getEffectiveState();
+            if(state==Txn.State.ACTIVE){
+                finished=false;
+                continue;
+            }
+            if(state!=Txn.State.ROLLEDBACK)
+                advanceLastWrite(System.currentTimeMillis()); //before it's forgotten, so nobody misses the commit
+            unfinishedWriters.remove(writers[i]);
+        }
+        return finished;
+    }
+
+    private void advanceLastWrite(long timestamp){
+        long last;
+        do{
+            last=lastWriteTimestamp.get();
+            if(last>=timestamp)
+                return;
+        }while(!lastWriteTimestamp.compareAndSet(last,timestamp));
+    }
+
+    private void countModification(KVPair.Type type){
+        switch(type){
+            case INSERT:
+                insertCount.incrementAndGet();
+                break;
+            case UPDATE:
+            case UPSERT:
+                updateCount.incrementAndGet();
+                break;
+            case DELETE:
+                deleteCount.incrementAndGet();
+                break;
+            default:
+                //not a change to the rows of the partition
+        }
+    }
 }
@@ -23,6 +23,7 @@ import javax.management.MalformedObjectNameException;
 import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.splicemachine.access.api.PartitionFactory;
@@ -141,6 +142,13 @@ public class PipelineDriver{
         writePipelineFactory.deregisterPipeline(partitionName);
     }
 
+    /**
+     * @return the write pipelines of the partitions served locally, by partition name
+     */
+    public Map<String,PartitionWritePipeline> getPipelines(){
+        return writePipelineFactory.getPipelines();
+    }
+
     @MXBean
     @SuppressWarnings("UnusedDeclaration")
     public interface ActiveWriteHandlersIface{
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline;
+
+import com.splicemachine.access.api.ServerControl;
+import com.splicemachine.pipeline.api.PipelineExceptionFactory;
+import com.splicemachine.pipeline.api.PipelineMeter;
+import com.splicemachine.pipeline.contextfactory.WriteContextFactory;
+import com.splicemachine.si.api.server.TransactionalRegion;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.Partition;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for telling whether a partition has changed since its statistics were collected.
+ */
+@Category(ArchitectureIndependent.class)
+@SuppressWarnings("unchecked")
+public class PartitionWritePipelineTest{
+    private final Map<Long,Txn.State> states=new HashMap<>();
+    private TxnSupplier supplier;
+    private PartitionWritePipeline pipeline;
+
+    @Before
+    public void setUp() throws Exception{
+        supplier=mock(TxnSupplier.class);
+        when(supplier.getTransactions(any(long[].class))).thenAnswer(new Answer<TxnView[]>(){
+            @Override
+            public TxnView[] answer(InvocationOnMock invocation) throws Throwable{
+                long[] txnIds=(long[])invocation.getArguments()[0];
+                TxnView[] txns=new TxnView[txnIds.length];
+                for(int i=0;i<txnIds.length;i++){
+                    txns[i]=txn(txnIds[i]);
+                }
+                return txns;
+            }
+        });
+        TransactionalRegion txnRegion=mock(TransactionalRegion.class);
+        when(txnRegion.getTxnSupplier()).thenReturn(supplier);
+        pipeline=new PartitionWritePipeline(mock(ServerControl.class),mock(Partition.class),mock(WriteContextFactory.class),
+                txnRegion,mock(PipelineMeter.class),mock(PipelineExceptionFactory.class));
+        tick();
+    }
+
+    @Test
+    public void unchangedUntilWrittenTo() throws Exception{
+        long collectionTime=tick();
+        Assert.assertTrue(pipeline.isUnchangedSince(collectionTime));
+
+        pipeline.markWritten(txn(1l));
+        Assert.assertFalse(pipeline.isUnchangedSince(collectionTime));
+    }
+
+    @Test
+    public void changedIfCollectedBeforeThePartitionWasOpened() throws Exception{
+        Assert.assertFalse(pipeline.isUnchangedSince(System.currentTimeMillis()-60000));
+    }
+
+    @Test
+    public void changedWhileAWriterIsActive() throws Exception{
+        states.put(1l,Txn.State.ACTIVE);
+        pipeline.markWritten(txn(1l));
+        long collectionTime=tick();
+        Assert.assertFalse(pipeline.isUnchangedSince(collectionTime));
+        Assert.assertFalse(pipeline.isUnchangedSince(tick()));
+    }
+
+    @Test
+    public void changedIfAWriterCommitsAfterTheCollectionBegan() throws Exception{
+        /*
+         * The rows were written before the collection began, but committed after, so the collection can't see
+         * them while a scan begun now can
+         */
+        states.put(1l,Txn.State.ACTIVE);
+        pipeline.markWritten(txn(1l));
+        long collectionTime=tick();
+        tick();
+        states.put(1l,Txn.State.COMMITTED);
+        Assert.assertFalse(pipeline.isUnchangedSince(collectionTime));
+
+        //a collection begun once the commit is known sees its rows
+        Assert.assertTrue(pipeline.isUnchangedSince(tick()));
+    }
+
+    @Test
+    public void changedIfAWriterSeenActiveCommitsLater() throws Exception{
+        states.put(1l,Txn.State.ACTIVE);
+        pipeline.markWritten(txn(1l));
+        long collectionTime=tick();
+        Assert.assertFalse(pipeline.isUnchangedSince(collectionTime));
+        states.put(1l,Txn.State.COMMITTED);
+        Assert.assertFalse(pipeline.isUnchangedSince(collectionTime));
+    }
+
+    @Test
+    public void unchangedIfAWriterRolledBack() throws Exception{
+        states.put(1l,Txn.State.ACTIVE);
+        pipeline.markWritten(txn(1l));
+        long collectionTime=tick();
+        states.put(1l,Txn.State.ROLLEDBACK);
+        Assert.assertTrue(pipeline.isUnchangedSince(collectionTime));
+    }
+
+    @Test
+    public void unfinishedWritersAreCheckedOnWriteOnceThereAreTooMany() throws Exception{
+        for(long txnId=1;txnId<=1025;txnId++){
+            states.put(txnId,Txn.State.ROLLEDBACK);
+            pipeline.markWritten(txn(txnId));
+        }
+        verify(supplier,times(1)).getTransactions(any(long[].class));
+
+        //the rolled back writers were forgotten, so the next write has nothing to check
+        states.put(1026l,Txn.State.ACTIVE);
+        pipeline.markWritten(txn(1026l));
+        verify(supplier,times(1)).getTransactions(any(long[].class));
+        Assert.assertFalse(pipeline.isUnchangedSince(tick()));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private TxnView txn(long txnId){
+        TxnView txn=mock(TxnView.class);
+        when(txn.getTxnId()).thenReturn(txnId);
+        Txn.State state=states.get(txnId);
+        when(txn.getEffectiveState()).thenReturn(state==null?Txn.State.COMMITTED:state);
+        return txn;
+    }
+
+    /*
+     * Wait for the clock to move on, so that whatever happens next happens after the time returned
+     */
+    private static long tick() throws InterruptedException{
+        long now=System.currentTimeMillis();
+        while(System.currentTimeMillis()<=now)
+            Thread.sleep(1);
+        return now+1;
+    }
+}
@@ -138,10 +138,16 @@ public interface SConfiguration {
 
     int getCompletedTxnConcurrency();
 
+    boolean getCompletedTxnOffHeap();
+
     int getReadResolverQueueSize();
 
     int getReadResolverThreads();
 
+    int getReadResolverBatchSize();
+
+    long getReadResolverMaxBatchLatency();
+
     int getOlapClientWaitTime();
 
     int getOlapClientTickTime();
@@ -162,6 +168,8 @@ public interface SConfiguration {
 
     long getTransactionTimeout();
 
+    long getTransactionLowWaterMarkInterval();
+
     // SQLConfiguration
     boolean debugDumpBindTree();
 
@@ -195,6 +203,32 @@ public interface SConfiguration {
 
     long getBroadcastRegionRowThreshold();
 
+    long getControlSideSortMemoryBudget();
+
+    long getControlSideAggregateMemoryBudget();
+
+    long getControlSideJoinMemoryBudget();
+
+    long getWindowFrameMemoryBudget();
+
+    long getBroadcastOffHeapMemoryBudget();
+
+    long getSortTopNMaxRows();
+
+    int getControlSideScanParallelism();
+
+    int getControlSideScanThreads();
+
+    long getControlSideAdaptiveRowLimit();
+
+    String getControlSideSpillDirectory();
+
+    String getStatementCacheSnapshotFile();
+
+    int getStatementCacheSnapshotSize();
+
+    int getStatementStatisticsMaxStatements();
+
     long getOptimizerPlanMaximumTimeout();
 
     long getOptimizerPlanMinimumTimeout();
@@ -218,6 +252,16 @@ public interface SConfiguration {
 
     int getTopkSize();
 
+    int getHistogramBuckets();
+
+    double getStatisticsSampleFraction();
+
+    long getStatisticsAutoRefreshInterval();
+
+    double getStatisticsAutoRefreshRatio();
+
+    boolean getZoneMapPruning();
+
     long getFallbackLocalLatency();
 
     long getFallbackMinimumRowCount();
@@ -29,14 +29,18 @@ public class ConfigurationBuilder {
     public int activeTransactionCacheSize;
     public int completedTxnCacheSize;
     public int completedTxnConcurrency;
+    public boolean completedTxnOffHeap;
     public int readResolverQueueSize;
     public int readResolverThreads;
+    public int readResolverBatchSize;
+    public long readResolverMaxBatchLatency;
     public int timestampClientWaitTime;
     public int timestampServerBindPort;
     public int transactionKeepAliveThreads;
     public int transactionLockStripes;
     public long transactionKeepAliveInterval;
     public long transactionTimeout;
+    public long transactionLowWaterMarkInterval;
 
     // OperationConfiguration
     public int sequenceBlockSize;
@@ -65,6 +69,11 @@ public class ConfigurationBuilder {
     public int fallbackRowWidth;
     public int indexFetchSampleSize;
     public int topkSize;
+    public int histogramBuckets;
+    public double statisticsSampleFraction;
+    public long statisticsAutoRefreshInterval;
+    public double statisticsAutoRefreshRatio;
+    public boolean zoneMapPruning;
     public long fallbackLocalLatency;
     public long fallbackMinimumRowCount;
     public long fallbackOpencloseLatency;
@@ -96,6 +105,11 @@ public class ConfigurationBuilder {
     public boolean ignoreSavePoints;
     public boolean upgradeForced;
     public int batchOnceBatchSize;
+    public int controlSideScanParallelism;
+    public int controlSideScanThreads;
+    public long controlSideAdaptiveRowLimit;
+    public int statementCacheSnapshotSize;
+    public int statementStatisticsMaxStatements;
     public int importMaxQuotedColumnLines;
     public int indexBatchSize;
     public int indexLookupBlocks;
@@ -109,11 +123,19 @@ public class ConfigurationBuilder {
     public int partitionserverPort;
     public long broadcastRegionMbThreshold;
     public long broadcastRegionRowThreshold;
+    public long controlSideSortMemoryBudget;
+    public long controlSideAggregateMemoryBudget;
+    public long controlSideJoinMemoryBudget;
+    public long windowFrameMemoryBudget;
+    public long broadcastOffHeapMemoryBudget;
+    public long sortTopNMaxRows;
     public long optimizerPlanMaximumTimeout;
     public long optimizerPlanMinimumTimeout;
     public String networkBindAddress;
     public String upgradeForcedFrom;
     public String storageFactoryHome;
+    public String controlSideSpillDirectory;
+    public String statementCacheSnapshotFile;
 
     // PipelineConfiguration
     public int coreWriterThreads;
@@ -70,6 +70,13 @@ public class HBaseConfiguration implements ConfigurationDefault {
      */
     public static final String MINIMUM_ACTIVE_PATH = TRANSACTION_PATH+"/minimum";
 
+    /**
+     * The Path in zookeeper under which each server publishes the oldest transaction it has begun. It is
+     * kept out of the transaction path so that the servers' entries are not cleaned away at first boot.
+     * Defaults to /lowWaterMarks
+     */
+    public static final String LOW_WATER_MARK_PATH = "/lowWaterMarks";
+
     /**
      * Path in ZooKeeper for manipulating Conglomerate information.
      * Defaults to /conglomerates
@@ -102,18 +102,22 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  int activeTransactionCacheSize;
     private final  int completedTxnCacheSize;
     private final  int completedTxnConcurrency;
+    private final  boolean completedTxnOffHeap;
     private final int olapClientWaitTime;
     private final int olapClientTickTime;
     private final int olapServerBindPort;
     private final int olapServerThreads;
     private final  int readResolverQueueSize;
     private final  int readResolverThreads;
+    private final  int readResolverBatchSize;
+    private final  long readResolverMaxBatchLatency;
     private final  int timestampClientWaitTime;
     private final  int timestampServerBindPort;
     private final  int transactionKeepAliveThreads;
     private final  int transactionLockStripes;
     private final  long transactionKeepAliveInterval;
     private final  long transactionTimeout;
+    private final  long transactionLowWaterMarkInterval;
 
     // SQLConfiguration
     private final  boolean debugDumpBindTree;
@@ -123,6 +127,11 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  boolean ignoreSavePoints;
     private final  boolean upgradeForced;
     private final  int batchOnceBatchSize;
+    private final  int controlSideScanParallelism;
+    private final  int controlSideScanThreads;
+    private final  long controlSideAdaptiveRowLimit;
+    private final  int statementCacheSnapshotSize;
+    private final  int statementStatisticsMaxStatements;
     private final  int importMaxQuotedColumnLines;
     private final  int indexBatchSize;
     private final  int indexLookupBlocks;
@@ -132,11 +141,19 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  int partitionserverPort;
     private final  long broadcastRegionMbThreshold;
     private final  long broadcastRegionRowThreshold;
+    private final  long controlSideSortMemoryBudget;
+    private final  long controlSideAggregateMemoryBudget;
+    private final  long controlSideJoinMemoryBudget;
+    private final  long windowFrameMemoryBudget;
+    private final  long broadcastOffHeapMemoryBudget;
+    private final  long sortTopNMaxRows;
     private final  long optimizerPlanMaximumTimeout;
     private final  long optimizerPlanMinimumTimeout;
     private final  String networkBindAddress;
     private final  String upgradeForcedFrom;
     private final String storageFactoryHome;
+    private final String controlSideSpillDirectory;
+    private final String statementCacheSnapshotFile;
 
     // StatsConfiguration
     private final  double fallbackNullFraction;
@@ -145,6 +162,11 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  int fallbackRowWidth;
     private final  int indexFetchSampleSize;
     private final  int topkSize;
+    private final  int histogramBuckets;
+    private final  double statisticsSampleFraction;
+    private final  long statisticsAutoRefreshInterval;
+    private final  double statisticsAutoRefreshRatio;
+    private final  boolean zoneMapPruning;
     private final  long fallbackLocalLatency;
     private final  long fallbackMinimumRowCount;
     private final  long fallbackOpencloseLatency;
@@ -358,6 +380,10 @@ public final class SConfigurationImpl implements SConfiguration {
         return completedTxnConcurrency;
     }
     @Override
+    public boolean getCompletedTxnOffHeap() {
+        return completedTxnOffHeap;
+    }
+    @Override
     public int getReadResolverQueueSize() {
         return readResolverQueueSize;
     }
@@ -366,6 +392,14 @@ public final class SConfigurationImpl implements SConfiguration {
         return readResolverThreads;
     }
     @Override
+    public int getReadResolverBatchSize() {
+        return readResolverBatchSize;
+    }
+    @Override
+    public long getReadResolverMaxBatchLatency() {
+        return readResolverMaxBatchLatency;
+    }
+    @Override
     public int getOlapClientWaitTime() {
         return olapClientWaitTime;
     }
@@ -405,6 +439,10 @@ public final class SConfigurationImpl implements SConfiguration {
     public long getTransactionTimeout() {
         return transactionTimeout;
     }
+    @Override
+    public long getTransactionLowWaterMarkInterval() {
+        return transactionLowWaterMarkInterval;
+    }
 
     // SQLConfiguration
     @Override
@@ -472,6 +510,58 @@ public final class SConfigurationImpl implements SConfiguration {
         return broadcastRegionRowThreshold;
     }
     @Override
+    public long getControlSideSortMemoryBudget() {
+        return controlSideSortMemoryBudget;
+    }
+    @Override
+    public long getControlSideAggregateMemoryBudget() {
+        return controlSideAggregateMemoryBudget;
+    }
+    @Override
+    public long getControlSideJoinMemoryBudget() {
+        return controlSideJoinMemoryBudget;
+    }
+    @Override
+    public long getWindowFrameMemoryBudget() {
+        return windowFrameMemoryBudget;
+    }
+    @Override
+    public long getBroadcastOffHeapMemoryBudget() {
+        return broadcastOffHeapMemoryBudget;
+    }
+    @Override
+    public long getSortTopNMaxRows() {
+        return sortTopNMaxRows;
+    }
+    @Override
+    public int getControlSideScanParallelism() {
+        return controlSideScanParallelism;
+    }
+    @Override
+    public int getControlSideScanThreads() {
+        return controlSideScanThreads;
+    }
+    @Override
+    public long getControlSideAdaptiveRowLimit() {
+        return controlSideAdaptiveRowLimit;
+    }
+    @Override
+    public String getControlSideSpillDirectory() {
+        return controlSideSpillDirectory;
+    }
+    @Override
+    public String getStatementCacheSnapshotFile() {
+        return statementCacheSnapshotFile;
+    }
+    @Override
+    public int getStatementCacheSnapshotSize() {
+        return statementCacheSnapshotSize;
+    }
+    @Override
+    public int getStatementStatisticsMaxStatements() {
+        return statementStatisticsMaxStatements;
+    }
+    @Override
     public long getOptimizerPlanMaximumTimeout() {
         return optimizerPlanMaximumTimeout;
     }
@@ -514,6 +604,26 @@ public final class SConfigurationImpl implements SConfiguration {
         return topkSize;
     }
     @Override
+    public int getHistogramBuckets() {
+        return histogramBuckets;
+    }
+    @Override
+    public double getStatisticsSampleFraction() {
+        return statisticsSampleFraction;
+    }
+    @Override
+    public long getStatisticsAutoRefreshInterval() {
+        return statisticsAutoRefreshInterval;
+    }
+    @Override
+    public double getStatisticsAutoRefreshRatio() {
+        return statisticsAutoRefreshRatio;
+    }
+    @Override
+    public boolean getZoneMapPruning() {
+        return zoneMapPruning;
+    }
+    @Override
     public long getFallbackLocalLatency() {
         return fallbackLocalLatency;
     }
@@ -573,14 +683,18 @@ public final class SConfigurationImpl implements SConfiguration {
         activeTransactionCacheSize = builder.activeTransactionCacheSize;
         completedTxnCacheSize = builder.completedTxnCacheSize;
         completedTxnConcurrency = builder.completedTxnConcurrency;
+        completedTxnOffHeap = builder.completedTxnOffHeap;
         readResolverQueueSize = builder.readResolverQueueSize;
         readResolverThreads = builder.readResolverThreads;
+        readResolverBatchSize = builder.readResolverBatchSize;
+        readResolverMaxBatchLatency = builder.readResolverMaxBatchLatency;
         timestampClientWaitTime = builder.timestampClientWaitTime;
         timestampServerBindPort = builder.timestampServerBindPort;
         transactionKeepAliveThreads = builder.transactionKeepAliveThreads;
         transactionLockStripes = builder.transactionLockStripes;
         transactionKeepAliveInterval = builder.transactionKeepAliveInterval;
         transactionTimeout = builder.transactionTimeout;
+        transactionLowWaterMarkInterval = builder.transactionLowWaterMarkInterval;
         sequenceBlockSize = builder.sequenceBlockSize;
         ddlDrainingInitialWait = builder.ddlDrainingInitialWait;
         ddlDrainingMaximumWait = builder.ddlDrainingMaximumWait;
@@ -600,6 +714,11 @@ public final class SConfigurationImpl implements SConfiguration {
         cardinalityPrecision = builder.cardinalityPrecision;
         fallbackRowWidth = builder.fallbackRowWidth;
         topkSize = builder.topkSize;
+        histogramBuckets = builder.histogramBuckets;
+        statisticsSampleFraction = builder.statisticsSampleFraction;
+        statisticsAutoRefreshInterval = builder.statisticsAutoRefreshInterval;
+        statisticsAutoRefreshRatio = builder.statisticsAutoRefreshRatio;
+        zoneMapPruning = builder.zoneMapPruning;
         fallbackLocalLatency = builder.fallbackLocalLatency;
         fallbackMinimumRowCount = builder.fallbackMinimumRowCount;
         fallbackOpencloseLatency = builder.fallbackOpencloseLatency;
@@ -633,6 +752,19 @@ public final class SConfigurationImpl implements SConfiguration {
         partitionserverPort = builder.partitionserverPort;
         broadcastRegionMbThreshold = builder.broadcastRegionMbThreshold;
         broadcastRegionRowThreshold = builder.broadcastRegionRowThreshold;
+        controlSideSortMemoryBudget = builder.controlSideSortMemoryBudget;
+        controlSideAggregateMemoryBudget = builder.controlSideAggregateMemoryBudget;
+        controlSideJoinMemoryBudget = builder.controlSideJoinMemoryBudget;
+        windowFrameMemoryBudget = builder.windowFrameMemoryBudget;
+        broadcastOffHeapMemoryBudget = builder.broadcastOffHeapMemoryBudget;
+        sortTopNMaxRows = builder.sortTopNMaxRows;
+        controlSideScanParallelism = builder.controlSideScanParallelism;
+        controlSideScanThreads = builder.controlSideScanThreads;
+        controlSideAdaptiveRowLimit = builder.controlSideAdaptiveRowLimit;
+        controlSideSpillDirectory = builder.controlSideSpillDirectory;
+        statementCacheSnapshotFile = builder.statementCacheSnapshotFile;
+        statementCacheSnapshotSize = builder.statementCacheSnapshotSize;
+        statementStatisticsMaxStatements = builder.statementStatisticsMaxStatements;
         optimizerPlanMaximumTimeout = builder.optimizerPlanMaximumTimeout;
         optimizerPlanMinimumTimeout = builder.optimizerPlanMinimumTimeout;
         networkBindAddress = builder.networkBindAddress;
@@ -36,12 +36,27 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String completedTxnConcurrency="splice.txn.completedTxns.concurrency";
     private static final int DEFAULT_COMPLETED_TRANSACTION_CONCURRENCY=64;
 
+    /*
+     * Whether the completed transaction cache is held in direct memory rather than on the heap
+     */
+    public static final String completedTxnOffHeap="splice.txn.completedTxns.offHeap";
+    private static final boolean DEFAULT_COMPLETED_TRANSACTION_OFF_HEAP=false;
+
     public static final String TRANSACTION_KEEP_ALIVE_INTERVAL="splice.txn.keepAliveIntervalMs";
     public static final long DEFAULT_TRANSACTION_KEEP_ALIVE_INTERVAL=15000L;
 
     public static final String TRANSACTION_TIMEOUT="splice.txn.timeout";
     public static final long DEFAULT_TRANSACTION_TIMEOUT=10*DEFAULT_TRANSACTION_KEEP_ALIVE_INTERVAL; // 2.5 Minutes
 
+    /**
+     * The interval (in milliseconds) at which each server publishes the oldest transaction it has begun, and
+     * at which the master recomputes the low water mark below which compactions may purge old versions of
+     * data. Set to 0 or less to disable purging.
+     * Defaults to 60000 (1 minute)
+     */
+    public static final String TRANSACTION_LOW_WATER_MARK_INTERVAL="splice.txn.lowWaterMarkIntervalMs";
+    public static final long DEFAULT_TRANSACTION_LOW_WATER_MARK_INTERVAL=60000L;
+
     public static final String TRANSACTION_KEEP_ALIVE_THREADS="splice.txn.keepAliveThreads";
     public static final int DEFAULT_KEEP_ALIVE_THREADS=4;
 
@@ -51,6 +66,20 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String READ_RESOLVER_QUEUE_SIZE = "splice.txn.readresolver.queueSize";
     private static final int DEFAULT_READ_RESOLVER_QUEUE_SIZE=1<<16;
 
+    /*
+     * Read resolution writes the rows of a single transaction in a single region together, in batches of up to
+     * this many rows.
+     */
+    public static final String READ_RESOLVER_BATCH_SIZE = "splice.txn.readresolver.batchSize";
+    private static final int DEFAULT_READ_RESOLVER_BATCH_SIZE = 256;
+
+    /*
+     * The longest (in milliseconds) that a row waits to be resolved while the resolver is busy collecting rows
+     * for other batches.
+     */
+    public static final String READ_RESOLVER_MAX_BATCH_LATENCY = "splice.txn.readresolver.maxBatchLatencyMs";
+    private static final long DEFAULT_READ_RESOLVER_MAX_BATCH_LATENCY = 10L;
+
     /*
      * We use lock-striping to manage concurrent modifications/reads to the Transaction table. That is,
      * each Transaction is grouped into a bucket, and in order to read or modify that transaction, you must
@@ -150,10 +179,13 @@ public class SIConfigurations implements ConfigurationDefault {
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.completedTxnConcurrency  = configurationSource.getInt(completedTxnConcurrency, DEFAULT_COMPLETED_TRANSACTION_CONCURRENCY);
         builder.completedTxnCacheSize  = configurationSource.getInt(completedTxnCacheSize, DEFAULT_COMPLETED_TRANSACTION_CACHE_SIZE);
+        builder.completedTxnOffHeap  = configurationSource.getBoolean(completedTxnOffHeap, DEFAULT_COMPLETED_TRANSACTION_OFF_HEAP);
         builder.transactionKeepAliveThreads  = configurationSource.getInt(TRANSACTION_KEEP_ALIVE_THREADS, DEFAULT_KEEP_ALIVE_THREADS);
         builder.readResolverThreads  = configurationSource.getInt(READ_RESOLVER_THREADS, DEFAULT_READ_RESOLVER_THREADS);
         builder.readResolverQueueSize  = configurationSource.getInt(READ_RESOLVER_QUEUE_SIZE, -1); //TODO -sf- reset to DEFAULT once ReadResolution works
 //        builder.readResolverQueueSize  = configurationSource.getInt(READ_RESOLVER_QUEUE_SIZE, DEFAULT_READ_RESOLVER_QUEUE_SIZE);
+        builder.readResolverBatchSize  = configurationSource.getInt(READ_RESOLVER_BATCH_SIZE, DEFAULT_READ_RESOLVER_BATCH_SIZE);
+        builder.readResolverMaxBatchLatency  = configurationSource.getLong(READ_RESOLVER_MAX_BATCH_LATENCY, DEFAULT_READ_RESOLVER_MAX_BATCH_LATENCY);
         builder.timestampClientWaitTime  = configurationSource.getInt(TIMESTAMP_CLIENT_WAIT_TIME, DEFAULT_TIMESTAMP_CLIENT_WAIT_TIME);
         builder.timestampServerBindPort  = configurationSource.getInt(TIMESTAMP_SERVER_BIND_PORT, DEFAULT_TIMESTAMP_SERVER_BIND_PORT);
         builder.activeTransactionCacheSize  = configurationSource.getInt(ACTIVE_TRANSACTION_CACHE_SIZE, DEFAULT_ACTIVE_TRANSACTION_CACHE_SIZE);
@@ -164,6 +196,7 @@ public class SIConfigurations implements ConfigurationDefault {
 
         builder.transactionTimeout = configurationSource.getLong(TRANSACTION_TIMEOUT, DEFAULT_TRANSACTION_TIMEOUT);
         builder.transactionKeepAliveInterval = configurationSource.getLong(TRANSACTION_KEEP_ALIVE_INTERVAL, DEFAULT_TRANSACTION_KEEP_ALIVE_INTERVAL);
+        builder.transactionLowWaterMarkInterval = configurationSource.getLong(TRANSACTION_LOW_WATER_MARK_INTERVAL, DEFAULT_TRANSACTION_LOW_WATER_MARK_INTERVAL);
 
     }
 }
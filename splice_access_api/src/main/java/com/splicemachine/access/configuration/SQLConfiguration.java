@@ -72,6 +72,130 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String CONTROL_SIDE_ROWCOUNT_THRESHOLD = "splice.dataset.control.rowCountThreshold";
     private static final double DEFAULT_CONTROL_SIDE_ROWCOUNT_THRESHOLD = 100000D;
 
+    /**
+     * The approximate number of bytes a single control-side sort is allowed to buffer on heap
+     * before spilling a sorted run to local disk. Once the input has been fully consumed, the
+     * spilled runs are merged back together on read.
+     *
+     * Defaults to 64 MB
+     */
+    public static final String CONTROL_SIDE_SORT_MEMORY_BUDGET = "splice.dataset.control.sortMemoryBudget";
+    public static final long DEFAULT_CONTROL_SIDE_SORT_MEMORY_BUDGET = 64L*1024*1024;
+
+    /**
+     * The approximate number of bytes of group state a single control-side aggregation is allowed
+     * to hold on heap. Once exceeded, the partial aggregates are hash-partitioned to local
+     * disk and each partition is aggregated separately after the input has been consumed.
+     *
+     * Defaults to 64 MB
+     */
+    public static final String CONTROL_SIDE_AGGREGATE_MEMORY_BUDGET = "splice.dataset.control.aggregateMemoryBudget";
+    public static final long DEFAULT_CONTROL_SIDE_AGGREGATE_MEMORY_BUDGET = 64L*1024*1024;
+
+    /**
+     * The approximate number of bytes of build-side rows a single control-side hash join is allowed
+     * to hold on heap. Once exceeded, both sides of the join are hash-partitioned to local disk
+     * and joined one partition at a time.
+     *
+     * Defaults to 64 MB
+     */
+    public static final String CONTROL_SIDE_JOIN_MEMORY_BUDGET = "splice.dataset.control.joinMemoryBudget";
+    public static final long DEFAULT_CONTROL_SIDE_JOIN_MEMORY_BUDGET = 64L*1024*1024;
+
+    /**
+     * The approximate number of bytes of rows a single window function frame buffer is allowed
+     * to hold on heap. Rows beyond that (such as the rest of the partition for an UNBOUNDED FOLLOWING
+     * frame) are spilled to local disk and read back as the frame moves over them.
+     *
+     * Defaults to 64 MB
+     */
+    public static final String WINDOW_FRAME_MEMORY_BUDGET = "splice.dataset.window.frameMemoryBudget";
+    public static final long DEFAULT_WINDOW_FRAME_MEMORY_BUDGET = 64L*1024*1024;
+
+    /**
+     * The number of bytes of direct memory the inner sides of broadcast joins may hold, in total, on
+     * a single server. The memory is allocated in slabs which are kept and reused once the joins are
+     * done with them. Inner rows which don't fit in the budget are kept on heap instead.
+     *
+     * Defaults to 256 MB
+     */
+    public static final String BROADCAST_OFF_HEAP_MEMORY_BUDGET = "splice.dataset.broadcast.offHeapMemoryBudget";
+    public static final long DEFAULT_BROADCAST_OFF_HEAP_MEMORY_BUDGET = 256L*1024*1024;
+
+    /**
+     * The largest row limit (offset plus fetch count) for which an ORDER BY under a row limit keeps
+     * only the top rows in a bounded heap rather than fully sorting its input. The heap is not spilled,
+     * so larger limits use the regular sort.
+     *
+     * Defaults to 10000
+     */
+    public static final String SORT_TOP_N_MAX_ROWS = "splice.dataset.sort.topNMaxRows";
+    public static final long DEFAULT_SORT_TOP_N_MAX_ROWS = 10000L;
+
+    /**
+     * The maximum number of table partitions a single control-side scan reads concurrently. Partitions
+     * are scanned ahead of the consumer on a shared pool (see {@link #CONTROL_SIDE_SCAN_THREADS}) and
+     * returned in key order. A value of 1 (the default) scans all partitions serially on the calling thread.
+     */
+    public static final String CONTROL_SIDE_SCAN_PARALLELISM = "splice.dataset.control.scanParallelism";
+    public static final int DEFAULT_CONTROL_SIDE_SCAN_PARALLELISM = 1;
+
+    /**
+     * The number of threads in the pool shared by all control-side scans which read partitions concurrently.
+     * A scan whose partitions the pool has not picked up yet reads them on its own thread instead.
+     *
+     * Defaults to 16
+     */
+    public static final String CONTROL_SIDE_SCAN_THREADS = "splice.dataset.control.scanThreads";
+    public static final int DEFAULT_CONTROL_SIDE_SCAN_THREADS = 16;
+
+    /**
+     * The number of table rows a query planned for control-side execution may read before it is
+     * resubmitted to the OLAP server, provided it hasn't returned any rows yet. This guards against
+     * cardinality estimates which are badly off; statements which exceed it run on Spark from then on.
+     * A value of 0 disables the switch.
+     *
+     * Defaults to 10 million rows
+     */
+    public static final String CONTROL_SIDE_ADAPTIVE_ROW_LIMIT = "splice.dataset.control.adaptiveRowLimit";
+    public static final long DEFAULT_CONTROL_SIDE_ADAPTIVE_ROW_LIMIT = 10000000L;
+
+    /**
+     * The local directory where control-side operations spill data which does not fit within
+     * their memory budget.
+     *
+     * Defaults to java.io.tmpdir
+     */
+    public static final String CONTROL_SIDE_SPILL_DIRECTORY = "splice.dataset.control.spillDirectory";
+    public static final String DEFAULT_CONTROL_SIDE_SPILL_DIRECTORY = System.getProperty("java.io.tmpdir");
+
+    /**
+     * A local file where the most frequently reused entries of the statement cache are saved, on
+     * shutdown and periodically while running. At boot the saved statements are recompiled in the
+     * background, so they are cached again before clients ask for them.
+     *
+     * Defaults to none (off)
+     */
+    public static final String STATEMENT_CACHE_SNAPSHOT_FILE = "splice.statementCache.snapshotFile";
+    public static final String DEFAULT_STATEMENT_CACHE_SNAPSHOT_FILE = null;
+
+    /**
+     * The maximum number of statements saved in the statement cache snapshot.
+     *
+     * Defaults to 500
+     */
+    public static final String STATEMENT_CACHE_SNAPSHOT_SIZE = "splice.statementCache.snapshotSize";
+    public static final int DEFAULT_STATEMENT_CACHE_SNAPSHOT_SIZE = 500;
+
+    /**
+     * The maximum number of distinct statements (after literals are replaced by parameters) for which
+     * cumulative runtime statistics are kept by each server. Set to 0 to stop keeping them.
+     *
+     * Defaults to 1000
+     */
+    public static final String STATEMENT_STATISTICS_MAX_STATEMENTS = "splice.statementStatistics.maxStatements";
+    public static final int DEFAULT_STATEMENT_STATISTICS_MAX_STATEMENTS = 1000;
+
     //debug options
     /**
      * For debugging an operation, this will force the query parser to dump any generated
@@ -223,6 +347,19 @@ public class SQLConfiguration implements ConfigurationDefault {
         builder.optimizerPlanMinimumTimeout = configurationSource.getLong(OPTIMIZER_PLAN_MINIMUM_TIMEOUT, DEFAULT_OPTIMIZER_PLAN_MINIMUM_TIMEOUT);
         builder.broadcastRegionMbThreshold = configurationSource.getLong(BROADCAST_REGION_MB_THRESHOLD, DEFAULT_BROADCAST_REGION_MB_THRESHOLD);
         builder.broadcastRegionRowThreshold = configurationSource.getLong(BROADCAST_REGION_ROW_THRESHOLD, DEFAULT_BROADCAST_REGION_ROW_THRESHOLD);
+        builder.controlSideSortMemoryBudget = configurationSource.getLong(CONTROL_SIDE_SORT_MEMORY_BUDGET, DEFAULT_CONTROL_SIDE_SORT_MEMORY_BUDGET);
+        builder.controlSideAggregateMemoryBudget = configurationSource.getLong(CONTROL_SIDE_AGGREGATE_MEMORY_BUDGET, DEFAULT_CONTROL_SIDE_AGGREGATE_MEMORY_BUDGET);
+        builder.controlSideJoinMemoryBudget = configurationSource.getLong(CONTROL_SIDE_JOIN_MEMORY_BUDGET, DEFAULT_CONTROL_SIDE_JOIN_MEMORY_BUDGET);
+        builder.windowFrameMemoryBudget = configurationSource.getLong(WINDOW_FRAME_MEMORY_BUDGET, DEFAULT_WINDOW_FRAME_MEMORY_BUDGET);
+        builder.broadcastOffHeapMemoryBudget = configurationSource.getLong(BROADCAST_OFF_HEAP_MEMORY_BUDGET, DEFAULT_BROADCAST_OFF_HEAP_MEMORY_BUDGET);
+        builder.sortTopNMaxRows = configurationSource.getLong(SORT_TOP_N_MAX_ROWS, DEFAULT_SORT_TOP_N_MAX_ROWS);
+        builder.controlSideScanParallelism = configurationSource.getInt(CONTROL_SIDE_SCAN_PARALLELISM, DEFAULT_CONTROL_SIDE_SCAN_PARALLELISM);
+        builder.controlSideScanThreads = configurationSource.getInt(CONTROL_SIDE_SCAN_THREADS, DEFAULT_CONTROL_SIDE_SCAN_THREADS);
+        builder.controlSideAdaptiveRowLimit = configurationSource.getLong(CONTROL_SIDE_ADAPTIVE_ROW_LIMIT, DEFAULT_CONTROL_SIDE_ADAPTIVE_ROW_LIMIT);
+        builder.controlSideSpillDirectory = configurationSource.getString(CONTROL_SIDE_SPILL_DIRECTORY, DEFAULT_CONTROL_SIDE_SPILL_DIRECTORY);
+        builder.statementCacheSnapshotFile = configurationSource.getString(STATEMENT_CACHE_SNAPSHOT_FILE, DEFAULT_STATEMENT_CACHE_SNAPSHOT_FILE);
+        builder.statementCacheSnapshotSize = configurationSource.getInt(STATEMENT_CACHE_SNAPSHOT_SIZE, DEFAULT_STATEMENT_CACHE_SNAPSHOT_SIZE);
+        builder.statementStatisticsMaxStatements = configurationSource.getInt(STATEMENT_STATISTICS_MAX_STATEMENTS, DEFAULT_STATEMENT_STATISTICS_MAX_STATEMENTS);
 
         //always disable debug statements by default
         builder.debugLogStatementContext = configurationSource.getBoolean(DEBUG_LOG_STATEMENT_CONTEXT, DEFAULT_LOG_STATEMENT_CONTEXT);
@@ -15,6 +15,8 @@
 
 package com.splicemachine.access.configuration;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author Scott Fines
  *         Date: 1/7/16
@@ -36,6 +38,45 @@ public class StatsConfiguration implements ConfigurationDefault {
     public static final String TOPK_SIZE = "splice.statistics.topKSize";
     public static final int DEFAULT_TOPK_PRECISION = 10;
 
+    /*
+     * The number of buckets in the equi-depth histogram kept for each numeric and date/time column in a
+     * partition. Each bucket costs a few dozen bytes of statistics. Set to 0 to collect no histograms, in
+     * which case range selectivity falls back to assuming a uniform distribution.
+     */
+    public static final String HISTOGRAM_BUCKETS = "splice.statistics.histogramBuckets";
+    public static final int DEFAULT_HISTOGRAM_BUCKETS = 64;
+
+    /*
+     * The fraction of each region which is read when collecting statistics over the Spark engine. Below 1.0,
+     * only that fraction of the region's storage blocks is scanned, and the collected counts are scaled up
+     * to the size of the region. 1.0 (the default) scans every row.
+     */
+    public static final String SAMPLE_FRACTION = "splice.statistics.sampleFraction";
+    public static final double DEFAULT_SAMPLE_FRACTION = 1.0d;
+
+    /*
+     * How often (in milliseconds) each server checks the partitions it serves for statistics which have gone
+     * stale, and collects them again. Only tables which already have statistics are refreshed, and only their
+     * stale partitions are collected. Set to 0 to turn automatic refreshes off.
+     */
+    public static final String AUTO_REFRESH_INTERVAL = "splice.statistics.autoRefreshInterval";
+    public static final long DEFAULT_AUTO_REFRESH_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+
+    /*
+     * The statistics of a partition are stale once the rows inserted, updated and deleted since they were
+     * collected reach this fraction of the partition's row count.
+     */
+    public static final String AUTO_REFRESH_RATIO = "splice.statistics.autoRefreshRatio";
+    public static final double DEFAULT_AUTO_REFRESH_RATIO = 0.2d;
+
+    /*
+     * Whether scans of a table skip the partitions whose statistics show that no row can match the scan's
+     * predicates. A partition is only skipped if its server confirms that it has not been written to since
+     * its statistics were collected.
+     */
+    public static final String ZONE_MAP_PRUNING = "splice.statistics.zoneMapPruning";
+    public static final boolean DEFAULT_ZONE_MAP_PRUNING = true;
+
     /*
      * The size of the partition statistics cache. Partitions will be evicted when the total size
      * exceeds this threshold
@@ -133,6 +174,11 @@ public class StatsConfiguration implements ConfigurationDefault {
 //        builder.indexFetchRepititionCount = configurationSource.getInt(INDEX_FETCH_REPETITION_COUNT, DEFAULT_INDEX_FETCH_REPETITION_COUNT);
         builder.indexFetchSampleSize = configurationSource.getInt(INDEX_FETCH_SAMPLE_SIZE, DEFAULT_INDEX_FETCH_SAMPLE_SIZE);
         builder.topkSize = configurationSource.getInt(TOPK_SIZE, DEFAULT_TOPK_PRECISION);
+        builder.histogramBuckets = configurationSource.getInt(HISTOGRAM_BUCKETS, DEFAULT_HISTOGRAM_BUCKETS);
+        builder.statisticsSampleFraction = configurationSource.getDouble(SAMPLE_FRACTION, DEFAULT_SAMPLE_FRACTION);
+        builder.statisticsAutoRefreshInterval = configurationSource.getLong(AUTO_REFRESH_INTERVAL, DEFAULT_AUTO_REFRESH_INTERVAL);
+        builder.statisticsAutoRefreshRatio = configurationSource.getDouble(AUTO_REFRESH_RATIO, DEFAULT_AUTO_REFRESH_RATIO);
+        builder.zoneMapPruning = configurationSource.getBoolean(ZONE_MAP_PRUNING, DEFAULT_ZONE_MAP_PRUNING);
         builder.cardinalityPrecision = configurationSource.getInt(CARDINALITY_PRECISION, DEFAULT_CARDINALITY_PRECISION);
 
         builder.fallbackMinimumRowCount = configurationSource.getLong(FALLBACK_MINIMUM_ROW_COUNT, DEFAULT_FALLBACK_MINIMUM_ROW_COUNT);
@@ -54,5 +54,11 @@ public interface DataScan extends Attributable{
 
     void returnAllVersions();
 
+    /**
+     * @return an independent copy of this scan (including its attributes and filter), which may be
+     * modified without affecting this scan.
+     */
+    DataScan copy();
+
 
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.storage;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.hash.Hash32;
+import com.splicemachine.hash.HashFunctions;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.utils.Pair;
+
+import java.util.Arrays;
+
+/**
+ * Predicate which rejects rows whose (encoded) value in a column is definitely not in a set of values,
+ * as summarized by a Bloom filter.
+ *
+ * This is used to push the keys of the build side of a join down into the scan of the probe side,
+ * so that most probe rows without a join partner are discarded before they are decoded. The filter
+ * may accept values which are not in the set, but never rejects one which is; null values are
+ * always accepted, and left for the join to deal with.
+ */
+public class BloomFilterPredicate implements Predicate{
+    private static final Hash32 HASH_1=HashFunctions.murmur3(0);
+    private static final Hash32 HASH_2=HashFunctions.murmur3(0x9747b28c);
+
+    private final int column;
+    private final int numHashes;
+    private final long[] bits;
+    private final long numBits;
+
+    BloomFilterPredicate(int column,int numHashes,long[] bits){
+        this.column=column;
+        this.numHashes=numHashes;
+        this.bits=bits;
+        this.numBits=(long)bits.length*Long.SIZE;
+    }
+
+    /**
+     * @param column the column to filter
+     * @param expectedEntries the (approximate) number of distinct values which will be added
+     * @param falsePositiveRate the desired false positive rate at {@code expectedEntries} values
+     */
+    public static Builder builder(int column,long expectedEntries,double falsePositiveRate){
+        return new Builder(column,expectedEntries,falsePositiveRate);
+    }
+
+    @Override
+    public boolean applies(int column){
+        return this.column==column;
+    }
+
+    @Override
+    public boolean match(int column,byte[] data,int offset,int length){
+        if(this.column!=column) return true; //not the right column
+        if(data==null || length==0) return true; //nulls are left to the join
+        int h1=HASH_1.hash(data,offset,length);
+        int h2=HASH_2.hash(data,offset,length);
+        for(int i=0;i<numHashes;i++){
+            long bit=((h1+(long)i*h2)&Long.MAX_VALUE)%numBits;
+            if((bits[(int)(bit>>>6)]&(1L<<bit))==0)
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean checkAfter(){
+        return false; //null (i.e. missing) values are always accepted
+    }
+
+    @Override
+    public void setCheckedColumns(BitSet checkedColumns){
+        checkedColumns.set(column);
+    }
+
+    @Override
+    public void reset(){
+    } //no-op
+
+    @Override
+    public byte[] toBytes(){
+        /*
+         * Format is as follows:
+         *
+         * 1-byte type header (PredicateType.BLOOM)
+         * 4-bytes column
+         * 4-bytes number of hash functions
+         * 4-bytes number of words in the bit set
+         * 8*n-bytes the bit set
+         */
+        byte[] data=new byte[13+8*bits.length];
+        data[0]=PredicateType.BLOOM.byteValue();
+        Bytes.intToBytes(column,data,1);
+        Bytes.intToBytes(numHashes,data,5);
+        Bytes.intToBytes(bits.length,data,9);
+        int offset=13;
+        for(long word : bits){
+            Bytes.longToBytes(word,data,offset);
+            offset+=8;
+        }
+        return data;
+    }
+
+    public static Pair<BloomFilterPredicate, Integer> fromBytes(byte[] data,int offset){
+        //first byte is the type
+        int column=Bytes.bytesToInt(data,offset+1);
+        int numHashes=Bytes.bytesToInt(data,offset+5);
+        long[] bits=new long[Bytes.bytesToInt(data,offset+9)];
+        int position=offset+13;
+        for(int i=0;i<bits.length;i++){
+            bits[i]=Bytes.bytesToLong(data,position);
+            position+=8;
+        }
+        return Pair.newPair(new BloomFilterPredicate(column,numHashes,bits),position-offset);
+    }
+
+    @Override
+    public boolean equals(Object o){
+        if(this==o) return true;
+        if(!(o instanceof BloomFilterPredicate)) return false;
+
+        BloomFilterPredicate that=(BloomFilterPredicate)o;
+        return column==that.column && numHashes==that.numHashes && Arrays.equals(bits,that.bits);
+    }
+
+    @Override
+    public int hashCode(){
+        int result=column;
+        result=31*result+numHashes;
+        result=31*result+Arrays.hashCode(bits);
+        return result;
+    }
+
+    @Override
+    public String toString(){
+        return "BloomFilter(column="+column+",bits="+numBits+",hashes="+numHashes+")";
+    }
+
+    public static class Builder{
+        private final int column;
+        private final int numHashes;
+        private final long[] bits;
+        private final long numBits;
+
+        private Builder(int column,long expectedEntries,double falsePositiveRate){
+            this.column=column;
+            long n=Math.max(1L,expectedEntries);
+            long m=(long)Math.ceil(-n*Math.log(falsePositiveRate)/(Math.log(2)*Math.log(2)));
+            int words=(int)Math.min(Integer.MAX_VALUE/Long.SIZE,Math.max(1L,(m+Long.SIZE-1)/Long.SIZE));
+            this.bits=new long[words];
+            this.numBits=(long)words*Long.SIZE;
+            this.numHashes=Math.max(1,Math.min(16,(int)Math.round((double)numBits/n*Math.log(2))));
+        }
+
+        public Builder add(byte[] data,int offset,int length){
+            int h1=HASH_1.hash(data,offset,length);
+            int h2=HASH_2.hash(data,offset,length);
+            for(int i=0;i<numHashes;i++){
+                long bit=((h1+(long)i*h2)&Long.MAX_VALUE)%numBits;
+                bits[(int)(bit>>>6)]|=1L<<bit;
+            }
+            return this;
+        }
+
+        public Builder add(byte[] data){
+            return add(data,0,data.length);
+        }
+
+        public BloomFilterPredicate build(){
+            return new BloomFilterPredicate(column,numHashes,bits);
+        }
+    }
+}
@@ -27,7 +27,8 @@ public enum PredicateType {
     AND((byte)0x03),
     OR((byte)0x04),
     CUSTOM((byte)0x05),
-		CHAR_VALUE((byte)0x06);
+		CHAR_VALUE((byte)0x06),
+    BLOOM((byte)0x07);
 
     private final byte type;
 
@@ -50,6 +51,8 @@ public enum PredicateType {
             return AND;
         else if(OR.type==typeByte)
             return OR;
+        else if(BLOOM.type==typeByte)
+            return BLOOM;
         else
             return CUSTOM;
     }
@@ -43,6 +43,8 @@ public class Predicates {
                 return AndPredicate.fromBytes(bytes,offset+1);
             case OR:
                 return OrPredicate.fromBytes(bytes,offset+1);
+            case BLOOM:
+                return BloomFilterPredicate.fromBytes(bytes,offset);
             default:
                 return getCustomPredicate(bytes,offset+1);
         }
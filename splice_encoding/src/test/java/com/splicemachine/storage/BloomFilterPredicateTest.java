@@ -0,0 +1,72 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.storage;
+
+import com.carrotsearch.hppc.ObjectArrayList;
+import com.splicemachine.encoding.Encoding;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BloomFilterPredicateTest {
+
+    @Test
+    public void testMatchesEveryAddedValue() throws Exception {
+        BloomFilterPredicate predicate = buildEvens(1000);
+        for (int i = 0; i < 2000; i += 2) {
+            byte[] val = Encoding.encode(i);
+            Assert.assertTrue("Rejected value " + i, predicate.match(0, val, 0, val.length));
+        }
+    }
+
+    @Test
+    public void testRejectsMostMissingValues() throws Exception {
+        BloomFilterPredicate predicate = buildEvens(1000);
+        int falsePositives = 0;
+        for (int i = 1; i < 20000; i += 2) {
+            byte[] val = Encoding.encode(i);
+            if (predicate.match(0, val, 0, val.length))
+                falsePositives++;
+        }
+        Assert.assertTrue("Too many false positives: " + falsePositives, falsePositives < 500);
+    }
+
+    @Test
+    public void testOtherColumnsAndNullsAreAccepted() throws Exception {
+        BloomFilterPredicate predicate = buildEvens(10);
+        byte[] val = Encoding.encode(1);
+        Assert.assertTrue(predicate.match(1, val, 0, val.length));
+        Assert.assertTrue(predicate.match(0, null, 0, 0));
+        Assert.assertTrue(predicate.match(0, val, 0, 0));
+    }
+
+    @Test
+    public void testSerializesCorrectly() throws Exception {
+        BloomFilterPredicate predicate = buildEvens(100);
+        ObjectArrayList<Predicate> predicates = ObjectArrayList.<Predicate>from(predicate, new NullPredicate(true, false, 1, false, false));
+        ObjectArrayList<Predicate> decoded = Predicates.allFromBytes(Predicates.toBytes(predicates), 0).getFirst();
+        Assert.assertEquals(2, decoded.size());
+        Assert.assertEquals(predicate, decoded.get(0));
+        Assert.assertTrue(decoded.get(1) instanceof NullPredicate);
+    }
+
+    private static BloomFilterPredicate buildEvens(int count) {
+        BloomFilterPredicate.Builder builder = BloomFilterPredicate.builder(0, count, 0.01);
+        for (int i = 0; i < 2 * count; i += 2) {
+            builder.add(Encoding.encode(i));
+        }
+        return builder.build();
+    }
+}
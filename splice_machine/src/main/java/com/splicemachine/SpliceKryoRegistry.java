@@ -145,11 +145,14 @@ import com.splicemachine.derby.impl.sql.execute.operations.window.DerbyWindowCon
 import com.splicemachine.derby.impl.stats.BigintStats;
 import com.splicemachine.derby.impl.stats.BooleanStats;
 import com.splicemachine.derby.impl.stats.CharStats;
+import com.splicemachine.derby.impl.stats.ColumnGroupStatistics;
 import com.splicemachine.derby.impl.stats.DateStatistics;
 import com.splicemachine.derby.impl.stats.DoubleStats;
+import com.splicemachine.derby.impl.stats.HistogramColumnStatistics;
 import com.splicemachine.derby.impl.stats.IntStats;
 import com.splicemachine.derby.impl.stats.NumericStats;
 import com.splicemachine.derby.impl.stats.RealStats;
+import com.splicemachine.derby.impl.stats.SampledColumnStatistics;
 import com.splicemachine.derby.impl.stats.SmallintStats;
 import com.splicemachine.derby.impl.stats.StringStatistics;
 import com.splicemachine.derby.impl.stats.TimeStats;
@@ -935,5 +938,15 @@ public class SpliceKryoRegistry implements KryoPool.KryoRegistry{
         instance.register(LazyDate.class,EXTERNALIZABLE_SERIALIZER,273);
         instance.register(HalfMergeSortJoinOperation.class,EXTERNALIZABLE_SERIALIZER,274);
         instance.register(HalfMergeSortLeftOuterJoinOperation.class,EXTERNALIZABLE_SERIALIZER,275);
+        //control-side sorts, aggregations, joins and window frames spill LocatedRow values to local disk
+        instance.register(LocatedRow.class,EXTERNALIZABLE_SERIALIZER,276);
+        instance.register(HistogramColumnStatistics.class,EXTERNALIZABLE_SERIALIZER,277);
+        instance.register(SampledColumnStatistics.class,EXTERNALIZABLE_SERIALIZER,278);
+        instance.register(ColumnGroupStatistics.class,EXTERNALIZABLE_SERIALIZER,279);
+        instance.register(SpliceApproxCountDistinct.class,EXTERNALIZABLE_SERIALIZER,280);
+        instance.register(SpliceApproxTopK.class,EXTERNALIZABLE_SERIALIZER,281);
+        instance.register(SpliceApproxMedian.class,EXTERNALIZABLE_SERIALIZER,282);
+        instance.register(SpliceApproxPercentile90.class,EXTERNALIZABLE_SERIALIZER,283);
+        instance.register(SpliceApproxPercentile99.class,EXTERNALIZABLE_SERIALIZER,284);
     }
 }
@@ -45,6 +45,7 @@ import com.splicemachine.ddl.DDLMessage;
 import com.splicemachine.derby.DerbyMessage;
 import com.splicemachine.derby.impl.sql.execute.actions.ActiveTransactionReader;
 import com.splicemachine.derby.impl.sql.execute.actions.DropAliasConstantOperation;
+import com.splicemachine.derby.impl.stats.PartitionStatsStore;
 import com.splicemachine.derby.impl.store.access.SpliceTransactionManager;
 import com.splicemachine.derby.jdbc.SpliceTransactionResourceImpl;
 import com.splicemachine.pipeline.ErrorState;
@@ -367,6 +368,7 @@ public class DDLUtils {
                     TableDescriptor td=dd.getTableDescriptor(ProtoUtil.getDerbyUUID(uuuid));
                     if(td==null) // Table Descriptor transaction never committed
                         return;
+                    PartitionStatsStore.invalidateZoneMaps(td.getHeapConglomerateId());
                     dm.invalidateFor(td,DependencyManager.DROP_STATISTICS,transactionResource.getLcc());
                 }
             }finally{
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.db;
+
+import com.splicemachine.db.iapi.jdbc.EngineConnection;
+import com.splicemachine.db.iapi.util.IdUtil;
+import com.splicemachine.db.impl.sql.GenericStatement;
+import com.splicemachine.db.impl.sql.catalog.DataDictionaryCache;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The most frequently reused entries of the statement cache, saved to a local file.
+ *
+ * After a restart every statement has to be parsed, optimized and generated again as clients
+ * first execute it. The snapshot records which statements were hot (their text, compilation schema,
+ * concurrency and the isolation level the network server prepared them with, which together are the
+ * key of the statement cache), so that on boot they can be recompiled in the background, before
+ * clients ask for them. Since the statements are compiled again against the current data dictionary, a saved
+ * statement which no longer compiles, because DDL dropped or changed what it refers to, is simply
+ * skipped, and is gone from the next snapshot.
+ */
+public class StatementCacheSnapshot{
+    private static final Logger LOG=Logger.getLogger(StatementCacheSnapshot.class);
+    private static final int VERSION=2;
+
+    private final File file;
+    private final int maxStatements;
+
+    public StatementCacheSnapshot(File file,int maxStatements){
+        this.file=file;
+        this.maxStatements=maxStatements;
+    }
+
+    /**
+     * Replace the snapshot with the hottest statements in {@code cache}.
+     */
+    public void save(DataDictionaryCache cache) throws IOException{
+        List<GenericStatement> hottest=cache.statementCacheHottest(maxStatements);
+        File tmp=new File(file.getPath()+".tmp");
+        try(DataOutputStream out=new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))){
+            out.writeInt(VERSION);
+            out.writeInt(hottest.size());
+            for(GenericStatement statement : hottest){
+                writeString(out,statement.getCompilationSchema());
+                out.writeBoolean(statement.isForReadOnly());
+                out.writeInt(statement.getPrepareIsolationLevel());
+                writeString(out,statement.getSource());
+            }
+        }
+        Files.move(tmp.toPath(),file.toPath(),StandardCopyOption.REPLACE_EXISTING,StandardCopyOption.ATOMIC_MOVE);
+        if(LOG.isDebugEnabled())
+            LOG.debug(String.format("Saved %d statements to %s",hottest.size(),file));
+    }
+
+    /**
+     * @return the saved statements, hottest first, or an empty list if there is no readable snapshot
+     */
+    public List<Entry> load(){
+        if(!file.exists())
+            return Collections.emptyList();
+        try(DataInputStream in=new DataInputStream(new BufferedInputStream(new FileInputStream(file)))){
+            if(in.readInt()!=VERSION){
+                LOG.warn("Ignoring statement cache snapshot "+file+" written by a different version");
+                return Collections.emptyList();
+            }
+            int size=in.readInt();
+            List<Entry> entries=new ArrayList<>(size);
+            for(int i=0;i<size;i++){
+                String schema=readString(in);
+                boolean forReadOnly=in.readBoolean();
+                int isolationLevel=in.readInt();
+                entries.add(new Entry(schema,readString(in),forReadOnly,isolationLevel));
+            }
+            return entries;
+        }catch(IOException e){
+            LOG.warn("Unable to read statement cache snapshot "+file,e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Compile the saved statements on {@code conn}, which puts them in the statement cache.
+     *
+     * @return the number of statements compiled
+     */
+    public int warm(EngineConnection conn){
+        int compiled=0;
+        String currentSchema=null;
+        for(Entry entry : load()){
+            try{
+                if(!entry.schema.equals(currentSchema)){
+                    try(Statement s=conn.createStatement()){
+                        s.execute("SET SCHEMA "+IdUtil.normalToDelimited(entry.schema));
+                    }
+                    currentSchema=entry.schema;
+                }
+                // otherwise the statement is cached under a different key than the one it is looked up by
+                conn.setPrepareIsolation(entry.isolationLevel);
+                int concurrency=entry.forReadOnly?ResultSet.CONCUR_READ_ONLY:ResultSet.CONCUR_UPDATABLE;
+                try(PreparedStatement ignored=conn.prepareStatement(entry.text,ResultSet.TYPE_FORWARD_ONLY,concurrency)){
+                    compiled++;
+                }
+            }catch(SQLException e){
+                // most likely invalidated by DDL since the snapshot was taken
+                if(LOG.isDebugEnabled())
+                    LOG.debug("Skipping saved statement "+entry.text+": "+e.getMessage());
+            }
+        }
+        return compiled;
+    }
+
+    private static void writeString(DataOutputStream out,String value) throws IOException{
+        byte[] bytes=value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException{
+        byte[] bytes=new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes,StandardCharsets.UTF_8);
+    }
+
+    public static class Entry{
+        private final String schema;
+        private final String text;
+        private final boolean forReadOnly;
+        private final int isolationLevel;
+
+        public Entry(String schema,String text,boolean forReadOnly,int isolationLevel){
+            this.schema=schema;
+            this.text=text;
+            this.forReadOnly=forReadOnly;
+            this.isolationLevel=isolationLevel;
+        }
+
+        public String getSchema(){
+            return schema;
+        }
+
+        public String getText(){
+            return text;
+        }
+
+        public boolean isForReadOnly(){
+            return forReadOnly;
+        }
+
+        /**
+         * @return the prepare isolation level of the statement (see ExecutionContext)
+         */
+        public int getIsolationLevel(){
+            return isolationLevel;
+        }
+    }
+}
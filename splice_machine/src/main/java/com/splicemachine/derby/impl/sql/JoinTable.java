@@ -29,10 +29,21 @@ public interface JoinTable extends AutoCloseable{
 
     interface Factory{
         JoinTable newTable();
+
+        /**
+         * Release any resources shared by the tables this factory creates. Neither the factory
+         * nor any table created from it may be used afterwards.
+         */
+        void release();
     }
 
     Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException;
 
+    /**
+     * @return one inner row for each distinct join key, in no particular order
+     */
+    Iterator<ExecRow> distinctKeyRows() throws IOException, StandardException;
+
     @Override
     void close();
 }
@@ -18,6 +18,7 @@ package com.splicemachine.derby.impl.sql.catalog;
 import com.splicemachine.db.catalog.TypeDescriptor;
 import com.splicemachine.db.catalog.UUID;
 import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.reference.Limits;
 import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
 import com.splicemachine.db.iapi.store.access.TransactionController;
 import com.splicemachine.db.iapi.types.DataTypeDescriptor;
@@ -25,10 +26,18 @@ import com.splicemachine.db.iapi.types.TypeId;
 import com.splicemachine.db.impl.sql.catalog.Aggregate;
 import com.splicemachine.db.impl.sql.catalog.DefaultSystemAggregateGenerator;
 import com.splicemachine.derby.impl.sql.execute.operations.ColumnStatisticsMerge;
+import com.splicemachine.derby.impl.sql.execute.operations.SpliceApproxCountDistinct;
+import com.splicemachine.derby.impl.sql.execute.operations.SpliceApproxMedian;
+import com.splicemachine.derby.impl.sql.execute.operations.SpliceApproxPercentile;
+import com.splicemachine.derby.impl.sql.execute.operations.SpliceApproxPercentile90;
+import com.splicemachine.derby.impl.sql.execute.operations.SpliceApproxPercentile99;
+import com.splicemachine.derby.impl.sql.execute.operations.SpliceApproxTopK;
 import com.splicemachine.derby.impl.sql.execute.operations.SpliceStddevPop;
 import com.splicemachine.derby.impl.sql.execute.operations.SpliceStddevSamp;
 import com.splicemachine.stats.ColumnStatistics;
 
+import java.sql.Types;
+
 /**
  * @author Scott Fines
  *         Date: 3/2/15
@@ -60,6 +69,30 @@ public class SpliceSystemAggregatorGenerator extends DefaultSystemAggregateGener
 
         aggregate.createSystemAggregate(dictionary, tc, sysFunUUID);
 
+        /*
+         * Approximate aggregates, answered in constant memory from the sketches of the stats module. Values are
+         * counted by their string form, so that APPROX_COUNT_DISTINCT and APPROX_TOP_K apply to columns of any type
+         */
+        TypeDescriptor stringTypeDescriptor = DataTypeDescriptor.getBuiltInDataTypeDescriptor(
+                Types.VARCHAR, Limits.DB2_VARCHAR_MAXWIDTH).getCatalogType();
+        aggregate = new Aggregate(
+                "APPROX_COUNT_DISTINCT",
+                stringTypeDescriptor,
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT).getCatalogType(),
+                SpliceApproxCountDistinct.class.getCanonicalName());
+        aggregate.createSystemAggregate(dictionary, tc, sysFunUUID);
+
+        aggregate = new Aggregate(
+                "APPROX_TOP_K",
+                stringTypeDescriptor,
+                DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.LONGVARCHAR).getCatalogType(),
+                SpliceApproxTopK.class.getCanonicalName());
+        aggregate.createSystemAggregate(dictionary, tc, sysFunUUID);
+
+        createPercentileAggregate("APPROX_MEDIAN", SpliceApproxMedian.class, tc, sysFunUUID);
+        createPercentileAggregate("APPROX_PERCENTILE_90", SpliceApproxPercentile90.class, tc, sysFunUUID);
+        createPercentileAggregate("APPROX_PERCENTILE_99", SpliceApproxPercentile99.class, tc, sysFunUUID);
+
         TypeId mergeTypeId = TypeId.getUserDefinedTypeId(ColumnStatistics.class.getCanonicalName(), false);
         DataTypeDescriptor dtd = new DataTypeDescriptor(mergeTypeId,true);
         TypeDescriptor mergeTypeDescriptor = dtd.getCatalogType();
@@ -67,4 +100,16 @@ public class SpliceSystemAggregatorGenerator extends DefaultSystemAggregateGener
                 ColumnStatisticsMerge.class.getCanonicalName());
         aggregate.createSystemAggregate(dictionary,tc,sysFunUUID);
     }
+
+    private void createPercentileAggregate(String name,
+                                           Class<? extends SpliceApproxPercentile> aggregatorClass,
+                                           TransactionController tc,
+                                           UUID sysFunUUID) throws StandardException {
+        Aggregate aggregate = new Aggregate(
+                name,
+                TypeDescriptor.DOUBLE,
+                TypeDescriptor.DOUBLE,
+                aggregatorClass.getCanonicalName());
+        aggregate.createSystemAggregate(dictionary, tc, sysFunUUID);
+    }
 }
@@ -609,6 +609,24 @@ public class SpliceSystemProcedures extends DefaultSystemProcedureGenerator {
                     		.sqlControl(RoutineAliasInfo.NO_SQL).returnType(null).isDeterministic(false)
                     		.build());
 
+                    /*
+                     * Procedures to get and reset the cumulative runtime statistics of statements
+                     * on all region servers in the cluster.
+                     */
+                    procedures.add(Procedure.newBuilder().name("SYSCS_GET_STATEMENT_STATISTICS")
+                    		.numOutputParams(0)
+                    		.numResultSets(1)
+                    		.ownerClass(SpliceAdmin.class.getCanonicalName())
+                    		.sqlControl(RoutineAliasInfo.READS_SQL_DATA).returnType(null).isDeterministic(false)
+                    		.build());
+
+                    procedures.add(Procedure.newBuilder().name("SYSCS_RESET_STATEMENT_STATISTICS")
+                    		.numOutputParams(0)
+                    		.numResultSets(0)
+                    		.ownerClass(SpliceAdmin.class.getCanonicalName())
+                    		.sqlControl(RoutineAliasInfo.NO_SQL).returnType(null).isDeterministic(false)
+                    		.build());
+
                     procedures.add(Procedure.newBuilder().name("GET_ACTIVATION")
                             .numOutputParams(0)
                             .numResultSets(1)
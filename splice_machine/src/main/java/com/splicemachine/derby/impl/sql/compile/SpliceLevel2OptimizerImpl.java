@@ -211,7 +211,7 @@ public class SpliceLevel2OptimizerImpl extends Level2OptimizerImpl{
 
     @Override
     public SortCostController newSortCostController(OrderByList orderByList){
-        return new TempSortController();
+        return new TempSortController(orderByList==null?0:orderByList.getRowLimit());
     }
 
     @Override
@@ -1367,14 +1367,24 @@ public class SpliceGenericResultSetFactory implements ResultSetFactory {
 
     @Override
     public NoPutResultSet getExplainResultSet(ResultSet source, Activation activation, int resultSetNumber) throws StandardException {
-        ConvertedResultSet opSet = (ConvertedResultSet)source;
-        return new ExplainOperation(opSet.getOperation(), activation, resultSetNumber);
+        return getExplainResultSet(source, activation, resultSetNumber, false);
     }
 
     @Override
     public NoPutResultSet getExplainResultSet(NoPutResultSet source, Activation activation, int resultSetNumber) throws StandardException {
+        return getExplainResultSet(source, activation, resultSetNumber, false);
+    }
+
+    @Override
+    public NoPutResultSet getExplainResultSet(ResultSet source, Activation activation, int resultSetNumber, boolean analyze) throws StandardException {
+        ConvertedResultSet opSet = (ConvertedResultSet)source;
+        return new ExplainOperation(opSet.getOperation(), activation, resultSetNumber, analyze);
+    }
+
+    @Override
+    public NoPutResultSet getExplainResultSet(NoPutResultSet source, Activation activation, int resultSetNumber, boolean analyze) throws StandardException {
         ConvertedResultSet opSet = (ConvertedResultSet)source;
-        return new ExplainOperation(opSet.getOperation(), activation, resultSetNumber);
+        return new ExplainOperation(opSet.getOperation(), activation, resultSetNumber, analyze);
     }
 
     @Override
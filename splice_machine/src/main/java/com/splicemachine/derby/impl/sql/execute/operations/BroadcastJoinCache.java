@@ -15,8 +15,11 @@
 
 package com.splicemachine.derby.impl.sql.execute.operations;
 
+import org.sparkproject.guava.base.Ticker;
 import org.sparkproject.guava.cache.Cache;
 import org.sparkproject.guava.cache.CacheBuilder;
+import org.sparkproject.guava.cache.RemovalListener;
+import org.sparkproject.guava.cache.RemovalNotification;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.sql.JoinTable;
@@ -34,6 +37,13 @@ import java.util.concurrent.atomic.AtomicInteger;
 /**
  * Represents a Cache of records for use in a Broadcast Join.
  *
+ * Tables are kept for a short while after they were last used, so that the tasks of an operation
+ * which run one after the other on the same executor share a single table instead of each
+ * loading their own. Each call to {@link #get} takes a reference on the shared table, which is
+ * given back when the {@link JoinTable} created from it is closed, and the cache holds a reference
+ * of its own until the table is evicted. The table is released once all of those references have
+ * been returned, so its memory is freed as soon as it is both evicted and no longer in use.
+ *
  * @author Scott Fines
  *         Date: 10/27/15
  */
@@ -49,18 +59,38 @@ public class BroadcastJoinCache{
     }
 
     public BroadcastJoinCache(){
-       this(ByteBufferMapTableLoader.INSTANCE);
+       this(OffHeapJoinTableLoader.INSTANCE);
     }
 
     public BroadcastJoinCache(JoinTableLoader tableLoader){
+        this(tableLoader,Ticker.systemTicker());
+    }
+
+    BroadcastJoinCache(JoinTableLoader tableLoader,Ticker ticker){
         this.tableLoader = tableLoader;
         this.cache =CacheBuilder.newBuilder()
                 .maximumSize(1000)
                 .expireAfterAccess(2,TimeUnit.SECONDS)
-                .softValues()
+                .ticker(ticker)
+                .removalListener(new RemovalListener<Long,ReferenceCountingFactory>(){
+                    @Override
+                    public void onRemoval(RemovalNotification<Long,ReferenceCountingFactory> notification){
+                        ReferenceCountingFactory joinTable=notification.getValue();
+                        if(joinTable!=null)
+                            joinTable.release();
+                    }
+                })
                 .build();
     }
 
+    /**
+     * Evict the tables which have not been used recently. This otherwise only happens as a side
+     * effect of calls to {@link #get}.
+     */
+    void cleanUp(){
+        cache.cleanUp();
+    }
+
     public JoinTable.Factory get(Long operationId,
                          Callable<Stream<ExecRow>> loader,
                          int[] rightHashKeys,
@@ -68,9 +98,13 @@ public class BroadcastJoinCache{
                          ExecRow leftTemplateRow) throws IOException, StandardException{
         try{
             Loader callable=new Loader(operationId,tableLoader,rightHashKeys,leftHashKeys,leftTemplateRow,loader);
-            ReferenceCountingFactory joinTable=cache.get(operationId,callable);
-            joinTable.refCount.incrementAndGet();
-            return joinTable;
+            while(true){
+                ReferenceCountingFactory joinTable=cache.get(operationId,callable);
+                if(joinTable.retain())
+                    return joinTable;
+                //we raced with the eviction of the table, and it has already been released; load a new one
+                cache.asMap().remove(operationId,joinTable);
+            }
         }catch(ExecutionException e){
             Throwable c = e.getCause();
             if(c instanceof StandardException)
@@ -115,6 +149,7 @@ public class BroadcastJoinCache{
     private static class ReferenceCountedJoinTable implements JoinTable{
         private final JoinTable delegate;
         private ReferenceCountingFactory refFactory;
+        private boolean closed;
 
         public ReferenceCountedJoinTable(JoinTable delegate,ReferenceCountingFactory refFactory){
             this.delegate=delegate;
@@ -126,17 +161,28 @@ public class BroadcastJoinCache{
             return delegate.fetchInner(outer);
         }
 
+        @Override
+        public Iterator<ExecRow> distinctKeyRows() throws IOException, StandardException{
+            return delegate.distinctKeyRows();
+        }
+
         @Override
         public void close(){
-            refFactory.markClosed();
+            if(closed) return;
+            closed=true;
             delegate.close();
+            refFactory.release();
         }
     }
 
     private class ReferenceCountingFactory implements JoinTable.Factory{
         private final JoinTable.Factory delegate;
         private final Long id;
-        private AtomicInteger refCount = new AtomicInteger(0);
+        /*
+         * The number of outstanding references, including the one held by the cache until the table
+         * is evicted. Once it reaches 0 the table is released and no new references may be taken.
+         */
+        private final AtomicInteger refCount = new AtomicInteger(1);
 
         public ReferenceCountingFactory(JoinTable.Factory delegate,Long id){
             this.delegate=delegate;
@@ -148,10 +194,25 @@ public class BroadcastJoinCache{
             return new ReferenceCountedJoinTable(delegate.newTable(),this);
         }
 
-        public void markClosed(){
-            int refC=refCount.decrementAndGet();
-            if(refC<=0)
-                cache.invalidate(id);
+        @Override
+        public void release(){
+            while(true){
+                int refC=refCount.get();
+                if(refC<=0) return; //already released
+                if(refCount.compareAndSet(refC,refC-1)){
+                    if(refC==1)
+                        delegate.release();
+                    return;
+                }
+            }
+        }
+
+        boolean retain(){
+            while(true){
+                int refC=refCount.get();
+                if(refC<=0) return false;
+                if(refCount.compareAndSet(refC,refC+1)) return true;
+            }
         }
     }
 }
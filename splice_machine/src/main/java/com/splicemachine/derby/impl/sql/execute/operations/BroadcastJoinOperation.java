@@ -15,20 +15,27 @@
 
 package com.splicemachine.derby.impl.sql.execute.operations;
 
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.iapi.sql.execute.*;
 import com.splicemachine.derby.stream.function.*;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.stream.function.broadcast.AbstractBroadcastJoinFlatMapFunction;
 import com.splicemachine.derby.stream.function.broadcast.BroadcastJoinFlatMapFunction;
 import com.splicemachine.derby.stream.function.broadcast.CogroupBroadcastJoinFunction;
 import com.splicemachine.derby.stream.function.broadcast.SubtractByKeyBroadcastJoinFunction;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.loader.GeneratedMethod;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.primitives.Bytes;
+import com.splicemachine.storage.BloomFilterPredicate;
 import com.splicemachine.utils.SpliceLogUtils;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -110,6 +117,12 @@ public class BroadcastJoinOperation extends JoinOperation{
     protected List<ExecRow> rights;
     protected long sequenceId;
     protected static final String NAME = BroadcastJoinOperation.class.getSimpleName().replaceAll("Operation","");
+    /*
+     * Building the join key filter means loading the right side before the left side is scanned, and
+     * testing every stored left row against it, so we only do it when the left side is large.
+     */
+    private static final double JOIN_KEY_FILTER_MIN_LEFT_ROWS=100000d;
+    private static final double JOIN_KEY_FILTER_FALSE_POSITIVE_RATE=0.01d;
 
 	@Override
 	public String getName() {
@@ -181,6 +194,7 @@ public class BroadcastJoinOperation extends JoinOperation{
     public DataSet<LocatedRow> getDataSet(DataSetProcessor dsp) throws StandardException {
         OperationContext operationContext = dsp.createOperationContext(this);
 
+        pushJoinKeyFilter(dsp,operationContext);
         DataSet<LocatedRow> leftDataSet = leftResultSet.getDataSet(dsp);
 
         operationContext.pushScope();
@@ -228,6 +242,100 @@ public class BroadcastJoinOperation extends JoinOperation{
         return result;
     }
 
+    /**
+     * For inner joins whose left side is a table scan, build a Bloom filter over the right side's join keys and
+     * push it into the scan, so that left rows without a join partner are rejected against the stored row,
+     * before they are decoded. The scan may be under any number of ProjectRestricts, as long as they pass the
+     * join key column through unchanged; their restrictions only remove left rows, which can't change the
+     * result of an inner join.
+     *
+     * The filter is built from the broadcast join table itself, which is loaded here (through the same local read of
+     * the right side the join's tasks use) before the left scan is built. On the control side it is loaded here
+     * rather than by the first task of the join, so the right side is still read only once. On Spark each executor
+     * loads its own table, so the table loaded here is only used to build the filter, which then travels to the
+     * executors with the rest of the left scan's predicate filter.
+     *
+     * The filter compares encoded bytes, so this is only done for single-column keys of the same type, whose
+     * encoding is canonical (i.e. values which compare equal are encoded identically), and which are not part of
+     * the left table's row key.
+     */
+    private void pushJoinKeyFilter(DataSetProcessor dsp,OperationContext operationContext) throws StandardException{
+        int leftColumn=leftHashKeys.length==1?leftHashKeys[0]:-1;
+        SpliceOperation left=leftResultSet;
+        while(left instanceof ProjectRestrictOperation){
+            int[] projectMapping=((ProjectRestrictOperation)left).projectMapping;
+            if(leftColumn>=0)
+                leftColumn=projectMapping!=null && leftColumn<projectMapping.length && projectMapping[leftColumn]>0
+                        ?projectMapping[leftColumn]-1:-1; //the key is computed by the projection
+            left=((ProjectRestrictOperation)left).getSource();
+        }
+        if(!(left instanceof TableScanOperation)) return;
+        TableScanOperation leftScan=(TableScanOperation)left;
+        leftScan.clearRuntimePredicates();
+        if(leftColumn<0 || isOuterJoin || notExistsRightSide) return;
+        if(leftScan.getEstimatedRowCount()<JOIN_KEY_FILTER_MIN_LEFT_ROWS) return;
+
+        int storedColumn=leftScan.getStoredColumnPosition(leftColumn);
+        if(storedColumn<0) return;
+        ExecRow rightTemplate=rightResultSet.getExecRowDefinition();
+        DataValueDescriptor leftKey=leftScan.getExecRowDefinition().getColumn(leftColumn+1);
+        DataValueDescriptor rightKey=rightTemplate.getColumn(rightHashKeys[0]+1);
+        if(leftKey==null || rightKey==null
+                || leftKey.getTypeFormatId()!=rightKey.getTypeFormatId()
+                || !hasCanonicalEncoding(leftKey.getTypeFormatId())) return;
+
+        DescriptorSerializer serializer=VersionedSerializers.forVersion(leftScan.getTableVersion(),true)
+                .getSerializers(rightTemplate)[rightHashKeys[0]];
+        List<byte[]> keys=new ArrayList<>();
+        try{
+            JoinTable joinTable=AbstractBroadcastJoinFlatMapFunction.joinTable(this,operationContext);
+            boolean localJoin=dsp.getType()==DataSetProcessor.Type.LOCAL;
+            /*
+             * On the control side, keep a reference on the table until this operation is closed, so that the join's
+             * tasks find it in the cache however long the left side takes to produce its first rows
+             */
+            if(localJoin)
+                registerCloseable(joinTable);
+            try{
+                Iterator<ExecRow> keyRows=joinTable.distinctKeyRows();
+                while(keyRows.hasNext()){
+                    DataValueDescriptor key=keyRows.next().getColumn(rightHashKeys[0]+1);
+                    if(key==null || key.isNull()) continue; //nulls never join
+                    keys.add(serializer.encodeDirect(key,false));
+                }
+            }finally{
+                if(!localJoin)
+                    joinTable.close();
+            }
+        }catch(IOException e){
+            throw Exceptions.parseException(e);
+        }
+        BloomFilterPredicate.Builder filter=BloomFilterPredicate.builder(storedColumn,keys.size(),JOIN_KEY_FILTER_FALSE_POSITIVE_RATE);
+        for(byte[] key : keys){
+            filter.add(key);
+        }
+        leftScan.addRuntimePredicate(filter.build());
+        if (LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG, "pushed join key filter over %d right keys into %s", keys.size(), leftScan);
+    }
+
+    private static boolean hasCanonicalEncoding(int typeFormatId){
+        switch(typeFormatId){
+            case StoredFormatIds.SQL_TINYINT_ID:
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+            case StoredFormatIds.SQL_LONGINT_ID:
+            case StoredFormatIds.SQL_DATE_ID:
+                return true;
+            default:
+                /*
+                 * character types compare with blank padding, decimals ignore scale and floating point
+                 * has two zeroes, so none of them can be compared byte-for-byte
+                 */
+                return false;
+        }
+    }
+
     public String getPrettyExplainPlan() {
         StringBuffer sb = new StringBuffer();
         sb.append(super.getPrettyExplainPlan());
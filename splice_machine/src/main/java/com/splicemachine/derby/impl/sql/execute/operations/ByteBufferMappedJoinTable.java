@@ -27,6 +27,7 @@ import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -58,6 +59,15 @@ class ByteBufferMappedJoinTable implements JoinTable{
             return rows.iterator();
     }
 
+    @Override
+    public Iterator<ExecRow> distinctKeyRows() throws IOException, StandardException{
+        List<ExecRow> rows=new ArrayList<>(table.size());
+        for(List<ExecRow> keyRows : table.values()){
+            rows.add(keyRows.get(0));
+        }
+        return rows.iterator();
+    }
+
     //nothing to close
     @Override public void close(){}
 
@@ -76,5 +86,8 @@ class ByteBufferMappedJoinTable implements JoinTable{
         public JoinTable newTable(){
             return new ByteBufferMappedJoinTable(table,outerHashKeys,outerTemplateRow);
         }
+
+        //the table lives on the heap, so there is nothing to release
+        @Override public void release(){}
     }
 }
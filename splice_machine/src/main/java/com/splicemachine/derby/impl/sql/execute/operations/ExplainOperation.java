@@ -20,7 +20,7 @@ import com.splicemachine.db.iapi.sql.compile.CompilerContext;
 import com.splicemachine.db.impl.sql.compile.FromBaseTable;
 import com.splicemachine.db.impl.sql.execute.BaseActivation;
 import org.sparkproject.guava.collect.Iterables;
-import org.sparkproject.guava.collect.Iterators;
+import org.sparkproject.guava.collect.Lists;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
@@ -28,10 +28,12 @@ import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.SQLVarchar;
 import com.splicemachine.db.impl.ast.PlanPrinter;
 import com.splicemachine.db.impl.sql.compile.QueryTreeNode;
+import com.splicemachine.db.impl.sql.compile.ResultSetNode;
 import com.splicemachine.db.impl.sql.execute.ValueRow;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperationContext;
 import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.stream.control.ControlSpillFile;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.derby.stream.iapi.OperationContext;
@@ -39,17 +41,34 @@ import com.splicemachine.derby.stream.iapi.OperationContext;
 import javax.annotation.Nullable;
 
 import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.*;
 
 /**
+ * Returns the plan of a statement, one operation per row.
+ *
+ * With EXPLAIN ANALYZE, the statement is run first, and each row also shows how many rows the operation
+ * actually returned (and, for scans, how many bytes it read), next to the optimizer's estimate. Estimates which
+ * are off by {@link #MISESTIMATE_RATIO} or more either way are flagged. A last row shows the time taken by the
+ * whole statement, along with the bytes spilled on the control side or the Spark stages it ran.
+ *
  * @author Jun Yuan
  * Date: 6/9/14
  */
 public class ExplainOperation extends SpliceBaseOperation {
     protected static final String NAME = ExplainOperation.class.getSimpleName().replaceAll("Operation", "");
+    private static final double MISESTIMATE_RATIO = 10d;
     protected SpliceOperation source;
     protected ExecRow currentTemplate;
-    private Iterator<String> explainStringIter;
+    private boolean analyze;
+    private List<String> planLines;
+    /*
+     * The result set number of the operation on each line of the plan, or -1 if the line is not an operation
+     */
+    private int[] planResultSetNumbers;
 
     @Override
     public String getName() {
@@ -59,19 +78,60 @@ public class ExplainOperation extends SpliceBaseOperation {
     public ExplainOperation(){ }
 
     public ExplainOperation(SpliceOperation source, Activation activation, int resultSetNumber) throws StandardException {
+        this(source, activation, resultSetNumber, false);
+    }
+
+    public ExplainOperation(SpliceOperation source, Activation activation, int resultSetNumber, boolean analyze) throws StandardException {
         super(activation, resultSetNumber, 0, 0);
         this.activation = activation;
         this.source = source;
+        this.analyze = analyze;
         init();
     }
 
     @Override
     public void init(SpliceOperationContext context) throws StandardException, IOException {
         super.init(context);
+        source.init(context);
         currentTemplate = new ValueRow(1);
         currentTemplate.setRowArray(new DataValueDescriptor[]{new SQLVarchar()});
     }
 
+    public boolean isAnalyze() {
+        return analyze;
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        super.readExternal(in);
+        source = (SpliceOperation) in.readObject();
+        analyze = in.readBoolean();
+        if (in.readBoolean()) {
+            int size = in.readInt();
+            planLines = new ArrayList<>(size);
+            planResultSetNumbers = new int[size];
+            for (int i = 0; i < size; i++) {
+                planLines.add((String) in.readObject());
+                planResultSetNumbers[i] = in.readInt();
+            }
+        }
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        super.writeExternal(out);
+        out.writeObject(source);
+        out.writeBoolean(analyze);
+        out.writeBoolean(planLines != null);
+        if (planLines != null) {
+            out.writeInt(planLines.size());
+            for (int i = 0; i < planLines.size(); i++) {
+                out.writeObject(planLines.get(i));
+                out.writeInt(planResultSetNumbers[i]);
+            }
+        }
+    }
+
     @Override
     public void openCore() throws StandardException {
         getPlanInformation();
@@ -115,26 +175,40 @@ public class ExplainOperation extends SpliceBaseOperation {
         return currentTemplate;
     }
 
+    /*
+     * The plan is only known where the statement was compiled, so it is read here, before the operation
+     * is shipped anywhere else to run
+     */
     @SuppressWarnings("unchecked")
     private void getPlanInformation() throws StandardException{
         Map<String,Collection<QueryTreeNode>> m = PlanPrinter.planMap.get();
         String sql = activation.getPreparedStatement().getSource();
         Collection<QueryTreeNode> opPlanMap = m.get(sql);
-        if(opPlanMap!=null){
-            boolean useSpark = PlanPrinter.shouldUseSpark(opPlanMap);
-            explainStringIter = PlanPrinter.planToIterator(opPlanMap, useSpark);
-        }else
-            explainStringIter =Iterators.emptyIterator();
+        if (opPlanMap == null) {
+            if (planLines == null) {
+                planLines = Collections.emptyList();
+                planResultSetNumbers = new int[0];
+            }
+            return;
+        }
+        boolean useSpark = PlanPrinter.shouldUseSpark(opPlanMap);
+        planLines = Lists.newArrayList(PlanPrinter.planToIterator(opPlanMap, useSpark));
+        planResultSetNumbers = new int[planLines.size()];
+        int i = 0;
+        for (QueryTreeNode node : opPlanMap) {
+            planResultSetNumbers[i++] = node instanceof ResultSetNode ? ((ResultSetNode) node).getResultSetNumber() : -1;
+        }
     }
 
     public DataSet<LocatedRow> getDataSet(DataSetProcessor dsp) throws StandardException {
         OperationContext operationContext = dsp.createOperationContext(this);
+        final List<String> lines = analyze ? analyze(dsp) : planLines;
         operationContext.pushScope();
         try {
             return dsp.createDataSet(Iterables.transform(new Iterable<String>() {
                                                              @Override
                                                              public Iterator<String> iterator() {
-                                                                 return explainStringIter;
+                                                                 return lines.iterator();
                                                              }
                                                          }, new Function<String, LocatedRow>() {
                                                              @Nullable
@@ -157,4 +231,100 @@ public class ExplainOperation extends SpliceBaseOperation {
             operationContext.popScope();
         }
     }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /*
+     * Run the statement to completion, then annotate each line of the plan with what its operation did
+     */
+    private List<String> analyze(DataSetProcessor dsp) throws StandardException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean control = dsp.getType() != DataSetProcessor.Type.SPARK;
+        Set<Integer> previousStages = control ? Collections.<Integer>emptySet() : new HashSet<>(dsp.getStageIds(jobName));
+        long spilled = ControlSpillFile.bytesSpilledByThread();
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        long start = System.nanoTime();
+        long rows = 0;
+        Iterator<LocatedRow> results = source.getDataSet(dsp).toLocalIterator();
+        while (results.hasNext()) {
+            results.next();
+            rows++;
+        }
+        long wallTime = System.nanoTime() - start;
+        long cpuTime = threads.getCurrentThreadCpuTime() - cpuStart;
+        spilled = ControlSpillFile.bytesSpilledByThread() - spilled;
+
+        Map<Integer, SpliceOperation> operations = new HashMap<>();
+        collectOperations(source, operations);
+        List<String> lines = new ArrayList<>(planLines.size() + 1);
+        for (int i = 0; i < planLines.size(); i++) {
+            SpliceOperation op = planResultSetNumbers[i] < 0 ? null : operations.get(planResultSetNumbers[i]);
+            lines.add(op == null ? planLines.get(i) : planLines.get(i) + actualString(op));
+        }
+
+        StringBuilder summary = new StringBuilder("Execution(")
+                .append("rows=").append(rows)
+                .append(",wallTime=").append(String.format("%.3f ms", wallTime / 1000000d));
+        if (control) {
+            // the Spark work happens on executors, so the time of this thread says nothing about it
+            summary.append(",cpuTime=").append(String.format("%.3f ms", cpuTime / 1000000d))
+                    .append(",spilledBytes=").append(spilled)
+                    .append(",engine=control)");
+        } else {
+            List<Integer> stages = new ArrayList<>(dsp.getStageIds(jobName));
+            stages.removeAll(previousStages);
+            summary.append(",stages=").append(stages)
+                    .append(",engine=Spark)");
+        }
+        lines.add(summary.toString());
+        return lines;
+    }
+
+    private static void collectOperations(SpliceOperation op, Map<Integer, SpliceOperation> operations) {
+        if (!operations.containsKey(op.resultSetNumber()))
+            operations.put(op.resultSetNumber(), op);
+        for (SpliceOperation child : op.getSubOperations()) {
+            collectOperations(child, operations);
+        }
+    }
+
+    private static String actualString(SpliceOperation op) {
+        long actual = actualRows(op);
+        if (actual < 0)
+            return " actual(rows=unknown)";
+        double estimate = op.getEstimatedRowCount();
+        double ratio = Math.max(estimate, 1d) / Math.max(actual, 1l);
+        StringBuilder sb = new StringBuilder(" actual(rows=").append(actual)
+                .append(",estimatedRows=").append(Math.round(estimate))
+                .append(",estimate/actual=").append(String.format("%.2f", ratio));
+        if (ratio >= MISESTIMATE_RATIO || ratio <= 1d / MISESTIMATE_RATIO)
+            sb.append(" MISESTIMATED");
+        OperationContext context = op.getOperationContext();
+        if (context != null && context.getBytesRead() > 0)
+            sb.append(",bytesRead=").append(context.getBytesRead());
+        return sb.append(")").toString();
+    }
+
+    /*
+     * Operations count their rows in different ways: those which build rows of their own count them as
+     * produced, scans count the rows they read (less those they filtered out), and a projection counts
+     * only the rows it filtered out of its source's.
+     *
+     * @return the number of rows the operation returned, or -1 if it did not count them
+     */
+    private static long actualRows(SpliceOperation op) {
+        OperationContext context = op.getOperationContext();
+        if (context == null)
+            return -1l;
+        if (context.getRecordsProduced() > 0)
+            return context.getRecordsProduced();
+        if (context.getRecordsRead() > 0)
+            return context.getRecordsRead() - context.getRecordsFiltered();
+        if (op instanceof ProjectRestrictOperation) {
+            long sourceRows = actualRows(((ProjectRestrictOperation) op).getSource());
+            return sourceRows < 0 ? -1l : sourceRows - context.getRecordsFiltered();
+        }
+        return -1l;
+    }
 }
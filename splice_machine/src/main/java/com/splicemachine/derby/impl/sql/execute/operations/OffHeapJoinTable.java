@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.EntryDataDecoder;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.NoOpPostfix;
+import com.splicemachine.derby.utils.marshall.NoOpPrefix;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Join table over an {@link OffHeapRowStore}. Inner rows stay encoded off-heap, and are only
+ * decoded (into a fresh row) as a probe iterates over them.
+ *
+ * A single store is shared by every table created from the same {@link Factory}; each table has
+ * its own encoders and decoders, so tables may be used from different threads.
+ */
+class OffHeapJoinTable implements JoinTable{
+    private final OffHeapRowStore store;
+    private final ExecRow innerTemplate;
+    private final KeyEncoder outerKeyEncoder;
+    private final EntryDataDecoder innerDecoder;
+
+    OffHeapJoinTable(OffHeapRowStore store,ExecRow innerTemplate,int[] outerHashKeys,ExecRow outerTemplateRow){
+        this.store=store;
+        this.innerTemplate=innerTemplate;
+        DescriptorSerializer[] outerSerializers=VersionedSerializers.latestVersion(false).getSerializers(outerTemplateRow);
+        this.outerKeyEncoder=new KeyEncoder(NoOpPrefix.INSTANCE,
+                BareKeyHash.encoder(outerHashKeys,null,outerSerializers),NoOpPostfix.INSTANCE);
+        if(innerTemplate==null)
+            this.innerDecoder=null;
+        else
+            this.innerDecoder=new EntryDataDecoder(null,null,VersionedSerializers.latestVersion(true).getSerializers(innerTemplate));
+    }
+
+    @Override
+    public Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException{
+        if(innerTemplate==null)
+            return Collections.emptyIterator();
+        byte[] outerKey=outerKeyEncoder.getKey(outer);
+        assert outerKey!=null: "Programmer error: outer row does not have row key";
+        final long first=store.first(outerKey);
+        if(first==OffHeapRowStore.NO_RECORD)
+            return Collections.emptyIterator();
+        return new Iterator<ExecRow>(){
+            private long next=first;
+
+            @Override
+            public boolean hasNext(){
+                return next!=OffHeapRowStore.NO_RECORD;
+            }
+
+            @Override
+            public ExecRow next(){
+                if(!hasNext()) throw new NoSuchElementException();
+                ExecRow inner=decode(next);
+                next=store.next(next);
+                return inner;
+            }
+
+            @Override
+            public void remove(){
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public Iterator<ExecRow> distinctKeyRows() throws IOException, StandardException{
+        if(innerTemplate==null)
+            return Collections.emptyIterator();
+        long[] firstRows=store.firstRows();
+        List<ExecRow> rows=new ArrayList<>(firstRows.length);
+        for(long address : firstRows){
+            rows.add(decode(address));
+        }
+        return rows.iterator();
+    }
+
+    private ExecRow decode(long address){
+        byte[] row=store.row(address);
+        ExecRow inner=innerTemplate.getNewNullRow();
+        innerDecoder.set(row,0,row.length);
+        try{
+            innerDecoder.decode(inner);
+        }catch(StandardException e){
+            throw new RuntimeException(e);
+        }
+        return inner;
+    }
+
+    /*
+     * Nothing to close: the store is shared, and is released through the Factory once the cache has
+     * evicted it and the last table over it is closed.
+     */
+    @Override public void close(){}
+
+    static class Factory implements JoinTable.Factory{
+        private final OffHeapRowStore store;
+        private final ExecRow innerTemplate;
+        private final int[] outerHashKeys;
+        private final ExecRow outerTemplateRow;
+
+        /**
+         * @param innerTemplate a template for the inner rows, or {@code null} if the inner side was empty
+         */
+        Factory(OffHeapRowStore store,ExecRow innerTemplate,int[] outerHashKeys,ExecRow outerTemplateRow){
+            this.store=store;
+            this.innerTemplate=innerTemplate;
+            this.outerHashKeys=outerHashKeys;
+            this.outerTemplateRow=outerTemplateRow;
+        }
+
+        @Override
+        public JoinTable newTable(){
+            return new OffHeapJoinTable(store,innerTemplate,outerHashKeys,outerTemplateRow);
+        }
+
+        @Override
+        public void release(){
+            store.free();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.DataHash;
+import com.splicemachine.derby.utils.marshall.EntryDataHash;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.NoOpPostfix;
+import com.splicemachine.derby.utils.marshall.NoOpPrefix;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.stream.StreamException;
+import org.apache.log4j.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Loads the inner side of a broadcast join into an {@link OffHeapRowStore}, keeping each
+ * row in its encoded form rather than as a materialized {@link ExecRow}.
+ */
+@ThreadSafe
+class OffHeapJoinTableLoader implements BroadcastJoinCache.JoinTableLoader{
+    private static final Logger LOG=Logger.getLogger(OffHeapJoinTableLoader.class);
+    public static BroadcastJoinCache.JoinTableLoader INSTANCE = new OffHeapJoinTableLoader();
+
+    private OffHeapJoinTableLoader(){} //singleton class
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys,ExecRow outerTemplateRow) throws ExecutionException{
+        OffHeapRowStore store=new OffHeapRowStore();
+        ExecRow innerTemplate=null;
+        KeyEncoder innerKeyEncoder=null;
+        DataHash<ExecRow> rowEncoder=null;
+
+        try(Stream<ExecRow> innerRows=streamLoader.call()){
+            ExecRow right;
+            while((right=innerRows.next())!=null){
+                if(innerTemplate==null){
+                    innerTemplate=right.getNewNullRow();
+                    DescriptorSerializer[] innerSerializers=VersionedSerializers.latestVersion(false).getSerializers(right);
+                    innerKeyEncoder=new KeyEncoder(NoOpPrefix.INSTANCE,
+                            BareKeyHash.encoder(innerHashKeys,null,innerSerializers),NoOpPostfix.INSTANCE);
+                    rowEncoder=new EntryDataHash(null,null,VersionedSerializers.latestVersion(true).getSerializers(right));
+                }
+                rowEncoder.setRow(right);
+                store.add(innerKeyEncoder.getKey(right),rowEncoder.encode());
+            }
+        }catch(StreamException e){
+           store.free();
+           throw new ExecutionException(e.getCause());
+        }catch(Exception e){
+            //nothing will ever release the store, so give its slabs back to the pool now
+            store.free();
+            if(e instanceof ExecutionException) throw (ExecutionException)e;
+            else throw new ExecutionException(e);
+        }finally{
+            closeQuietly(innerKeyEncoder,rowEncoder);
+        }
+        if(LOG.isDebugEnabled())
+            LOG.debug(String.format("Loaded %d rows (%d keys) into %d bytes, %d of them on heap",
+                    store.numRows(),store.numKeys(),store.bytesAllocated(),store.bytesOnHeap()));
+
+        return new OffHeapJoinTable.Factory(store,innerTemplate,outerHashKeys,outerTemplateRow);
+    }
+
+    private static void closeQuietly(KeyEncoder keyEncoder,DataHash<ExecRow> rowEncoder){
+        try{
+            if(keyEncoder!=null)
+                keyEncoder.close();
+            if(rowEncoder!=null)
+                rowEncoder.close();
+        }catch(Exception ignored){
+            //serializers have nothing worth reporting on close
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.hash.Hash32;
+import com.splicemachine.hash.HashFunctions;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only multimap from encoded key to encoded rows, stored outside of the java heap.
+ *
+ * Records are appended to direct {@link ByteBuffer} slabs taken from an {@link OffHeapSlabPool} as
+ * {@code [next record address (long)][key length (int)][row length (int)][key][row]}, and rows with
+ * the same key are chained through the next pointer in insertion order. The only on-heap
+ * structure is an open-addressing index from the (cached) key hash to the address of the first
+ * and last record of each key, which is three primitive arrays regardless of how many rows there are.
+ *
+ * Once the pool's budget is used up, and for records larger than a slab, records are appended to
+ * heap slabs instead, so a large inner side costs heap rather than failing.
+ *
+ * Writes must all happen before the store is published; after that, any number of threads may
+ * read it concurrently. The direct slabs go back to the pool on {@link #free()}; a store which is
+ * never freed keeps them out of the pool for good.
+ */
+class OffHeapRowStore{
+    static final long NO_RECORD=-1L;
+    private static final int HEADER_SIZE=16;
+    private static final float LOAD_FACTOR=0.75f;
+    private static final Hash32 HASH=HashFunctions.murmur3(0);
+
+    private final OffHeapSlabPool pool;
+    private final List<ByteBuffer> slabs=new ArrayList<>();
+    private ByteBuffer currentSlab;
+
+    private int[] hashes;
+    private long[] heads;
+    private long[] tails;
+    private int numKeys;
+    private long numRows;
+    private long bytesAllocated;
+    private long bytesOnHeap;
+
+    OffHeapRowStore(){
+        this(OffHeapSlabPool.shared());
+    }
+
+    OffHeapRowStore(OffHeapSlabPool pool){
+        this.pool=pool;
+        allocateIndex(16);
+    }
+
+    void add(byte[] key,byte[] row){
+        long address=append(key,row);
+        int hash=HASH.hash(key,0,key.length);
+        int slot=find(key,hash);
+        if(slot>=0){
+            long tail=tails[slot];
+            slab(tail).putLong(offset(tail),address);
+            tails[slot]=address;
+        }else{
+            slot=-(slot+1);
+            hashes[slot]=hash;
+            heads[slot]=address;
+            tails[slot]=address;
+            numKeys++;
+            if(numKeys>heads.length*LOAD_FACTOR)
+                resize();
+        }
+        numRows++;
+    }
+
+    /**
+     * @return the address of the first row stored under {@code key}, or {@link #NO_RECORD}
+     */
+    long first(byte[] key){
+        int slot=find(key,HASH.hash(key,0,key.length));
+        return slot<0?NO_RECORD:heads[slot];
+    }
+
+    /**
+     * @return the address of the row stored after the one at {@code address} under the same key,
+     * or {@link #NO_RECORD}
+     */
+    long next(long address){
+        return slab(address).getLong(offset(address));
+    }
+
+    /**
+     * @return the address of the first row stored under each distinct key, in no particular order
+     */
+    long[] firstRows(){
+        long[] firstRows=new long[numKeys];
+        int n=0;
+        for(long head : heads){
+            if(head!=NO_RECORD)
+                firstRows[n++]=head;
+        }
+        return firstRows;
+    }
+
+    byte[] row(long address){
+        ByteBuffer slab=slab(address).duplicate();
+        int offset=offset(address);
+        int keyLength=slab.getInt(offset+8);
+        int rowLength=slab.getInt(offset+12);
+        byte[] row=new byte[rowLength];
+        slab.position(offset+HEADER_SIZE+keyLength);
+        slab.get(row);
+        return row;
+    }
+
+    int numKeys(){
+        return numKeys;
+    }
+
+    long numRows(){
+        return numRows;
+    }
+
+    /**
+     * @return the number of bytes of slabs this store holds, on and off heap
+     */
+    long bytesAllocated(){
+        return bytesAllocated;
+    }
+
+    /**
+     * @return the number of bytes of slabs this store had to allocate on heap
+     */
+    long bytesOnHeap(){
+        return bytesOnHeap;
+    }
+
+    /**
+     * Give the off-heap slabs of this store back to its pool. No reads may be in progress, or be made afterwards.
+     */
+    void free(){
+        for(ByteBuffer slab : slabs){
+            if(slab.isDirect())
+                pool.release(slab);
+        }
+        slabs.clear();
+        currentSlab=null;
+        bytesAllocated=0;
+        bytesOnHeap=0;
+    }
+
+    /*private helper methods*/
+    private int find(byte[] key,int hash){
+        int mask=heads.length-1;
+        int slot=hash&mask;
+        while(heads[slot]!=NO_RECORD){
+            if(hashes[slot]==hash && keyEquals(heads[slot],key))
+                return slot;
+            slot=(slot+1)&mask;
+        }
+        return -(slot+1);
+    }
+
+    private boolean keyEquals(long address,byte[] key){
+        ByteBuffer slab=slab(address);
+        int offset=offset(address);
+        if(slab.getInt(offset+8)!=key.length) return false;
+        int keyOffset=offset+HEADER_SIZE;
+        for(int i=0;i<key.length;i++){
+            if(slab.get(keyOffset+i)!=key[i]) return false;
+        }
+        return true;
+    }
+
+    private long append(byte[] key,byte[] row){
+        int recordSize=HEADER_SIZE+key.length+row.length;
+        if(currentSlab==null || currentSlab.remaining()<recordSize){
+            //oversized records get a heap slab of their own
+            currentSlab=recordSize<=pool.slabSize()?pool.acquire():null;
+            if(currentSlab==null){
+                currentSlab=ByteBuffer.allocate(Math.max(pool.slabSize(),recordSize));
+                bytesOnHeap+=currentSlab.capacity();
+            }
+            slabs.add(currentSlab);
+            bytesAllocated+=currentSlab.capacity();
+        }
+        int offset=currentSlab.position();
+        currentSlab.putLong(NO_RECORD).putInt(key.length).putInt(row.length).put(key).put(row);
+        return ((long)(slabs.size()-1)<<32)|offset;
+    }
+
+    private ByteBuffer slab(long address){
+        return slabs.get((int)(address>>>32));
+    }
+
+    private static int offset(long address){
+        return (int)address;
+    }
+
+    private void allocateIndex(int capacity){
+        hashes=new int[capacity];
+        heads=new long[capacity];
+        tails=new long[capacity];
+        Arrays.fill(heads,NO_RECORD);
+    }
+
+    private void resize(){
+        int[] oldHashes=hashes;
+        long[] oldHeads=heads;
+        long[] oldTails=tails;
+        allocateIndex(oldHeads.length<<1);
+        int mask=heads.length-1;
+        for(int i=0;i<oldHeads.length;i++){
+            if(oldHeads[i]==NO_RECORD) continue;
+            int slot=oldHashes[i]&mask;
+            while(heads[slot]!=NO_RECORD)
+                slot=(slot+1)&mask;
+            hashes[slot]=oldHashes[i];
+            heads[slot]=oldHeads[i];
+            tails[slot]=oldTails[i];
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.access.configuration.SQLConfiguration;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Bounded pool of fixed-size direct {@link ByteBuffer} slabs for {@link OffHeapRowStore}s.
+ *
+ * Direct memory is only reclaimed once the garbage collector gets around to the buffers which own it,
+ * so instead of dropping its slabs when it is freed, a store hands them back here and the next
+ * store reuses them. The pool never allocates more than its budget; once that is all handed out,
+ * {@link #acquire()} returns {@code null} and the store keeps its rows on heap instead.
+ */
+@ThreadSafe
+class OffHeapSlabPool{
+    static final int DEFAULT_SLAB_SIZE=1<<22;
+
+    private static volatile OffHeapSlabPool shared;
+
+    private final int slabSize;
+    private final long budget;
+    private final Deque<ByteBuffer> free=new ArrayDeque<>();
+    private long bytesAllocated;
+
+    OffHeapSlabPool(int slabSize,long budget){
+        this.slabSize=slabSize;
+        this.budget=budget;
+    }
+
+    /**
+     * @return the pool shared by the broadcast joins of this server, sized by
+     * {@link SQLConfiguration#BROADCAST_OFF_HEAP_MEMORY_BUDGET}
+     */
+    static OffHeapSlabPool shared(){
+        OffHeapSlabPool pool=shared;
+        if(pool==null){
+            synchronized(OffHeapSlabPool.class){
+                pool=shared;
+                if(pool==null){
+                    EngineDriver driver=EngineDriver.driver();
+                    SConfiguration config=driver==null?null:driver.getConfiguration();
+                    long budget=config==null?SQLConfiguration.DEFAULT_BROADCAST_OFF_HEAP_MEMORY_BUDGET:config.getBroadcastOffHeapMemoryBudget();
+                    pool=shared=new OffHeapSlabPool(DEFAULT_SLAB_SIZE,budget);
+                }
+            }
+        }
+        return pool;
+    }
+
+    int slabSize(){
+        return slabSize;
+    }
+
+    /**
+     * @return an empty slab of {@link #slabSize()} bytes, or {@code null} if the budget is exhausted
+     */
+    synchronized ByteBuffer acquire(){
+        ByteBuffer slab=free.poll();
+        if(slab!=null)
+            return slab;
+        if(bytesAllocated+slabSize>budget)
+            return null;
+        bytesAllocated+=slabSize;
+        return ByteBuffer.allocateDirect(slabSize);
+    }
+
+    /**
+     * Return a slab obtained from {@link #acquire()}. The caller must not use it afterwards.
+     */
+    synchronized void release(ByteBuffer slab){
+        assert slab.capacity()==slabSize: "Slab does not belong to this pool";
+        slab.clear();
+        free.push(slab);
+    }
+
+    /**
+     * @return the number of bytes of direct memory this pool has allocated, whether handed out or not
+     */
+    synchronized long bytesAllocated(){
+        return bytesAllocated;
+    }
+
+    synchronized int numFreeSlabs(){
+        return free.size();
+    }
+}
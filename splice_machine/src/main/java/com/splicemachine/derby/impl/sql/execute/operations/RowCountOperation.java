@@ -110,6 +110,7 @@ public class RowCountOperation extends SpliceBaseOperation {
         if (fetchFirstMethodName != null) {
             fetchFirstMethod = new SpliceMethod<>(fetchFirstMethodName, activation);
         }
+        pushLimitIntoSort();
     }
 
 
@@ -188,6 +189,8 @@ public class RowCountOperation extends SpliceBaseOperation {
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @Override
     public DataSet<LocatedRow> getDataSet(DataSetProcessor dsp) throws StandardException {
+        // the limit may come from a parameter, which can change between executions of the same plan
+        pushLimitIntoSort();
         if (dsp.getType() == DataSetProcessor.Type.SPARK) {
             return source.getDataSet(dsp);
         }
@@ -198,6 +201,24 @@ public class RowCountOperation extends SpliceBaseOperation {
         return sourceSet.zipWithIndex().mapPartitions(new OffsetFunction<SpliceOperation, LocatedRow>(operationContext, offset, fetchLimit));
     }
 
+    /*
+     * A sort below us only ever has its first offset+limit rows read, so it can keep just those
+     * rather than sorting its entire input. Projections without a restriction produce one row for
+     * each row of their source, so the sort may sit below any number of them. This is done when the
+     * operation is initialized, so that the limit is part of the sort when the plan is serialized to Spark.
+     */
+    private void pushLimitIntoSort() throws StandardException {
+        SpliceOperation op = source;
+        while (op instanceof ProjectRestrictOperation
+                && ((ProjectRestrictOperation) op).getRestrictionMethodName() == null) {
+            op = ((ProjectRestrictOperation) op).getSource();
+        }
+        if (!(op instanceof SortOperation))
+            return;
+        long fetchLimit = getFetchLimit();
+        ((SortOperation) op).setTopN(fetchLimit > 0 ? getTotalOffset() + fetchLimit : 0);
+    }
+
     @Override
     public String getScopeName() {
         return "Row Limit";
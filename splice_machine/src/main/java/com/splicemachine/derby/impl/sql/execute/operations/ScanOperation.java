@@ -27,15 +27,20 @@ import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperationContext;
 import com.splicemachine.derby.impl.sql.execute.operations.iapi.ScanInformation;
 import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
+import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.EntryPredicateFilter;
+import com.splicemachine.storage.Predicate;
 import com.splicemachine.utils.SpliceLogUtils;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.log4j.Logger;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public abstract class ScanOperation extends SpliceBaseOperation{
     private static final Logger LOG=Logger.getLogger(ScanOperation.class);
@@ -55,6 +60,11 @@ public abstract class ScanOperation extends SpliceBaseOperation{
     protected int[] keyDecodingMap;
     protected String scanQualifiersField;
     protected String tableVersion;
+    /*
+     * Predicates which are only known at execution time (such as a join's build-side keys). These are
+     * added to the scan when it is created, so they never need to be serialized with the operation.
+     */
+    protected List<Predicate> runtimePredicates;
 
     public ScanOperation(){
         super();
@@ -165,9 +175,25 @@ public abstract class ScanOperation extends SpliceBaseOperation{
 //            // Setting caching to 2 instead of 1 removes an extra RPC during Single Row Result Scans
         }
         deSiify(s);
+        addRuntimePredicates(s);
         return s;
     }
 
+    /**
+     * Add a predicate to be evaluated against the stored (encoded) rows of every subsequently created scan.
+     *
+     * @param predicate the predicate. Its column is the position of the column in the stored row.
+     */
+    public void addRuntimePredicate(Predicate predicate){
+        if(runtimePredicates==null)
+            runtimePredicates=new ArrayList<>(1);
+        runtimePredicates.add(predicate);
+    }
+
+    public void clearRuntimePredicates(){
+        runtimePredicates=null;
+    }
+
     public DataScan getReversedNonSIScan() throws StandardException{
         return getNonSIScan().reverseOrder();
     }
@@ -228,6 +254,24 @@ public abstract class ScanOperation extends SpliceBaseOperation{
         return keyDecodingMap;
     }
 
+    /**
+     * Add the runtime predicates to the predicate filter of {@code scan}.
+     */
+    protected void addRuntimePredicates(DataScan scan) throws StandardException{
+        if(runtimePredicates==null) return;
+        byte[] predicateBytes=scan.getAttribute(SIConstants.ENTRY_PREDICATE_LABEL);
+        if(predicateBytes==null) return; //row id scans have no predicate filter
+        try{
+            EntryPredicateFilter epf=EntryPredicateFilter.fromBytes(predicateBytes);
+            for(Predicate predicate : runtimePredicates){
+                epf.getValuePredicates().add(predicate);
+            }
+            scan.addAttribute(SIConstants.ENTRY_PREDICATE_LABEL,epf.toBytes());
+        }catch(IOException e){
+            throw Exceptions.parseException(e);
+        }
+    }
+
     /**
      * Remove SI-specific behaviors from the scan, so that we can handle it ourselves correctly.
      */
@@ -16,6 +16,9 @@
 package com.splicemachine.derby.impl.sql.execute.operations;
 
 import org.sparkproject.guava.base.Strings;
+import com.splicemachine.EngineDriver;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.access.configuration.SQLConfiguration;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.io.FormatableArrayHolder;
 import com.splicemachine.db.iapi.services.loader.GeneratedMethod;
@@ -27,6 +30,7 @@ import com.splicemachine.derby.iapi.sql.execute.SpliceOperationContext;
 import com.splicemachine.derby.stream.function.KeyerFunction;
 import com.splicemachine.derby.stream.function.RowComparator;
 import com.splicemachine.derby.stream.function.SetCurrentLocatedRowFunction;
+import com.splicemachine.derby.stream.function.TopNFunction;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.OperationContext;
@@ -55,6 +59,10 @@ public class SortOperation extends SpliceBaseOperation{
     private int numColumns;
     private ExecRow execRowDefinition=null;
     private Properties sortProperties=new Properties();
+    /*
+     * When > 0, only this many rows of the sorted output are ever read (set by a row limit above us)
+     */
+    private long topN;
     protected static final String NAME=SortOperation.class.getSimpleName().replaceAll("Operation","");
 
     @Override
@@ -95,6 +103,7 @@ public class SortOperation extends SpliceBaseOperation{
         distinct=in.readBoolean();
         orderingItem=in.readInt();
         numColumns=in.readInt();
+        topN=in.readLong();
     }
 
     @Override
@@ -104,6 +113,20 @@ public class SortOperation extends SpliceBaseOperation{
         out.writeBoolean(distinct);
         out.writeInt(orderingItem);
         out.writeInt(numColumns);
+        out.writeLong(topN);
+    }
+
+    /**
+     * Only the first {@code topN} rows of the sorted output will be read, so the full input need not be sorted.
+     *
+     * @param topN the number of rows to produce, or 0 to sort everything
+     */
+    public void setTopN(long topN){
+        this.topN=topN;
+    }
+
+    public long getTopN(){
+        return topN;
     }
 
     @Override
@@ -213,6 +236,23 @@ public class SortOperation extends SpliceBaseOperation{
             }
         }
 
+        if(topN>0 && topN<=maxTopN()){
+            DataSet topRows;
+            try{
+                operationContext.pushScopeForOp(OperationContext.Scope.SORT);
+                TopNFunction topNFunction=new TopNFunction(operationContext,keyColumns,descColumns,nullsOrderedLow,(int)topN);
+                topRows=dataSet.mapPartitions(topNFunction).coalesce(1,false).mapPartitions(topNFunction);
+            }finally{
+                operationContext.popScope();
+            }
+            try{
+                operationContext.pushScopeForOp(OperationContext.Scope.LOCATE);
+                return topRows.map(new SetCurrentLocatedRowFunction(operationContext),true);
+            }finally{
+                operationContext.popScope();
+            }
+        }
+
         operationContext.pushScopeForOp(OperationContext.Scope.SORT_KEYER);
         KeyerFunction f=new KeyerFunction(operationContext,keyColumns);
         PairDataSet pair=dataSet.keyBy(f);
@@ -235,6 +275,19 @@ public class SortOperation extends SpliceBaseOperation{
         }
     }
 
+    /*
+     * Beyond this many rows, a bounded (in-memory) heap is no longer preferable to a (spilling) full sort
+     */
+    /**
+     * @return the largest number of rows that a sort under a row limit keeps in a top-N heap rather than
+     * sorting its entire input
+     */
+    public static long maxTopN(){
+        EngineDriver driver=EngineDriver.driver();
+        SConfiguration config=driver==null?null:driver.getConfiguration();
+        return config==null?SQLConfiguration.DEFAULT_SORT_TOP_N_MAX_ROWS:config.getSortTopNMaxRows();
+    }
+
     public String getScopeName(){
         return (distinct ? "Sort Distinct" : "Sort");
     }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.agg.Aggregator;
+import com.splicemachine.encoding.Encoder;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.stats.cardinality.BytesCardinalityEstimator;
+import com.splicemachine.stats.cardinality.CardinalityEstimators;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * APPROX_COUNT_DISTINCT: estimates the number of distinct values with a HyperLogLog sketch, in constant memory
+ * and without the shuffle of an exact COUNT(DISTINCT). Values are counted by their string form.
+ *
+ * Partial sketches built over different partitions merge without loss, so the estimate is the same whichever
+ * way the rows are split up. The standard error is about 1.04/sqrt(2^PRECISION), under 1%.
+ */
+public class SpliceApproxCountDistinct implements Aggregator<String,Long,SpliceApproxCountDistinct>,Externalizable{
+    private static final int PRECISION=14;
+    private static final Encoder<BytesCardinalityEstimator> ENCODER=CardinalityEstimators.bytesEncoder();
+
+    private BytesCardinalityEstimator estimator;
+
+    public SpliceApproxCountDistinct(){
+    }
+
+    @Override
+    public void init(){
+        estimator=CardinalityEstimators.hyperLogLogBytes(PRECISION);
+    }
+
+    @Override
+    public void accumulate(String value){
+        byte[] bytes=Bytes.toBytes(value);
+        estimator.update(bytes,0,bytes.length);
+    }
+
+    @Override
+    public void merge(SpliceApproxCountDistinct otherAggregator){
+        estimator=estimator.merge(otherAggregator.estimator);
+    }
+
+    @Override
+    public Long terminate(){
+        return estimator.getEstimate();
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        ENCODER.encode(estimator,out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        estimator=ENCODER.decode(in);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.agg.Aggregator;
+import com.splicemachine.encoding.Encoder;
+import com.splicemachine.stats.histogram.EquiDepthDoubleHistogram;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Estimates a percentile from an equi-depth histogram, built in bounded memory and merged across partitions.
+ * Each bucket holds about 1/NUM_BUCKETS of the rows, so the estimate is off by at most a bucket's worth of rows,
+ * and a value which is frequent enough to fill a bucket by itself is reported exactly.
+ *
+ * A SQL aggregate takes a single argument, so each percentile is its own aggregate; subclasses choose which.
+ */
+public abstract class SpliceApproxPercentile implements Aggregator<Double,Double,SpliceApproxPercentile>,Externalizable{
+    private static final int NUM_BUCKETS=128;
+    private static final Encoder<EquiDepthDoubleHistogram> ENCODER=EquiDepthDoubleHistogram.encoder();
+
+    private EquiDepthDoubleHistogram.Builder builder;
+    /*the merged histograms of other aggregators, or null if none have been merged*/
+    private EquiDepthDoubleHistogram merged;
+
+    /**
+     * @return the fraction of rows, between 0 and 1, at or below the percentile
+     */
+    protected abstract double fraction();
+
+    @Override
+    public void init(){
+        builder=EquiDepthDoubleHistogram.newBuilder(NUM_BUCKETS);
+        merged=null;
+    }
+
+    @Override
+    public void accumulate(Double value){
+        builder.update(value);
+    }
+
+    @Override
+    public void merge(SpliceApproxPercentile otherAggregator){
+        EquiDepthDoubleHistogram other=otherAggregator.histogram();
+        merged=merged==null?other:merged.merge(other);
+    }
+
+    @Override
+    public Double terminate(){
+        EquiDepthDoubleHistogram histogram=histogram();
+        if(histogram.count()==0)
+            return null;
+        return histogram.quantile(fraction());
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        ENCODER.encode(histogram(),out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        builder=EquiDepthDoubleHistogram.newBuilder(NUM_BUCKETS);
+        merged=ENCODER.decode(in);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private EquiDepthDoubleHistogram histogram(){
+        EquiDepthDoubleHistogram histogram=builder.build();
+        if(merged!=null)
+            histogram=histogram.merge(merged);
+        return histogram;
+    }
+}
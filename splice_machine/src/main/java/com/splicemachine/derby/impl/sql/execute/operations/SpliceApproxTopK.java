@@ -0,0 +1,141 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.agg.Aggregator;
+import com.splicemachine.encoding.Encoder;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.stats.frequency.FrequencyCounter;
+import com.splicemachine.stats.frequency.FrequencyCounters;
+import com.splicemachine.stats.frequency.FrequencyEstimate;
+import com.splicemachine.stats.frequency.FrequentElements;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * APPROX_TOP_K: the most frequent values and their (approximate) counts, found with the SpaceSaver algorithm
+ * in constant memory. The result lists the {@link #K} most frequent values, most frequent first, as
+ * {@code value=count} pairs separated by commas, or null if there were no (non-null) values.
+ *
+ * More counters than values reported are kept, so that the counts of the values reported are close to exact even
+ * after the partial results of many partitions are merged. A count may still overestimate a value's frequency,
+ * but never by more than the error SpaceSaver reports for it.
+ */
+public class SpliceApproxTopK implements Aggregator<String,String,SpliceApproxTopK>,Externalizable{
+    public static final int K=10;
+    private static final int MAX_COUNTERS=100;
+    /*
+     * Values are reported as they are, but not beyond this length, so that the result fits in a LONG VARCHAR
+     */
+    private static final int MAX_VALUE_LENGTH=256;
+    private static final Encoder<FrequentElements<String>> ENCODER=FrequencyCounters.objectEncoder(new Encoder<String>(){
+        @Override
+        public void encode(String item,DataOutput dataInput) throws IOException{
+            byte[] bytes=Bytes.toBytes(item);
+            dataInput.writeInt(bytes.length);
+            dataInput.write(bytes);
+        }
+
+        @Override
+        public String decode(DataInput input) throws IOException{
+            byte[] bytes=new byte[input.readInt()];
+            input.readFully(bytes);
+            return Bytes.toString(bytes);
+        }
+    });
+
+    private FrequencyCounter<String> counter;
+    /*the merged elements of other aggregators, or null if none have been merged*/
+    private FrequentElements<String> merged;
+
+    public SpliceApproxTopK(){
+    }
+
+    @Override
+    public void init(){
+        counter=FrequencyCounters.counter(MAX_COUNTERS);
+        merged=null;
+    }
+
+    @Override
+    public void accumulate(String value){
+        counter.update(value);
+    }
+
+    @Override
+    public void merge(SpliceApproxTopK otherAggregator){
+        FrequentElements<String> other=otherAggregator.elements();
+        merged=merged==null?other:merged.merge(other);
+    }
+
+    @Override
+    public String terminate(){
+        List<FrequencyEstimate<String>> estimates=new ArrayList<>(elements().allFrequentElements());
+        if(estimates.isEmpty())
+            return null; //no values, or only nulls, like MAX()
+        Collections.sort(estimates,new Comparator<FrequencyEstimate<String>>(){
+            @Override
+            public int compare(FrequencyEstimate<String> o1,FrequencyEstimate<String> o2){
+                int compare=Long.compare(o2.count(),o1.count());
+                if(compare!=0) return compare;
+                return o1.getValue().compareTo(o2.getValue());
+            }
+        });
+        StringBuilder result=new StringBuilder();
+        for(int i=0;i<estimates.size() && i<K;i++){
+            if(i>0) result.append(", ");
+            String value=estimates.get(i).getValue();
+            if(value.length()>MAX_VALUE_LENGTH)
+                value=value.substring(0,MAX_VALUE_LENGTH);
+            result.append(value).append('=').append(estimates.get(i).count());
+        }
+        return result.toString();
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        ENCODER.encode(elements(),out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        counter=FrequencyCounters.counter(MAX_COUNTERS);
+        merged=ENCODER.decode(in);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /*
+     * The values counted here and those merged from other aggregators. The counter's elements are copied, since
+     * merging updates the estimates in place
+     */
+    private FrequentElements<String> elements(){
+        FrequentElements<String> elements=counter.frequentElements(MAX_COUNTERS).getClone();
+        if(merged!=null)
+            elements=elements.merge(merged.getClone());
+        return elements;
+    }
+}
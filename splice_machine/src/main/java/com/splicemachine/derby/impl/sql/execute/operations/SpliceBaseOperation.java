@@ -46,6 +46,7 @@ import com.splicemachine.db.iapi.sql.compile.CompilerContext;
 import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
 import com.splicemachine.db.iapi.sql.conn.StatementContext;
 import com.splicemachine.db.iapi.sql.execute.ExecIndexRow;
+import com.splicemachine.db.iapi.sql.execute.ExecPreparedStatement;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.sql.execute.ExecutionFactory;
 import com.splicemachine.db.iapi.sql.execute.NoPutResultSet;
@@ -62,6 +63,10 @@ import com.splicemachine.derby.iapi.sql.execute.SpliceOperationContext;
 import com.splicemachine.derby.impl.sql.execute.operations.iapi.OperationInformation;
 import com.splicemachine.derby.impl.store.access.BaseSpliceTransaction;
 import com.splicemachine.derby.impl.store.access.SpliceTransaction;
+import com.splicemachine.derby.management.StatementStatisticsRegistry;
+import com.splicemachine.derby.stream.control.ControlDataSetProcessor;
+import com.splicemachine.derby.stream.control.ControlRowBudget;
+import com.splicemachine.derby.stream.control.ControlSpillFile;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.impl.txn.ActiveWriteTxn;
@@ -91,6 +96,16 @@ public abstract class SpliceBaseOperation implements SpliceOperation, ScopeNamed
     protected List<SpliceOperation> leftOperationStack;
     protected String jobName;
     protected RemoteQueryClient remoteQueryClient;
+    /*
+     * Runtime statistics of the current execution, only kept by the operation at the root of a statement
+     */
+    private long statementStartNanos=-1l;
+    private long statementRows;
+    private boolean executedOnSpark;
+    /*
+     * The local spill files of the current execution, which are removed when this operation is closed
+     */
+    private ControlSpillFile.Tracker spillFiles;
 
     public SpliceBaseOperation(){
         super();
@@ -170,6 +185,7 @@ public abstract class SpliceBaseOperation implements SpliceOperation, ScopeNamed
             }
             getActivation().getLanguageConnectionContext().setRecordsImported(modifiedRowCount);
             getActivation().getLanguageConnectionContext().setFailedRecords(badRecords);
+            statementRows=modifiedRowCount;
             return (int) modifiedRowCount;
         } catch (StandardException se) {
             Exceptions.throwAsRuntime(PublicAPI.wrapStandardException(se));
@@ -249,6 +265,8 @@ public abstract class SpliceBaseOperation implements SpliceOperation, ScopeNamed
             }
 
             isOpen=false;
+            if(statementStartNanos>=0)
+                recordStatementStatistics();
 
         }catch(Exception e){
             throw Exceptions.parseException(e);
@@ -274,6 +292,11 @@ public abstract class SpliceBaseOperation implements SpliceOperation, ScopeNamed
     public void open() throws StandardException{
         if(LOG.isTraceEnabled())
             LOG.trace(String.format("open operation %s",this));
+        if(activation!=null && activation.getResultSet()==this){
+            statementStartNanos=System.nanoTime();
+            statementRows=0l;
+            executedOnSpark=false;
+        }
         openCore();
     }
 
@@ -396,7 +419,8 @@ public abstract class SpliceBaseOperation implements SpliceOperation, ScopeNamed
                 LOG.trace(String.format("openCore %s",this));
             isOpen=true;
             String sql=activation.getPreparedStatement().getSource();
-            if (!(this instanceof ExplainOperation || activation.isMaterialized()))
+            boolean planOnly=this instanceof ExplainOperation && !((ExplainOperation)this).isAnalyze();
+            if (!(planOnly || activation.isMaterialized()))
                 activation.materialize();
             long txnId=getCurrentTransaction().getTxnId();
             sql=sql==null?this.toString():sql;
@@ -406,25 +430,136 @@ public abstract class SpliceBaseOperation implements SpliceOperation, ScopeNamed
                 dsp.setJobGroup(jobName, sql);
             }
             dsp.clearBroadcastedOperation();
-            this.locatedRowIterator=getDataSet(dsp).toLocalIterator();
+            trackSpillFiles();
+            ControlSpillFile.Tracker previous=spillFiles.enter();
+            try{
+                this.locatedRowIterator=getDataSet(dsp).toLocalIterator();
+            }finally{
+                spillFiles.exit(previous);
+            }
         }catch(Exception e){ // This catches all the iterator errors for things that are not lazy.
             throw Exceptions.parseException(e);
         }
     }
 
-    protected boolean isOlapServer() {
-        return Thread.currentThread().currentThread().getName().startsWith("olap-worker");
+    /*
+     * Spill files created by this operation's tree, which are removed when the operation is closed
+     */
+    private void trackSpillFiles() throws StandardException{
+        spillFiles=new ControlSpillFile.Tracker();
+        registerCloseable(spillFiles);
+    }
+
+    /**
+     * @return true if the current thread is executing a query submitted to the OLAP server
+     */
+    public static boolean isOlapServer() {
+        return Thread.currentThread().getName().startsWith("olap-worker");
     }
 
     @Override
     public void openCore() throws StandardException{
         DataSetProcessor dsp = EngineDriver.driver().processorFactory().chooseProcessor(activation,this);
         if (dsp.getType() == DataSetProcessor.Type.SPARK && !isOlapServer()) {
-            remoteQueryClient = EngineDriver.driver().processorFactory().getRemoteQueryClient(this);
-            remoteQueryClient.submit();
-            locatedRowIterator = remoteQueryClient.getIterator();
-        } else {
+            openDistributed();
+            return;
+        }
+        final ControlRowBudget rowBudget = dsp instanceof ControlDataSetProcessor ? ((ControlDataSetProcessor) dsp).getRowBudget() : null;
+        if (rowBudget == null) {
             openCore(dsp);
+            return;
+        }
+        try {
+            openCore(dsp);
+        } catch (StandardException se) {
+            if (ControlRowBudget.findExceeded(se) == null)
+                throw se;
+            resubmitDistributed(rowBudget);
+            return;
+        }
+        final ExecPreparedStatement statement = activation.getPreparedStatement();
+        locatedRowIterator = new ControlRowBudget.AdaptiveIterator<LocatedRow>(locatedRowIterator) {
+            @Override
+            protected Iterator<LocatedRow> resubmit() {
+                try {
+                    resubmitDistributed(rowBudget);
+                } catch (StandardException se) {
+                    throw new RuntimeException(se);
+                }
+                return locatedRowIterator;
+            }
+
+            @Override
+            protected void completed() {
+                ControlRowBudget.recordExecution(statement, false);
+            }
+        };
+    }
+
+    private void openDistributed() throws StandardException{
+        executedOnSpark = true;
+        remoteQueryClient = EngineDriver.driver().processorFactory().getRemoteQueryClient(this);
+        remoteQueryClient.submit();
+        locatedRowIterator = remoteQueryClient.getIterator();
+    }
+
+    /*
+     * The query read more rows on the control side than its budget allows, so abandon the control-side
+     * execution (which hasn't returned anything yet) and run the query on Spark instead.
+     */
+    private void resubmitDistributed(ControlRowBudget rowBudget) throws StandardException{
+        if (LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG, "Query exceeded the control-side budget of %d rows, resubmitting to Spark: %s",
+                    rowBudget.getRowLimit(), activation.getPreparedStatement().getSource());
+        ControlRowBudget.recordExecution(activation.getPreparedStatement(), true);
+        try {
+            releaseCloseables(this);
+        } catch (Exception e) {
+            throw Exceptions.parseException(e);
+        }
+        // the old tracker went with the control-side closeables, but the operation can still spill while it is open
+        trackSpillFiles();
+        openDistributed();
+    }
+
+    private void recordStatementStatistics(){
+        long elapsedMicros=(System.nanoTime()-statementStartNanos)/1000;
+        statementStartNanos=-1l;
+        ExecPreparedStatement ps=activation.getPreparedStatement();
+        if(ps==null)
+            return;
+        //the scans of a Spark execution ran in the OLAP server, so their counts aren't known here
+        long rowsScanned=executedOnSpark?0l:rowsScanned(this);
+        StatementStatisticsRegistry.registry().record(ps.getSource(),
+                elapsedMicros,
+                statementRows,
+                rowsScanned,
+                StatementStatisticsRegistry.uncountedCompileTime(ps),
+                executedOnSpark);
+    }
+
+    private static long rowsScanned(SpliceOperation op){
+        long rows=0l;
+        if(op instanceof ScanOperation && op.getOperationContext()!=null)
+            rows+=op.getOperationContext().getRecordsRead();
+        for(SpliceOperation child : op.getSubOperations()){
+            rows+=rowsScanned(child);
+        }
+        return rows;
+    }
+
+    private static void releaseCloseables(SpliceOperation op) throws Exception{
+        if (op instanceof SpliceBaseOperation) {
+            SpliceBaseOperation baseOp = (SpliceBaseOperation) op;
+            if (baseOp.closeables != null) {
+                for (AutoCloseable closeable : baseOp.closeables) {
+                    closeable.close();
+                }
+                baseOp.closeables = null;
+            }
+        }
+        for (SpliceOperation child : op.getSubOperations()) {
+            releaseCloseables(child);
         }
     }
 
@@ -437,6 +572,7 @@ public abstract class SpliceBaseOperation implements SpliceOperation, ScopeNamed
 
     @Override
     public ExecRow getNextRowCore() throws StandardException{
+        ControlSpillFile.Tracker previous=spillFiles==null?null:spillFiles.enter();
         try{
             if(locatedRowIterator.hasNext()){
                 locatedRow=locatedRowIterator.next();
@@ -450,6 +586,9 @@ public abstract class SpliceBaseOperation implements SpliceOperation, ScopeNamed
             return null;
         }catch(Exception e){
             throw Exceptions.parseException(e);
+        }finally{
+            if(spillFiles!=null)
+                spillFiles.exit(previous);
         }
     }
 
@@ -537,7 +676,10 @@ public abstract class SpliceBaseOperation implements SpliceOperation, ScopeNamed
         if(!isOpen)
             throw StandardException.newException(SQLState.LANG_RESULT_SET_NOT_OPEN,NEXT);
         attachStatementContext();
-        return getNextRowCore();
+        ExecRow row=getNextRowCore();
+        if(row!=null && statementStartNanos>=0)
+            statementRows++;
+        return row;
     }
 
     @Override
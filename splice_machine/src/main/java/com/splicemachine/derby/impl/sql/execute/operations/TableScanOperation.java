@@ -21,8 +21,10 @@ import com.splicemachine.db.iapi.services.loader.GeneratedMethod;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.store.access.StaticCompiledOpenConglomInfo;
+import com.splicemachine.EngineDriver;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperationContext;
+import com.splicemachine.derby.impl.stats.ZoneMap;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.output.WriteReadUtils;
@@ -36,6 +38,7 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 public class TableScanOperation extends ScanOperation{
     private static final long serialVersionUID=3l;
@@ -171,6 +174,25 @@ public class TableScanOperation extends ScanOperation{
         return cols;
     }
 
+    /**
+     * @param rowPosition the (0-based) position of a column in the rows returned by this scan
+     * @return the position of that column in the stored row, or -1 if it is part of the row key
+     * @throws StandardException
+     */
+    public int getStoredColumnPosition(int rowPosition) throws StandardException{
+        int[] keyColumns=scanInformation.getColumnOrdering();
+        for(int i=0;i<baseColumnMap.length;i++){
+            if(baseColumnMap[i]!=rowPosition) continue;
+            if(keyColumns!=null){
+                for(int keyColumn : keyColumns){
+                    if(keyColumn==i) return -1;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
     @Override
     public DataSet<LocatedRow> getDataSet(DataSetProcessor dsp) throws StandardException{
         assert currentTemplate!=null:"Current Template Cannot Be Null";
@@ -205,7 +227,22 @@ public class TableScanOperation extends ScanOperation{
                 .accessedKeyColumns(scanInformation.getAccessedPkColumns())
                 .keyDecodingMap(getKeyDecodingMap())
                 .rowDecodingMap(baseColumnMap)
+                .skippedPartitions(getSkippedPartitions())
                 .buildDataSet(this);
     }
 
+    /*
+     * The partitions whose zone maps show that none of their rows satisfy the scan's qualifiers. Only the
+     * statistics of base tables are collected, so index scans read every partition. Scans with a start key
+     * already only read the partitions holding their key range, so they are not worth probing
+     */
+    private Set<String> getSkippedPartitions() throws StandardException{
+        if(indexName!=null || !EngineDriver.driver().getConfiguration().getZoneMapPruning()
+                || scanInformation.getStartPosition()!=null)
+            return Collections.emptySet();
+        return ZoneMap.skippedPartitions(scanInformation.getConglomerateId(),
+                scanInformation.getScanQualifiers(),
+                activation.getLanguageConnectionContext());
+    }
+
 }
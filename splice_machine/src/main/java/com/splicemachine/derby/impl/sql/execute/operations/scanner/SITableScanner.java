@@ -46,6 +46,8 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.log4j.Logger;
 import java.io.IOException;
 import com.carrotsearch.hppc.BitSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -82,6 +84,15 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
     private EntryDecoder entryDecoder;
     private final Counter outputBytesCounter;
     private long demarcationPoint;
+    /*
+     * Rows read ahead of the one being returned, so that the transactions which wrote them can be
+     * looked up together. The look ahead starts at a single row and doubles each time the buffer is
+     * refilled, so that short scans don't read (or look up) rows they never return.
+     */
+    private static final int MAX_LOOK_AHEAD_ROWS = 256;
+    private final ArrayDeque<List<DataCell>> lookAheadRows = new ArrayDeque<>();
+    private int lookAheadSize = 1;
+    private boolean scannerExhausted;
 
     protected SITableScanner(DataScanner scanner,
                              final TransactionalRegion region,
@@ -156,9 +167,9 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         SIFilter filter = getSIFilter();
         do{
             template.resetRowArray(); //necessary to deal with null entries--maybe make the underlying call faster?
-            List<DataCell> keyValues=regionScanner.next(-1);
+            List<DataCell> keyValues=nextRow(filter);
 
-            if(keyValues.size()<=0){
+            if(keyValues==null){
                 currentRowLocation = null;
                 return null;
             }else{
@@ -244,6 +255,8 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
 
     public void setRegionScanner(DataScanner scanner){
         this.regionScanner = scanner;
+        lookAheadRows.clear();
+        scannerExhausted = false;
     }
 
     public long getBytesVisited() {
@@ -400,6 +413,29 @@ public class SITableScanner<Data> implements StandardIterator<ExecRow>,AutoClose
         return numCells > 0 && filter.getAccumulator().result() != null;
     }
 
+    /**
+     * @return the cells of the next row, or {@code null} if the scanner is exhausted
+     */
+    private List<DataCell> nextRow(SIFilter filter) throws IOException {
+        if(lookAheadRows.isEmpty() && !scannerExhausted){
+            List<DataCell> cells = new ArrayList<>();
+            while(lookAheadRows.size()<lookAheadSize){
+                List<DataCell> row = regionScanner.next(-1);
+                if(row.size()<=0){
+                    scannerExhausted = true;
+                    break;
+                }
+                //the scanner reuses its list (though not the cells in it), so we need our own copy
+                row = new ArrayList<>(row);
+                lookAheadRows.add(row);
+                cells.addAll(row);
+            }
+            lookAheadSize = Math.min(lookAheadSize<<1,MAX_LOOK_AHEAD_ROWS);
+            filter.prefetch(cells);
+        }
+        return lookAheadRows.poll();
+    }
+
     private boolean filterRowKey(DataCell data) throws IOException {
         if(!isKeyed) return true;
         keyDecoder.set(data.keyArray(), data.keyOffset(), data.keyLength());
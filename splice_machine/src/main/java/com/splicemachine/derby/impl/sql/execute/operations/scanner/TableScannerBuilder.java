@@ -36,6 +36,7 @@ import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.storage.DataScan;
 import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.SerializationUtils;
@@ -44,7 +45,12 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Companion Builder class for SITableScanner
@@ -76,6 +82,9 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
     protected long baseTableConglomId=-1l;
     protected long demarcationPoint=-1;
     protected boolean oneSplitPerRegion=false;
+    protected double sampleFraction=1d;
+    protected int[][] columnGroups;
+    protected Set<String> skippedPartitions=Collections.emptySet();
     protected Activation activation;
     protected MetricFactory metricFactory =Metrics.noOpMetricFactory();
 
@@ -323,6 +332,25 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
         return this;
     }
 
+    @Override
+    public ScanSetBuilder<V> sampleFraction(double sampleFraction){
+        this.sampleFraction=sampleFraction;
+        return this;
+    }
+
+    @Override
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2",justification = "Intentional")
+    public ScanSetBuilder<V> columnGroups(int[][] columnGroups){
+        this.columnGroups=columnGroups;
+        return this;
+    }
+
+    @Override
+    public ScanSetBuilder<V> skippedPartitions(Set<String> partitionNames){
+        this.skippedPartitions=partitionNames;
+        return this;
+    }
+
     public SITableScanner build(){
         if(fieldLengths!=null){
             return new StatisticsScanner(
@@ -343,7 +371,9 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
                     tableVersion,
                     filterFactory,
                     fieldLengths,
-                    columnPositionMap);
+                    columnPositionMap,
+                    sampleFraction,
+                    columnGroups);
         }else{
             return new SITableScanner(
                     scanner,
@@ -436,8 +466,14 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
                     out.writeInt(columnPositionMap[i]);
                 }
                 out.writeLong(baseTableConglomId);
+                out.writeDouble(sampleFraction);
+                ArrayUtil.writeInts(out,columnGroups);
             }
             out.writeLong(demarcationPoint);
+            out.writeInt(skippedPartitions.size());
+            for(String partitionName : skippedPartitions){
+                out.writeUTF(partitionName);
+            }
         }catch(StandardException e){
             throw new IOException(e.getCause());
         }
@@ -510,8 +546,17 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
                     columnPositionMap[i]=in.readInt();
                 }
                 baseTableConglomId=in.readLong();
+                sampleFraction=in.readDouble();
+                columnGroups=ArrayUtil.readInts(in);
             }
             demarcationPoint=in.readLong();
+            int skipped=in.readInt();
+            if(skipped>0){
+                skippedPartitions=new HashSet<>(skipped);
+                for(int i=0;i<skipped;i++){
+                    skippedPartitions.add(in.readUTF());
+                }
+            }
         }catch(StandardException e){
             throw new IOException(e.getCause());
         }
@@ -544,6 +589,10 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
         return scan;
     }
 
+    public ExecRow getTemplate(){
+        return template;
+    }
+
     @Override
     public TxnView getTxn(){
         return txn;
@@ -580,4 +629,26 @@ public abstract class TableScannerBuilder<V> implements Externalizable, ScanSetB
     public long getDemarcationPoint() {
         return this.demarcationPoint;
     }
+
+    public double getSampleFraction() {
+        return this.sampleFraction;
+    }
+
+    public Set<String> getSkippedPartitions() {
+        return this.skippedPartitions;
+    }
+
+    /**
+     * @return the partitions which this scan has to read, out of those it covers
+     */
+    public List<Partition> readPartitions(List<Partition> partitions) {
+        if (skippedPartitions.isEmpty())
+            return partitions;
+        List<Partition> read = new ArrayList<>(partitions.size());
+        for (Partition partition : partitions) {
+            if (!skippedPartitions.contains(partition.getName()))
+                read.add(partition);
+        }
+        return read;
+    }
 }
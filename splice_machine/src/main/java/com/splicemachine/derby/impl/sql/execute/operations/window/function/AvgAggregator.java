@@ -27,7 +27,7 @@ import com.splicemachine.db.iapi.types.NumberDataValue;
  *
  * Created by jyuan on 7/31/14.
  */
-public class AvgAggregator extends SpliceGenericWindowFunction {
+public class AvgAggregator extends SlidingAggregator {
 
     @Override
     public WindowFunction setup( ClassFactory cf, String aggregateName, DataTypeDescriptor returnType,
@@ -37,52 +37,21 @@ public class AvgAggregator extends SpliceGenericWindowFunction {
     }
 
     @Override
-    public void accumulate(DataValueDescriptor[] valueDescriptors) throws StandardException {
-        this.add(valueDescriptors);
+    protected DataValueDescriptor merge(DataValueDescriptor older, DataValueDescriptor newer) throws StandardException {
+        NumberDataValue sum = (NumberDataValue) older.cloneValue(false);
+        return sum.plus((NumberDataValue) older, (NumberDataValue) newer, sum);
     }
 
     @Override
-    protected void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException{
-        DataValueDescriptor result = chunk.getResult();
-        if (result == null || result.isNull()) {
-            chunk.setResult(dvds[0].cloneValue(false));
-        } else {
-            NumberDataValue input = (NumberDataValue)dvds[0];
-            if (input != null && ! input.isNull()) {
-                NumberDataValue nv = (NumberDataValue) result.cloneValue(false);
-                nv.plus(input, nv, nv);
-                chunk.setResult(nv);
-            }
+    protected DataValueDescriptor finish(DataValueDescriptor sum) throws StandardException {
+        DataValueDescriptor result = resultType.getNewNull();
+        if (sum != null) {
+            result.setValue(sum.getDouble() / count());
         }
-    }
-
-    @Override
-    protected void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        DataValueDescriptor result = chunk.getResult();
-        NumberDataValue input = (NumberDataValue)dvds[0];
-        if (input != null && ! input.isNull()) {
-            NumberDataValue nv = (NumberDataValue) result.cloneValue(false);
-            nv.minus(nv, input, nv);
-            chunk.setResult(nv);
-        }
-    }
-
-    public DataValueDescriptor getResult() throws StandardException {
-        // Iterate through each chunk, compute the max/min of each chunk
-        WindowChunk first = chunks.get(0);
-        long count = first.last - first.first;
-        NumberDataValue result = (NumberDataValue)first.getResult().cloneValue(false);
-        long r = result.getLong();
-        for (int i = 1; i < chunks.size(); ++i) {
-            WindowChunk chunk = chunks.get(i);
-            NumberDataValue dvd = (NumberDataValue)chunk.getResult();
-            r += dvd.getLong();
-            count += chunk.last - chunk.first;
-        }
-        result.setValue((r*1.0)/count);
         return result;
     }
 
+    @Override
     public WindowFunction newWindowFunction() {
         return new AvgAggregator();
     }
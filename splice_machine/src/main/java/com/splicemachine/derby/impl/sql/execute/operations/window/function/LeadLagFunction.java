@@ -76,6 +76,11 @@ public class LeadLagFunction extends SpliceGenericWindowFunction {
         // nothing to do here
     }
 
+    @Override
+    public boolean needsWholeFrame() {
+        return true;
+    }
+
     @Override
     public List<DataValueDescriptor> finishFrame() throws StandardException {
         List<DataValueDescriptor> leadLag = buffer.terminate();
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.window.function;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+import java.util.ArrayList;
+
+/**
+ * Base class for window aggregates whose value over a sliding frame is maintained incrementally.
+ *
+ * The frame is held as a queue made of two stacks. Rows are pushed onto the back stack, which
+ * keeps a running aggregate of its contents; the oldest row is popped from the front stack, each
+ * entry of which holds the aggregate of itself and every newer entry on that stack. When the front
+ * stack runs out, the back stack is moved over to it. The aggregate of the whole frame is then
+ * the merge of the two stacks' aggregates, so each move of the frame costs an amortized constant
+ * number of merges, instead of a rescan of the frame.
+ *
+ * Subclasses supply an associative {@link #merge}. As with SQL aggregates, null inputs are ignored.
+ */
+public abstract class SlidingAggregator extends SpliceGenericWindowFunction {
+    private ArrayList<DataValueDescriptor[]> backInputs;
+    private DataValueDescriptor backAggregate;
+    private ArrayList<DataValueDescriptor[]> frontInputs;
+    private ArrayList<DataValueDescriptor> frontAggregates;
+    private long count;
+
+    @Override
+    public void accumulate(DataValueDescriptor[] valueDescriptors) throws StandardException {
+        this.add(valueDescriptors);
+    }
+
+    /**
+     * @return the aggregate of the two values, which must not be modified
+     */
+    protected abstract DataValueDescriptor merge(DataValueDescriptor older, DataValueDescriptor newer) throws StandardException;
+
+    /**
+     * @param aggregate the aggregate of the non-null values in the frame, or {@code null} if there are none
+     * @return the result of the function for the frame
+     */
+    protected DataValueDescriptor finish(DataValueDescriptor aggregate) throws StandardException {
+        return aggregate == null ? resultType.getNewNull() : aggregate;
+    }
+
+    /**
+     * @return the number of non-null values in the frame
+     */
+    protected long count() {
+        return count;
+    }
+
+    @Override
+    protected void add(DataValueDescriptor[] addends) throws StandardException {
+        backInputs.add(addends);
+        DataValueDescriptor value = value(addends);
+        if (value != null) {
+            backAggregate = backAggregate == null ? value : merge(backAggregate, value);
+            count++;
+        }
+    }
+
+    @Override
+    public DataValueDescriptor[] remove() throws StandardException {
+        if (frontInputs.isEmpty()) {
+            if (backInputs.isEmpty()) {
+                return null;
+            }
+            DataValueDescriptor aggregate = null;
+            for (int i = backInputs.size() - 1; i >= 0; --i) {
+                DataValueDescriptor[] input = backInputs.get(i);
+                DataValueDescriptor value = value(input);
+                if (value != null) {
+                    aggregate = aggregate == null ? value : merge(value, aggregate);
+                }
+                frontInputs.add(input);
+                frontAggregates.add(aggregate);
+            }
+            backInputs.clear();
+            backAggregate = null;
+        }
+        int top = frontInputs.size() - 1;
+        frontAggregates.remove(top);
+        DataValueDescriptor[] removed = frontInputs.remove(top);
+        if (!isNull(removed)) {
+            count--;
+        }
+        return removed;
+    }
+
+    @Override
+    public DataValueDescriptor getResult() throws StandardException {
+        DataValueDescriptor front = frontAggregates.isEmpty() ? null : frontAggregates.get(frontAggregates.size() - 1);
+        if (front == null) {
+            return finish(backAggregate);
+        }
+        return finish(backAggregate == null ? front : merge(front, backAggregate));
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        backInputs = new ArrayList<>();
+        backAggregate = null;
+        frontInputs = new ArrayList<>();
+        frontAggregates = new ArrayList<>();
+        count = 0;
+    }
+
+    @Override
+    protected void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
+        // unused, the frame is not held in chunks
+    }
+
+    @Override
+    protected void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
+        // unused, the frame is not held in chunks
+    }
+
+    /*
+     * The input value converted to the result type, or null if it is a SQL null
+     */
+    private DataValueDescriptor value(DataValueDescriptor[] input) throws StandardException {
+        if (isNull(input)) {
+            return null;
+        }
+        DataValueDescriptor value = resultType.cloneValue(false);
+        value.setValue(input[0]);
+        return value;
+    }
+
+    private static boolean isNull(DataValueDescriptor[] input) {
+        return input == null || input.length == 0 || input[0] == null || input[0].isNull();
+    }
+}
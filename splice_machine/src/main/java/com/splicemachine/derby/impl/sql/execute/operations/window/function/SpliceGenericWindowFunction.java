@@ -245,6 +245,14 @@ public abstract class SpliceGenericWindowFunction implements WindowFunction {
         return false;
     }
 
+    /**
+     * @return true if this function can only produce its results once the whole partition has been
+     * seen, through {@link #finishFrame()}, rather than one row at a time through {@link #getResult()}
+     */
+    public boolean needsWholeFrame() {
+        return false;
+    }
+
     public List<DataValueDescriptor> finishFrame() throws StandardException {
         // override/implement if function needs the entire frame
         return null;
@@ -60,6 +60,9 @@ public abstract class BaseDvdStatistics implements ColumnStatistics<DataValueDes
         else if (other instanceof BaseDvdStatistics){
             baseStats = (ColumnStatistics) baseStats.merge(((BaseDvdStatistics) other).baseStats);
         }
+        else if (other instanceof HistogramColumnStatistics || other instanceof SampledColumnStatistics){
+            return merge(ColumnAverage.unwrap(other));
+        }
 
         return this;
     }
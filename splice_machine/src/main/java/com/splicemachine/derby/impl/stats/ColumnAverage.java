@@ -50,16 +50,18 @@ public abstract class ColumnAverage<T> implements ColumnStatistics<T>{
         this.columnId = columnId;
     }
 
+    @SuppressWarnings("unchecked")
     public ColumnStatistics<T> merge(ColumnStatistics<T> stats){
         sumNonNull +=stats.nonNullCount();
         sumNull +=stats.nullCount();
         sumCard +=stats.cardinality();
         sumWidth +=stats.avgColumnWidth()*stats.nonNullCount();
-        if(stats instanceof ColumnAverage) {
-            mergeExtrema(stats);
+        ColumnStatistics unwrapped = unwrap(stats);
+        if(unwrapped instanceof ColumnAverage) {
+            mergeExtrema(unwrapped);
         }
-        else if (stats instanceof BaseDvdStatistics) {
-            mergeExtrema(((BaseDvdStatistics) stats).baseStats);
+        else if (unwrapped instanceof BaseDvdStatistics) {
+            mergeExtrema(((BaseDvdStatistics) unwrapped).baseStats);
         }
         mergeCount++;
 
@@ -142,6 +144,8 @@ public abstract class ColumnAverage<T> implements ColumnStatistics<T>{
     }
 
     public static ColumnStatistics fromExisting(ColumnStatistics toMerge) {
+        if(toMerge instanceof HistogramColumnStatistics || toMerge instanceof SampledColumnStatistics)
+            return fromExisting(unwrap(toMerge));
         ColumnStatistics ret = null;
         int columnId=toMerge.columnId();
         if(toMerge instanceof BooleanStats){
@@ -893,4 +897,18 @@ public abstract class ColumnAverage<T> implements ColumnStatistics<T>{
             return new TimestampAverage(columnId);
         }
     }
+
+    /**
+     * @return the statistics wrapped by histogram and sample statistics, or {@code stats} itself
+     */
+    static ColumnStatistics unwrap(ColumnStatistics stats){
+        while(true){
+            if(stats instanceof HistogramColumnStatistics)
+                stats = ((HistogramColumnStatistics)stats).getStatistics();
+            else if(stats instanceof SampledColumnStatistics)
+                stats = ((SampledColumnStatistics)stats).getStatistics();
+            else
+                return stats;
+        }
+    }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.stats.ColumnStatistics;
+import com.splicemachine.stats.cardinality.CardinalityEstimator;
+import com.splicemachine.stats.estimate.Distribution;
+import com.splicemachine.stats.frequency.FrequencyEstimate;
+import com.splicemachine.stats.frequency.FrequentElements;
+import com.splicemachine.utils.StringUtils;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * Statistics of the combined values of a group of columns.
+ *
+ * The optimizer multiplies the selectivities of predicates on different columns as if the columns were
+ * independent, which badly underestimates correlated columns such as (country, state, city). For a group of
+ * columns which are often restricted together, we collect the number of distinct combinations and the most
+ * frequent combinations, by treating each combination as a single string key (see {@link #key}).
+ *
+ * Group statistics are stored and merged alongside the statistics of single columns, under an id derived from
+ * the group's columns (see {@link #groupId}). Ids of single columns are positive, and group ids are negative, so
+ * the two never collide.
+ */
+public class ColumnGroupStatistics implements ColumnStatistics<DataValueDescriptor>,Externalizable{
+    private static final char SEPARATOR='\u0000';
+
+    private int[] columns;
+    private ColumnStatistics<DataValueDescriptor> stats;
+
+    public ColumnGroupStatistics(){
+    }
+
+    public ColumnGroupStatistics(int[] columns,ColumnStatistics<DataValueDescriptor> stats){
+        this.columns=columns;
+        this.stats=stats;
+    }
+
+    /**
+     * @return the positions of the columns in the group (indexed from 1), in the order their values make up a key
+     */
+    public int[] getColumns(){ return columns; }
+
+    /**
+     * @return the id under which the statistics of a group of columns are kept. Always negative
+     */
+    public static int groupId(int[] columns){
+        return -1-(Arrays.hashCode(columns)&Integer.MAX_VALUE);
+    }
+
+    /**
+     * Build the key of a combination of values, one for each column of a group. Values which are equal in SQL
+     * produce the same key, whatever their types (for example a DECIMAL literal compared with a DOUBLE column).
+     *
+     * @return the key, or {@code null} if any of the values is null
+     */
+    public static String key(DataValueDescriptor[] values) throws StandardException{
+        StringBuilder key=new StringBuilder();
+        for(int i=0;i<values.length;i++){
+            DataValueDescriptor value=values[i];
+            if(value==null || value.isNull()) return null;
+            if(i>0) key.append(SEPARATOR);
+            switch(value.getTypeFormatId()){
+                case StoredFormatIds.SQL_DECIMAL_ID:
+                case StoredFormatIds.SQL_DOUBLE_ID:
+                case StoredFormatIds.SQL_REAL_ID:
+                    key.append(new BigDecimal(value.getString()).stripTrailingZeros().toPlainString());
+                    break;
+                default:
+                    key.append(StringUtils.trimTrailingSpaces(value.getString()));
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Estimate the number of rows in which the group's columns have exactly the given values.
+     *
+     * @param values one value for each column of the group, in the group's order
+     * @return the estimated number of matching rows
+     */
+    public long count(DataValueDescriptor[] values) throws StandardException{
+        String key=key(values);
+        if(key==null) return 0l; //a null never compares equal
+        FrequentElements<DataValueDescriptor> topK=stats.topK();
+        FrequencyEstimate<? extends DataValueDescriptor> estimate=topK.equal(new SQLVarchar(key));
+        if(estimate!=null && estimate.count()>0)
+            return estimate.count();
+        /*
+         * Not a frequent combination, so assume the remaining rows are spread evenly over the remaining
+         * combinations. Never estimate 0: the key may simply have been spelled differently when collected
+         */
+        long rows=stats.nonNullCount()-topK.totalFrequentElements();
+        long distinct=cardinality()-topK.allFrequentElements().size();
+        if(stats.nonNullCount()<=0) return 0l;
+        return Math.max(1l,rows/Math.max(1l,distinct));
+    }
+
+    /**
+     * @return whether this group is made up of exactly the given columns, in any order
+     */
+    public boolean isGroup(int[] columnNumbers){
+        if(columnNumbers.length!=columns.length) return false;
+        int[] sorted=Arrays.copyOf(columns,columns.length);
+        int[] other=Arrays.copyOf(columnNumbers,columnNumbers.length);
+        Arrays.sort(sorted);
+        Arrays.sort(other);
+        return Arrays.equals(sorted,other);
+    }
+
+    @Override public int columnId(){ return groupId(columns); }
+    @Override public long cardinality(){ return stats.cardinality(); }
+    @Override public long nonNullCount(){ return stats.nonNullCount(); }
+    @Override public float nullFraction(){ return stats.nullFraction(); }
+    @Override public long nullCount(){ return stats.nullCount(); }
+    @Override public FrequentElements<DataValueDescriptor> topK(){ return stats.topK(); }
+    @Override public DataValueDescriptor minValue(){ return stats.minValue(); }
+    @Override public long minCount(){ return stats.minCount(); }
+    @Override public DataValueDescriptor maxValue(){ return stats.maxValue(); }
+    @Override public CardinalityEstimator getCardinalityEstimator(){ return stats.getCardinalityEstimator(); }
+    @Override public Distribution<DataValueDescriptor> getDistribution(){ return stats.getDistribution(); }
+
+    /*
+     * The keys are not stored, so they take no room in the row
+     */
+    @Override public int avgColumnWidth(){ return 0; }
+    @Override public long totalBytes(){ return 0l; }
+
+    @Override
+    public ColumnStatistics<DataValueDescriptor> getClone(){
+        return new ColumnGroupStatistics(columns,stats.getClone());
+    }
+
+    @Override
+    public ColumnStatistics<DataValueDescriptor> merge(ColumnStatistics<DataValueDescriptor> other){
+        if(other instanceof ColumnGroupStatistics && Arrays.equals(columns,((ColumnGroupStatistics)other).columns))
+            stats=stats.merge(((ColumnGroupStatistics)other).stats);
+        return this;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        out.writeInt(columns.length);
+        for(int column : columns){
+            out.writeInt(column);
+        }
+        out.writeObject(stats);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        columns=new int[in.readInt()];
+        for(int i=0;i<columns.length;i++){
+            columns[i]=in.readInt();
+        }
+        stats=(ColumnStatistics<DataValueDescriptor>)in.readObject();
+    }
+
+    @Override
+    public String toString(){
+        return "ColumnGroup"+Arrays.toString(columns)+"("+stats+")";
+    }
+}
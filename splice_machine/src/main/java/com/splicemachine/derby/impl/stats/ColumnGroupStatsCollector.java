@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.stats.collector.ColumnStatsCollector;
+import com.splicemachine.stats.collector.ColumnStatsCollectors;
+
+/**
+ * Collects the statistics of a group of columns, by counting the key of each row's combination of values as
+ * if it were the value of a single VARCHAR column. A row with a null in any of the group's columns counts as null.
+ *
+ * @see ColumnGroupStatistics
+ */
+public class ColumnGroupStatsCollector{
+    /*
+     * The length assumed for each value in a key when its column has no maximum length
+     */
+    private static final int DEFAULT_VALUE_LENGTH=32;
+
+    private final int[] columns;
+    private final int[] rowPositions;
+    private final DataValueDescriptor[] values;
+    private final ColumnStatsCollector<DataValueDescriptor> collector;
+
+    /**
+     * @param columns the positions of the group's columns in the table (indexed from 1)
+     * @param rowPositions the positions of the group's columns in the rows which are collected (indexed from 0)
+     * @param lengths the maximum length of each column of the group, or -1 if it has none
+     */
+    public ColumnGroupStatsCollector(int[] columns,
+                                     int[] rowPositions,
+                                     int[] lengths,
+                                     int cardinalityPrecision,
+                                     int topKSize,
+                                     double sampleFraction){
+        this.columns=columns;
+        this.rowPositions=rowPositions;
+        this.values=new DataValueDescriptor[rowPositions.length];
+        int keyLength=0;
+        for(int length : lengths){
+            keyLength+=(length>0?length:DEFAULT_VALUE_LENGTH)+1;
+        }
+        ColumnStatsCollector<DataValueDescriptor> keyCollector=StringStatsCollector.varcharCollector(
+                ColumnStatsCollectors.collector(ColumnGroupStatistics.groupId(columns),
+                        cardinalityPrecision,
+                        topKSize,
+                        DvdStatsCollector.stringDistributionFactory(keyLength)),keyLength);
+        if(sampleFraction<1d)
+            keyCollector=new SampledStatsCollector(keyCollector,sampleFraction);
+        this.collector=keyCollector;
+    }
+
+    public void update(DataValueDescriptor[] row,long count) throws StandardException{
+        for(int i=0;i<rowPositions.length;i++){
+            values[i]=row[rowPositions[i]];
+        }
+        String key=ColumnGroupStatistics.key(values);
+        if(key==null)
+            collector.updateNull(count);
+        else
+            collector.update(new SQLVarchar(key),count);
+    }
+
+    public ColumnGroupStatistics build(){
+        return new ColumnGroupStatistics(columns,collector.build());
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.utils.marshall.dvd.TimestampV2DescriptorSerializer;
+import com.splicemachine.stats.ColumnStatistics;
+import com.splicemachine.stats.cardinality.CardinalityEstimator;
+import com.splicemachine.stats.estimate.Distribution;
+import com.splicemachine.stats.frequency.FrequencyEstimate;
+import com.splicemachine.stats.frequency.FrequentElements;
+import com.splicemachine.stats.histogram.EquiDepthDoubleHistogram;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+/**
+ * Column statistics with an equi-depth histogram of the column's values.
+ *
+ * The wrapped statistics answer everything except selectivity, which they can only estimate by assuming
+ * values are spread uniformly between the min and the max. Ranges are estimated from the histogram instead,
+ * and so are equality predicates, unless the value is one of the frequent elements the wrapped statistics
+ * already count.
+ *
+ * Numeric and date/time columns are supported; their values are mapped onto doubles by {@link #key}.
+ */
+public class HistogramColumnStatistics implements ColumnStatistics<DataValueDescriptor>,Externalizable{
+    private ColumnStatistics<DataValueDescriptor> stats;
+    private int typeFormatId;
+    private EquiDepthDoubleHistogram histogram;
+
+    public HistogramColumnStatistics(){
+    }
+
+    public HistogramColumnStatistics(ColumnStatistics<DataValueDescriptor> stats,
+                                     int typeFormatId,
+                                     EquiDepthDoubleHistogram histogram){
+        this.stats=stats;
+        this.typeFormatId=typeFormatId;
+        this.histogram=histogram;
+    }
+
+    public static boolean supports(int typeFormatId){
+        switch(typeFormatId){
+            case StoredFormatIds.SQL_TINYINT_ID:
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+            case StoredFormatIds.SQL_LONGINT_ID:
+            case StoredFormatIds.SQL_REAL_ID:
+            case StoredFormatIds.SQL_DOUBLE_ID:
+            case StoredFormatIds.SQL_DECIMAL_ID:
+            case StoredFormatIds.SQL_DATE_ID:
+            case StoredFormatIds.SQL_TIME_ID:
+            case StoredFormatIds.SQL_TIMESTAMP_ID:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param typeFormatId the format id of the column
+     * @param dvd a non-null value of the column
+     * @param calendar the calendar to read date/time values with
+     * @return the position of {@code dvd} in the histogram of a column of type {@code typeFormatId}
+     * @throws StandardException if {@code dvd} cannot be converted to the type of the column
+     */
+    public static double key(int typeFormatId,DataValueDescriptor dvd,Calendar calendar) throws StandardException{
+        switch(typeFormatId){
+            case StoredFormatIds.SQL_TINYINT_ID:
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+            case StoredFormatIds.SQL_LONGINT_ID:
+                return dvd.getLong();
+            case StoredFormatIds.SQL_REAL_ID:
+            case StoredFormatIds.SQL_DOUBLE_ID:
+            case StoredFormatIds.SQL_DECIMAL_ID:
+                return dvd.getDouble();
+            case StoredFormatIds.SQL_DATE_ID:
+                return dvd.getDate(calendar).getTime();
+            case StoredFormatIds.SQL_TIME_ID:
+                return dvd.getTime(calendar).getTime();
+            case StoredFormatIds.SQL_TIMESTAMP_ID:
+                return TimestampV2DescriptorSerializer.formatLong(dvd.getTimestamp(calendar));
+            default:
+                throw new UnsupportedOperationException("Programmer error: no histogram for format id "+typeFormatId);
+        }
+    }
+
+    public ColumnStatistics<DataValueDescriptor> getStatistics(){ return stats; }
+
+    public EquiDepthDoubleHistogram getHistogram(){ return histogram; }
+
+    @Override public long nonNullCount(){ return stats.nonNullCount(); }
+    @Override public long cardinality(){ return stats.cardinality(); }
+    @Override public float nullFraction(){ return stats.nullFraction(); }
+    @Override public long nullCount(){ return stats.nullCount(); }
+    @Override public FrequentElements<DataValueDescriptor> topK(){ return stats.topK(); }
+    @Override public DataValueDescriptor minValue(){ return stats.minValue(); }
+    @Override public long minCount(){ return stats.minCount(); }
+    @Override public DataValueDescriptor maxValue(){ return stats.maxValue(); }
+    @Override public int avgColumnWidth(){ return stats.avgColumnWidth(); }
+    @Override public int columnId(){ return stats.columnId(); }
+    @Override public long totalBytes(){ return stats.totalBytes(); }
+    @Override public CardinalityEstimator getCardinalityEstimator(){ return stats.getCardinalityEstimator(); }
+
+    @Override
+    public ColumnStatistics<DataValueDescriptor> getClone(){
+        //the histogram is immutable, so it can be shared
+        return new HistogramColumnStatistics(stats.getClone(),typeFormatId,histogram);
+    }
+
+    @Override
+    public Distribution<DataValueDescriptor> getDistribution(){
+        return new HistogramDistribution(stats.getDistribution());
+    }
+
+    @Override
+    public ColumnStatistics<DataValueDescriptor> merge(ColumnStatistics<DataValueDescriptor> other){
+        if(other instanceof HistogramColumnStatistics){
+            HistogramColumnStatistics hcs=(HistogramColumnStatistics)other;
+            stats=stats.merge(hcs.stats);
+            histogram=histogram.merge(hcs.histogram);
+            return this;
+        }
+        /*
+         * The other side was collected without a histogram, so ours no longer describes all the rows
+         */
+        return stats.merge(other);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        out.writeInt(typeFormatId);
+        out.writeObject(stats);
+        EquiDepthDoubleHistogram.encoder().encode(histogram,out);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        typeFormatId=in.readInt();
+        stats=(ColumnStatistics<DataValueDescriptor>)in.readObject();
+        histogram=EquiDepthDoubleHistogram.encoder().decode(in);
+    }
+
+    @Override
+    public String toString(){
+        return stats+", histogram="+histogram;
+    }
+
+    private class HistogramDistribution implements Distribution<DataValueDescriptor>{
+        private final Distribution<DataValueDescriptor> distribution;
+        private Calendar calendar;
+
+        HistogramDistribution(Distribution<DataValueDescriptor> distribution){
+            this.distribution=distribution;
+        }
+
+        @Override public DataValueDescriptor minValue(){ return distribution.minValue(); }
+        @Override public long minCount(){ return distribution.minCount(); }
+        @Override public DataValueDescriptor maxValue(){ return distribution.maxValue(); }
+        @Override public long totalCount(){ return distribution.totalCount(); }
+
+        @Override
+        public long selectivity(DataValueDescriptor element){
+            if(element==null || element.isNull())
+                return distribution.selectivity(element);
+            FrequencyEstimate<? extends DataValueDescriptor> estimate=stats.topK().equal(element);
+            if(estimate!=null && estimate.count()>0)
+                return distribution.selectivity(element); //counted exactly
+            try{
+                return histogram.equal(key(element),stats.cardinality());
+            }catch(StandardException e){
+                return distribution.selectivity(element);
+            }
+        }
+
+        @Override
+        public long rangeSelectivity(DataValueDescriptor start,DataValueDescriptor stop,boolean includeStart,boolean includeStop){
+            boolean hasStart=start!=null && !start.isNull();
+            boolean hasStop=stop!=null && !stop.isNull();
+            try{
+                double startKey=hasStart?key(start):Double.NEGATIVE_INFINITY;
+                double stopKey=hasStop?key(stop):Double.POSITIVE_INFINITY;
+                if(hasStart && hasStop && startKey==stopKey){
+                    if(!includeStart || !includeStop) return 0l; //empty interval has no data
+                    return selectivity(start);
+                }
+                return histogram.between(startKey,stopKey,includeStart,includeStop);
+            }catch(StandardException e){
+                return distribution.rangeSelectivity(start,stop,includeStart,includeStop);
+            }
+        }
+
+        private double key(DataValueDescriptor dvd) throws StandardException{
+            if(calendar==null)
+                calendar=new GregorianCalendar();
+            return HistogramColumnStatistics.key(typeFormatId,dvd,calendar);
+        }
+    }
+}
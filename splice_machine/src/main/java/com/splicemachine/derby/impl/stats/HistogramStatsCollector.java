@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.stats.ColumnStatistics;
+import com.splicemachine.stats.collector.ColumnStatsCollector;
+import com.splicemachine.stats.histogram.EquiDepthDoubleHistogram;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+/**
+ * Collects an equi-depth histogram of a column alongside the statistics of another collector.
+ *
+ * @see HistogramColumnStatistics
+ */
+public class HistogramStatsCollector implements ColumnStatsCollector<DataValueDescriptor>{
+    private final ColumnStatsCollector<DataValueDescriptor> collector;
+    private final int typeFormatId;
+    private final EquiDepthDoubleHistogram.Builder histogram;
+    private Calendar calendar;
+
+    public HistogramStatsCollector(ColumnStatsCollector<DataValueDescriptor> collector,int typeFormatId,int numBuckets){
+        this.collector=collector;
+        this.typeFormatId=typeFormatId;
+        this.histogram=EquiDepthDoubleHistogram.newBuilder(numBuckets);
+    }
+
+    @Override
+    public ColumnStatistics<DataValueDescriptor> build(){
+        return new HistogramColumnStatistics(collector.build(),typeFormatId,histogram.build());
+    }
+
+    @Override public void updateNull(){ collector.updateNull(); }
+    @Override public void updateNull(long count){ collector.updateNull(count); }
+    @Override public void updateSize(int size){ collector.updateSize(size); }
+    @Override public void update(DataValueDescriptor item){ update(item,1l); }
+
+    @Override
+    public void update(DataValueDescriptor item,long count){
+        collector.update(item,count);
+        if(item==null || item.isNull()) return;
+        if(calendar==null)
+            calendar=new GregorianCalendar();
+        try{
+            histogram.update(HistogramColumnStatistics.key(typeFormatId,item,calendar),count);
+        }catch(StandardException se){
+            throw new RuntimeException(se); //should never happen
+        }
+    }
+}
@@ -31,6 +31,7 @@ import com.splicemachine.uuid.Snowflake;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.util.BitSet;
+import java.util.List;
 
 /**
  * @author Scott Fines
@@ -124,6 +125,24 @@ public class IndexStatsCostController extends StatsStoreCostController {
         return 0;
     }
 
+    @Override
+    public List<int[]> columnGroups(){
+        return columnGroups(baseTableStatistics);
+    }
+
+    @Override
+    public double getSelectivity(int[] columnGroup,DataValueDescriptor[] values) throws StandardException{
+        return groupSelectivityFraction(baseTableStatistics,columnGroup,values);
+    }
+
+    @Override
+    public long cardinality(int[] columnGroup){
+        ColumnGroupStatistics groupStats=getGroupStats(baseTableStatistics,columnGroup);
+        if(groupStats!=null)
+            return groupStats.cardinality();
+        return 0;
+    }
+
     @Override
     public long getBaseTableAvgRowWidth() {
         return baseTableStatistics.avgRowWidth();
@@ -221,6 +221,8 @@ public class PartitionAverage implements OverheadManagedPartitionStatistics {
         }
         for(int i=0;i<columnStatisticses.size();i++){
             ColumnStatistics toMerge = columnStatisticses.get(i);
+            if(toMerge instanceof ColumnGroupStatistics)
+                continue; //averaged partitions stand in for single columns only
             boolean found = false;
             for(int j=0;j<columnStats.size();j++){
                 ColumnStatistics myStats = columnStats.get(j);
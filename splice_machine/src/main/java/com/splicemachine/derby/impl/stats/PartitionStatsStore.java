@@ -16,8 +16,11 @@
 package com.splicemachine.derby.impl.stats;
 
 import com.google.common.base.Function;
+import org.sparkproject.guava.cache.Cache;
+import org.sparkproject.guava.cache.CacheBuilder;
 import org.sparkproject.guava.collect.Lists;
 import org.sparkproject.guava.collect.Maps;
+import com.splicemachine.EngineDriver;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.context.ContextService;
 import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
@@ -25,6 +28,8 @@ import com.splicemachine.db.iapi.sql.dictionary.ColumnStatsDescriptor;
 import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
 import com.splicemachine.db.iapi.sql.dictionary.PartitionStatisticsDescriptor;
 import com.splicemachine.db.iapi.store.access.TransactionController;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnView;
@@ -34,7 +39,9 @@ import com.splicemachine.stats.PartitionStatistics;
 import com.splicemachine.storage.Partition;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A static store for providing PartitionStats entities.
@@ -57,6 +64,14 @@ public class PartitionStatsStore {
     };
 
 
+    /*
+     * Zone maps by conglomerate, since reading every partition's statistics is too much to do for every scan. A stale
+     * entry can only cost pruning, as a partition is not skipped unless its server confirms that nothing was written
+     * to it since its zone map was collected. Entries are dropped when statistics are collected or dropped (see
+     * DDLUtils#preAlterStats), and expire for the collections which commit after that.
+     */
+    private static volatile Cache<Long,List<ZoneMap>> zoneMapCache;
+
     public static OverheadManagedTableStatistics getStatistics(long conglomerateId, TransactionController tc) throws StandardException {
         byte[] table = Bytes.toBytes(Long.toString(conglomerateId));
         List<Partition> partitions = new ArrayList<>();
@@ -123,6 +138,64 @@ public class PartitionStatsStore {
         return new GlobalStatistics(Long.toString(conglomerateId), partitionStats);
     }
 
+    /**
+     * @return the zone maps of those partitions of a conglomerate whose statistics were collected while no one
+     * was writing to it, and so describe every row the partition held at the time
+     */
+    public static List<ZoneMap> getZoneMaps(final long conglomerateId, final TransactionController tc) throws StandardException {
+        try {
+            return zoneMapCache().get(conglomerateId, new Callable<List<ZoneMap>>() {
+                @Override
+                public List<ZoneMap> call() throws Exception {
+                    return loadZoneMaps(conglomerateId, tc);
+                }
+            });
+        } catch (ExecutionException e) {
+            throw Exceptions.parseException(e.getCause());
+        }
+    }
+
+    public static void invalidateZoneMaps(long conglomerateId) {
+        Cache<Long,List<ZoneMap>> cache = zoneMapCache;
+        if (cache != null)
+            cache.invalidate(conglomerateId);
+    }
+
+    private static Cache<Long,List<ZoneMap>> zoneMapCache() {
+        Cache<Long,List<ZoneMap>> cache = zoneMapCache;
+        if (cache == null) {
+            synchronized (PartitionStatsStore.class) {
+                cache = zoneMapCache;
+                if (cache == null) {
+                    cache = zoneMapCache = CacheBuilder.newBuilder()
+                            .expireAfterWrite(EngineDriver.driver().getConfiguration().getPartitionCacheExpiration(), TimeUnit.MILLISECONDS)
+                            .build();
+                }
+            }
+        }
+        return cache;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ZoneMap> loadZoneMaps(long conglomerateId, TransactionController tc) throws StandardException {
+        LanguageConnectionContext lcc = (LanguageConnectionContext) ContextService.getContext(LanguageConnectionContext.CONTEXT_ID);
+        DataDictionary dd = lcc.getDataDictionary();
+        List<ZoneMap> zoneMaps = new ArrayList<>();
+        for (PartitionStatisticsDescriptor tStats : dd.getPartitionStatistics(conglomerateId, tc)) {
+            if (tStats.isStale() || tStats.getColumnStatsDescriptors() == null)
+                continue;
+            Map<Integer,ColumnStatistics<DataValueDescriptor>> columns = new HashMap<>();
+            for (ColumnStatsDescriptor column : tStats.getColumnStatsDescriptors()) {
+                ColumnStatistics<DataValueDescriptor> stats = (ColumnStatistics<DataValueDescriptor>) column.getStats();
+                if (ZoneMap.isBounding(stats))
+                    columns.put(column.getColumnId(), stats);
+            }
+            if (!columns.isEmpty())
+                zoneMaps.add(new ZoneMap(tStats.getPartitionId(), tStats.getTimestamp(), columns));
+        }
+        return Collections.unmodifiableList(zoneMaps);
+    }
+
            /**
          * There are no statistics collected for this table.
          *
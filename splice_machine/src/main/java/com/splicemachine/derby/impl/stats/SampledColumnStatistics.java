@@ -0,0 +1,160 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.stats.ColumnStatistics;
+import com.splicemachine.stats.cardinality.CardinalityEstimator;
+import com.splicemachine.stats.estimate.Distribution;
+import com.splicemachine.stats.frequency.FrequentElements;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Column statistics which were collected from a sample of the rows in a partition.
+ *
+ * Row counts in the wrapped statistics are already scaled up to the whole partition, since every sampled row
+ * is counted as the rows it stands for. The number of distinct values is not: a value seen in the sample may
+ * occur anywhere in the rest of the partition, or nowhere else at all. The sample fraction is kept with the
+ * statistics, so that {@link #cardinality()} can extrapolate from how often the sampled values repeated.
+ */
+public class SampledColumnStatistics implements ColumnStatistics<DataValueDescriptor>,Externalizable{
+    /*
+     * The relative error of the sampled cardinality is multiplied by up to STABLE_AMPLIFICATION in the estimate
+     * which assumes values occur equally often before it is blended with the linear estimate, which takes over
+     * entirely at MAX_AMPLIFICATION
+     */
+    private static final double STABLE_AMPLIFICATION=2d;
+    private static final double MAX_AMPLIFICATION=10d;
+
+    private ColumnStatistics<DataValueDescriptor> stats;
+    private double sampleFraction;
+
+    public SampledColumnStatistics(){
+    }
+
+    public SampledColumnStatistics(ColumnStatistics<DataValueDescriptor> stats,double sampleFraction){
+        this.stats=stats;
+        this.sampleFraction=sampleFraction;
+    }
+
+    public ColumnStatistics<DataValueDescriptor> getStatistics(){ return stats; }
+
+    /**
+     * @return the fraction of the rows which were read to collect these statistics
+     */
+    public double getSampleFraction(){ return sampleFraction; }
+
+    @Override
+    public long cardinality(){
+        long sampled=stats.cardinality();
+        long total=stats.nonNullCount();
+        double sampleRows=total*sampleFraction;
+        if(sampleFraction>=1d || sampled<=0 || sampleRows<=0d) return sampled;
+        /*
+         * Assume the unread rows hold new values in the same proportion as the sampled rows did: a sample
+         * of unique values extrapolates to an entirely unique column. This overestimates columns whose values
+         * repeat, since the sample has already seen most of their values.
+         */
+        double uniqueness=Math.min(1d,sampled/sampleRows);
+        double linear=sampled+uniqueness*(total-sampleRows);
+        /*
+         * Assume instead that every value occurs equally often. That is exact for columns of repeated values,
+         * but when the sample holds few repeats it multiplies the error of the sampled cardinality many times
+         * over, so fall back to the linear estimate as that amplification grows
+         */
+        double logMissed=Math.log(1d-sampleFraction);
+        double uniform=extrapolate(sampled,total,logMissed);
+        double missed=Math.exp(logMissed*total/uniform);
+        double slope=1d-missed+missed*(total/uniform)*logMissed;
+        double amplification=slope>0d?(1d-missed)/slope:Double.POSITIVE_INFINITY;
+        double weight=Math.max(0d,Math.min(1d,(MAX_AMPLIFICATION-amplification)/(MAX_AMPLIFICATION-STABLE_AMPLIFICATION)));
+        return Math.max(sampled,Math.min(total,Math.round(weight*uniform+(1d-weight)*linear)));
+    }
+
+    /*
+     * A column of D values, each on total/D rows, shows D*(1-(1-f)^(total/D)) of them in a sample of a fraction
+     * f of its rows, which grows with D. Find the D for which that is the number of values the sample showed.
+     *
+     * @param logMissed the log of the probability that a row is not sampled, log(1-f)
+     */
+    private static double extrapolate(long sampled,long total,double logMissed){
+        double low=sampled;
+        double high=total;
+        while(high-low>0.5d){
+            double mid=(low+high)/2d;
+            double seen=mid*(1d-Math.exp(logMissed*total/mid));
+            if(seen<sampled) low=mid;
+            else high=mid;
+        }
+        return (low+high)/2d;
+    }
+
+    @Override public long nonNullCount(){ return stats.nonNullCount(); }
+    @Override public float nullFraction(){ return stats.nullFraction(); }
+    @Override public long nullCount(){ return stats.nullCount(); }
+    @Override public FrequentElements<DataValueDescriptor> topK(){ return stats.topK(); }
+    @Override public DataValueDescriptor minValue(){ return stats.minValue(); }
+    @Override public long minCount(){ return stats.minCount(); }
+    @Override public DataValueDescriptor maxValue(){ return stats.maxValue(); }
+    @Override public int avgColumnWidth(){ return stats.avgColumnWidth(); }
+    @Override public int columnId(){ return stats.columnId(); }
+    @Override public long totalBytes(){ return stats.totalBytes(); }
+    @Override public CardinalityEstimator getCardinalityEstimator(){ return stats.getCardinalityEstimator(); }
+    @Override public Distribution<DataValueDescriptor> getDistribution(){ return stats.getDistribution(); }
+
+    @Override
+    public ColumnStatistics<DataValueDescriptor> getClone(){
+        return new SampledColumnStatistics(stats.getClone(),sampleFraction);
+    }
+
+    @Override
+    public ColumnStatistics<DataValueDescriptor> merge(ColumnStatistics<DataValueDescriptor> other){
+        double otherFraction=1d;
+        ColumnStatistics<DataValueDescriptor> otherStats=other;
+        if(other instanceof SampledColumnStatistics){
+            otherFraction=((SampledColumnStatistics)other).sampleFraction;
+            otherStats=((SampledColumnStatistics)other).stats;
+        }
+        long rows=stats.nonNullCount()+stats.nullCount();
+        long otherRows=other.nonNullCount()+other.nullCount();
+        if(rows+otherRows>0)
+            sampleFraction=(sampleFraction*rows+otherFraction*otherRows)/(rows+otherRows);
+        stats=stats.merge(otherStats);
+        return this;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        out.writeDouble(sampleFraction);
+        out.writeObject(stats);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        sampleFraction=in.readDouble();
+        stats=(ColumnStatistics<DataValueDescriptor>)in.readObject();
+    }
+
+    @Override
+    public String toString(){
+        return stats+", sampleFraction="+sampleFraction;
+    }
+}
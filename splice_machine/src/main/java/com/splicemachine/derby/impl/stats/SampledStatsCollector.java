@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.stats.ColumnStatistics;
+import com.splicemachine.stats.collector.ColumnStatsCollector;
+
+/**
+ * Marks the statistics of another collector as collected from a sample. The caller is responsible for
+ * weighting each sampled row by the number of rows it stands for.
+ *
+ * @see SampledColumnStatistics
+ */
+public class SampledStatsCollector implements ColumnStatsCollector<DataValueDescriptor>{
+    private final ColumnStatsCollector<DataValueDescriptor> collector;
+    private final double sampleFraction;
+
+    public SampledStatsCollector(ColumnStatsCollector<DataValueDescriptor> collector,double sampleFraction){
+        this.collector=collector;
+        this.sampleFraction=sampleFraction;
+    }
+
+    @Override
+    public ColumnStatistics<DataValueDescriptor> build(){
+        return new SampledColumnStatistics(collector.build(),sampleFraction);
+    }
+
+    @Override public void updateNull(){ collector.updateNull(); }
+    @Override public void updateNull(long count){ collector.updateNull(count); }
+    @Override public void updateSize(int size){ collector.updateSize(size); }
+    @Override public void update(DataValueDescriptor item){ collector.update(item); }
+    @Override public void update(DataValueDescriptor item,long count){ collector.update(item,count); }
+}
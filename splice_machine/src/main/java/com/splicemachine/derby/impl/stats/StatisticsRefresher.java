@@ -0,0 +1,206 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.db.iapi.services.context.ContextManager;
+import com.splicemachine.db.iapi.services.context.ContextService;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.dictionary.ConglomerateDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.PartitionStatisticsDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.TableDescriptor;
+import com.splicemachine.derby.jdbc.SpliceTransactionResourceImpl;
+import com.splicemachine.derby.utils.StatisticsAdmin;
+import com.splicemachine.pipeline.PartitionWritePipeline;
+import com.splicemachine.pipeline.PipelineDriver;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.storage.Partition;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the statistics of the partitions served by this server up to date.
+ *
+ * The write pipeline counts the rows inserted, updated and deleted in each partition. Each time the
+ * refresher runs, it compares the changes made to a partition since its statistics were collected with the
+ * number of rows those statistics describe, and collects the partitions which changed by more than the
+ * configured ratio again. The table's other partitions keep their stored statistics, which are merged with
+ * the new ones whenever the table's statistics are read, so a table which is only changing in a few places
+ * (such as an append-only table) is kept fresh by reading only those places.
+ *
+ * Only tables which already have statistics are refreshed, and of those only partitions which have their own
+ * statistics. A partition created by a split is left to the next full collection, so that its rows are not
+ * counted a second time alongside the statistics of the partition it was split from.
+ */
+public class StatisticsRefresher implements Runnable{
+    private static final Logger LOG=Logger.getLogger(StatisticsRefresher.class);
+    private static final long REFRESHED=-1l;
+
+    private final double refreshRatio;
+    /*
+     * For each partition, its modification count when its statistics were last collected, and the timestamp
+     * of those statistics. Only used by the refresher's own thread
+     */
+    private final Map<String,Baseline> baselines=new HashMap<>();
+
+    public StatisticsRefresher(double refreshRatio){
+        this.refreshRatio=refreshRatio;
+    }
+
+    @Override
+    public void run(){
+        PipelineDriver driver=PipelineDriver.driver();
+        if(driver==null)
+            return; //not serving any partitions
+        Map<String,PartitionWritePipeline> pipelines=driver.getPipelines();
+        baselines.keySet().retainAll(pipelines.keySet());
+
+        Map<Long,List<PartitionWritePipeline>> modified=new HashMap<>();
+        for(Map.Entry<String,PartitionWritePipeline> entry : pipelines.entrySet()){
+            PartitionWritePipeline pipeline=entry.getValue();
+            Baseline baseline=baselines.get(entry.getKey());
+            if(pipeline.getModificationCount()<=(baseline==null?0l:baseline.modificationCount))
+                continue;
+            long conglomId;
+            try{
+                conglomId=Long.parseLong(pipeline.getPartition().getTableName());
+            }catch(NumberFormatException nfe){
+                continue; //not a conglomerate
+            }
+            List<PartitionWritePipeline> partitions=modified.get(conglomId);
+            if(partitions==null){
+                partitions=new ArrayList<>();
+                modified.put(conglomId,partitions);
+            }
+            partitions.add(pipeline);
+        }
+
+        for(Map.Entry<Long,List<PartitionWritePipeline>> entry : modified.entrySet()){
+            try{
+                refresh(entry.getKey(),entry.getValue());
+            }catch(Exception e){
+                LOG.warn("Unable to refresh statistics for conglomerate "+entry.getKey(),e);
+            }
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private void refresh(long conglomId,List<PartitionWritePipeline> pipelines) throws Exception{
+        Txn txn=SIDriver.driver().lifecycleManager().beginTransaction(Bytes.toBytes("statistics"));
+        ContextManager currentCm=ContextService.getFactory().getCurrentContextManager();
+        SpliceTransactionResourceImpl transactionResource=null;
+        boolean prepared=false;
+        boolean committed=false;
+        try{
+            transactionResource=new SpliceTransactionResourceImpl();
+            prepared=transactionResource.marshallTransaction(txn);
+            LanguageConnectionContext lcc=transactionResource.getLcc();
+            DataDictionary dd=lcc.getDataDictionary();
+            ConglomerateDescriptor cd=dd.getConglomerateDescriptor(conglomId);
+            if(cd==null || cd.isIndex())
+                return; //statistics are collected for base tables only
+            TableDescriptor td=dd.getTableDescriptor(cd.getTableID());
+            if(td==null)
+                return;
+            Map<String,PartitionStatisticsDescriptor> stored=new HashMap<>();
+            for(PartitionStatisticsDescriptor psd : dd.getPartitionStatistics(conglomId,lcc.getTransactionExecute())){
+                stored.put(psd.getPartitionId(),psd);
+            }
+
+            Map<Partition,Long> stale=stalePartitions(pipelines,stored);
+            if(stale.isEmpty())
+                return;
+
+            long start=System.currentTimeMillis();
+            int collected=StatisticsAdmin.collectPartitionStatistics(td,new ArrayList<>(stale.keySet()),lcc);
+            txn.commit();
+            committed=true;
+            markRefreshed(stale);
+            LOG.info(String.format("Refreshed statistics for %d stale partitions of %s.%s in %d ms",
+                    collected,td.getSchemaName(),td.getName(),System.currentTimeMillis()-start));
+        }finally{
+            if(!committed)
+                txn.rollback();
+            if(prepared)
+                transactionResource.close();
+            if(currentCm!=null)
+                ContextService.getFactory().setCurrentContextManager(currentCm);
+        }
+    }
+
+    /**
+     * Pick the partitions whose changes since their stored statistics were collected reach the refresh ratio
+     * of the rows those statistics describe.
+     *
+     * @param stored the stored statistics of the table's partitions, by partition name
+     * @return the stale partitions, with their modification counts when they were picked
+     */
+    Map<Partition,Long> stalePartitions(List<PartitionWritePipeline> pipelines,Map<String,PartitionStatisticsDescriptor> stored){
+        Map<Partition,Long> stale=new LinkedHashMap<>();
+        for(PartitionWritePipeline pipeline : pipelines){
+            Partition partition=pipeline.getPartition();
+            PartitionStatisticsDescriptor psd=stored.get(partition.getName());
+            if(psd==null)
+                continue;
+            long count=pipeline.getModificationCount();
+            Baseline baseline=baselines.get(partition.getName());
+            if(baseline==null){
+                baseline=new Baseline(0l,psd.getTimestamp());
+                baselines.put(partition.getName(),baseline);
+            }else if(baseline.statisticsTimestamp==REFRESHED){
+                baseline.statisticsTimestamp=psd.getTimestamp();
+            }else if(baseline.statisticsTimestamp!=psd.getTimestamp()){
+                //collected by someone else since we last looked
+                baseline.modificationCount=count;
+                baseline.statisticsTimestamp=psd.getTimestamp();
+                continue;
+            }
+            if(count-baseline.modificationCount>=refreshRatio*Math.max(1l,psd.getRowCount()))
+                stale.put(partition,count);
+        }
+        return stale;
+    }
+
+    /**
+     * Note that the statistics of the given partitions were collected again, as of the given modification counts.
+     */
+    void markRefreshed(Map<Partition,Long> refreshed){
+        for(Map.Entry<Partition,Long> entry : refreshed.entrySet()){
+            Baseline baseline=baselines.get(entry.getKey().getName());
+            baseline.modificationCount=entry.getValue();
+            baseline.statisticsTimestamp=REFRESHED;
+        }
+    }
+
+    private static class Baseline{
+        private long modificationCount;
+        private long statisticsTimestamp;
+
+        Baseline(long modificationCount,long statisticsTimestamp){
+            this.modificationCount=modificationCount;
+            this.statisticsTimestamp=statisticsTimestamp;
+        }
+    }
+}
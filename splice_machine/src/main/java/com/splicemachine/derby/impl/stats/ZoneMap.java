@@ -0,0 +1,290 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.dictionary.ColumnDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.ColumnDescriptorList;
+import com.splicemachine.db.iapi.sql.dictionary.ConglomerateDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.TableDescriptor;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.derby.stream.control.ControlUtils;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.stats.ColumnStatistics;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+import org.apache.log4j.Logger;
+import org.sparkproject.guava.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The range of values of each column of a partition, as seen when the partition's statistics were collected.
+ *
+ * A scan need not read a partition whose ranges show that none of its rows can satisfy the scan's qualifiers,
+ * such as an old partition of a time series when the scan asks for the last day. A zone map only describes the
+ * rows which were in the partition when it was collected, though, so a partition is only skipped once its server
+ * has confirmed that nothing was written to it since (see {@link SIConstants#UNCHANGED_SINCE_ATTRIBUTE_NAME}).
+ *
+ * Only columns whose minimum and maximum were read from every row, and which are of a numeric or date/time type,
+ * are kept in a zone map.
+ */
+public class ZoneMap{
+    private static final Logger LOG=Logger.getLogger(ZoneMap.class);
+    private static volatile ExecutorService probePool;
+
+    private final String partitionId;
+    private final long timestamp;
+    private final Map<Integer,ColumnStatistics<DataValueDescriptor>> columns;
+
+    /**
+     * @param timestamp the time (in milliseconds) before which every row visible to the collection was written
+     * @param columns the statistics of each column, by position in the table (indexed from 1)
+     */
+    public ZoneMap(String partitionId,long timestamp,Map<Integer,ColumnStatistics<DataValueDescriptor>> columns){
+        this.partitionId=partitionId;
+        this.timestamp=timestamp;
+        this.columns=columns;
+    }
+
+    public String getPartitionId(){ return partitionId; }
+
+    public long getTimestamp(){ return timestamp; }
+
+    /**
+     * @return whether the statistics of a column bound every value the column held when they were collected
+     */
+    public static boolean isBounding(ColumnStatistics<DataValueDescriptor> stats){
+        if(stats==null || stats instanceof ColumnGroupStatistics)
+            return false;
+        ColumnStatistics current=stats;
+        while(true){
+            if(current instanceof SampledColumnStatistics)
+                return false; //the extremes of a sample are not those of the partition
+            else if(current instanceof HistogramColumnStatistics)
+                current=((HistogramColumnStatistics)current).getStatistics();
+            else
+                break;
+        }
+        if(stats.nonNullCount()<=0)
+            return true;
+        DataValueDescriptor min=stats.minValue();
+        return min!=null && HistogramColumnStatistics.supports(min.getTypeFormatId());
+    }
+
+    /**
+     * @param qualifiers the qualifiers of a scan, which every row of the first array, and at least one row of each
+     *                   of the others, must satisfy
+     * @param columnPositions for each storage position (indexed from 0), the position of the column stored there in
+     *                        the table (indexed from 1), or -1
+     * @return true if no row described by this zone map satisfies the qualifiers
+     */
+    public boolean excludes(Qualifier[][] qualifiers,int[] columnPositions) throws StandardException{
+        if(qualifiers==null)
+            return false;
+        for(int i=0;i<qualifiers.length;i++){
+            Qualifier[] group=qualifiers[i];
+            if(group==null || group.length==0)
+                continue;
+            boolean allExcluded=true;
+            for(Qualifier qualifier : group){
+                boolean excluded=excludes(qualifier,columnPositions);
+                if(i==0 && excluded)
+                    return true;
+                allExcluded&=excluded;
+            }
+            if(i>0 && allExcluded)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Find the partitions of a table which a scan need not read, because their zone maps exclude the scan's
+     * qualifiers and they have not been written to since.
+     *
+     * @param conglomId the conglomerate of the table
+     * @param qualifiers the qualifiers of the scan
+     * @return the names of the partitions to skip
+     */
+    public static Set<String> skippedPartitions(long conglomId,
+                                                Qualifier[][] qualifiers,
+                                                LanguageConnectionContext lcc) throws StandardException{
+        if(qualifiers==null || qualifiers.length==0)
+            return Collections.emptySet();
+        List<ZoneMap> zoneMaps=PartitionStatsStore.getZoneMaps(conglomId,lcc.getTransactionExecute());
+        if(zoneMaps.isEmpty())
+            return Collections.emptySet();
+        int[] columnPositions=columnPositions(lcc.getDataDictionary(),conglomId);
+        if(columnPositions==null)
+            return Collections.emptySet();
+        Map<String,ZoneMap> excluding=new HashMap<>();
+        for(ZoneMap zoneMap : zoneMaps){
+            if(zoneMap.excludes(qualifiers,columnPositions))
+                excluding.put(zoneMap.partitionId,zoneMap);
+        }
+        if(excluding.isEmpty())
+            return Collections.emptySet();
+
+        /*
+         * The probes are sent to every partition at once, so that a scan waits on the slowest of them rather than
+         * on all of them in turn
+         */
+        Map<String,Future<Boolean>> probes=new HashMap<>();
+        try(Partition table=SIDriver.driver().getTableFactory().getTable(Long.toString(conglomId))){
+            ExecutorService pool=probePool();
+            for(final Partition partition : table.subPartitions()){
+                final ZoneMap zoneMap=excluding.get(partition.getName());
+                if(zoneMap==null)
+                    continue;
+                probes.put(partition.getName(),pool.submit(new Callable<Boolean>(){
+                    @Override
+                    public Boolean call() throws IOException{
+                        return isUnchangedSince(partition,zoneMap.timestamp);
+                    }
+                }));
+            }
+            Set<String> skipped=new HashSet<>();
+            for(Map.Entry<String,Future<Boolean>> probe : probes.entrySet()){
+                if(probe.getValue().get())
+                    skipped.add(probe.getKey());
+            }
+            return skipped;
+        }catch(IOException | ExecutionException e){
+            LOG.warn("Unable to confirm which partitions of conglomerate "+conglomId+" are unchanged, scanning all of them",e);
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        for(Future<Boolean> probe : probes.values()){
+            probe.cancel(true);
+        }
+        return Collections.emptySet();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private boolean excludes(Qualifier qualifier,int[] columnPositions) throws StandardException{
+        int storagePosition=qualifier.getStoragePosition();
+        if(storagePosition<0 || storagePosition>=columnPositions.length || qualifier.getOrderedNulls())
+            return false;
+        ColumnStatistics<DataValueDescriptor> stats=columns.get(columnPositions[storagePosition]);
+        if(stats==null)
+            return false;
+        boolean negate=qualifier.negateCompareResult();
+        if(stats.nullCount()>0 && qualifier.getUnknownRV()!=negate)
+            return false; //the nulls satisfy the qualifier
+        DataValueDescriptor value=qualifier.getOrderable();
+        if(value==null || value.isNull())
+            return false;
+        if(stats.nonNullCount()<=0)
+            return true; //only nulls, none of which satisfy the qualifier
+        DataValueDescriptor min=stats.minValue();
+        DataValueDescriptor max=stats.maxValue();
+        if(min==null || min.isNull() || max==null || max.isNull())
+            return false;
+        switch(qualifier.getOperator()){
+            case Orderable.ORDER_OP_EQUALS: //column = value; column <> value excludes nothing
+                return !negate && (value.compare(min)<0 || value.compare(max)>0);
+            case Orderable.ORDER_OP_LESSTHAN: //column < value, or column >= value
+                return negate?max.compare(value)<0:min.compare(value)>=0;
+            case Orderable.ORDER_OP_LESSOREQUALS: //column <= value, or column > value
+                return negate?max.compare(value)<=0:min.compare(value)>0;
+            case Orderable.ORDER_OP_GREATERTHAN: //column > value, or column <= value
+                return negate?min.compare(value)>0:max.compare(value)<=0;
+            case Orderable.ORDER_OP_GREATEROREQUALS: //column >= value, or column < value
+                return negate?min.compare(value)>=0:max.compare(value)<0;
+            default:
+                return false;
+        }
+    }
+
+    private static int[] columnPositions(DataDictionary dd,long conglomId) throws StandardException{
+        ConglomerateDescriptor cd=dd.getConglomerateDescriptor(conglomId);
+        if(cd==null || cd.isIndex())
+            return null;
+        TableDescriptor td=dd.getTableDescriptor(cd.getTableID());
+        if(td==null)
+            return null;
+        ColumnDescriptorList columnList=td.getColumnDescriptorList();
+        int[] positions=new int[td.getMaxStorageColumnID()];
+        Arrays.fill(positions,-1);
+        for(int i=0;i<columnList.size();i++){
+            ColumnDescriptor column=columnList.elementAt(i);
+            positions[column.getStoragePosition()-1]=column.getPosition();
+        }
+        return positions;
+    }
+
+    private static ExecutorService probePool(){
+        ExecutorService pool=probePool;
+        if(pool==null){
+            synchronized(ZoneMap.class){
+                pool=probePool;
+                if(pool==null){
+                    ThreadFactory factory=new ThreadFactoryBuilder()
+                            .setNameFormat("zone-map-probe-%d")
+                            .setDaemon(true)
+                            .build();
+                    int threads=Math.max(1,ControlUtils.scanThreads());
+                    ThreadPoolExecutor tpe=new ThreadPoolExecutor(threads,threads,
+                            60,TimeUnit.SECONDS,new LinkedBlockingQueue<Runnable>(),factory);
+                    tpe.allowCoreThreadTimeOut(true);
+                    pool=probePool=tpe;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /*
+     * Ask the partition's server for one row, which it only returns if the partition was written to after the
+     * given time. Rows visible to the scan were committed before it began, and so were written before this probe
+     */
+    private static boolean isUnchangedSince(Partition partition,long timestamp) throws IOException{
+        DataScan probe=SIDriver.driver().baseOperationFactory().newScan()
+                .startKey(partition.getStartKey())
+                .stopKey(partition.getEndKey())
+                .cacheRows(1)
+                .batchCells(1);
+        probe.addAttribute(SIConstants.UNCHANGED_SINCE_ATTRIBUTE_NAME,Bytes.toBytes(timestamp));
+        try(DataScanner scanner=partition.openScanner(probe)){
+            return scanner.next(1).isEmpty();
+        }
+    }
+}
@@ -15,9 +15,12 @@
 
 package com.splicemachine.derby.impl.store.access;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 
+import com.splicemachine.derby.impl.stats.ColumnGroupStatistics;
 import com.splicemachine.derby.impl.stats.PartitionAverage;
 import org.apache.log4j.Logger;
 
@@ -169,6 +172,24 @@ public class StatsStoreCostController implements StoreCostController {
         return 0;
     }
 
+    @Override
+    public List<int[]> columnGroups(){
+        return columnGroups(conglomerateStatistics);
+    }
+
+    @Override
+    public double getSelectivity(int[] columnGroup,DataValueDescriptor[] values) throws StandardException{
+        return groupSelectivityFraction(conglomerateStatistics,columnGroup,values);
+    }
+
+    @Override
+    public long cardinality(int[] columnGroup){
+        ColumnGroupStatistics groupStats=getGroupStats(conglomerateStatistics,columnGroup);
+        if(groupStats!=null)
+            return groupStats.cardinality();
+        return 0;
+    }
+
     @Override
     public DataValueDescriptor minValue(int columnNumber) {
         ColumnStatistics<DataValueDescriptor> colStats=getColumnStats(conglomerateStatistics,columnNumber);
@@ -256,6 +277,45 @@ public class StatsStoreCostController implements StoreCostController {
         return returnValue;
     }
 
+    protected List<int[]> columnGroups(PartitionStatistics stats){
+        List<int[]> groups=new ArrayList<>();
+        for(ColumnStatistics cStats:stats.columnStatistics()){
+            if(cStats instanceof ColumnGroupStatistics)
+                groups.add(((ColumnGroupStatistics)cStats).getColumns());
+        }
+        return groups;
+    }
+
+    protected ColumnGroupStatistics getGroupStats(PartitionStatistics stats,int[] columnGroup){
+        ColumnStatistics<DataValueDescriptor> cStats=stats.columnStatistics(ColumnGroupStatistics.groupId(columnGroup));
+        if(cStats instanceof ColumnGroupStatistics && Arrays.equals(((ColumnGroupStatistics)cStats).getColumns(),columnGroup))
+            return (ColumnGroupStatistics)cStats;
+        return null;
+    }
+
+    protected double groupSelectivityFraction(TableStatistics stats,
+                                              int[] columnGroup,
+                                              DataValueDescriptor[] values) throws StandardException{
+        long rowCount = 0l;
+        long baseRowCount = 0l;
+        boolean found = false;
+        for(PartitionStatistics pStats:stats.partitionStatistics()){
+            if (pStats instanceof PartitionAverage)
+                continue;
+            ColumnGroupStatistics groupStats = getGroupStats(pStats,columnGroup);
+            if(groupStats!=null){
+                rowCount+=groupStats.count(values);
+                baseRowCount+=pStats.rowCount();
+                found = true;
+            }
+        }
+        if(!found)
+            return 1.0d;
+        if(baseRowCount == 0)
+            return 0d;
+        return Math.min(1.0d,((double)rowCount)/baseRowCount);
+    }
+
     protected static double columnSizeFactor(TableStatistics tableStats,int totalColumns,BitSet validColumns){
         //get the average columnSize factor across all regions
         double colFactorSum = 0d;
@@ -315,6 +375,8 @@ public class StatsStoreCostController implements StoreCostController {
         int avgRowWidth = pStats.avgRowWidth();
         int tcc = totalColumnCount;
         for(ColumnStatistics cStats:columnStats){
+            if(cStats instanceof ColumnGroupStatistics)
+                continue;
             int colWidth=cStats.avgColumnWidth();
             avgRowWidth-=colWidth;
             tcc--;
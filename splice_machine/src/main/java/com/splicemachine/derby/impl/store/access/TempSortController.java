@@ -23,6 +23,7 @@ import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.impl.sql.compile.OrderByColumn;
 import com.splicemachine.db.impl.sql.compile.OrderByList;
 import com.splicemachine.db.impl.sql.compile.OrderedColumn;
+import com.splicemachine.derby.impl.sql.execute.operations.SortOperation;
 
 /**
  * CostController for a TEMP-table based algorithm for computing Grouped Aggregates.
@@ -52,11 +53,30 @@ import com.splicemachine.db.impl.sql.compile.OrderedColumn;
  *
  * finalLocalCost = parallelCost + baseCost.remoteCost;
  *
+ * -----
+ * <h2>Costing a Top-N Sort</h2>
+ * When only the first {@code rowLimit} rows of the sort are read, and that limit is small enough
+ * to be kept in a heap at execution time, each row is compared against the log(rowLimit) levels
+ * of the heap rather than the log(rowCount) levels of a full sort, so the parallel cost shrinks by
+ * that ratio:
+ *
+ * parallelCost = parallelCost*log(rowLimit+1)/log(rowCount+1)
+ *
  * @author Scott Fines
  *         Date: 3/26/15
  */
 public class TempSortController implements SortCostController{
+    private final long rowLimit;
+
     public TempSortController() {
+        this(0);
+    }
+
+    /**
+     * @param rowLimit the number of rows read from the sort, or 0 if they all are
+     */
+    public TempSortController(long rowLimit) {
+        this.rowLimit=rowLimit;
     }
 
     @Override public void close(){  }
@@ -65,6 +85,9 @@ public class TempSortController implements SortCostController{
     public void estimateSortCost(CostEstimate baseCost) throws StandardException{
         if(baseCost.isUninitialized()) return; //don't do anything, we aren't real yet
         double parallelCost = (baseCost.localCost()+baseCost.remoteCost())/baseCost.partitionCount();
+        double rowCount = baseCost.rowCount();
+        if(rowLimit>0 && rowLimit<=SortOperation.maxTopN() && rowLimit<rowCount)
+            parallelCost *= Math.log(rowLimit+1)/Math.log(rowCount+1);
 //        baseCost.setBase(baseCost.cloneMe());
         baseCost.setLocalCost(baseCost.localCost()+parallelCost);
     }
@@ -18,21 +18,30 @@ package com.splicemachine.derby.lifecycle;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
+import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
+import org.sparkproject.guava.util.concurrent.ThreadFactoryBuilder;
 
 import com.splicemachine.EngineDriver;
 import com.splicemachine.SqlEnvironment;
 import com.splicemachine.access.api.DatabaseVersion;
 import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.db.iapi.jdbc.EngineConnection;
 import com.splicemachine.db.iapi.reference.Property;
 import com.splicemachine.db.impl.jdbc.EmbedConnection;
+import com.splicemachine.db.impl.sql.catalog.DataDictionaryCache;
 import com.splicemachine.derby.ddl.DDLDriver;
 import com.splicemachine.derby.ddl.DDLEnvironmentLoader;
 import com.splicemachine.derby.impl.db.SpliceDatabase;
+import com.splicemachine.derby.impl.db.StatementCacheSnapshot;
+import com.splicemachine.derby.impl.stats.StatisticsRefresher;
 import com.splicemachine.derby.impl.store.access.SpliceAccessManager;
 import com.splicemachine.lifecycle.DatabaseLifecycleService;
 import com.splicemachine.pipeline.ContextFactoryDriverService;
@@ -57,6 +66,7 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
     public static final ThreadLocal<Boolean> isCreate = new ThreadLocal<>();
 
     private static final Logger LOG=Logger.getLogger(EngineLifecycleService.class);
+    private static final long STATEMENT_CACHE_SNAPSHOT_INTERVAL_MINUTES=10;
     private final DistributedDerbyStartup startup;
     private final SConfiguration configuration;
     private final Properties dbProperties = new Properties();
@@ -66,6 +76,10 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
     private DatabaseVersion spliceVersion;
     private ManifestReader manifestReader;
     private Logging logging;
+    private DataDictionaryCache dataDictionaryCache;
+    private StatementCacheSnapshot statementCacheSnapshot;
+    private ScheduledExecutorService statementCacheSnapshotService;
+    private ScheduledExecutorService statisticsRefreshService;
 
     public EngineLifecycleService(DistributedDerbyStartup startup,SConfiguration configuration){
         this.startup=startup;
@@ -121,6 +135,9 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
         SpliceDatabase db = (SpliceDatabase)((EmbedConnection)internalConnection).getLanguageConnection().getDatabase();
         db.registerDDL();
         logging = new LogManager();
+
+        startStatementCacheSnapshots();
+        startStatisticsRefresh();
     }
 
     @Override
@@ -142,6 +159,18 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
 
     @Override
     public void shutdown() throws Exception{
+        if(statisticsRefreshService!=null)
+            statisticsRefreshService.shutdownNow();
+
+        try{
+            if(statementCacheSnapshotService!=null){
+                statementCacheSnapshotService.shutdownNow();
+                statementCacheSnapshot.save(dataDictionaryCache);
+            }
+        }catch(Exception e){
+            LOG.error("Unable to save statement cache snapshot",e);
+        }
+
         try{
             if(internalConnection!=null)
                 internalConnection.close();
@@ -158,6 +187,55 @@ public class EngineLifecycleService implements DatabaseLifecycleService{
         }
     }
 
+    /*
+     * Recompile the statements which were hot before the last shutdown in the background, and
+     * keep the snapshot up to date from then on, so it survives a crash too.
+     */
+    private void startStatementCacheSnapshots(){
+        String snapshotFile=configuration.getStatementCacheSnapshotFile();
+        if(snapshotFile==null || configuration.getStatementCacheSnapshotSize()<=0)
+            return;
+        dataDictionaryCache=((EmbedConnection)internalConnection).getLanguageConnection().getDataDictionary().getDataDictionaryCache();
+        statementCacheSnapshot=new StatementCacheSnapshot(new File(snapshotFile),configuration.getStatementCacheSnapshotSize());
+        statementCacheSnapshotService=Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("StatementCacheSnapshot").setDaemon(true).build());
+        statementCacheSnapshotService.execute(new Runnable(){
+            @Override
+            public void run(){
+                try(Connection connection=new EmbedConnectionMaker().createNew(dbProperties)){
+                    long start=System.currentTimeMillis();
+                    int compiled=statementCacheSnapshot.warm((EngineConnection)connection);
+                    LOG.info(String.format("Compiled %d saved statements in %d ms",compiled,System.currentTimeMillis()-start));
+                }catch(Exception e){
+                    LOG.warn("Unable to compile saved statements",e);
+                }
+            }
+        });
+        statementCacheSnapshotService.scheduleWithFixedDelay(new Runnable(){
+            @Override
+            public void run(){
+                try{
+                    statementCacheSnapshot.save(dataDictionaryCache);
+                }catch(IOException e){
+                    LOG.warn("Unable to save statement cache snapshot",e);
+                }
+            }
+        },STATEMENT_CACHE_SNAPSHOT_INTERVAL_MINUTES,STATEMENT_CACHE_SNAPSHOT_INTERVAL_MINUTES,TimeUnit.MINUTES);
+    }
+
+    /*
+     * Recollect the statistics of the partitions on this server once enough of their rows have changed.
+     */
+    private void startStatisticsRefresh(){
+        long interval=configuration.getStatisticsAutoRefreshInterval();
+        if(interval<=0)
+            return;
+        statisticsRefreshService=Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("StatisticsRefresher").setDaemon(true).build());
+        statisticsRefreshService.scheduleWithFixedDelay(new StatisticsRefresher(configuration.getStatisticsAutoRefreshRatio()),
+                interval,interval,TimeUnit.MILLISECONDS);
+    }
+
     private void loadManifest(){
         manifestReader = new ManifestReader();
         spliceVersion = manifestReader.createVersion();
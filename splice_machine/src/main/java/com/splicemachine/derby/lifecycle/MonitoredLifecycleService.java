@@ -16,6 +16,7 @@
 package com.splicemachine.derby.lifecycle;
 
 import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.derby.management.StatementManagementImpl;
 import com.splicemachine.derby.utils.DatabasePropertyManagementImpl;
 import com.yammer.metrics.core.MetricsRegistry;
 import com.yammer.metrics.reporting.JmxReporter;
@@ -43,6 +44,7 @@ public class MonitoredLifecycleService extends EngineLifecycleService{
         metricsReporter.start();
 
         DatabasePropertyManagementImpl.registerJMX(mbs);
+        StatementManagementImpl.registerJMX(mbs);
     }
 
 
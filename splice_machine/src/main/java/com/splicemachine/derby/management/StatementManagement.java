@@ -28,4 +28,11 @@ import java.util.Set;
 @MXBean
 public interface StatementManagement {
 		void emptyStatementCache() throws SQLException;
+
+		/**
+		 * @return the cumulative runtime statistics of the statements executed by this server
+		 */
+		List<StatementStatistics> getStatementStatistics();
+
+		void resetStatementStatistics();
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.management;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.hbase.jmx.JMXUtils;
+
+import javax.management.*;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Implementation of the JMX management of the statements executed by this server.
+ */
+public class StatementManagementImpl implements StatementManagement{
+
+    // Registered instance of the JMX MBean.
+    private static StatementManagementImpl mBean=new StatementManagementImpl();
+
+    public static StatementManagement instance(){
+        return mBean;
+    }
+
+    /**
+     * Register this implementation under JMX.
+     *
+     * @param mbs the MBeanServer to use
+     * @throws MalformedObjectNameException
+     * @throws NotCompliantMBeanException
+     * @throws InstanceAlreadyExistsException
+     * @throws MBeanRegistrationException
+     */
+    public static void registerJMX(MBeanServer mbs)
+            throws MalformedObjectNameException,
+            NotCompliantMBeanException,
+            InstanceAlreadyExistsException,
+            MBeanRegistrationException{
+        mbs.registerMBean(mBean,new ObjectName(JMXUtils.STATEMENT_MANAGEMENT_BASE));
+    }
+
+    @Override
+    public void emptyStatementCache() throws SQLException{
+        Connection dbConn=EngineDriver.driver().getInternalConnection();
+        try(CallableStatement stmt=dbConn.prepareCall("CALL SYSCS_UTIL.SYSCS_EMPTY_STATEMENT_CACHE()")){
+            stmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public List<StatementStatistics> getStatementStatistics(){
+        return StatementStatisticsRegistry.registry().getStatistics();
+    }
+
+    @Override
+    public void resetStatementStatistics(){
+        StatementStatisticsRegistry.registry().reset();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.management;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A snapshot of the cumulative runtime statistics of one statement, as kept by a
+ * {@link StatementStatisticsRegistry}. All times are in microseconds, except compile time.
+ */
+public class StatementStatistics{
+    private final String statement;
+    private final long calls;
+    private final long totalTime;
+    private final long minTime;
+    private final long maxTime;
+    private final long p50Time;
+    private final long p95Time;
+    private final long p99Time;
+    private final long rowsReturned;
+    private final long rowsScanned;
+    private final long compilations;
+    private final long compileTimeMillis;
+    private final long controlExecutions;
+    private final long sparkExecutions;
+
+    @ConstructorProperties({"statement","calls","totalTime","minTime","maxTime","p50Time","p95Time","p99Time",
+            "rowsReturned","rowsScanned","compilations","compileTimeMillis","controlExecutions","sparkExecutions"})
+    public StatementStatistics(String statement,
+                               long calls,
+                               long totalTime,
+                               long minTime,
+                               long maxTime,
+                               long p50Time,
+                               long p95Time,
+                               long p99Time,
+                               long rowsReturned,
+                               long rowsScanned,
+                               long compilations,
+                               long compileTimeMillis,
+                               long controlExecutions,
+                               long sparkExecutions){
+        this.statement=statement;
+        this.calls=calls;
+        this.totalTime=totalTime;
+        this.minTime=minTime;
+        this.maxTime=maxTime;
+        this.p50Time=p50Time;
+        this.p95Time=p95Time;
+        this.p99Time=p99Time;
+        this.rowsReturned=rowsReturned;
+        this.rowsScanned=rowsScanned;
+        this.compilations=compilations;
+        this.compileTimeMillis=compileTimeMillis;
+        this.controlExecutions=controlExecutions;
+        this.sparkExecutions=sparkExecutions;
+    }
+
+    /**
+     * @return the text of the statement, with its literals replaced by {@code ?}
+     */
+    public String getStatement(){ return statement; }
+
+    public long getCalls(){ return calls; }
+
+    public long getTotalTime(){ return totalTime; }
+
+    public long getMinTime(){ return minTime; }
+
+    public long getMaxTime(){ return maxTime; }
+
+    /*
+     * Percentiles are read from a log-scale histogram, and so are accurate to within 25%
+     */
+    public long getP50Time(){ return p50Time; }
+
+    public long getP95Time(){ return p95Time; }
+
+    public long getP99Time(){ return p99Time; }
+
+    /**
+     * @return the rows returned by the statement, or for DML the rows it modified
+     */
+    public long getRowsReturned(){ return rowsReturned; }
+
+    /**
+     * @return the rows read by the statement's table scans. Only counted for control-side executions
+     */
+    public long getRowsScanned(){ return rowsScanned; }
+
+    public long getCompilations(){ return compilations; }
+
+    public long getCompileTimeMillis(){ return compileTimeMillis; }
+
+    public long getControlExecutions(){ return controlExecutions; }
+
+    public long getSparkExecutions(){ return sparkExecutions; }
+}
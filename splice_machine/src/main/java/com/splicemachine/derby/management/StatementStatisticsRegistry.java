@@ -0,0 +1,318 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.management;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.db.iapi.sql.PreparedStatement;
+import org.sparkproject.guava.cache.CacheBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cumulative runtime statistics of the statements executed by this server.
+ *
+ * Executions are grouped by the text of their statement, with its literals replaced by {@code ?} (see
+ * {@link #normalize}), so that statements which differ only in their constants are counted together. Recording
+ * an execution takes no locks: each statement's counters are atomics, and latencies are counted in a log-scale
+ * histogram from which percentiles are read.
+ *
+ * The registry holds at most a configured number of statements. When a new statement arrives and the registry is
+ * full, the statement with the smallest total time is dropped, so that the most expensive statements are kept.
+ */
+public class StatementStatisticsRegistry{
+    /*
+     * Each power of two of latency is split into this many buckets, so a percentile is off by at most 25%
+     */
+    private static final int SUB_BUCKET_BITS=2;
+    private static final int SUB_BUCKETS=1<<SUB_BUCKET_BITS;
+    private static final int BUCKETS=(64-SUB_BUCKET_BITS)*SUB_BUCKETS;
+
+    /*
+     * The version of each prepared statement whose compilation has been counted. Weakly keyed, so statements
+     * leave it when they leave the statement cache
+     */
+    private static final ConcurrentMap<PreparedStatement,Long> COUNTED_COMPILATIONS=CacheBuilder.newBuilder()
+            .weakKeys()
+            .<PreparedStatement,Long>build()
+            .asMap();
+
+    private final int maxStatements;
+    private final ConcurrentMap<String,Entry> statements=new ConcurrentHashMap<>();
+
+    public StatementStatisticsRegistry(int maxStatements){
+        this.maxStatements=maxStatements;
+    }
+
+    public static StatementStatisticsRegistry registry(){
+        return Holder.REGISTRY;
+    }
+
+    /**
+     * Record one execution of a statement.
+     *
+     * @param statement the text of the statement
+     * @param elapsedMicros the time from opening the statement's results to closing them
+     * @param rowsReturned the rows returned, or for DML the rows modified
+     * @param rowsScanned the rows read by the statement's table scans
+     * @param compileTimeMillis the time spent compiling the statement before this execution, or -1 if this
+     *                          execution reused an earlier compilation
+     * @param spark whether the statement was executed on Spark
+     */
+    public void record(String statement,
+                       long elapsedMicros,
+                       long rowsReturned,
+                       long rowsScanned,
+                       long compileTimeMillis,
+                       boolean spark){
+        if(maxStatements<=0 || statement==null)
+            return;
+        String key=normalize(statement);
+        Entry entry=statements.get(key);
+        if(entry==null){
+            if(statements.size()>=maxStatements)
+                evictCheapest();
+            Entry newEntry=new Entry();
+            entry=statements.putIfAbsent(key,newEntry);
+            if(entry==null)
+                entry=newEntry;
+        }
+        entry.record(elapsedMicros,rowsReturned,rowsScanned,compileTimeMillis,spark);
+    }
+
+    /**
+     * @return the time spent compiling {@code statement} if its current compilation has not been counted yet,
+     * or -1 if it has
+     */
+    public static long uncountedCompileTime(PreparedStatement statement){
+        if(statement==null)
+            return -1l;
+        Long version=statement.getVersionCounter();
+        Long counted=COUNTED_COMPILATIONS.get(statement);
+        if(counted==null){
+            if(COUNTED_COMPILATIONS.putIfAbsent(statement,version)!=null)
+                return -1l;
+        }else if(counted.equals(version) || !COUNTED_COMPILATIONS.replace(statement,counted,version)){
+            return -1l;
+        }
+        return statement.getCompileTimeInMillis();
+    }
+
+    public List<StatementStatistics> getStatistics(){
+        List<StatementStatistics> stats=new ArrayList<>(statements.size());
+        for(Map.Entry<String,Entry> entry : statements.entrySet()){
+            stats.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        return stats;
+    }
+
+    public void reset(){
+        statements.clear();
+    }
+
+    /**
+     * Replace the literals of a statement with {@code ?}, and each run of whitespace outside of them with a
+     * single space. Quoted identifiers are kept as they are.
+     */
+    public static String normalize(String statement){
+        StringBuilder sb=new StringBuilder(statement.length());
+        int length=statement.length();
+        int i=0;
+        while(i<length){
+            char c=statement.charAt(i);
+            if(Character.isWhitespace(c)){
+                while(i<length && Character.isWhitespace(statement.charAt(i))) i++;
+                if(sb.length()>0 && i<length)
+                    sb.append(' ');
+            }else if(c=='\'' || c=='"'){
+                int end=endOfQuoted(statement,i,c);
+                if(c=='\'')
+                    sb.append('?');
+                else
+                    sb.append(statement,i,end);
+                i=end;
+            }else if(isNumberStart(statement,i) && !continuesIdentifier(sb)){
+                i=endOfNumber(statement,i);
+                sb.append('?');
+            }else{
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private void evictCheapest(){
+        String cheapest=null;
+        long cheapestTime=Long.MAX_VALUE;
+        for(Map.Entry<String,Entry> entry : statements.entrySet()){
+            long time=entry.getValue().totalTime.get();
+            if(time<cheapestTime){
+                cheapest=entry.getKey();
+                cheapestTime=time;
+            }
+        }
+        if(cheapest!=null)
+            statements.remove(cheapest);
+    }
+
+    private static int endOfQuoted(String statement,int start,char quote){
+        int i=start+1;
+        while(i<statement.length()){
+            if(statement.charAt(i)==quote){
+                if(i+1<statement.length() && statement.charAt(i+1)==quote)
+                    i+=2; //an escaped quote
+                else
+                    return i+1;
+            }else
+                i++;
+        }
+        return i;
+    }
+
+    private static boolean isNumberStart(String statement,int i){
+        char c=statement.charAt(i);
+        if(Character.isDigit(c))
+            return true;
+        return c=='.' && i+1<statement.length() && Character.isDigit(statement.charAt(i+1));
+    }
+
+    private static boolean continuesIdentifier(StringBuilder sb){
+        if(sb.length()==0)
+            return false;
+        char last=sb.charAt(sb.length()-1);
+        return Character.isLetterOrDigit(last) || last=='_' || last=='$' || last=='#' || last=='@';
+    }
+
+    private static int endOfNumber(String statement,int start){
+        int length=statement.length();
+        int i=start;
+        while(i<length && (Character.isDigit(statement.charAt(i)) || statement.charAt(i)=='.')) i++;
+        if(i<length && (statement.charAt(i)=='e' || statement.charAt(i)=='E')){
+            int exponent=i+1;
+            if(exponent<length && (statement.charAt(exponent)=='+' || statement.charAt(exponent)=='-'))
+                exponent++;
+            if(exponent<length && Character.isDigit(statement.charAt(exponent))){
+                i=exponent;
+                while(i<length && Character.isDigit(statement.charAt(i))) i++;
+            }
+        }
+        return i;
+    }
+
+    static int bucket(long value){
+        if(value<SUB_BUCKETS)
+            return (int)Math.max(0l,value);
+        int highBit=63-Long.numberOfLeadingZeros(value);
+        int subBucket=(int)(value>>>(highBit-SUB_BUCKET_BITS))&(SUB_BUCKETS-1);
+        return (highBit-SUB_BUCKET_BITS+1)*SUB_BUCKETS+subBucket;
+    }
+
+    /*
+     * The largest value counted in a bucket
+     */
+    static long bucketUpperBound(int bucket){
+        if(bucket<SUB_BUCKETS)
+            return bucket;
+        int shift=bucket/SUB_BUCKETS-1;
+        long lower=((long)(SUB_BUCKETS+bucket%SUB_BUCKETS))<<shift;
+        return lower+(1l<<shift)-1;
+    }
+
+    private static class Entry{
+        private final AtomicLong calls=new AtomicLong();
+        private final AtomicLong totalTime=new AtomicLong();
+        private final AtomicLong minTime=new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong maxTime=new AtomicLong();
+        private final AtomicLong rowsReturned=new AtomicLong();
+        private final AtomicLong rowsScanned=new AtomicLong();
+        private final AtomicLong compilations=new AtomicLong();
+        private final AtomicLong compileTime=new AtomicLong();
+        private final AtomicLong sparkExecutions=new AtomicLong();
+        private final AtomicLongArray latencies=new AtomicLongArray(BUCKETS);
+
+        void record(long elapsedMicros,long rows,long scanned,long compileTimeMillis,boolean spark){
+            calls.incrementAndGet();
+            totalTime.addAndGet(elapsedMicros);
+            long min;
+            while(elapsedMicros<(min=minTime.get()) && !minTime.compareAndSet(min,elapsedMicros));
+            long max;
+            while(elapsedMicros>(max=maxTime.get()) && !maxTime.compareAndSet(max,elapsedMicros));
+            latencies.incrementAndGet(bucket(elapsedMicros));
+            rowsReturned.addAndGet(rows);
+            rowsScanned.addAndGet(scanned);
+            if(compileTimeMillis>=0){
+                compilations.incrementAndGet();
+                compileTime.addAndGet(compileTimeMillis);
+            }
+            if(spark)
+                sparkExecutions.incrementAndGet();
+        }
+
+        StatementStatistics snapshot(String statement){
+            long[] counts=new long[BUCKETS];
+            long count=0l;
+            for(int i=0;i<BUCKETS;i++){
+                counts[i]=latencies.get(i);
+                count+=counts[i];
+            }
+            long n=calls.get();
+            long spark=sparkExecutions.get();
+            long min=minTime.get();
+            long max=maxTime.get();
+            return new StatementStatistics(statement,
+                    n,
+                    totalTime.get(),
+                    min==Long.MAX_VALUE?0l:min,
+                    max,
+                    percentile(counts,count,0.50d,max),
+                    percentile(counts,count,0.95d,max),
+                    percentile(counts,count,0.99d,max),
+                    rowsReturned.get(),
+                    rowsScanned.get(),
+                    compilations.get(),
+                    compileTime.get(),
+                    Math.max(0l,n-spark),
+                    spark);
+        }
+
+        private static long percentile(long[] counts,long count,double fraction,long max){
+            if(count<=0)
+                return 0l;
+            long rank=(long)Math.ceil(fraction*count);
+            long seen=0l;
+            for(int i=0;i<counts.length;i++){
+                seen+=counts[i];
+                if(seen>=rank)
+                    return Math.min(bucketUpperBound(i),max);
+            }
+            return max;
+        }
+    }
+
+    private static class Holder{
+        private static final StatementStatisticsRegistry REGISTRY=new StatementStatisticsRegistry(
+                EngineDriver.driver().getConfiguration().getStatementStatisticsMaxStatements());
+    }
+}
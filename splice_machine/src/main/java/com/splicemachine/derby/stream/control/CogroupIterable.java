@@ -0,0 +1,92 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Control-side cogroup which spills to disk when the two sides do not fit in memory together.
+ *
+ * Every key has to be grouped from all of its rows on both sides, so both sides are loaded into
+ * {@link ControlHashTable}s, the right side first. If their combined size exceeds the memory budget,
+ * both sides are hash-partitioned out to {@link ControlSpillFile}s and each pair of partitions is
+ * grouped independently, recursing (on a different set of hash bits) for partitions which still
+ * don't fit.
+ *
+ * Each key is returned once, with its left rows and its right rows (either of which may be empty);
+ * keys with left rows come first.
+ *
+ * @param <K> the key
+ * @param <V> the left side values
+ * @param <W> the right side values
+ */
+public class CogroupIterable<K,V,W> extends HashPartitionedIterable<K,V,W,Tuple2<K,Tuple2<Iterable<V>,Iterable<W>>>>{
+
+    public CogroupIterable(Iterable<Tuple2<K,V>> left,Iterable<Tuple2<K,W>> right){
+        this(left,right,ControlUtils.joinMemoryBudget(),ControlUtils.spillDirectory());
+    }
+
+    public CogroupIterable(Iterable<Tuple2<K,V>> left,
+                           Iterable<Tuple2<K,W>> right,
+                           long memoryBudget,
+                           File spillDirectory){
+        super(left,right,memoryBudget,spillDirectory);
+    }
+
+    @Override
+    protected Iterator<Tuple2<K,Tuple2<Iterable<V>,Iterable<W>>>> process(Iterator<Tuple2<K,V>> leftRows,
+                                                                        Iterator<Tuple2<K,W>> rightRows,
+                                                                        int depth) throws IOException{
+        ControlHashTable<K,List<W>> right=new ControlHashTable<>();
+        long size=0L;
+        while(rightRows.hasNext()){
+            size+=addRow(right,rightRows.next());
+            if(size>memoryBudget && canPartition(depth))
+                return partition(null,leftRows,right,rightRows,depth);
+        }
+        ControlHashTable<K,List<V>> left=new ControlHashTable<>();
+        while(leftRows.hasNext()){
+            size+=addRow(left,leftRows.next());
+            if(size>memoryBudget && canPartition(depth))
+                return partition(left,leftRows,right,rightRows,depth);
+        }
+        return group(left,right);
+    }
+
+    private Iterator<Tuple2<K,Tuple2<Iterable<V>,Iterable<W>>>> group(ControlHashTable<K,List<V>> left,ControlHashTable<K,List<W>> right){
+        List<Tuple2<K,Tuple2<Iterable<V>,Iterable<W>>>> result=new ArrayList<>(left.size()+right.size());
+        Iterator<Tuple2<K,List<V>>> leftEntries=left.entries();
+        while(leftEntries.hasNext()){
+            Tuple2<K,List<V>> e=leftEntries.next();
+            List<W> ws=right.get(e._1());
+            result.add(new Tuple2<>(e._1(),new Tuple2<Iterable<V>,Iterable<W>>(e._2(),ws==null?Collections.<W>emptyList():ws)));
+        }
+        Iterator<Tuple2<K,List<W>>> rightEntries=right.entries();
+        while(rightEntries.hasNext()){
+            Tuple2<K,List<W>> e=rightEntries.next();
+            if(!left.containsKey(e._1()))
+                result.add(new Tuple2<>(e._1(),new Tuple2<Iterable<V>,Iterable<W>>(Collections.<V>emptyList(),e._2())));
+        }
+        return result.iterator();
+    }
+}
@@ -26,6 +26,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Scanner;
 import java.util.zip.GZIPInputStream;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -45,6 +46,7 @@ import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.iapi.PairDataSet;
 import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
+import com.splicemachine.derby.stream.iterator.ParallelTableScannerIterator;
 import com.splicemachine.derby.stream.iterator.TableScannerIterator;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.si.api.data.TxnOperationFactory;
@@ -66,6 +68,7 @@ public class ControlDataSetProcessor implements DataSetProcessor{
     private boolean permissive;
     private String statusDirectory;
     private String importFileName;
+    private ControlRowBudget rowBudget;
 
     private static final Logger LOG=Logger.getLogger(ControlDataSetProcessor.class);
 
@@ -86,6 +89,17 @@ public class ControlDataSetProcessor implements DataSetProcessor{
         return Type.LOCAL;
     }
 
+    /**
+     * Count the rows read by the table scans of this processor against {@code rowBudget}.
+     */
+    public void setRowBudget(ControlRowBudget rowBudget){
+        this.rowBudget=rowBudget;
+    }
+
+    public ControlRowBudget getRowBudget(){
+        return rowBudget;
+    }
+
     public static final Partitioner NOOP_PARTITIONER = new Partitioner() {
         @Override
         public void initialize() {
@@ -109,19 +123,39 @@ public class ControlDataSetProcessor implements DataSetProcessor{
         return new TableScannerBuilder<V>(){
             @Override
             public DataSet<V> buildDataSet() throws StandardException{
+                sampleFraction=1d; //sampling is only done by the Spark record reader; read every row
                 Partition p;
                 try{
                     p =SIDriver.driver().getTableFactory().getTable(tableName);
                     TxnRegion localRegion=new TxnRegion(p,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
                             txnSupplier,transactory,txnOperationFactory);
 
+                    int parallelism=ControlUtils.scanParallelism();
+                    if((parallelism>1 || !skippedPartitions.isEmpty()) && fieldLengths==null && !getScan().isDescendingScan()){
+                        List<Partition> partitions=p.subPartitions(getScan().getStartKey(),getScan().getStopKey());
+                        List<Partition> readPartitions=readPartitions(partitions);
+                        if(readPartitions.size()==1){
+                            //nothing to read in parallel, so scan the one partition left like any other single partition
+                            ParallelTableScannerIterator.narrowTo(getScan(),readPartitions.get(0));
+                        }else if(partitions.size()>1 || readPartitions.size()<partitions.size()){
+                            this.region(localRegion);
+                            ParallelTableScannerIterator parallelIterator=new ParallelTableScannerIterator(this,p,
+                                    readPartitions,metricFactory,spliceOperation,Math.max(1,parallelism));
+                            if(spliceOperation!=null){
+                                spliceOperation.registerCloseable(parallelIterator);
+                                spliceOperation.registerCloseable(p);
+                            }
+                            return new ControlDataSet(countRows(parallelIterator));
+                        }
+                    }
+
                     this.region(localRegion).scanner(p.openScanner(getScan(),metricFactory)); //set the scanner
                     TableScannerIterator tableScannerIterator=new TableScannerIterator(this,spliceOperation);
                     if(spliceOperation!=null){
                         spliceOperation.registerCloseable(tableScannerIterator);
                         spliceOperation.registerCloseable(p);
                     }
-                    return new ControlDataSet(tableScannerIterator);
+                    return new ControlDataSet(countRows(tableScannerIterator));
                 }catch(IOException e){
                     throw Exceptions.parseException(e);
                 }
@@ -274,6 +308,11 @@ public class ControlDataSetProcessor implements DataSetProcessor{
         // do nothing
     }
 
+    @Override
+    public List<Integer> getStageIds(String jobName) {
+        return Collections.emptyList();
+    }
+
     @Override
     public Partitioner getPartitioner(DataSet<LocatedRow> dataSet, ExecRow template, int[] keyDecodingMap, boolean[] keyOrder, int[] rightHashKeys) {
         return NOOP_PARTITIONER;
@@ -281,6 +320,10 @@ public class ControlDataSetProcessor implements DataSetProcessor{
 
     /* ****************************************************************************************************************/
     /*private helper methods*/
+    private <V> Iterable<V> countRows(Iterable<V> rows){
+        return rowBudget==null?rows:rowBudget.count(rows);
+    }
+
     private InputStream newInputStream(DistributedFileSystem dfs,@Nonnull Path p,OpenOption... options) throws IOException{
         InputStream value = dfs.newInputStream(p,options);
         String s=p.getFileName().toString();
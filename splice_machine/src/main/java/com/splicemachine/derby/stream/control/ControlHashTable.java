@@ -0,0 +1,197 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import scala.Tuple2;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Open-addressing (linear probing) hash table used by the control-side hash operators.
+ *
+ * Unlike a {@link java.util.HashMap}, this allocates no per-entry objects: keys, values and
+ * the (mixed) key hashes live in parallel arrays. The cached hashes let us skip most
+ * {@code equals()} calls on probe, and avoid recomputing row hashes when the table grows.
+ *
+ * Null keys are not supported. This class is not thread safe.
+ */
+public class ControlHashTable<K,V>{
+    private static final float LOAD_FACTOR=0.75f;
+
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int size;
+    private int resizeThreshold;
+
+    public ControlHashTable(){
+        this(16);
+    }
+
+    public ControlHashTable(int expectedSize){
+        int capacity=Integer.highestOneBit(Math.max(16,(int)(expectedSize/LOAD_FACTOR))-1)<<1;
+        allocate(capacity);
+    }
+
+    /**
+     * Spread the bits of a hashCode, so that rows whose hashes differ only in the high bits
+     * still land in different slots.
+     */
+    public static int mix(int h){
+        h^=h>>>16;
+        h*=0x85ebca6b;
+        h^=h>>>13;
+        h*=0xc2b2ae35;
+        h^=h>>>16;
+        return h;
+    }
+
+    /**
+     * @return the slot holding {@code key}, or a negative value ({@code -(insertionSlot+1)}) if
+     * the key is not present
+     */
+    public int find(K key,int hash){
+        int mask=keys.length-1;
+        int slot=hash&mask;
+        while(keys[slot]!=null){
+            if(hashes[slot]==hash && keys[slot].equals(key))
+                return slot;
+            slot=(slot+1)&mask;
+        }
+        return -(slot+1);
+    }
+
+    public V get(K key){
+        int slot=find(key,mix(key.hashCode()));
+        return slot<0?null:valueAt(slot);
+    }
+
+    public boolean containsKey(K key){
+        return find(key,mix(key.hashCode()))>=0;
+    }
+
+    public void put(K key,V value){
+        int hash=mix(key.hashCode());
+        int slot=find(key,hash);
+        if(slot>=0)
+            values[slot]=value;
+        else
+            insert(-(slot+1),key,hash,value);
+    }
+
+    /**
+     * Insert a new entry at a slot previously returned (negated) by {@link #find(Object, int)}.
+     * No other modification may have happened since that call.
+     */
+    public void insert(int slot,K key,int hash,V value){
+        keys[slot]=key;
+        values[slot]=value;
+        hashes[slot]=hash;
+        size++;
+        if(size>resizeThreshold)
+            resize();
+    }
+
+    @SuppressWarnings("unchecked")
+    public V valueAt(int slot){
+        return (V)values[slot];
+    }
+
+    public void setValueAt(int slot,V value){
+        values[slot]=value;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public boolean isEmpty(){
+        return size==0;
+    }
+
+    public void clear(){
+        if(keys.length>16){
+            allocate(16);
+        }else{
+            Arrays.fill(keys,null);
+            Arrays.fill(values,null);
+        }
+        size=0;
+    }
+
+    /**
+     * @return the entries of the table, in no particular order
+     */
+    public Iterator<Tuple2<K,V>> entries(){
+        final Object[] k=keys;
+        final Object[] v=values;
+        return new Iterator<Tuple2<K,V>>(){
+            private int position=advance(0);
+
+            private int advance(int from){
+                while(from<k.length && k[from]==null)
+                    from++;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext(){
+                return position<k.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Tuple2<K,V> next(){
+                if(!hasNext()) throw new NoSuchElementException();
+                Tuple2<K,V> t=new Tuple2<>((K)k[position],(V)v[position]);
+                position=advance(position+1);
+                return t;
+            }
+
+            @Override
+            public void remove(){
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /*private helper methods*/
+    private void allocate(int capacity){
+        keys=new Object[capacity];
+        values=new Object[capacity];
+        hashes=new int[capacity];
+        resizeThreshold=(int)(capacity*LOAD_FACTOR);
+    }
+
+    private void resize(){
+        Object[] oldKeys=keys;
+        Object[] oldValues=values;
+        int[] oldHashes=hashes;
+        allocate(oldKeys.length<<1);
+        int mask=keys.length-1;
+        for(int i=0;i<oldKeys.length;i++){
+            if(oldKeys[i]==null) continue;
+            int slot=oldHashes[i]&mask;
+            while(keys[slot]!=null)
+                slot=(slot+1)&mask;
+            keys[slot]=oldKeys[i];
+            values[slot]=oldValues[i];
+            hashes[slot]=oldHashes[i];
+        }
+    }
+}
@@ -49,6 +49,7 @@ public class ControlOperationContext<Op extends SpliceOperation> implements Oper
         long rowsJoinedLeft;
         long rowsJoinedRight;
         long rowsProduced;
+        long bytesRead;
         List<String> badRecords;
         public ActivationHolder activationHolder;
         public SpliceTransactionResourceImpl impl;
@@ -234,6 +235,11 @@ public class ControlOperationContext<Op extends SpliceOperation> implements Oper
         rowsProduced++;
     }
 
+    @Override
+    public void recordBytesRead(long bytes) {
+        bytesRead+=bytes;
+    }
+
     @Override
     public long getRecordsRead() {
         return rowsRead;
@@ -249,6 +255,26 @@ public class ControlOperationContext<Op extends SpliceOperation> implements Oper
         return rowsWritten;
     }
 
+    @Override
+    public long getRecordsJoinedLeft() {
+        return rowsJoinedLeft;
+    }
+
+    @Override
+    public long getRecordsJoinedRight() {
+        return rowsJoinedRight;
+    }
+
+    @Override
+    public long getRecordsProduced() {
+        return rowsProduced;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
     @Override
     public long getRetryAttempts() {
         return rowsRetried;
@@ -39,13 +39,10 @@ import com.splicemachine.derby.stream.output.update.UpdatePipelineWriter;
 import com.splicemachine.derby.stream.output.update.UpdateTableWriterBuilder;
 import com.splicemachine.kvpair.KVPair;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import org.sparkproject.guava.base.Predicate;
 import org.sparkproject.guava.collect.*;
 import scala.Tuple2;
 import javax.annotation.Nullable;
 import java.util.*;
-import static com.splicemachine.derby.stream.control.ControlUtils.entryToTuple;
-import static com.splicemachine.derby.stream.control.ControlUtils.multimapFromIterable;
 
 /**
  *
@@ -103,21 +100,11 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public <Op extends SpliceOperation> PairDataSet<K, V> reduceByKey(final SpliceFunction2<Op,V, V, V> function2) {
-        Multimap<K,V> newMap = multimapFromIterable(source);
-        return new ControlPairDataSet<>(entryToTuple(Multimaps.forMap(Maps.transformValues(newMap.asMap(), new Function<Collection<V>, V>() {
-            @Override
-            public V apply(@Nullable Collection<V> vs) {
-                try {
-                    V returnValue = null;
-                    for (V v : vs) {
-                        returnValue = function2.call(returnValue, v);
-                    }
-                    return returnValue;
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }
-        })).entries()));
+        /*
+         * Merge each row into its group's accumulator as it arrives, rather than collecting every row
+         * of the group first; groups spill to disk once they exceed the aggregation memory budget.
+         */
+        return new ControlPairDataSet<>(new HashAggregateIterable<>(source,function2));
     }
 
     @Override
@@ -133,17 +120,11 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     @Override
     public PairDataSet<K, V> sortByKey(final Comparator<K> comparator) {
         /*
-         * -sf- this is done a bit goofily, so that we can support multiple versions of guava.
-         *
-         * This is essentially copying out FluentIterable.from(source).toSortedList(comparator) logic
-         * directly into the method, so that we can support the same code line from 12.0.1 on.
+         * The sort is deferred until the result is iterated, and spills sorted runs to local disk
+         * once the buffered rows exceed the configured memory budget, so that large control-side
+         * sorts don't have to fit on heap.
          */
-        return new ControlPairDataSet<>(Ordering.from(new Comparator<Tuple2<K, V>>() {
-            @Override
-            public int compare(Tuple2<K, V> o1, Tuple2<K, V> o2) {
-                return comparator.compare(o1._1(), o2._1());
-            }
-        }).immutableSortedCopy(source));
+        return new ControlPairDataSet<>(new ExternalSortIterable<>(source,comparator));
     }
 
     @Override
@@ -160,15 +141,8 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public PairDataSet<K, Iterable<V>> groupByKey() {
-        Multimap<K,V> newMap = multimapFromIterable(source);
-        return new ControlPairDataSet<>(FluentIterable.from(newMap.asMap().entrySet()).transform(new Function<Map.Entry<K, Collection<V>>, Tuple2<K, Iterable<V>>>() {
-            @Nullable
-            @Override
-            public Tuple2<K, Iterable<V>> apply(@Nullable Map.Entry<K, Collection<V>> e) {
-                assert e!=null: "E cannot be null";
-                return new Tuple2<K, Iterable<V>>(e.getKey(), e.getValue());
-            }
-        }));
+        // Groups rows as they are iterated, spilling partitions to disk if the groups don't fit in memory
+        return new ControlPairDataSet<>(new GroupByKeyIterable<>(source));
     }
 
     @Override
@@ -178,71 +152,53 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public <W> PairDataSet< K, Tuple2<V, Optional<W>>> hashLeftOuterJoin(final PairDataSet< K, W> rightDataSet) {
-        // Materializes the right side
-        final Multimap<K,W> rightSide = multimapFromIterable(((ControlPairDataSet) rightDataSet).source);
-
-        return new ControlPairDataSet<>(Iterables.concat(FluentIterable.from(source).transform(new Function<Tuple2<K, V>, Iterable<Tuple2<K, Tuple2<V, Optional<W>>>>>() {
-            @Nullable
+        // Builds the right side, spilling to disk if it doesn't fit in memory
+        return new ControlPairDataSet<>(new HashJoinIterable<K,V,W,Tuple2<K,Tuple2<V,Optional<W>>>>(source,((ControlPairDataSet<K,W>) rightDataSet).source){
             @Override
-            public Iterable<Tuple2<K, Tuple2<V, Optional<W>>>> apply(@Nullable Tuple2<K, V> t) {
-                assert t!=null: "T cannot be null";
-                List<Tuple2<K,Tuple2<V,Optional<W>>>> result = new ArrayList<>();
-                K key = t._1();
-                V value = t._2();
-                if (rightSide.containsKey(key)) {
-                    for (W rightValue : rightSide.get(key)) {
-                        result.add(new Tuple2<>(key,new Tuple2<>(value,Optional.of(rightValue))));
-                    }
-                } else
-                    result.add(new Tuple2<>(key,new Tuple2<>(value,Optional.<W>absent())));
-                return result;
+            protected Iterator<Tuple2<K,Tuple2<V,Optional<W>>>> probe(K key,V value,List<W> matches){
+                if(matches==null)
+                    return Iterators.singletonIterator(new Tuple2<>(key,new Tuple2<>(value,Optional.<W>absent())));
+                List<Tuple2<K,Tuple2<V,Optional<W>>>> result = new ArrayList<>(matches.size());
+                for (W rightValue : matches) {
+                    result.add(new Tuple2<>(key,new Tuple2<>(value,Optional.of(rightValue))));
+                }
+                return result.iterator();
             }
-        })));
+        });
     }
 
     @Override
     public <W> PairDataSet< K, Tuple2<Optional<V>, W>> hashRightOuterJoin(PairDataSet< K, W> rightDataSet) {
-        // Materializes the left side
-        final Multimap<K, V> leftSide = multimapFromIterable(source);
-
-
-        return new ControlPairDataSet<>(Iterables.concat(FluentIterable.from(((ControlPairDataSet<K,W>) rightDataSet).source).transform(new Function<Tuple2<K, W>, Iterable<Tuple2<K, Tuple2<Optional<V>, W>>>>() {
-            @Nullable
+        // Builds the left side, spilling to disk if it doesn't fit in memory
+        return new ControlPairDataSet<>(new HashJoinIterable<K,W,V,Tuple2<K,Tuple2<Optional<V>,W>>>(((ControlPairDataSet<K,W>) rightDataSet).source,source){
             @Override
-            public Iterable<Tuple2<K, Tuple2<Optional<V>, W>>> apply(@Nullable Tuple2<K, W> t) {
-                assert t!=null: "t cannot be null!";
-                List<Tuple2<K,Tuple2<Optional<V>,W>>> result = new ArrayList<>();
-                K key = t._1();
-                W value = t._2();
-                if (leftSide.containsKey(key)) {
-                    for (V leftValue: leftSide.get(key)) {
-                        result.add(new Tuple2<>(key,new Tuple2<>(Optional.of(leftValue),value)));
-                    }
-                } else
-                    result.add(new Tuple2<>(key,new Tuple2<>(Optional.<V>absent(),value)));
-                return result;
+            protected Iterator<Tuple2<K,Tuple2<Optional<V>,W>>> probe(K key,W value,List<V> matches){
+                if(matches==null)
+                    return Iterators.singletonIterator(new Tuple2<>(key,new Tuple2<>(Optional.<V>absent(),value)));
+                List<Tuple2<K,Tuple2<Optional<V>,W>>> result = new ArrayList<>(matches.size());
+                for (V leftValue: matches) {
+                    result.add(new Tuple2<>(key,new Tuple2<>(Optional.of(leftValue),value)));
+                }
+                return result.iterator();
             }
-        })));
+        });
     }
 
     @Override
     public <W> PairDataSet< K, Tuple2<V, W>> hashJoin(PairDataSet< K, W> rightDataSet) {
-        // Materializes the right side
-        final Multimap<K,W> rightSide = multimapFromIterable(((ControlPairDataSet<K,W>) rightDataSet).source);
-        return new ControlPairDataSet<>(Iterables.concat(FluentIterable.from(source).transform(new Function<Tuple2<K, V>, Iterable<Tuple2<K, Tuple2<V, W>>>>() {
-            @Nullable
+        // Builds the right side, spilling to disk if it doesn't fit in memory
+        return new ControlPairDataSet<>(new HashJoinIterable<K,V,W,Tuple2<K,Tuple2<V,W>>>(source,((ControlPairDataSet<K,W>) rightDataSet).source){
             @Override
-            public Iterable<Tuple2<K, Tuple2<V, W>>> apply(@Nullable Tuple2<K, V> t) {
-                assert t!=null: "Tuple cannot be null";
-                List<Tuple2<K,Tuple2<V,W>>> result = new ArrayList<>();
-                K key = t._1();
-                V value = t._2();
-                for (W rightValue : rightSide.get(key)) {
+            protected Iterator<Tuple2<K,Tuple2<V,W>>> probe(K key,V value,List<W> matches){
+                if(matches==null)
+                    return Iterators.emptyIterator();
+                List<Tuple2<K,Tuple2<V,W>>> result = new ArrayList<>(matches.size());
+                for (W rightValue : matches) {
                     result.add(new Tuple2<>(key,new Tuple2<>(value,rightValue)));
                 }
-                return result;
+                return result.iterator();
             }
-        })));
+        });
     }
 
     @Override
@@ -253,15 +209,15 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     
     @Override
     public <W> PairDataSet< K, V> subtractByKey(PairDataSet< K, W> rightDataSet) {
-        // Materializes the right side
-        final Multimap<K,W> rightSide = multimapFromIterable(((ControlPairDataSet<K,W>) rightDataSet).source);
-        return new ControlPairDataSet<>(FluentIterable.from(source).filter(new Predicate<Tuple2<K, V>>() {
+        // Builds the right side, spilling to disk if it doesn't fit in memory
+        return new ControlPairDataSet<>(new HashJoinIterable<K,V,W,Tuple2<K,V>>(source,((ControlPairDataSet<K,W>) rightDataSet).source){
             @Override
-            public boolean apply(@Nullable Tuple2<K, V> t) {
-                assert t!=null: "T cannot be null";
-                return rightSide.get(t._1()).isEmpty();
+            protected Iterator<Tuple2<K,V>> probe(K key,V value,List<W> matches){
+                if(matches==null)
+                    return Iterators.singletonIterator(new Tuple2<>(key,value));
+                return Iterators.emptyIterator();
             }
-        }));
+        });
     }
 
     @Override
@@ -312,16 +268,8 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     
     @Override
     public <W> PairDataSet<K, Tuple2<Iterable<V>, Iterable<W>>> cogroup(PairDataSet<K, W> rightDataSet) {
-        Multimap<K, V> left = multimapFromIterable(source);
-        Multimap<K, W> right = multimapFromIterable(((ControlPairDataSet<K, W>) rightDataSet).source);
-
-        List<Tuple2<K, Tuple2<Iterable<V>, Iterable<W>>>> result = new ArrayList<>();
-        for (K key: Sets.union(left.keySet(),right.keySet())){
-            Collection<V> vs=left.get(key);
-            Collection<W> ws=right.get(key);
-            result.add(new Tuple2<>(key,new Tuple2<Iterable<V>, Iterable<W>>(vs,ws)));
-        }
-        return new ControlPairDataSet<>(result);
+        // Groups both sides in memory, partitioning both to disk if they don't fit together
+        return new ControlPairDataSet<>(new CogroupIterable<>(source,((ControlPairDataSet<K,W>) rightDataSet).source));
     }
 
     @Override
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.sql.execute.ExecPreparedStatement;
+import org.sparkproject.guava.cache.Cache;
+import org.sparkproject.guava.cache.CacheBuilder;
+
+import java.util.Iterator;
+
+/**
+ * The number of table rows a query planned for control-side execution may read.
+ *
+ * Whether a query runs on the control side or on Spark is decided at plan time from cost estimates,
+ * so a bad estimate can leave a huge query running single-threaded in the region server. Every table
+ * scan built by a {@link ControlDataSetProcessor} which has a budget counts its rows against it, and
+ * once the limit is passed the scan throws {@link ExceededException}. The operation which opened the
+ * query can then abandon the control-side execution and resubmit it to the OLAP server, as long as
+ * no rows have been returned to the caller yet.
+ *
+ * The outcome is remembered against the prepared statement (for as long as the statement itself is
+ * cached), so that later executions of a statement which had to be resubmitted go straight to Spark.
+ */
+public class ControlRowBudget{
+    private static final Cache<ExecPreparedStatement,Feedback> FEEDBACK=CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
+    private final long rowLimit;
+    private long rowsRead;
+
+    public ControlRowBudget(long rowLimit){
+        this.rowLimit=rowLimit;
+    }
+
+    public long getRowLimit(){
+        return rowLimit;
+    }
+
+    public long getRowsRead(){
+        return rowsRead;
+    }
+
+    /**
+     * @return the rows of {@code source}, counted against this budget as they are read
+     */
+    public <V> Iterable<V> count(final Iterable<V> source){
+        return new Iterable<V>(){
+            @Override
+            public Iterator<V> iterator(){
+                final Iterator<V> delegate=source.iterator();
+                return new Iterator<V>(){
+                    @Override
+                    public boolean hasNext(){
+                        return delegate.hasNext();
+                    }
+
+                    @Override
+                    public V next(){
+                        V next=delegate.next();
+                        if(++rowsRead>rowLimit)
+                            throw new ExceededException(rowsRead);
+                        return next;
+                    }
+
+                    @Override
+                    public void remove(){
+                        delegate.remove();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * @return true if a previous execution of the statement exceeded its budget and had to be resubmitted
+     */
+    public static boolean previouslyExceeded(ExecPreparedStatement statement){
+        if(statement==null) return false;
+        Feedback feedback=FEEDBACK.getIfPresent(statement);
+        return feedback!=null && feedback.exceeded;
+    }
+
+    /**
+     * Record the outcome of a control-side execution of {@code statement}.
+     */
+    public static void recordExecution(ExecPreparedStatement statement,boolean exceeded){
+        if(statement==null) return;
+        Feedback feedback=FEEDBACK.getIfPresent(statement);
+        if(feedback==null){
+            feedback=new Feedback();
+            FEEDBACK.put(statement,feedback);
+        }
+        feedback.exceeded=exceeded;
+    }
+
+    /**
+     * @return the {@link ExceededException} in the cause chain of {@code t}, or {@code null} if there isn't one
+     */
+    public static ExceededException findExceeded(Throwable t){
+        while(t!=null){
+            if(t instanceof ExceededException)
+                return (ExceededException)t;
+            t=t.getCause();
+        }
+        return null;
+    }
+
+    public static class ExceededException extends RuntimeException{
+        public ExceededException(long rowsRead){
+            super("Control-side row budget exceeded after reading "+rowsRead+" rows");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace(){
+            return this; //only used for control flow
+        }
+    }
+
+    private static class Feedback{
+        private volatile boolean exceeded;
+    }
+
+    /**
+     * Iterates over the results of a control-side query, switching to the results of a resubmitted execution
+     * if the query exceeds its budget before it has returned any row.
+     */
+    public abstract static class AdaptiveIterator<V> implements Iterator<V>{
+        private Iterator<V> delegate;
+        private boolean returnedRows;
+        private boolean finished;
+
+        protected AdaptiveIterator(Iterator<V> delegate){
+            this.delegate=delegate;
+        }
+
+        /**
+         * @return the results of the query, executed again outside of the control side
+         */
+        protected abstract Iterator<V> resubmit();
+
+        /**
+         * Called once the control-side execution has returned all of its rows within the budget.
+         */
+        protected abstract void completed();
+
+        @Override
+        public boolean hasNext(){
+            try{
+                boolean hasNext=delegate.hasNext();
+                if(!hasNext && !finished){
+                    finished=true;
+                    completed();
+                }
+                return hasNext;
+            }catch(RuntimeException e){
+                resubmitOrThrow(e);
+                return delegate.hasNext();
+            }
+        }
+
+        @Override
+        public V next(){
+            V next;
+            try{
+                next=delegate.next();
+            }catch(RuntimeException e){
+                resubmitOrThrow(e);
+                next=delegate.next();
+            }
+            returnedRows=true;
+            return next;
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+
+        private void resubmitOrThrow(RuntimeException e){
+            if(returnedRows || finished || findExceeded(e)==null)
+                throw e;
+            finished=true;
+            delegate=resubmit();
+        }
+    }
+}
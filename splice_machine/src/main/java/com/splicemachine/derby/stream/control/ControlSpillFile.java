@@ -0,0 +1,287 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.apache.log4j.Logger;
+import scala.Tuple2;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.NoSuchElementException;
+
+/**
+ * A local temporary file holding key/value pairs which a control-side operation could not
+ * keep on heap. Entries are appended with Kryo through {@link #write(Object, Object)}, and once
+ * the file has been closed for writing it can be read back in the order it was written. The file
+ * is read once and removed as soon as it has been fully read or closed, unless it is kept with
+ * {@link #keepAfterReading()}, in which case it can be read any number of times until it is closed.
+ * A file created while a {@link Tracker} is active on the thread is also removed when that tracker is
+ * closed, which is how an operation cleans up after a consumer that abandoned its iteration part way.
+ * A pooled Kryo instance is only held while the file is being written or read.
+ *
+ * This class is not thread safe.
+ */
+public class ControlSpillFile<K,V> implements Closeable{
+    private static final Logger LOG=Logger.getLogger(ControlSpillFile.class);
+    private static final int BUFFER_SIZE=1<<16;
+    /*
+     * The bytes spilled by each thread, so a statement can tell how much it spilled by comparing the count
+     * before and after it runs. Control-side operations spill on the thread which consumes them
+     */
+    private static final ThreadLocal<long[]> threadBytesSpilled=new ThreadLocal<long[]>(){
+        @Override
+        protected long[] initialValue(){
+            return new long[1];
+        }
+    };
+    private static final ThreadLocal<Tracker> currentTracker=new ThreadLocal<>();
+
+    private final File file;
+    private final KryoPool kryoPool;
+    private final Tracker tracker;
+    private final List<Reader> readers=new ArrayList<>(1);
+    private Kryo kryo;
+    private Output output;
+    private long numEntries;
+    private long bytesWritten;
+    private boolean keepAfterReading;
+    private boolean closed;
+
+    public ControlSpillFile(File directory,String prefix) throws IOException{
+        this(directory,prefix,SpliceKryoRegistry.getInstance());
+    }
+
+    public ControlSpillFile(File directory,String prefix,KryoPool kryoPool) throws IOException{
+        this.kryoPool=kryoPool;
+        this.file=File.createTempFile(prefix,".spill",directory);
+        this.kryo=kryoPool.get();
+        this.output=new Output(new FileOutputStream(file),BUFFER_SIZE);
+        this.tracker=currentTracker.get();
+        if(tracker!=null)
+            tracker.add(this);
+    }
+
+    public void write(K key,V value){
+        assert output!=null: "Spill file has already been closed for writing";
+        kryo.writeClassAndObject(output,key);
+        kryo.writeClassAndObject(output,value);
+        numEntries++;
+    }
+
+    /**
+     * Flush all buffered entries to disk. No further writes are allowed after this call.
+     */
+    public void finishWriting(){
+        if(output==null) return;
+        output.close();
+        bytesWritten=output.total();
+        output=null;
+        threadBytesSpilled.get()[0]+=bytesWritten;
+        releaseKryo();
+    }
+
+    public long size(){
+        return numEntries;
+    }
+
+    public long bytesWritten(){
+        return bytesWritten;
+    }
+
+    /**
+     * Keep the file once it has been fully read, so that it can be read again. It is then only removed
+     * when it is closed, by its owner or by the {@link Tracker} it was created under.
+     */
+    public void keepAfterReading(){
+        keepAfterReading=true;
+    }
+
+    /**
+     * @return whether a {@link Tracker} is active on the current thread, and so will remove the spill
+     * files created now when its owner closes
+     */
+    public static boolean isTracked(){
+        return currentTracker.get()!=null;
+    }
+
+    /**
+     * @return the total number of bytes spilled by the current thread since it started
+    public static long bytesSpilledByThread(){
+        return threadBytesSpilled.get()[0];
+    }
+
+    /**
+     * @return an iterator over the entries in this file, in the order they were written. Unless the file
+     * is kept after reading, it is deleted once the iterator is exhausted.
+     * @throws IOException if the file cannot be opened
+     */
+    public Iterator<Tuple2<K,V>> read() throws IOException{
+        finishWriting();
+        assert !closed: "Spill file has already been closed";
+        assert keepAfterReading || readers.isEmpty(): "Spill file has already been read";
+        Reader reader=new Reader(new Input(new FileInputStream(file),BUFFER_SIZE),kryoPool.get());
+        readers.add(reader);
+        return reader;
+    }
+
+    @Override
+    public void close(){
+        if(closed) return;
+        closed=true;
+        if(output!=null){
+            output.close();
+            output=null;
+        }
+        for(Reader reader : readers){
+            reader.release();
+        }
+        readers.clear();
+        releaseKryo();
+        if(tracker!=null)
+            tracker.remove(this);
+        if(!file.delete() && file.exists())
+            LOG.warn("Unable to delete spill file "+file.getAbsolutePath());
+    }
+
+    private void releaseKryo(){
+        if(kryo!=null){
+            kryoPool.returnInstance(kryo);
+            kryo=null;
+        }
+    }
+
+    private class Reader implements Iterator<Tuple2<K,V>>{
+        private final Input input;
+        private Kryo kryo;
+        private long remaining=numEntries;
+
+        Reader(Input input,Kryo kryo){
+            this.input=input;
+            this.kryo=kryo;
+        }
+
+        @Override
+        public boolean hasNext(){
+            if(remaining>0) return true;
+            if(kryo!=null){
+                release();
+                readers.remove(this);
+                if(!keepAfterReading)
+                    close();
+            }
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Tuple2<K,V> next(){
+            if(!hasNext()) throw new NoSuchElementException();
+            remaining--;
+            K key=(K)kryo.readClassAndObject(input);
+            V value=(V)kryo.readClassAndObject(input);
+            return new Tuple2<>(key,value);
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+
+        private void release(){
+            if(kryo==null) return;
+            input.close();
+            kryoPool.returnInstance(kryo);
+            kryo=null;
+        }
+    }
+
+    /**
+     * The spill files created on behalf of one owner, typically the operation at the root of a statement.
+     *
+     * The owner activates the tracker on its thread while it pulls rows, through {@link #enter()} and
+     * {@link #exit(Tracker)}; every spill file created in between is tracked until it is closed. Closing the
+     * tracker closes (and so deletes) whatever its files' consumers left open. Trackers may be nested, as when
+     * a subquery is evaluated while its outer query pulls a row.
+     */
+    public static class Tracker implements AutoCloseable{
+        private final Set<ControlSpillFile<?,?>> openFiles=Collections.newSetFromMap(new IdentityHashMap<ControlSpillFile<?,?>,Boolean>());
+        private boolean closed;
+
+        /**
+         * Make this the tracker of the spill files created on the current thread.
+         *
+         * @return the tracker which was active before, to be passed to {@link #exit(Tracker)}
+         */
+        public Tracker enter(){
+            Tracker previous=currentTracker.get();
+            currentTracker.set(this);
+            return previous;
+        }
+
+        /**
+         * Stop tracking the spill files created on the current thread, restoring the tracker which
+         * was active before {@link #enter()}.
+         */
+        public void exit(Tracker previous){
+            if(previous==null)
+                currentTracker.remove();
+            else
+                currentTracker.set(previous);
+        }
+
+        public synchronized int numOpenFiles(){
+            return openFiles.size();
+        }
+
+        @Override
+        public void close(){
+            List<ControlSpillFile<?,?>> toClose;
+            synchronized(this){
+                if(closed) return;
+                closed=true;
+                toClose=new ArrayList<>(openFiles);
+                openFiles.clear();
+            }
+            if(!toClose.isEmpty() && LOG.isDebugEnabled())
+                LOG.debug("Removing "+toClose.size()+" spill files left open by their consumers");
+            for(ControlSpillFile<?,?> file : toClose){
+                file.close();
+            }
+        }
+
+        private synchronized void add(ControlSpillFile<?,?> file){
+            openFiles.add(file);
+        }
+
+        private synchronized void remove(ControlSpillFile<?,?> file){
+            openFiles.remove(file);
+        }
+    }
+}
@@ -16,11 +16,18 @@
 package com.splicemachine.derby.stream.control;
 
 import com.google.common.base.Function;
+import com.splicemachine.EngineDriver;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.access.configuration.SQLConfiguration;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import org.sparkproject.guava.collect.ArrayListMultimap;
 import org.sparkproject.guava.collect.FluentIterable;
 import org.sparkproject.guava.collect.Multimap;
 import scala.Tuple2;
 import javax.annotation.Nullable;
+import java.io.File;
 import java.util.Map;
 
 
@@ -47,4 +54,103 @@ public class ControlUtils {
         }
         return newMap;
     }
+
+    /**
+     * @return the number of bytes a single control-side sort may buffer before spilling to disk
+     */
+    public static long sortMemoryBudget() {
+        SConfiguration config = configuration();
+        return config==null?SQLConfiguration.DEFAULT_CONTROL_SIDE_SORT_MEMORY_BUDGET:config.getControlSideSortMemoryBudget();
+    }
+
+    /**
+     * @return the number of bytes of group state a single control-side aggregation may hold before spilling
+     */
+    public static long aggregateMemoryBudget() {
+        SConfiguration config = configuration();
+        return config==null?SQLConfiguration.DEFAULT_CONTROL_SIDE_AGGREGATE_MEMORY_BUDGET:config.getControlSideAggregateMemoryBudget();
+    }
+
+    /**
+     * @return the number of bytes of build-side rows a single control-side hash join may hold before spilling
+     */
+    public static long joinMemoryBudget() {
+        SConfiguration config = configuration();
+        return config==null?SQLConfiguration.DEFAULT_CONTROL_SIDE_JOIN_MEMORY_BUDGET:config.getControlSideJoinMemoryBudget();
+    }
+
+    /**
+     * @return the number of bytes of rows a single window frame buffer may hold before spilling
+     */
+    public static long windowFrameMemoryBudget() {
+        SConfiguration config = configuration();
+        return config==null?SQLConfiguration.DEFAULT_WINDOW_FRAME_MEMORY_BUDGET:config.getWindowFrameMemoryBudget();
+    }
+
+    /**
+     * @return the number of partitions a single control-side scan may read concurrently
+     */
+    public static int scanParallelism() {
+        SConfiguration config = configuration();
+        return config==null?SQLConfiguration.DEFAULT_CONTROL_SIDE_SCAN_PARALLELISM:config.getControlSideScanParallelism();
+    }
+
+    /**
+     * @return the number of threads shared by the control-side scans which read partitions concurrently
+     */
+    public static int scanThreads() {
+        SConfiguration config = configuration();
+        return config==null?SQLConfiguration.DEFAULT_CONTROL_SIDE_SCAN_THREADS:config.getControlSideScanThreads();
+    }
+
+    /**
+     * @return the number of rows a control-side query may read before it is resubmitted to Spark, or 0 for no limit
+     */
+    public static long adaptiveRowLimit() {
+        SConfiguration config = configuration();
+        return config==null?SQLConfiguration.DEFAULT_CONTROL_SIDE_ADAPTIVE_ROW_LIMIT:config.getControlSideAdaptiveRowLimit();
+    }
+
+    /**
+     * @return the local directory to which control-side operations spill
+     */
+    public static File spillDirectory() {
+        SConfiguration config = configuration();
+        String dir = config==null?null:config.getControlSideSpillDirectory();
+        return new File(dir==null?SQLConfiguration.DEFAULT_CONTROL_SIDE_SPILL_DIRECTORY:dir);
+    }
+
+    /**
+     * Rough estimate of the heap consumed by a value flowing through a control-side operation. This
+     * is only used to decide when an operation has exceeded its memory budget, so it favors
+     * being cheap over being precise.
+     */
+    public static long estimateSize(Object o) {
+        if (o == null)
+            return 8;
+        if (o instanceof Tuple2) {
+            Tuple2 t = (Tuple2) o;
+            return 16 + estimateSize(t._1()) + estimateSize(t._2());
+        }
+        if (o instanceof LocatedRow)
+            return 24 + estimateSize(((LocatedRow) o).getRow());
+        if (o instanceof ExecRow) {
+            DataValueDescriptor[] dvds = ((ExecRow) o).getRowArray();
+            long size = 24;
+            if (dvds != null) {
+                size += 8 * dvds.length;
+                for (DataValueDescriptor dvd : dvds) {
+                    if (dvd != null)
+                        size += dvd.estimateMemoryUsage();
+                }
+            }
+            return size;
+        }
+        return 32;
+    }
+
+    private static SConfiguration configuration() {
+        EngineDriver driver = EngineDriver.driver();
+        return driver==null?null:driver.getConfiguration();
+    }
 }
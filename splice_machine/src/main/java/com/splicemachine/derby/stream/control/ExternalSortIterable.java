@@ -0,0 +1,269 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import org.apache.log4j.Logger;
+import org.sparkproject.guava.collect.Iterators;
+import org.sparkproject.guava.collect.PeekingIterator;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Bounded-memory sort of a control-side pair stream.
+ *
+ * The source is consumed into an on-heap buffer until the estimated size of the buffer exceeds
+ * the memory budget; the buffer is then sorted and written out as a run to a {@link ControlSpillFile}.
+ * When the source is exhausted, the remaining buffer is sorted in memory and merged with
+ * the spilled runs through a priority queue (a k-way merge). If nothing had to be spilled,
+ * this degenerates to a plain in-memory sort.
+ *
+ * Every run being merged holds an open file, so no more than a fixed number of runs are merged
+ * at once. When there are more, consecutive runs are first merged into longer runs on disk,
+ * in as many passes as it takes.
+ *
+ * The sort is stable: entries with equal keys are returned in their original order.
+ *
+ * The source is sorted once, on the first call to {@link #iterator()}, and the sorted buffer and runs
+ * are kept so that later iterations only merge them again. The runs are removed when the {@link ControlSpillFile.Tracker}
+ * active during the sort is closed; when there is no tracker to remove them, the runs are removed as they
+ * are read, and a sort which spilled can only be iterated once.
+ */
+public class ExternalSortIterable<K,V> implements Iterable<Tuple2<K,V>>{
+    private static final Logger LOG=Logger.getLogger(ExternalSortIterable.class);
+    private static final int DEFAULT_MAX_FAN_IN=64;
+
+    private final Iterable<Tuple2<K,V>> source;
+    private final Comparator<Tuple2<K,V>> comparator;
+    private final long memoryBudget;
+    private final File spillDirectory;
+    private final int maxFanIn;
+    private List<Tuple2<K,V>> sortedBuffer;
+    private List<ControlSpillFile<K,V>> sortedRuns;
+    private boolean runsKept;
+    private boolean runsRead;
+
+    public ExternalSortIterable(Iterable<Tuple2<K,V>> source,Comparator<K> keyComparator){
+        this(source,keyComparator,ControlUtils.sortMemoryBudget(),ControlUtils.spillDirectory());
+    }
+
+    public ExternalSortIterable(Iterable<Tuple2<K,V>> source,
+                                Comparator<K> keyComparator,
+                                long memoryBudget,
+                                File spillDirectory){
+        this(source,keyComparator,memoryBudget,spillDirectory,DEFAULT_MAX_FAN_IN);
+    }
+
+    /**
+     * @param maxFanIn the most sorted runs (including the one kept in memory) to merge at once, at least 2
+     */
+    public ExternalSortIterable(Iterable<Tuple2<K,V>> source,
+                                final Comparator<K> keyComparator,
+                                long memoryBudget,
+                                File spillDirectory,
+                                int maxFanIn){
+        assert maxFanIn>=2: "Cannot merge fewer than 2 runs at a time";
+        this.source=source;
+        this.memoryBudget=memoryBudget;
+        this.spillDirectory=spillDirectory;
+        this.maxFanIn=maxFanIn;
+        this.comparator=new Comparator<Tuple2<K,V>>(){
+            @Override
+            public int compare(Tuple2<K,V> o1,Tuple2<K,V> o2){
+                return keyComparator.compare(o1._1(),o2._1());
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Tuple2<K,V>> iterator(){
+        if(sortedBuffer==null)
+            sort();
+        if(sortedRuns.isEmpty())
+            return Collections.unmodifiableList(sortedBuffer).iterator();
+        if(runsRead && !runsKept)
+            throw new IllegalStateException("Sorted runs were spilled without a tracker to keep them, and have already been read");
+        runsRead=true;
+
+        List<Iterator<Tuple2<K,V>>> runs=new ArrayList<>(sortedRuns.size()+1);
+        try{
+            for(ControlSpillFile<K,V> run : sortedRuns){
+                runs.add(run.read());
+            }
+        }catch(IOException e){
+            closeAll(sortedRuns);
+            throw new RuntimeException(e);
+        }
+        runs.add(Collections.unmodifiableList(sortedBuffer).iterator());
+        return new MergingIterator<>(runs,comparator);
+    }
+
+    private void sort(){
+        List<ControlSpillFile<K,V>> runs=new ArrayList<>();
+        List<Tuple2<K,V>> buffer=new ArrayList<>();
+        long bufferSize=0L;
+        try{
+            for(Tuple2<K,V> t : source){
+                buffer.add(t);
+                bufferSize+=ControlUtils.estimateSize(t);
+                if(bufferSize>memoryBudget){
+                    runs.add(spill(buffer));
+                    buffer=new ArrayList<>();
+                    bufferSize=0L;
+                }
+            }
+            Collections.sort(buffer,comparator);
+            reduceRuns(runs); //leaves room for the buffer in the final merge
+        }catch(IOException e){
+            closeAll(runs);
+            throw new RuntimeException(e);
+        }catch(RuntimeException e){
+            closeAll(runs);
+            throw e;
+        }
+        runsKept=ControlSpillFile.isTracked();
+        if(runsKept){
+            for(ControlSpillFile<K,V> run : runs){
+                run.keepAfterReading();
+            }
+        }
+        sortedRuns=runs;
+        sortedBuffer=buffer;
+    }
+
+    private static <K,V> void closeAll(List<ControlSpillFile<K,V>> runs){
+        for(ControlSpillFile<K,V> run : runs){
+            run.close();
+        }
+    }
+
+    private ControlSpillFile<K,V> spill(List<Tuple2<K,V>> buffer) throws IOException{
+        Collections.sort(buffer,comparator);
+        ControlSpillFile<K,V> run=new ControlSpillFile<>(spillDirectory,"sort");
+        try{
+            for(Tuple2<K,V> t : buffer){
+                run.write(t._1(),t._2());
+            }
+            run.finishWriting();
+        }catch(RuntimeException e){
+            run.close();
+            throw e;
+        }
+        if(LOG.isDebugEnabled())
+            LOG.debug(String.format("Spilled sorted run of %d rows (%d bytes)",run.size(),run.bytesWritten()));
+        return run;
+    }
+
+    /*
+     * Merge groups of consecutive runs into single runs until there are fewer than the fan-in. Merging only
+     * consecutive runs keeps each merged run in input order, and so the sort stable
+     */
+    private void reduceRuns(List<ControlSpillFile<K,V>> runs) throws IOException{
+        while(runs.size()>=maxFanIn){
+            List<ControlSpillFile<K,V>> merged=new ArrayList<>();
+            try{
+                while(!runs.isEmpty()){
+                    List<ControlSpillFile<K,V>> group=runs.subList(0,Math.min(maxFanIn,runs.size()));
+                    merged.add(group.size()==1?group.get(0):merge(group));
+                    group.clear();
+                }
+            }catch(IOException|RuntimeException e){
+                closeAll(merged);
+                throw e;
+            }
+            runs.addAll(merged);
+        }
+    }
+
+    private ControlSpillFile<K,V> merge(List<ControlSpillFile<K,V>> group) throws IOException{
+        ControlSpillFile<K,V> run=new ControlSpillFile<>(spillDirectory,"sort");
+        try{
+            List<Iterator<Tuple2<K,V>>> sortedRuns=new ArrayList<>(group.size());
+            for(ControlSpillFile<K,V> groupRun : group){
+                sortedRuns.add(groupRun.read());
+            }
+            Iterator<Tuple2<K,V>> entries=new MergingIterator<>(sortedRuns,comparator);
+            while(entries.hasNext()){
+                Tuple2<K,V> t=entries.next();
+                run.write(t._1(),t._2());
+            }
+            run.finishWriting();
+        }catch(IOException|RuntimeException e){
+            run.close();
+            throw e;
+        }
+        if(LOG.isDebugEnabled())
+            LOG.debug(String.format("Merged %d sorted runs into a run of %d rows (%d bytes)",group.size(),run.size(),run.bytesWritten()));
+        return run;
+    }
+
+    /**
+     * K-way merge over individually sorted iterators. Ties are broken by the index of the
+     * iterator, which keeps the merge stable as long as the runs are supplied in input order.
+     */
+    static class MergingIterator<T> implements Iterator<T>{
+        private final PriorityQueue<Run<T>> queue;
+
+        MergingIterator(List<Iterator<T>> sortedRuns,final Comparator<? super T> comparator){
+            this.queue=new PriorityQueue<>(Math.max(1,sortedRuns.size()),new Comparator<Run<T>>(){
+                @Override
+                public int compare(Run<T> o1,Run<T> o2){
+                    int c=comparator.compare(o1.iterator.peek(),o2.iterator.peek());
+                    if(c!=0) return c;
+                    return Integer.compare(o1.position,o2.position);
+                }
+            });
+            int position=0;
+            for(Iterator<T> run : sortedRuns){
+                if(run.hasNext())
+                    queue.add(new Run<>(Iterators.peekingIterator(run),position));
+                position++;
+            }
+        }
+
+        @Override
+        public boolean hasNext(){
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public T next(){
+            Run<T> run=queue.poll();
+            if(run==null) throw new NoSuchElementException();
+            T next=run.iterator.next();
+            if(run.iterator.hasNext())
+                queue.add(run);
+            return next;
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class Run<T>{
+        private final PeekingIterator<T> iterator;
+        private final int position;
+
+        Run(PeekingIterator<T> iterator,int position){
+            this.iterator=iterator;
+            this.position=position;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Bounded-memory grouping of a control-side pair stream (the control side of {@code groupByKey}).
+ *
+ * The rows of each key are collected in a {@link ControlHashTable}. If the estimated size of the table exceeds
+ * the memory budget, the table and the rest of the input are hash-partitioned out to {@link ControlSpillFile}s
+ * and each partition is grouped in turn, recursing (on a different set of hash bits) for partitions which still
+ * don't fit. There is only one input, so the second input of the {@link HashPartitionedIterable} is always empty.
+ *
+ * Each key is returned once, with its rows in input order.
+ *
+ * @param <K> the key
+ * @param <V> the values
+ */
+public class GroupByKeyIterable<K,V> extends HashPartitionedIterable<K,V,Object,Tuple2<K,Iterable<V>>>{
+
+    public GroupByKeyIterable(Iterable<Tuple2<K,V>> source){
+        this(source,ControlUtils.aggregateMemoryBudget(),ControlUtils.spillDirectory());
+    }
+
+    public GroupByKeyIterable(Iterable<Tuple2<K,V>> source,long memoryBudget,File spillDirectory){
+        super(source,Collections.<Tuple2<K,Object>>emptyList(),memoryBudget,spillDirectory);
+    }
+
+    @Override
+    protected Iterator<Tuple2<K,Iterable<V>>> process(Iterator<Tuple2<K,V>> rows,
+                                                      Iterator<Tuple2<K,Object>> noRows,
+                                                      int depth) throws IOException{
+        ControlHashTable<K,List<V>> groups=new ControlHashTable<>();
+        long size=0L;
+        while(rows.hasNext()){
+            size+=addRow(groups,rows.next());
+            if(size>memoryBudget && canPartition(depth))
+                return partition(groups,rows,null,noRows,depth);
+        }
+        List<Tuple2<K,Iterable<V>>> result=new ArrayList<>(groups.size());
+        Iterator<Tuple2<K,List<V>>> entries=groups.entries();
+        while(entries.hasNext()){
+            Tuple2<K,List<V>> e=entries.next();
+            result.add(new Tuple2<K,Iterable<V>>(e._1(),e._2()));
+        }
+        return result.iterator();
+    }
+}
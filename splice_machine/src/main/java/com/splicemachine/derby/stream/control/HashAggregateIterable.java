@@ -0,0 +1,186 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.derby.stream.function.SpliceFunction2;
+import org.apache.log4j.Logger;
+import org.sparkproject.guava.collect.AbstractIterator;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Bounded-memory hash aggregation of a control-side pair stream (the control side of
+ * {@code reduceByKey}).
+ *
+ * Each input row is merged eagerly into a single accumulator for its key, held in a
+ * {@link ControlHashTable}, so the heap holds one partial result per group rather than every
+ * input row. If the estimated size of the table exceeds the memory budget, the partial results
+ * are hash-partitioned out to {@link ControlSpillFile}s and the table is cleared. Once the input
+ * is exhausted, every spilled partition is aggregated in turn (recursively, using a different
+ * set of hash bits at each level), merging the partial results with the same reduce function.
+ *
+ * This relies on the reduce function being able to merge partial results, which is already
+ * required of it on the Spark side.
+ */
+public class HashAggregateIterable<K,V> implements Iterable<Tuple2<K,V>>{
+    private static final Logger LOG=Logger.getLogger(HashAggregateIterable.class);
+    private static final int PARTITION_BITS=4;
+    private static final int NUM_PARTITIONS=1<<PARTITION_BITS;
+    /*
+     * Past this depth we've used up the hash bits that can distinguish partitions, so (heavily skewed)
+     * partitions are aggregated in memory regardless of the budget.
+     */
+    private static final int MAX_DEPTH=4;
+
+    private final Iterable<Tuple2<K,V>> source;
+    private final SpliceFunction2<?,V,V,V> reduceFunction;
+    private final long memoryBudget;
+    private final File spillDirectory;
+
+    public HashAggregateIterable(Iterable<Tuple2<K,V>> source,SpliceFunction2<?,V,V,V> reduceFunction){
+        this(source,reduceFunction,ControlUtils.aggregateMemoryBudget(),ControlUtils.spillDirectory());
+    }
+
+    public HashAggregateIterable(Iterable<Tuple2<K,V>> source,
+                                 SpliceFunction2<?,V,V,V> reduceFunction,
+                                 long memoryBudget,
+                                 File spillDirectory){
+        this.source=source;
+        this.reduceFunction=reduceFunction;
+        this.memoryBudget=memoryBudget;
+        this.spillDirectory=spillDirectory;
+    }
+
+    @Override
+    public Iterator<Tuple2<K,V>> iterator(){
+        try{
+            return aggregate(source.iterator(),0);
+        }catch(Exception e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Iterator<Tuple2<K,V>> aggregate(Iterator<Tuple2<K,V>> input,int depth) throws Exception{
+        ControlHashTable<K,V> table=new ControlHashTable<>();
+        ControlSpillFile<K,V>[] partitions=null;
+        long tableSize=0L;
+        try{
+            while(input.hasNext()){
+                Tuple2<K,V> t=input.next();
+                K key=t._1();
+                int hash=ControlHashTable.mix(key.hashCode());
+                int slot=table.find(key,hash);
+                if(slot>=0){
+                    table.setValueAt(slot,reduceFunction.call(table.valueAt(slot),t._2()));
+                }else{
+                    table.insert(-(slot+1),key,hash,reduceFunction.call(null,t._2()));
+                    tableSize+=ControlUtils.estimateSize(t);
+                    if(tableSize>memoryBudget && depth<MAX_DEPTH){
+                        if(partitions==null)
+                            partitions=newPartitions();
+                        spill(table,partitions,depth);
+                        tableSize=0L;
+                    }
+                }
+            }
+            if(partitions==null)
+                return table.entries();
+
+            spill(table,partitions,depth);
+        }catch(Exception e){
+            close(partitions);
+            throw e;
+        }
+        return new PartitionIterator(partitions,depth+1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ControlSpillFile<K,V>[] newPartitions() throws IOException{
+        ControlSpillFile<K,V>[] partitions=new ControlSpillFile[NUM_PARTITIONS];
+        try{
+            for(int i=0;i<partitions.length;i++){
+                partitions[i]=new ControlSpillFile<>(spillDirectory,"aggregate");
+            }
+        }catch(IOException e){
+            close(partitions);
+            throw e;
+        }
+        return partitions;
+    }
+
+    private void spill(ControlHashTable<K,V> table,ControlSpillFile<K,V>[] partitions,int depth){
+        Iterator<Tuple2<K,V>> entries=table.entries();
+        while(entries.hasNext()){
+            Tuple2<K,V> t=entries.next();
+            partitions[partition(ControlHashTable.mix(t._1().hashCode()),depth)].write(t._1(),t._2());
+        }
+        if(LOG.isDebugEnabled())
+            LOG.debug(String.format("Spilled %d partial aggregates at depth %d",table.size(),depth));
+        table.clear();
+    }
+
+    /*
+     * Table slots are chosen from the low bits of the hash, so partitions take their bits from the top end;
+     * otherwise every key in a partition would collide into the same region of the next table.
+     */
+    static int partition(int hash,int depth){
+        return (hash>>>(32-PARTITION_BITS*(depth+1)))&(NUM_PARTITIONS-1);
+    }
+
+    private static void close(ControlSpillFile<?,?>[] partitions){
+        if(partitions==null) return;
+        for(ControlSpillFile<?,?> partition : partitions){
+            if(partition!=null)
+                partition.close();
+        }
+    }
+
+    /**
+     * Lazily aggregates each spilled partition in turn, so only one partition's groups are on heap at a time.
+     */
+    private class PartitionIterator extends AbstractIterator<Tuple2<K,V>>{
+        private final ControlSpillFile<K,V>[] partitions;
+        private final int depth;
+        private int next;
+        private Iterator<Tuple2<K,V>> current;
+
+        PartitionIterator(ControlSpillFile<K,V>[] partitions,int depth){
+            this.partitions=partitions;
+            this.depth=depth;
+        }
+
+        @Override
+        protected Tuple2<K,V> computeNext(){
+            while(current==null || !current.hasNext()){
+                if(next>=partitions.length)
+                    return endOfData();
+                ControlSpillFile<K,V> partition=partitions[next++];
+                try{
+                    current=aggregate(partition.read(),depth);
+                }catch(Exception e){
+                    for(int i=next;i<partitions.length;i++){
+                        partitions[i].close();
+                    }
+                    throw new RuntimeException(e);
+                }
+            }
+            return current.next();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import org.sparkproject.guava.collect.AbstractIterator;
+import org.sparkproject.guava.collect.Iterators;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Control-side hash join which spills to disk when the build side does not fit in memory
+ * (a Grace hash join).
+ *
+ * The build side is loaded into a {@link ControlHashTable}. If it is exhausted before the table
+ * exceeds the memory budget, the probe side is streamed through the table exactly as an in-memory
+ * hash join would. Otherwise, both sides are hash-partitioned out to {@link ControlSpillFile}s
+ * and each pair of partitions is joined independently, recursing (on a different set of hash
+ * bits) for partitions whose build side still doesn't fit.
+ *
+ * Subclasses decide what a probe row produces through {@link #probe(Object, Object, List)}.
+ *
+ * @param <K> the join key
+ * @param <P> the probe side values
+ * @param <B> the build side values
+ * @param <R> the join output
+ */
+public abstract class HashJoinIterable<K,P,B,R> extends HashPartitionedIterable<K,P,B,R>{
+
+    protected HashJoinIterable(Iterable<Tuple2<K,P>> probeSide,Iterable<Tuple2<K,B>> buildSide){
+        this(probeSide,buildSide,ControlUtils.joinMemoryBudget(),ControlUtils.spillDirectory());
+    }
+
+    protected HashJoinIterable(Iterable<Tuple2<K,P>> probeSide,
+                               Iterable<Tuple2<K,B>> buildSide,
+                               long memoryBudget,
+                               File spillDirectory){
+        super(probeSide,buildSide,memoryBudget,spillDirectory);
+    }
+
+    /**
+     * @param key the key of the probe row
+     * @param value the probe row
+     * @param matches the build rows with the same key, or {@code null} if there are none
+     * @return the output rows for this probe row
+     */
+    protected abstract Iterator<R> probe(K key,P value,List<B> matches);
+
+    @Override
+    protected Iterator<R> process(Iterator<Tuple2<K,P>> probeRows,Iterator<Tuple2<K,B>> buildRows,int depth) throws IOException{
+        ControlHashTable<K,List<B>> table=new ControlHashTable<>();
+        long tableSize=0L;
+        while(buildRows.hasNext()){
+            tableSize+=addRow(table,buildRows.next());
+            if(tableSize>memoryBudget && canPartition(depth))
+                return partition(null,probeRows,table,buildRows,depth);
+        }
+        return join(probeRows,table);
+    }
+
+    /*
+     * Stream the probe rows through the fully built table
+     */
+    private Iterator<R> join(final Iterator<Tuple2<K,P>> probeRows,final ControlHashTable<K,List<B>> buildTable){
+        return Iterators.concat(new AbstractIterator<Iterator<R>>(){
+            @Override
+            protected Iterator<R> computeNext(){
+                if(!probeRows.hasNext()) return endOfData();
+                Tuple2<K,P> t=probeRows.next();
+                return probe(t._1(),t._2(),buildTable.get(t._1()));
+            }
+        });
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import org.apache.log4j.Logger;
+import org.sparkproject.guava.collect.AbstractIterator;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Control-side operation over two keyed inputs which only ever needs to see rows with equal keys
+ * together, and so can be split into independent hash partitions when its state does not fit in memory
+ * (the partitioning phase of a Grace hash join).
+ *
+ * Subclasses implement {@link #process(Iterator, Iterator, int)}, which loads whatever it needs into
+ * {@link ControlHashTable}s within the memory budget. When it runs out of budget it hands its tables and
+ * the rest of both inputs to {@link #partition}, which hash-partitions them out to {@link ControlSpillFile}s
+ * and then processes each pair of partitions in turn, on a different set of hash bits at each level.
+ * Past {@link #MAX_DEPTH} levels the hash bits can no longer tell keys apart, so (heavily skewed)
+ * partitions are processed in memory regardless of the budget.
+ *
+ * @param <K> the key
+ * @param <L> the values of the first input
+ * @param <R> the values of the second input
+ * @param <O> the output
+ */
+public abstract class HashPartitionedIterable<K,L,R,O> implements Iterable<O>{
+    private static final Logger LOG=Logger.getLogger(HashPartitionedIterable.class);
+    private static final int PARTITION_BITS=4;
+    private static final int NUM_PARTITIONS=1<<PARTITION_BITS;
+    protected static final int MAX_DEPTH=4;
+
+    private final Iterable<Tuple2<K,L>> first;
+    private final Iterable<Tuple2<K,R>> second;
+    protected final long memoryBudget;
+    private final File spillDirectory;
+
+    protected HashPartitionedIterable(Iterable<Tuple2<K,L>> first,
+                                      Iterable<Tuple2<K,R>> second,
+                                      long memoryBudget,
+                                      File spillDirectory){
+        this.first=first;
+        this.second=second;
+        this.memoryBudget=memoryBudget;
+        this.spillDirectory=spillDirectory;
+    }
+
+    /**
+     * Process the rows of both inputs which fall in one partition (initially, all of them).
+     *
+     * @param depth the number of times these rows have been partitioned
+     */
+    protected abstract Iterator<O> process(Iterator<Tuple2<K,L>> firstRows,Iterator<Tuple2<K,R>> secondRows,int depth) throws IOException;
+
+    @Override
+    public Iterator<O> iterator(){
+        try{
+            return process(first.iterator(),second.iterator(),0);
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return whether rows at this depth may still be partitioned further
+     */
+    protected static boolean canPartition(int depth){
+        return depth<MAX_DEPTH;
+    }
+
+    /**
+     * Add a row to a table of the rows for each key
+     *
+     * @return the estimated number of bytes the row added to the table
+     */
+    protected static <K,V> long addRow(ControlHashTable<K,List<V>> table,Tuple2<K,V> row){
+        K key=row._1();
+        int hash=ControlHashTable.mix(key.hashCode());
+        int slot=table.find(key,hash);
+        if(slot>=0)
+            table.valueAt(slot).add(row._2());
+        else{
+            List<V> values=new ArrayList<>(1);
+            values.add(row._2());
+            table.insert(-(slot+1),key,hash,values);
+        }
+        return ControlUtils.estimateSize(row);
+    }
+
+    /**
+     * Spill the rows loaded so far, and the remaining rows of both inputs, into hash partitions and
+     * process each pair of partitions in turn.
+     *
+     * @param firstTable the rows of the first input loaded so far, or {@code null} if none were loaded
+     * @param secondTable the rows of the second input loaded so far, or {@code null} if none were loaded
+     */
+    @SuppressWarnings("unchecked")
+    protected Iterator<O> partition(ControlHashTable<K,List<L>> firstTable,
+                                    Iterator<Tuple2<K,L>> firstRows,
+                                    ControlHashTable<K,List<R>> secondTable,
+                                    Iterator<Tuple2<K,R>> secondRows,
+                                    int depth) throws IOException{
+        ControlSpillFile<K,L>[] firstPartitions=new ControlSpillFile[NUM_PARTITIONS];
+        ControlSpillFile<K,R>[] secondPartitions=new ControlSpillFile[NUM_PARTITIONS];
+        try{
+            for(int i=0;i<NUM_PARTITIONS;i++){
+                firstPartitions[i]=new ControlSpillFile<>(spillDirectory,"hashFirst");
+                secondPartitions[i]=new ControlSpillFile<>(spillDirectory,"hashSecond");
+            }
+            spill(firstTable,firstRows,firstPartitions,depth);
+            spill(secondTable,secondRows,secondPartitions,depth);
+        }catch(IOException|RuntimeException e){
+            close(firstPartitions);
+            close(secondPartitions);
+            throw e;
+        }
+        if(LOG.isDebugEnabled())
+            LOG.debug(String.format("Exceeded %d bytes, partitioned %s at depth %d",memoryBudget,getClass().getSimpleName(),depth));
+        return new PartitionIterator(firstPartitions,secondPartitions,depth+1);
+    }
+
+    private static <K,V> void spill(ControlHashTable<K,List<V>> table,
+                                    Iterator<Tuple2<K,V>> rows,
+                                    ControlSpillFile<K,V>[] partitions,
+                                    int depth){
+        if(table!=null){
+            Iterator<Tuple2<K,List<V>>> entries=table.entries();
+            while(entries.hasNext()){
+                Tuple2<K,List<V>> entry=entries.next();
+                ControlSpillFile<K,V> partition=partitions[partition(entry._1(),depth)];
+                for(V v : entry._2()){
+                    partition.write(entry._1(),v);
+                }
+            }
+            table.clear();
+        }
+        while(rows.hasNext()){
+            Tuple2<K,V> t=rows.next();
+            partitions[partition(t._1(),depth)].write(t._1(),t._2());
+        }
+    }
+
+    private static int partition(Object key,int depth){
+        int hash=ControlHashTable.mix(key.hashCode());
+        return (hash>>>(32-PARTITION_BITS*(depth+1)))&(NUM_PARTITIONS-1);
+    }
+
+    private static void close(ControlSpillFile<?,?>[] partitions){
+        for(ControlSpillFile<?,?> partition : partitions){
+            if(partition!=null)
+                partition.close();
+        }
+    }
+
+    /**
+     * Processes each pair of spilled partitions in turn, so only one partition's state is on heap at a time.
+     */
+    private class PartitionIterator extends AbstractIterator<O>{
+        private final ControlSpillFile<K,L>[] firstPartitions;
+        private final ControlSpillFile<K,R>[] secondPartitions;
+        private final int depth;
+        private int next;
+        private Iterator<O> current=Collections.emptyIterator();
+
+        PartitionIterator(ControlSpillFile<K,L>[] firstPartitions,ControlSpillFile<K,R>[] secondPartitions,int depth){
+            this.firstPartitions=firstPartitions;
+            this.secondPartitions=secondPartitions;
+            this.depth=depth;
+        }
+
+        @Override
+        protected O computeNext(){
+            while(!current.hasNext()){
+                if(next>=firstPartitions.length)
+                    return endOfData();
+                int p=next++;
+                try{
+                    current=process(firstPartitions[p].read(),secondPartitions[p].read(),depth);
+                }catch(IOException e){
+                    for(int i=p;i<firstPartitions.length;i++){
+                        firstPartitions[i].close();
+                        secondPartitions[i].close();
+                    }
+                    throw new RuntimeException(e);
+                }
+            }
+            return current.next();
+        }
+    }
+}
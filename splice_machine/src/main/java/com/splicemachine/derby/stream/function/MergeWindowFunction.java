@@ -15,14 +15,17 @@
 
 package com.splicemachine.derby.stream.function;
 
+import com.google.common.base.Function;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.impl.sql.execute.operations.WindowOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.window.WindowAggregator;
 import com.splicemachine.derby.impl.sql.execute.operations.window.WindowContext;
+import com.splicemachine.derby.stream.control.ExternalSortIterable;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.window.BaseFrameBuffer;
 import com.splicemachine.derby.stream.window.WindowFrameBuffer;
+import org.sparkproject.guava.collect.Iterables;
 import scala.Tuple2;
 
 import java.io.IOException;
@@ -31,8 +34,6 @@ import java.io.ObjectOutput;
 import java.io.Serializable;
 import java.util.*;
 
-import static java.util.Collections.sort;
-
 /**
  * Created by jleach on 4/24/15.
  */
@@ -57,18 +58,21 @@ public class MergeWindowFunction<Op extends WindowOperation> extends SpliceFlatM
 
     @Override
     public Iterable<LocatedRow> call(Tuple2<ExecRow, Iterable<LocatedRow>> tuple) throws Exception {
-        Iterable<LocatedRow> locatedRows = tuple._2();
-        List<LocatedRow> partitionRows =new ArrayList<>();
-        for(LocatedRow lr:locatedRows){
-            partitionRows.add(lr);
-        }
         WindowContext windowContext = operationContext.getOperation().getWindowContext();
-        sort(partitionRows, new LocatedRowComparator(windowContext.getKeyColumns(), windowContext.getKeyOrders()));
+        // a large partition is sorted in bounded memory, spilling sorted runs to disk
+        Iterable<Tuple2<LocatedRow, Object>> partitionRows = Iterables.transform(tuple._2(), new Function<LocatedRow, Tuple2<LocatedRow, Object>>() {
+            @Override
+            public Tuple2<LocatedRow, Object> apply(LocatedRow locatedRow) {
+                return new Tuple2<LocatedRow, Object>(locatedRow, null);
+            }
+        });
+        Iterable<Tuple2<LocatedRow, Object>> sortedRows = new ExternalSortIterable<>(partitionRows,
+                new LocatedRowComparator(windowContext.getKeyColumns(), windowContext.getKeyOrders()));
 
         // window logic
         final WindowFrameBuffer frameBuffer = BaseFrameBuffer.createFrameBuffer(
                 windowContext.getWindowFunctions(),
-                new LocatedToExecRowIter(partitionRows.iterator()),
+                new LocatedToExecRowIter(sortedRows.iterator()),
                 windowContext.getFrameDefinition(),
                 windowContext.getSortColumns(),
                 operationContext.getOperation().getExecRowDefinition().getClone());
@@ -91,9 +95,9 @@ public class MergeWindowFunction<Op extends WindowOperation> extends SpliceFlatM
         }
     }
     private static class LocatedToExecRowIter implements Iterator<ExecRow> {
-        private final Iterator<LocatedRow> delegate;
+        private final Iterator<Tuple2<LocatedRow, Object>> delegate;
 
-        public LocatedToExecRowIter(Iterator<LocatedRow> delegate){
+        public LocatedToExecRowIter(Iterator<Tuple2<LocatedRow, Object>> delegate){
             this.delegate=delegate;
         }
 
@@ -104,7 +108,7 @@ public class MergeWindowFunction<Op extends WindowOperation> extends SpliceFlatM
 
         @Override
         public ExecRow next() {
-            return delegate.next().getRow();
+            return delegate.next()._1().getRow();
         }
 
         @Override
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.google.common.base.Function;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.sparkproject.guava.collect.Lists;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.*;
+
+/**
+ * Returns the first {@code limit} rows of a partition in sort order, without sorting the whole partition.
+ *
+ * Rows are kept in a bounded heap whose head is the worst row retained so far, so each input row
+ * costs at most O(log limit), and only {@code limit} rows are ever held in memory. Applying this
+ * to every partition, and then again to the (coalesced) partial results, yields the global top rows.
+ */
+public class TopNFunction<Op extends SpliceOperation> extends SpliceFlatMapFunction<Op,Iterator<LocatedRow>,LocatedRow> {
+    private int[] keyColumns;
+    private boolean[] descColumns;
+    private boolean[] nullsOrderedLow;
+    private int limit;
+
+    public TopNFunction() {
+        super();
+    }
+
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2",justification = "Intentional")
+    public TopNFunction(OperationContext<Op> operationContext,
+                        int[] keyColumns,
+                        boolean[] descColumns,
+                        boolean[] nullsOrderedLow,
+                        int limit) {
+        super(operationContext);
+        this.keyColumns = keyColumns;
+        this.descColumns = descColumns;
+        this.nullsOrderedLow = nullsOrderedLow;
+        this.limit = limit;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        super.writeExternal(out);
+        out.writeInt(limit);
+        out.writeInt(keyColumns.length);
+        for (int i = 0; i < keyColumns.length; i++) {
+            out.writeInt(keyColumns[i]);
+            out.writeBoolean(descColumns[i]);
+            out.writeBoolean(nullsOrderedLow[i]);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        super.readExternal(in);
+        limit = in.readInt();
+        int numKeys = in.readInt();
+        keyColumns = new int[numKeys];
+        descColumns = new boolean[numKeys];
+        nullsOrderedLow = new boolean[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            keyColumns[i] = in.readInt();
+            descColumns[i] = in.readBoolean();
+            nullsOrderedLow[i] = in.readBoolean();
+        }
+    }
+
+    @Override
+    public Iterable<LocatedRow> call(final Iterator<LocatedRow> locatedRows) throws Exception {
+        //the input is only read once the output is, as with the other (lazy) control-side operations
+        return new Iterable<LocatedRow>() {
+            private List<LocatedRow> topRows;
+
+            @Override
+            public Iterator<LocatedRow> iterator() {
+                if (topRows == null) {
+                    try {
+                        topRows = topRows(locatedRows);
+                    } catch (StandardException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return topRows.iterator();
+            }
+        };
+    }
+
+    private List<LocatedRow> topRows(Iterator<LocatedRow> locatedRows) throws StandardException {
+        Comparator<Entry> order = new EntryComparator(new RowComparator(descColumns, nullsOrderedLow));
+        PriorityQueue<Entry> heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, Collections.reverseOrder(order));
+        long sequence = 0;
+        while (locatedRows.hasNext()) {
+            LocatedRow row = locatedRows.next();
+            Entry entry = new Entry(row.getKeyedExecRow(keyColumns), row, sequence++);
+            if (heap.size() < limit) {
+                heap.add(entry);
+            } else if (order.compare(entry, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+        List<Entry> sorted = new ArrayList<>(heap);
+        Collections.sort(sorted, order);
+        return Lists.transform(sorted, new Function<Entry, LocatedRow>() {
+            @Nullable
+            @Override
+            public LocatedRow apply(@Nullable Entry entry) {
+                assert entry != null;
+                return entry.row;
+            }
+        });
+    }
+
+    private static class Entry {
+        private final ExecRow key;
+        private final LocatedRow row;
+        private final long sequence;
+
+        Entry(ExecRow key, LocatedRow row, long sequence) {
+            this.key = key;
+            this.row = row;
+            this.sequence = sequence;
+        }
+    }
+
+    /*
+     * Rows with equal keys are kept in the order in which they were seen, as a stable sort would.
+     */
+    private static class EntryComparator implements Comparator<Entry> {
+        private final RowComparator keyComparator;
+
+        EntryComparator(RowComparator keyComparator) {
+            this.keyComparator = keyComparator;
+        }
+
+        @Override
+        public int compare(Entry o1, Entry o2) {
+            int c = keyComparator.compare(o1.key, o2.key);
+            if (c != 0) return c;
+            return Long.compare(o1.sequence, o2.sequence);
+        }
+    }
+}
@@ -31,6 +31,7 @@ import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.stream.Stream;
 import com.splicemachine.stream.Streams;
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.concurrent.Callable;
 
@@ -50,13 +51,22 @@ public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends Spli
 
     @Override
     public final Iterable<Out> call(Iterator<In> locatedRows) throws Exception {
-        JoinTable joinTable ;
         operation = getOperation();
+        JoinTable joinTable = joinTable(operation, operationContext);
+        return call(new ClosingIterator<>(locatedRows, joinTable), joinTable);
+    }
+
+    /**
+     * @return a table over the right side of {@code operation}. Every task of the operation which runs in this JVM
+     * while the table is cached shares the same table, so the right side is only read once.
+     */
+    public static JoinTable joinTable(final BroadcastJoinOperation operation, final OperationContext operationContext)
+            throws IOException, StandardException {
         Callable<Stream<ExecRow>> rhsLoader = new Callable<Stream<ExecRow>>() {
             @Override
             public Stream<ExecRow> call() throws Exception {
                 DataSetProcessorFactory dataSetProcessorFactory=EngineDriver.driver().processorFactory();
-                final DataSetProcessor dsp =dataSetProcessorFactory.bulkProcessor(getActivation(),operation.getRightOperation());
+                final DataSetProcessor dsp =dataSetProcessorFactory.bulkProcessor(operationContext.getActivation(),operation.getRightOperation());
                 return Streams.wrap(FluentIterable.from(new Iterable<LocatedRow>(){
                     @Override
                     public Iterator<LocatedRow> iterator(){
@@ -78,10 +88,40 @@ public abstract class AbstractBroadcastJoinFlatMapFunction<In, Out> extends Spli
             }
         };
         ExecRow leftTemplate = operation.getLeftOperation().getExecRowDefinition();
-        joinTable = broadcastJoinCache.get(operation.getSequenceId(), rhsLoader, operation.getRightHashKeys(), operation.getLeftHashKeys(), leftTemplate).newTable();
-
-        return call(locatedRows, joinTable);
+        return broadcastJoinCache.get(operation.getSequenceId(), rhsLoader, operation.getRightHashKeys(), operation.getLeftHashKeys(), leftTemplate).newTable();
     }
 
     protected abstract Iterable<Out> call(Iterator<In> locatedRows, JoinTable joinTable);
+
+    /**
+     * Gives the join table back to the cache once the outer rows are exhausted, so that
+     * the shared table can be released once it is evicted and no other task is using it.
+     */
+    private static class ClosingIterator<T> implements Iterator<T> {
+        private final Iterator<T> delegate;
+        private final JoinTable joinTable;
+
+        ClosingIterator(Iterator<T> delegate, JoinTable joinTable) {
+            this.delegate = delegate;
+            this.joinTable = joinTable;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = delegate.hasNext();
+            if (!hasNext)
+                joinTable.close();
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            return delegate.next();
+        }
+
+        @Override
+        public void remove() {
+            delegate.remove();
+        }
+    }
 }
@@ -24,7 +24,9 @@ import com.splicemachine.derby.stream.iapi.OperationContext;
 import scala.Tuple2;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * Created by dgomezferro on 11/6/15.
@@ -49,22 +51,17 @@ public class CogroupBroadcastJoinFunction extends AbstractBroadcastJoinFlatMapFu
                     @Nullable
                     @Override
                     public Tuple2<LocatedRow, Iterable<LocatedRow>> apply(@Nullable final LocatedRow left) {
-                        FluentIterable<LocatedRow> inner = FluentIterable.from(new Iterable<ExecRow>(){
-                            @Override
-                            public Iterator<ExecRow> iterator(){
-                                try{
-                                    return joinTable.fetchInner(left.getRow());
-                                }catch(Exception e){
-                                    throw new RuntimeException(e);
-                                }
+                        // Fetch the inner rows right away: the join table may be released as soon as
+                        // the outer rows run out, which can happen before a lazy iterable is consumed
+                        List<LocatedRow> inner = new ArrayList<>();
+                        try {
+                            Iterator<ExecRow> innerRows = joinTable.fetchInner(left.getRow());
+                            while (innerRows.hasNext()) {
+                                inner.add(new LocatedRow(innerRows.next()));
                             }
-                        }).transform(new Function<ExecRow, LocatedRow>() {
-                            @Nullable
-                            @Override
-                            public LocatedRow apply(@Nullable ExecRow execRow) {
-                                return new LocatedRow(execRow);
-                            }
-                        });
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
                         return new Tuple2<LocatedRow,Iterable<LocatedRow>>(left, inner);
                     }
                 });
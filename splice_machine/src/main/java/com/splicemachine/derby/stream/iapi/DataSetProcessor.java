@@ -23,6 +23,7 @@ import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.function.Partitioner;
 
 import java.io.InputStream;
+import java.util.List;
 
 /**
  * Higher level constructs for getting datasets and manipulating the processing mechanisms.
@@ -115,5 +116,11 @@ public interface DataSetProcessor {
      */
     void stopJobGroup(String jobName);
 
+    /**
+     * @return the ids of the stages run so far by the given job group, or an empty list if the processor
+     * does not run in stages
+     */
+    List<Integer> getStageIds(String jobName);
+
     Partitioner getPartitioner(DataSet<LocatedRow> dataSet, ExecRow template, int[] keyDecodingMap, boolean[] keyOrder, int[] rightHashKeys);
 }
@@ -34,10 +34,15 @@ public interface OperationContext<Op extends SpliceOperation> extends Externaliz
 
     void recordJoinedLeft();
     void recordJoinedRight();
+    void recordBytesRead(long bytes);
 
     long getRecordsRead();
     long getRecordsFiltered();
     long getRecordsWritten();
+    long getRecordsJoinedLeft();
+    long getRecordsJoinedRight();
+    long getRecordsProduced();
+    long getBytesRead();
     long getRetryAttempts();
     long getRegionTooBusyExceptions();
 
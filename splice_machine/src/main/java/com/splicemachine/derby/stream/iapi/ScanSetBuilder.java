@@ -28,6 +28,7 @@ import com.splicemachine.storage.DataScan;
 import com.splicemachine.storage.DataScanner;
 
 import java.io.IOException;
+import java.util.Set;
 
 /**
  * @author Scott Fines
@@ -80,6 +81,23 @@ public interface ScanSetBuilder<V>{
 
     ScanSetBuilder<V> oneSplitPerRegion(boolean oneSplitPerRegion);
 
+    /**
+     * Only read about {@code sampleFraction} of each partition when collecting statistics; the collected
+     * statistics are scaled up to the whole partition. Ignored by scans which do not collect statistics.
+     */
+    ScanSetBuilder<V> sampleFraction(double sampleFraction);
+
+    /**
+     * Groups of columns (by their positions in the table) whose combined values are collected alongside the
+     * statistics of each column. Ignored by scans which do not collect statistics.
+     */
+    ScanSetBuilder<V> columnGroups(int[][] columnGroups);
+
+    /**
+     * Partitions (by name) which the scan need not read, because none of their rows can satisfy its qualifiers.
+     */
+    ScanSetBuilder<V> skippedPartitions(Set<String> partitionNames);
+
     DataSet<V> buildDataSet() throws StandardException;
 
     DataSet<V> buildDataSet(Object caller) throws StandardException;
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.iterator;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.SITableScanner;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
+import com.splicemachine.derby.stream.control.ControlUtils;
+import com.splicemachine.derby.stream.utils.StreamLogUtils;
+import com.splicemachine.metrics.MetricFactory;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.Partition;
+import org.apache.log4j.Logger;
+import org.sparkproject.guava.util.concurrent.ThreadFactoryBuilder;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scans the partitions of a table concurrently, while still returning rows in key order.
+ *
+ * Each partition of the scan range gets its own {@link SITableScanner}. Up to {@code parallelism}
+ * partitions ahead of the one currently being consumed are read (and SI-filtered and decoded)
+ * on a pool shared by all scans (sized by {@link ControlUtils#scanThreads()}), each into its own
+ * bounded buffer; the consumer drains the buffers in partition order. If the consumer reaches a
+ * partition which no pool thread has picked up yet, it scans that partition itself, so a saturated
+ * pool can delay a scan but never deadlock it.
+ *
+ * A pool thread whose buffer is full waits for the consumer to make room, however slowly it pulls rows
+ * (a client paging through results, say); the scans ahead of the consumer only stop when the iterator is
+ * closed.
+ *
+ * Only the iteration of this class is single-threaded; the partition scans are not.
+ */
+@NotThreadSafe
+public class ParallelTableScannerIterator implements Iterable<LocatedRow>, Iterator<LocatedRow>, Closeable{
+    private static final Logger LOG=Logger.getLogger(ParallelTableScannerIterator.class);
+    private static final int BUFFER_SIZE=1024;
+    private static final long WAIT_MILLIS=100l;
+    private static final Object END=new Object();
+
+    private static volatile ExecutorService scanPool;
+
+    private final TableScannerBuilder builder;
+    private final Partition table;
+    private final MetricFactory metricFactory;
+    private final SpliceOperation operation;
+    private final ExecRow template;
+    private final DataScan baseScan;
+    private final List<PartitionScan> scans;
+    private final int parallelism;
+    private final AtomicLong bytesVisited=new AtomicLong(0l); //by the scans which have finished
+
+    private int currentScan=-1;
+    private int nextToSubmit;
+    private PartitionScan current;
+    private LocatedRow next;
+    private volatile boolean closed;
+
+    public ParallelTableScannerIterator(TableScannerBuilder builder,
+                                        Partition table,
+                                        List<Partition> partitions,
+                                        MetricFactory metricFactory,
+                                        SpliceOperation operation,
+                                        int parallelism){
+        this.builder=builder;
+        this.table=table;
+        this.metricFactory=metricFactory;
+        this.operation=operation;
+        this.parallelism=parallelism;
+        this.template=builder.getTemplate();
+        this.baseScan=builder.getScan();
+        this.scans=new ArrayList<>(partitions.size());
+        for(Partition p : partitions){
+            byte[] start=max(baseScan.getStartKey(),p.getStartKey());
+            byte[] stop=min(baseScan.getStopKey(),p.getEndKey());
+            if(Bytes.empty(stop) || Bytes.startComparator.compare(start,stop)<0)
+                scans.add(new PartitionScan(start,stop));
+        }
+        //every scanner owns its RowLocation, since rows are handed between threads
+        builder.reuseRowLocation(false);
+    }
+
+    @Override
+    public Iterator<LocatedRow> iterator(){
+        return this;
+    }
+
+    @Override
+    public boolean hasNext(){
+        if(next!=null) return true;
+        try{
+            while(true){
+                if(current==null){
+                    if(++currentScan>=scans.size()){
+                        recordBytesRead();
+                        return false;
+                    }
+                    submitAhead();
+                    current=scans.get(currentScan);
+                    current.startConsuming();
+                }
+                LocatedRow row=current.nextRow();
+                if(row!=null){
+                    next=row;
+                    return true;
+                }
+                current=null;
+            }
+        }catch(Exception e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public LocatedRow next(){
+        if(!hasNext()) throw new NoSuchElementException();
+        LocatedRow locatedRow=next;
+        next=null;
+        if(operation!=null){
+            StreamLogUtils.logOperationRecord(locatedRow,operation);
+            operation.setCurrentLocatedRow(locatedRow);
+        }
+        return locatedRow;
+    }
+
+    @Override
+    public void remove(){
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException{
+        if(closed) return;
+        closed=true;
+        for(PartitionScan scan : scans){
+            scan.cancel();
+        }
+        recordBytesRead();
+    }
+
+    /*private helper methods*/
+    private void recordBytesRead(){
+        long bytes=bytesVisited.getAndSet(0l);
+        if(bytes>0 && operation!=null && operation.getOperationContext()!=null)
+            operation.getOperationContext().recordBytesRead(bytes);
+    }
+
+    private void submitAhead(){
+        ExecutorService pool=scanPool();
+        while(nextToSubmit<scans.size() && nextToSubmit<=currentScan+parallelism){
+            final PartitionScan scan=scans.get(nextToSubmit++);
+            if(nextToSubmit-1==currentScan) continue; //the consumer will pick this one up directly
+            try{
+                pool.execute(new Runnable(){
+                    @Override
+                    public void run(){
+                        scan.prefetch();
+                    }
+                });
+            }catch(RejectedExecutionException ree){
+                //the consumer will scan it when it gets there
+                LOG.debug("Parallel scan pool rejected partition scan",ree);
+            }
+        }
+    }
+
+    private SITableScanner newScanner(byte[] start,byte[] stop) throws IOException{
+        synchronized(builder){
+            DataScan scan=baseScan.copy().startKey(start).stopKey(stop);
+            builder.scan(scan).template(template.getClone()).scanner(table.openScanner(scan,metricFactory));
+            return builder.build();
+        }
+    }
+
+    /**
+     * Restrict a scan to the part of its range which falls in a partition.
+     */
+    public static void narrowTo(DataScan scan,Partition partition){
+        byte[] start=max(scan.getStartKey(),partition.getStartKey());
+        byte[] stop=min(scan.getStopKey(),partition.getEndKey());
+        scan.startKey(start).stopKey(stop);
+    }
+
+    private static byte[] max(byte[] scanStart,byte[] partitionStart){
+        return Bytes.startComparator.compare(scanStart,partitionStart)>=0?scanStart:partitionStart;
+    }
+
+    private static byte[] min(byte[] scanStop,byte[] partitionEnd){
+        return Bytes.endComparator.compare(scanStop,partitionEnd)<=0?scanStop:partitionEnd;
+    }
+
+    private static ExecutorService scanPool(){
+        ExecutorService pool=scanPool;
+        if(pool==null){
+            synchronized(ParallelTableScannerIterator.class){
+                pool=scanPool;
+                if(pool==null){
+                    ThreadFactory factory=new ThreadFactoryBuilder()
+                            .setNameFormat("control-scan-%d")
+                            .setDaemon(true)
+                            .build();
+                    int threads=Math.max(1,ControlUtils.scanThreads());
+                    ThreadPoolExecutor tpe=new ThreadPoolExecutor(threads,threads,
+                            60,TimeUnit.SECONDS,new LinkedBlockingQueue<Runnable>(),factory);
+                    tpe.allowCoreThreadTimeOut(true);
+                    pool=scanPool=tpe;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * The scan of a single partition. It is run by whichever thread claims it first: a pool
+     * thread pushes its rows into a bounded buffer, while the consumer thread reads the scanner directly.
+     */
+    private class PartitionScan{
+        private final byte[] start;
+        private final byte[] stop;
+        private final AtomicBoolean claimed=new AtomicBoolean(false);
+        private final BlockingQueue<Object> buffer=new ArrayBlockingQueue<>(BUFFER_SIZE);
+        private volatile boolean interrupted;
+        private SITableScanner scanner; //only used by the consumer
+        private boolean prefetched;
+
+        PartitionScan(byte[] start,byte[] stop){
+            this.start=start;
+            this.stop=stop;
+        }
+
+        void prefetch(){
+            if(!claimed.compareAndSet(false,true)) return;
+            SITableScanner s=null;
+            try{
+                s=newScanner(start,stop);
+                s.open();
+                ExecRow row;
+                while(!closed && (row=s.next())!=null){
+                    //the scanner reuses its row, so the consumer gets a copy
+                    if(!put(new LocatedRow(s.getCurrentRowLocation(),row.getClone())))
+                        return;
+                }
+                put(END);
+            }catch(Throwable t){
+                try{
+                    put(t);
+                }catch(InterruptedException ie){
+                    interrupted=true;
+                    Thread.currentThread().interrupt();
+                }
+            }finally{
+                closeQuietly(s);
+            }
+        }
+
+        void startConsuming() throws Exception{
+            if(claimed.compareAndSet(false,true)){
+                scanner=newScanner(start,stop);
+                scanner.open();
+            }else
+                prefetched=true;
+        }
+
+        LocatedRow nextRow() throws Exception{
+            if(!prefetched){
+                ExecRow row=scanner.next();
+                if(row==null){
+                    closeQuietly(scanner);
+                    scanner=null;
+                    return null;
+                }
+                //the same copy TableScannerIterator makes, since the operations above may hold on to rows
+                return new LocatedRow(scanner.getCurrentRowLocation(),row.getClone());
+            }
+            Object o;
+            while((o=buffer.poll(WAIT_MILLIS,TimeUnit.MILLISECONDS))==null){
+                //everything the pool thread buffered before it was interrupted is visible once interrupted is
+                if(interrupted && buffer.isEmpty())
+                    throw new InterruptedException("Partition scan was interrupted");
+            }
+            if(o==END) return null;
+            if(o instanceof Throwable)
+                throw new ExecutionException((Throwable)o);
+            return (LocatedRow)o;
+        }
+
+        void cancel(){
+            //claim it so nobody starts it, and unblock a producer waiting on a full buffer
+            claimed.set(true);
+            buffer.clear();
+            closeQuietly(scanner);
+            scanner=null;
+        }
+
+        /*
+         * Wait for room in the buffer for as long as it takes the consumer to make some.
+         *
+         * @return false if the iterator was closed
+         */
+        private boolean put(Object o) throws InterruptedException{
+            while(!closed){
+                if(buffer.offer(o,WAIT_MILLIS,TimeUnit.MILLISECONDS)) return true;
+            }
+            return false;
+        }
+
+        private void closeQuietly(SITableScanner s){
+            if(s==null) return;
+            bytesVisited.addAndGet(s.getBytesVisited());
+            try{
+                s.close();
+            }catch(Exception e){
+                LOG.warn("Unable to close partition scanner",e);
+            }
+        }
+    }
+}
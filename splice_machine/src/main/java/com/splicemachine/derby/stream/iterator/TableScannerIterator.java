@@ -77,6 +77,7 @@ public class TableScannerIterator implements Iterable<LocatedRow>, Iterator<Loca
             }
             execRow = tableScanner.next();
             if (execRow==null) {
+                recordBytesRead();
                 tableScanner.close();
                 initialized = false;
                 hasNext = false;
@@ -110,6 +111,10 @@ public class TableScannerIterator implements Iterable<LocatedRow>, Iterator<Loca
     @Override
     public void close() throws IOException {
         if (tableScanner != null) {
+            if (initialized) {
+                recordBytesRead();
+                initialized = false;
+            }
             try {
                 tableScanner.close();
             } catch (StandardException se) {
@@ -117,4 +122,9 @@ public class TableScannerIterator implements Iterable<LocatedRow>, Iterator<Loca
             }
         }
     }
+
+    private void recordBytesRead() {
+        if (operation != null && operation.getOperationContext() != null)
+            operation.getOperationContext().recordBytesRead(tableScanner.getBytesVisited());
+    }
 }
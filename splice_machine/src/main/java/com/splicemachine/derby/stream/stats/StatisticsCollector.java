@@ -17,6 +17,7 @@ package com.splicemachine.derby.stream.stats;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
@@ -28,7 +29,11 @@ import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.impl.sql.execute.operations.scanner.SITableScanner;
+import com.splicemachine.derby.impl.stats.ColumnGroupStatsCollector;
 import com.splicemachine.derby.impl.stats.DvdStatsCollector;
+import com.splicemachine.derby.impl.stats.HistogramColumnStatistics;
+import com.splicemachine.derby.impl.stats.HistogramStatsCollector;
+import com.splicemachine.derby.impl.stats.SampledStatsCollector;
 import com.splicemachine.derby.impl.stats.SimpleOverheadManagedPartitionStatistics;
 import com.splicemachine.metrics.Metrics;
 import com.splicemachine.metrics.Timer;
@@ -61,10 +66,20 @@ public class StatisticsCollector {
     private final long tableConglomerateId;
     private final SITableScanner scanner;
     private final String regionId;
+    /*
+     * The fraction of the partition's rows which is read. Each row read stands for 1/sampleFraction rows
+     */
+    private final double sampleFraction;
+    /*
+     * The groups of columns whose combined values are collected, as positions in the table
+     */
+    private final int[][] columnGroups;
+    private long sampledRows;
 
     protected transient long openScannerTimeMicros = -1l;
     protected transient long closeScannerTimeMicros = -1l;
     private ColumnStatsCollector<DataValueDescriptor>[] dvdCollectors;
+    private List<ColumnGroupStatsCollector> groupCollectors;
     private int[] fieldLengths;
 
     @SuppressFBWarnings(value="EI_EXPOSE_REP2", justification="Intentional")
@@ -72,25 +87,32 @@ public class StatisticsCollector {
                                ExecRow template,
                                int[] columnPositionMap,
                                int[] lengths,
-                               SITableScanner scanner) {
+                               SITableScanner scanner,
+                               double sampleFraction,
+                               int[][] columnGroups) {
         this.txn = txn;
+        this.sampleFraction = sampleFraction>0d && sampleFraction<1d?sampleFraction:1d;
         this.template = template;
         this.columnPositionMap = columnPositionMap;
         this.lengths = lengths;
         this.scanner = scanner;
+        this.columnGroups = columnGroups;
         DataScanner regionScanner = scanner.getRegionScanner();
         Partition region = regionScanner.getPartition();
         String conglomId = region.getTableName();
         regionId = region.getName();
         tableConglomerateId = Long.parseLong(conglomId);
         dvdCollectors = getCollectors();
+        groupCollectors = getGroupCollectors();
         fieldLengths = new int[dvdCollectors.length];
     }
 
     @SuppressWarnings("unchecked")
     public void collect(ExecRow row) throws ExecutionException {
         try{
-            updateRow(scanner, dvdCollectors, fieldLengths, row);
+            long weight = rowWeight();
+            updateRow(scanner, dvdCollectors, fieldLengths, row, weight);
+            updateGroups(row, weight);
         } catch (StandardException | IOException e) {
             throw new ExecutionException(e); //should only be IOExceptions
         }
@@ -98,10 +120,13 @@ public class StatisticsCollector {
 
     public SimpleOverheadManagedPartitionStatistics getStatistics() throws ExecutionException {
         List<ColumnStatistics> columnStats = getFinalColumnStats(dvdCollectors);
+        for (ColumnGroupStatsCollector groupCollector : groupCollectors) {
+            columnStats.add(groupCollector.build());
+        }
 
 //        TimeView readTime = scanner.getTime();
-        long byteCount = scanner.getBytesOutput();
-        long rowCount = scanner.getRowsVisited() - scanner.getRowsFiltered();
+        long byteCount = Math.round(scanner.getBytesOutput()/sampleFraction);
+        long rowCount = Math.round((scanner.getRowsVisited() - scanner.getRowsFiltered())/sampleFraction);
 //        long localReadTimeMicros = readTime.getWallClockTime() / 1000; //scale to microseconds
 //        long remoteReadTimeMicros = getRemoteReadTime(rowCount);
 //        if (remoteReadTimeMicros > 0) {
@@ -129,13 +154,14 @@ public class StatisticsCollector {
     protected void updateRow(SITableScanner scanner,
                              ColumnStatsCollector<DataValueDescriptor>[] dvdCollectors,
                              int[] fieldLengths,
-                             ExecRow row) throws StandardException, IOException {
+                             ExecRow row,
+                             long weight) throws StandardException, IOException {
         scanner.recordFieldLengths(fieldLengths); //get the size of each column
         DataValueDescriptor[] dvds = row.getRowArray();
         for (int i = 0; i < dvds.length; i++) {
             DataValueDescriptor dvd = dvds[i];
-            dvdCollectors[i].update(dvd);
-            dvdCollectors[i].updateSize(fieldLengths[i]);
+            dvdCollectors[i].update(dvd, weight);
+            dvdCollectors[i].updateSize((int)(fieldLengths[i]*weight));
         }
     }
 
@@ -206,17 +232,66 @@ public class StatisticsCollector {
         SConfiguration configuration=EngineDriver.driver().getConfiguration();
         int cardinalityPrecision = configuration.getCardinalityPrecision();
         int topKSize = configuration.getTopkSize();
+        int histogramBuckets = configuration.getHistogramBuckets();
         for(int i=0;i<dvds.length;i++){
             DataValueDescriptor dvd = dvds[i];
             int columnId = columnPositionMap[i];
             int columnLength = lengths[i];
-            collectors[i] = DvdStatsCollector.newCollector(columnId, dvd.getTypeFormatId(), columnLength, topKSize, cardinalityPrecision);
+            int typeFormatId = dvd.getTypeFormatId();
+            collectors[i] = DvdStatsCollector.newCollector(columnId, typeFormatId, columnLength, topKSize, cardinalityPrecision);
+            if(sampleFraction<1d)
+                collectors[i] = new SampledStatsCollector(collectors[i], sampleFraction);
+            if(histogramBuckets>0 && HistogramColumnStatistics.supports(typeFormatId))
+                collectors[i] = new HistogramStatsCollector(collectors[i], typeFormatId, histogramBuckets);
         }
     }
 
     /* ****************************************************************************************************************/
     /*private helper methods*/
 
+    private void updateGroups(ExecRow row, long weight) throws StandardException {
+        if (groupCollectors.isEmpty()) return;
+        DataValueDescriptor[] dvds = row.getRowArray();
+        for (ColumnGroupStatsCollector groupCollector : groupCollectors) {
+            groupCollector.update(dvds, weight);
+        }
+    }
+
+    private List<ColumnGroupStatsCollector> getGroupCollectors() {
+        if (columnGroups == null || columnGroups.length == 0) return Collections.emptyList();
+        SConfiguration configuration=EngineDriver.driver().getConfiguration();
+        List<ColumnGroupStatsCollector> collectors = new ArrayList<>(columnGroups.length);
+        GROUPS: for (int[] group : columnGroups) {
+            int[] rowPositions = new int[group.length];
+            int[] groupLengths = new int[group.length];
+            for (int i = 0; i < group.length; i++) {
+                int rowPosition = -1;
+                for (int j = 0; j < columnPositionMap.length; j++) {
+                    if (columnPositionMap[j] == group[i]) {
+                        rowPosition = j;
+                        break;
+                    }
+                }
+                if (rowPosition < 0) continue GROUPS; //a column of the group is not collected
+                rowPositions[i] = rowPosition;
+                groupLengths[i] = lengths[rowPosition];
+            }
+            collectors.add(new ColumnGroupStatsCollector(group, rowPositions, groupLengths,
+                    configuration.getCardinalityPrecision(), configuration.getTopkSize(), sampleFraction));
+        }
+        return collectors;
+    }
+
+    /*
+     * The number of rows the next sampled row stands for. Weights are whole numbers (the collectors count
+     * rows), chosen so that after n rows their sum is floor(n/sampleFraction)
+     */
+    private long rowWeight() {
+        if (sampleFraction >= 1d) return 1l;
+        long n = sampledRows++;
+        return (long)Math.floor((n+1)/sampleFraction) - (long)Math.floor(n/sampleFraction);
+    }
+
     @SuppressWarnings("unchecked")
     private ColumnStatsCollector<DataValueDescriptor>[] getCollectors() {
         DataValueDescriptor[] dvds = template.getRowArray();
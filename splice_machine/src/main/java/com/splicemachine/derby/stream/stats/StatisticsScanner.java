@@ -63,14 +63,16 @@ public class StatisticsScanner<Data> extends SITableScanner<Data>{
                              final String tableVersion,
                              SIFilterFactory filterFactory,
                              int[] fieldLengths,
-                             int[] columnPositionMap){
+                             int[] columnPositionMap,
+                             double sampleFraction,
+                             int[][] columnGroups){
         super(scanner,region,template,scan,rowDecodingMap,txn,keyColumnEncodingOrder,
                 keyColumnSortOrder,keyColumnTypes,keyDecodingMap,accessedPks,reuseRowLocation,indexName,
                 tableVersion,filterFactory);
         this.columnPositionMap=columnPositionMap;
         this.conglomId = conglomId;
         regionId = region.getRegionName();
-        collector=new StatisticsCollector(txn,template,columnPositionMap,fieldLengths,this);
+        collector=new StatisticsCollector(txn,template,columnPositionMap,fieldLengths,this,sampleFraction,columnGroups);
     }
 
     @Override
@@ -95,7 +97,9 @@ public class StatisticsScanner<Data> extends SITableScanner<Data>{
             for(int i=0;i<columnStatisticsList.size();i++){
                 if(columnStatisticsList.get(i)==null)
                     continue;
-                rows.add(StatisticsAdmin.generateRowFromStats(conglomId,regionId,columnPositionMap[i],columnStatisticsList.get(i)));
+                //column groups follow the columns, and carry their own ids
+                int columnId=i<columnPositionMap.length?columnPositionMap[i]:columnStatisticsList.get(i).columnId();
+                rows.add(StatisticsAdmin.generateRowFromStats(conglomId,regionId,columnId,columnStatisticsList.get(i)));
             }
             rows.add(StatisticsAdmin.generateRowFromStats(conglomId,regionId,statistics));
             initialized=true;
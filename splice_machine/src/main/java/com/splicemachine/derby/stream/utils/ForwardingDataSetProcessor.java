@@ -23,6 +23,7 @@ import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.function.Partitioner;
 import com.splicemachine.derby.stream.iapi.*;
 import java.io.InputStream;
+import java.util.List;
 
 /**
  * @author Scott Fines
@@ -140,6 +141,11 @@ public abstract class ForwardingDataSetProcessor implements DataSetProcessor{
         delegate.stopJobGroup(jobName);
     }
 
+    @Override
+    public List<Integer> getStageIds(String jobName) {
+        return delegate.getStageIds(jobName);
+    }
+
     @Override
     public Partitioner getPartitioner(DataSet<LocatedRow> dataSet, ExecRow template, int[] keyDecodingMap, boolean[] keyOrder, int[] rightHashKeys) {
         return delegate.getPartitioner(dataSet, template, keyDecodingMap, keyOrder,rightHashKeys);
@@ -43,11 +43,14 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
     protected int start;
     protected int end;
     protected int current;
-    protected ArrayList<ExecRow> rows;
+    protected SpillableRowQueue rows;
     protected PeekingIterator<ExecRow> source;
     protected byte[] partition;
     protected int[] sortColumns;
     private boolean initialized;
+    // whether results must be held back until the whole partition has been seen
+    private boolean bufferResults;
+    private ExecRow nextResult;
 
     @SuppressFBWarnings(value="EI_EXPOSE_REP2", justification="Intentional")
     public static WindowFrameBuffer createFrameBuffer(
@@ -88,12 +91,20 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
         // The frame definition will not change over the life of this frame buffer
         this.frameStart = frameDefinition.getFrameStart().getValue();
         this.frameEnd = frameDefinition.getFrameEnd().getValue();
-        this.rows = new ArrayList<ExecRow>();
+        this.rows = new SpillableRowQueue();
         this.resultBuffer = new ResultBuffer();
     }
 
     public ExecRow next() {
-        return resultBuffer.next();
+        if (!hasNext()) {
+            return null;
+        }
+        if (bufferResults) {
+            return resultBuffer.next();
+        }
+        ExecRow row = nextResult;
+        nextResult = null;
+        return row;
     }
 
     private ExecRow nextInternal() throws IOException, StandardException {
@@ -109,7 +120,6 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
             SpliceGenericWindowFunction function = (SpliceGenericWindowFunction) templateRow.getColumn(aggregatorColumnId).getObject();
             row.setColumn(resultColumnId, function.getResult().cloneValue(false));
         }
-        this.resultBuffer.bufferResult(row);
         return row;
     }
 
@@ -129,19 +139,48 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
 
 
     public boolean hasNext() {
-        if (!initialized) {
-            initialized = true;
-            try {
+        try {
+            if (!initialized) {
+                initialized = true;
                 reset();
-                while (nextInternal() != null) {
-                    move();
+                bufferResults = needsWholeFrame();
+                if (bufferResults) {
+                    ExecRow row;
+                    while ((row = nextInternal()) != null) {
+                        resultBuffer.bufferResult(row);
+                        move();
+                    }
+                    finishFrame();
+                    rows.clear();
+                }
+            }
+            if (bufferResults) {
+                return resultBuffer.hasNext();
+            }
+            // otherwise, each row is complete as soon as the frame has been evaluated for it
+            if (nextResult == null) {
+                nextResult = nextInternal();
+                if (nextResult == null) {
+                    rows.clear();
+                    return false;
                 }
-                finishFrame();
-            } catch (Exception se) {
-                throw new RuntimeException(se);
+                move();
+            }
+            return true;
+        } catch (Exception se) {
+            throw new RuntimeException(se);
+        }
+    }
+
+    private boolean needsWholeFrame() {
+        for (WindowAggregator aggregator : aggregators) {
+            SpliceGenericWindowFunction function =
+                    (SpliceGenericWindowFunction) templateRow.getColumn(aggregator.getFunctionColumnId()).getObject();
+            if (function.needsWholeFrame()) {
+                return true;
             }
         }
-        return resultBuffer.hasNext();
+        return false;
     }
 
     @Override
@@ -165,7 +204,7 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
     }
 
     protected void reset() throws StandardException, IOException {
-        rows = new ArrayList<ExecRow>();
+        rows.clear();
 
         // Initialize window functions
         for (WindowAggregator aggregator : this.aggregators) {
@@ -94,7 +94,7 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
                 rows.add(clonedRow);
                 // One more row is added into the frame buffer, include one more row into the window frame
                 end++;
-                add(rows.get(end));
+                add(clonedRow);
             } else {
                 return;
             }
@@ -123,7 +123,7 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
         // Remove rows from buffer if they are no longer needed
         int minIndex = current < start ? current : start;
         for (int i = 0; i < minIndex; ++i) {
-            rows.remove(0);
+            rows.removeFirst();
             start--;
             current--;
             end--;
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.window;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.stream.control.ControlSpillFile;
+import com.splicemachine.derby.stream.control.ControlUtils;
+import org.apache.log4j.Logger;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * The rows of a window frame buffer, in arrival order.
+ *
+ * Rows are appended at the tail and removed from the head, and only rows near the head are
+ * ever looked up by position. So the head of the queue is kept on heap, up to the memory budget,
+ * and rows appended past that are written out to {@link ControlSpillFile}s. Spilled rows are read
+ * back (in order) as the head of the queue drains or as a lookup reaches them.
+ *
+ * This class is not thread safe.
+ */
+public class SpillableRowQueue {
+    private static final Logger LOG = Logger.getLogger(SpillableRowQueue.class);
+
+    private final long memoryBudget;
+    private final File spillDirectory;
+
+    private ArrayList<ExecRow> head = new ArrayList<>();
+    private int headStart;
+    private long headSize;
+
+    private final ArrayDeque<ControlSpillFile<ExecRow, Object>> spillFiles = new ArrayDeque<>();
+    private ControlSpillFile<ExecRow, Object> writing;
+    private ControlSpillFile<ExecRow, Object> readingFile;
+    private Iterator<Tuple2<ExecRow, Object>> reading = Collections.emptyIterator();
+    private long numSpilled;
+
+    public SpillableRowQueue() {
+        this(ControlUtils.windowFrameMemoryBudget(), ControlUtils.spillDirectory());
+    }
+
+    public SpillableRowQueue(long memoryBudget, File spillDirectory) {
+        this.memoryBudget = memoryBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public void add(ExecRow row) throws IOException {
+        // once anything has been spilled, later rows must follow it to keep the queue in order
+        if (numSpilled == 0 && headSize <= memoryBudget) {
+            head.add(row);
+            headSize += ControlUtils.estimateSize(row);
+            return;
+        }
+        if (writing == null) {
+            writing = new ControlSpillFile<>(spillDirectory, "window");
+            spillFiles.add(writing);
+        }
+        writing.write(row, null);
+        numSpilled++;
+    }
+
+    /**
+     * @param i the position of the row, counting from the head of the queue
+     */
+    public ExecRow get(int i) throws IOException {
+        while (headStart + i >= head.size()) {
+            if (!readSpilled()) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+            }
+        }
+        return head.get(headStart + i);
+    }
+
+    public ExecRow removeFirst() throws IOException {
+        ExecRow row = get(0);
+        head.set(headStart++, null);
+        headSize -= ControlUtils.estimateSize(row);
+        if (headStart == head.size()) {
+            head.clear();
+            headStart = 0;
+        } else if (headStart > 1024 && headStart > head.size() / 2) {
+            head = new ArrayList<>(head.subList(headStart, head.size()));
+            headStart = 0;
+        }
+        return row;
+    }
+
+    public int size() {
+        return (int) (head.size() - headStart + numSpilled);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        head = new ArrayList<>();
+        headStart = 0;
+        headSize = 0;
+        for (ControlSpillFile<ExecRow, Object> spillFile : spillFiles) {
+            spillFile.close();
+        }
+        spillFiles.clear();
+        if (readingFile != null) {
+            readingFile.close();
+            readingFile = null;
+        }
+        writing = null;
+        reading = Collections.emptyIterator();
+        numSpilled = 0;
+    }
+
+    /*
+     * Move the next spilled row onto the heap, returning false if nothing has been spilled
+     */
+    private boolean readSpilled() throws IOException {
+        if (numSpilled == 0) {
+            return false;
+        }
+        if (!reading.hasNext()) {
+            readingFile = spillFiles.poll();
+            if (readingFile == writing) {
+                // start a new file for later rows, since this one can no longer be appended to
+                writing = null;
+            }
+            if (LOG.isDebugEnabled())
+                LOG.debug(String.format("Reading back %d spilled window rows", readingFile.size()));
+            reading = readingFile.read();
+        }
+        ExecRow row = reading.next()._1();
+        head.add(row);
+        headSize += ControlUtils.estimateSize(row);
+        numSpilled--;
+        if (!reading.hasNext()) {
+            // the spill file removes itself once it has been read to the end
+            readingFile = null;
+        }
+        return true;
+    }
+}
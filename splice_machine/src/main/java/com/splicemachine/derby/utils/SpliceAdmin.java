@@ -20,6 +20,7 @@ import com.splicemachine.db.iapi.reference.SQLState;
 import com.splicemachine.ddl.DDLMessage;
 import com.splicemachine.derby.ddl.DDLUtils;
 import com.splicemachine.derby.impl.store.access.SpliceTransactionManager;
+import com.splicemachine.derby.management.StatementStatistics;
 import com.splicemachine.protobuf.ProtoUtil;
 import org.sparkproject.guava.collect.Lists;
 import com.splicemachine.EngineDriver;
@@ -809,6 +810,62 @@ public class SpliceAdmin extends BaseAdminProcedures{
         EngineDriver.driver().dbAdministrator().emptyGlobalStatementCache();
     }
 
+    /**
+     * Return the cumulative runtime statistics of the statements executed by each server of the cluster,
+     * one row for each statement on each server. Times are in microseconds, except compile time.
+     */
+    public static void SYSCS_GET_STATEMENT_STATISTICS(final ResultSet[] resultSet) throws SQLException{
+        Map<String,List<StatementStatistics>> statsMap=EngineDriver.driver().dbAdministrator().getStatementStatistics();
+
+        ResultSetBuilder rsBuilder=new ResultSetBuilder();
+        try{
+            rsBuilder.getColumnBuilder()
+                    .addColumn("HOST_NAME",Types.VARCHAR,32)
+                    .addColumn("STATEMENT",Types.VARCHAR,32672)
+                    .addColumn("CALLS",Types.BIGINT)
+                    .addColumn("TOTAL_TIME",Types.BIGINT)
+                    .addColumn("MIN_TIME",Types.BIGINT)
+                    .addColumn("MAX_TIME",Types.BIGINT)
+                    .addColumn("P50_TIME",Types.BIGINT)
+                    .addColumn("P95_TIME",Types.BIGINT)
+                    .addColumn("P99_TIME",Types.BIGINT)
+                    .addColumn("ROWS_RETURNED",Types.BIGINT)
+                    .addColumn("ROWS_SCANNED",Types.BIGINT)
+                    .addColumn("COMPILATIONS",Types.BIGINT)
+                    .addColumn("COMPILE_TIME_MS",Types.BIGINT)
+                    .addColumn("CONTROL_EXECUTIONS",Types.BIGINT)
+                    .addColumn("SPARK_EXECUTIONS",Types.BIGINT);
+            RowBuilder rowBuilder=rsBuilder.getRowBuilder();
+            for(Map.Entry<String,List<StatementStatistics>> entry : statsMap.entrySet()){
+                for(StatementStatistics stats : entry.getValue()){
+                    rowBuilder.getDvd(0).setValue(entry.getKey());
+                    rowBuilder.getDvd(1).setValue(stats.getStatement());
+                    rowBuilder.getDvd(2).setValue(stats.getCalls());
+                    rowBuilder.getDvd(3).setValue(stats.getTotalTime());
+                    rowBuilder.getDvd(4).setValue(stats.getMinTime());
+                    rowBuilder.getDvd(5).setValue(stats.getMaxTime());
+                    rowBuilder.getDvd(6).setValue(stats.getP50Time());
+                    rowBuilder.getDvd(7).setValue(stats.getP95Time());
+                    rowBuilder.getDvd(8).setValue(stats.getP99Time());
+                    rowBuilder.getDvd(9).setValue(stats.getRowsReturned());
+                    rowBuilder.getDvd(10).setValue(stats.getRowsScanned());
+                    rowBuilder.getDvd(11).setValue(stats.getCompilations());
+                    rowBuilder.getDvd(12).setValue(stats.getCompileTimeMillis());
+                    rowBuilder.getDvd(13).setValue(stats.getControlExecutions());
+                    rowBuilder.getDvd(14).setValue(stats.getSparkExecutions());
+                    rowBuilder.addRow();
+                }
+            }
+            resultSet[0]=rsBuilder.buildResultSet((EmbedConnection)getDefaultConn());
+        }catch(StandardException se){
+            throw PublicAPI.wrapStandardException(se);
+        }
+    }
+
+    public static void SYSCS_RESET_STATEMENT_STATISTICS() throws SQLException{
+        EngineDriver.driver().dbAdministrator().resetStatementStatistics();
+    }
+
     private static Collection<PartitionServer> getLoad() throws SQLException{
         try(PartitionAdmin admin=SIDriver.driver().getTableFactory().getAdmin()){
             return admin.allServers();
@@ -56,15 +56,18 @@ import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
 import com.splicemachine.metrics.Metrics;
 import com.splicemachine.pipeline.ErrorState;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.protobuf.ProtoUtil;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.stats.ColumnStatistics;
 import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.Pair;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.sql.*;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
@@ -182,7 +185,6 @@ public class StatisticsAdmin extends BaseAdminProcedures {
             dropTableStatistics(tds,dd,tc);
             ddlNotification(tc,tds);
 //            ExecRow templateOutputRow = buildOutputTemplateRow();
-            TxnView txn = ((SpliceTransactionManager) transactionExecute).getRawTransaction().getActiveStateTxn();
 
             // Create the Dataset.  This needs to stay in a dataset for parallel execution (very important).
             DataSet<ExecRow> dataSet = null;
@@ -191,7 +193,7 @@ public class StatisticsAdmin extends BaseAdminProcedures {
             List<Future<StatsResult>> futures = new ArrayList(tds.size());
             for (TableDescriptor td : tds) {
                 display.put(td.getHeapConglomerateId(),Pair.newPair(schema,td.getName()));
-                futures.add(collectTableStatistics(td, txn, conn));
+                futures.add(collectTableStatistics(td, conn));
             }
             IteratorNoPutResultSet resultsToWrap = wrapResults(conn,
             displayTableStatistics(futures,dd,transactionExecute,display));
@@ -256,13 +258,12 @@ public class StatisticsAdmin extends BaseAdminProcedures {
             TransactionController tc = conn.getLanguageConnection().getTransactionExecute();
             dropTableStatistics(tds,dd,tc);
             ddlNotification(tc, tds);
-            TxnView txn = ((SpliceTransactionManager) tc).getRawTransaction().getActiveStateTxn();
             HashMap<Long,Pair<String,String>> display = new HashMap<>();
             display.put(tableDesc.getHeapConglomerateId(),Pair.newPair(schema,table));
             IteratorNoPutResultSet resultsToWrap = wrapResults(
                 conn,
                 displayTableStatistics(Lists.newArrayList(
-                    collectTableStatistics(tableDesc, txn, conn)
+                    collectTableStatistics(tableDesc, conn)
                 ),
                 dd, tc, display));
             outputResults[0] = new EmbedResultSet40(conn, resultsToWrap, false, null, true);
@@ -316,6 +317,40 @@ public class StatisticsAdmin extends BaseAdminProcedures {
         }
     }
 
+    /**
+     * Collect the statistics of some partitions of a table again, replacing their old statistics and keeping
+     * those of the table's other partitions.
+     *
+     * @param table the table to collect statistics for
+     * @param partitions the partitions of the table to collect
+     * @param lcc the context to collect with, whose transaction must be writable
+     * @return the number of partitions collected
+     */
+    public static int collectPartitionStatistics(TableDescriptor table,
+                                                 List<Partition> partitions,
+                                                 LanguageConnectionContext lcc) throws StandardException, ExecutionException {
+        DataDictionary dd = lcc.getDataDictionary();
+        dd.startWriting(lcc);
+        TransactionController tc = lcc.getTransactionExecute();
+        long heapConglomerateId = table.getHeapConglomerateId();
+        for (Partition partition : partitions) {
+            dd.deletePartitionStatistics(heapConglomerateId, partition.getName(), tc);
+        }
+        ddlNotification(tc, Collections.singletonList(table));
+        List<Future<StatsResult>> futures = new ArrayList<>(partitions.size());
+        for (Partition partition : partitions) {
+            futures.add(collectBaseTableStatistics(table, lcc, null, lcc.getSessionUserId(),
+                    partition.getStartKey(), partition.getEndKey()));
+        }
+        HashMap<Long,Pair<String,String>> display = new HashMap<>();
+        display.put(heapConglomerateId, Pair.newPair(table.getSchemaName(), table.getName()));
+        int collected = 0;
+        for (Object ignored : displayTableStatistics(futures, dd, tc, display)) {
+            collected++;
+        }
+        return collected;
+    }
+
     private static void ddlNotification(TransactionController tc,  List<TableDescriptor> tds) throws StandardException {
         DDLChange ddlChange = ProtoUtil.alterStats(((SpliceTransactionManager) tc).getActiveStateTxn().getTxnId(),tds);
         tc.prepareDataDictionaryChange(DDLUtils.notifyMetadataChange(ddlChange));
@@ -324,28 +359,47 @@ public class StatisticsAdmin extends BaseAdminProcedures {
     /* ****************************************************************************************************************/
     /*private helper methods*/
     private static Future<StatsResult> collectTableStatistics(TableDescriptor table,
-                                                             TxnView txn,
                                                              EmbedConnection conn) throws StandardException, ExecutionException {
 
-       return collectBaseTableStatistics(table, txn, conn);
+       Activation activation = conn.getLanguageConnection().getLastActivation();
+       String userId = activation.getLanguageConnectionContext().getCurrentUserId(activation);
+       return collectBaseTableStatistics(table, conn.getLanguageConnection(), activation, userId, new byte[0], new byte[0]);
     }
 
     private static Future<StatsResult> collectBaseTableStatistics(TableDescriptor table,
-                                                                 TxnView txn,
-                                                                 EmbedConnection conn) throws StandardException, ExecutionException {
+                                                                 LanguageConnectionContext lcc,
+                                                                 Activation activation,
+                                                                 String jobGroup,
+                                                                 byte[] startKey,
+                                                                 byte[] stopKey) throws StandardException, ExecutionException {
         long heapConglomerateId = table.getHeapConglomerateId();
-        Activation activation = conn.getLanguageConnection().getLastActivation();
         DistributedDataSetProcessor dsp = EngineDriver.driver().processorFactory().distributedProcessor();
 
+        /*
+         * The statistics are read with a transaction of their own, begun after the collection time, so that they
+         * see every row committed before that time; the collecting transaction only sees the rows committed before
+         * it began. Rows written before the collection time by transactions which are still active are missed,
+         * so in that case the statistics are marked stale, and are not used as zone maps (see ZoneMap). Those
+         * which commit before we can tell are caught by the partition's server, which counts a partition as
+         * changed until every transaction that wrote to it has finished, and a commit as a write of its own
+         */
+        long collectionTime = System.currentTimeMillis();
+        TxnView txn;
+        boolean stale;
+        try {
+            txn = SIDriver.driver().lifecycleManager().beginTransaction();
+            stale = SIDriver.driver().getTxnStore().getActiveTransactionIds(0l, txn.getTxnId(),
+                    Bytes.toBytes(Long.toString(heapConglomerateId))).length > 0;
+        } catch (IOException e) {
+            throw Exceptions.parseException(e);
+        }
+
         ScanSetBuilder ssb = dsp.newScanSet(null,Long.toString(heapConglomerateId)).activation(activation);
-        ScanSetBuilder scanSetBuilder = createTableScanner(ssb,conn,table,txn);
+        ScanSetBuilder scanSetBuilder = createTableScanner(ssb,lcc,table,txn,createScan(txn).startKey(startKey).stopKey(stopKey));
         String scope = getScopeName(table);
 
-        String userId = activation.getLanguageConnectionContext().getCurrentUserId(activation);
-        String jobGroup = userId;
-
         try {
-            return EngineDriver.driver().getOlapClient().submit(new DistributedStatsCollection(scanSetBuilder, scope, jobGroup));
+            return EngineDriver.driver().getOlapClient().submit(new DistributedStatsCollection(scanSetBuilder, scope, jobGroup, collectionTime, stale));
         } catch (Exception e) {
             throw Exceptions.parseException(e);
         }
@@ -356,8 +410,7 @@ public class StatisticsAdmin extends BaseAdminProcedures {
     }
 
     private static DataScan createScan (TxnView txn) {
-        DataScan scan=SIDriver.driver().getOperationFactory().newDataScan(txn);
-        return scan.startKey(new byte[0]).stopKey(new byte[0]);
+        return SIDriver.driver().getOperationFactory().newDataScan(txn);
     }
 
     public static int[] getFormatIds(EmbedConnection conn, long columnStatsConglomId) throws StandardException{
@@ -368,9 +421,10 @@ public class StatisticsAdmin extends BaseAdminProcedures {
     }
 
     private static ScanSetBuilder createTableScanner(ScanSetBuilder builder,
-                                                     EmbedConnection conn,
+                                                     LanguageConnectionContext lcc,
                                                      TableDescriptor table,
-                                                     TxnView txn) throws StandardException{
+                                                     TxnView txn,
+                                                     DataScan scan) throws StandardException{
 
         List<ColumnDescriptor> colsToCollect = getCollectedColumns(table);
         ExecRow row = new ValueRow(colsToCollect.size());
@@ -398,7 +452,7 @@ public class StatisticsAdmin extends BaseAdminProcedures {
             fieldLengths[outputCol] = allColumnLengths[i];
             outputCol++;
         }
-        TransactionController transactionExecute = conn.getLanguageConnection().getTransactionExecute();
+        TransactionController transactionExecute = lcc.getTransactionExecute();
         SpliceConglomerate conglomerate = (SpliceConglomerate) ((SpliceTransactionManager) transactionExecute)
                 .findConglomerate(table.getHeapConglomerateId());
         boolean[] keyColumnSortOrder = conglomerate.getAscDescInfo();
@@ -422,10 +476,9 @@ public class StatisticsAdmin extends BaseAdminProcedures {
                 }
             }
         }
-        DataScan scan = createScan(txn);
         ExecRow rowTemplate = new ValueRow(execRowFormatIds.length);
         DataValueDescriptor[] dvds = rowTemplate.getRowArray();
-        DataValueFactory dataValueFactory=conn.getLanguageConnection().getDataValueFactory();
+        DataValueFactory dataValueFactory=lcc.getDataValueFactory();
         for(int i=0;i<execRowFormatIds.length;i++){
             dvds[i] = dataValueFactory.getNull(execRowFormatIds[i],-1);
         }
@@ -444,7 +497,9 @@ public class StatisticsAdmin extends BaseAdminProcedures {
                 .tableVersion(table.getVersion())
                 .fieldLengths(fieldLengths)
                 .columnPositionMap(columnPositionMap)
-                .oneSplitPerRegion(true);
+                .oneSplitPerRegion(true)
+                .sampleFraction(EngineDriver.driver().getConfiguration().getStatisticsSampleFraction())
+                .columnGroups(getColumnGroups(table));
     }
 
     private static IteratorNoPutResultSet wrapResults(EmbedConnection conn, Iterable<ExecRow> rows) throws
@@ -561,6 +616,42 @@ public class StatisticsAdmin extends BaseAdminProcedures {
         return toCollect;
     }
 
+    /*
+     * Find the groups of columns whose combined values are worth collecting: the leading columns of the primary
+     * key and of each index, two columns or more at a time. Columns which are indexed together are the ones most
+     * often restricted and joined on together. Key columns are always collected (see getCollectedColumns).
+     */
+    private static int[][] getColumnGroups(TableDescriptor td) throws StandardException {
+        List<int[]> keys = new ArrayList<>();
+        ConglomerateDescriptor heapConglom = td.getConglomerateDescriptor(td.getHeapConglomerateId());
+        IndexRowGenerator pkDescriptor = heapConglom.getIndexDescriptor();
+        if (pkDescriptor != null && pkDescriptor.getIndexDescriptor() != null)
+            keys.add(pkDescriptor.baseColumnPositions());
+        IndexLister indexLister = td.getIndexLister();
+        if (indexLister != null) {
+            for (IndexRowGenerator irg : indexLister.getDistinctIndexRowGenerators()) {
+                if (irg.getIndexDescriptor() != null)
+                    keys.add(irg.baseColumnPositions());
+            }
+        }
+        List<int[]> groups = new ArrayList<>();
+        for (int[] key : keys) {
+            for (int length = 2; length <= key.length; length++) {
+                int[] group = Arrays.copyOf(key, length);
+                boolean found = false;
+                for (int[] existing : groups) {
+                    if (Arrays.equals(existing, group)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found)
+                    groups.add(group);
+            }
+        }
+        return groups.toArray(new int[groups.size()][]);
+    }
+
     private static void ensureNotKeyed(ColumnDescriptor descriptor, TableDescriptor td) throws StandardException {
         ConglomerateDescriptor heapConglom = td.getConglomerateDescriptor(td.getHeapConglomerateId());
         IndexRowGenerator pkDescriptor = heapConglom.getIndexDescriptor();
@@ -583,12 +674,18 @@ public class StatisticsAdmin extends BaseAdminProcedures {
         }
     }
 
+    /**
+     * The row is built once the partition has been read, so its time is not one before which every row the
+     * collection saw was written, and the statistics are marked stale. The collection which reads them replaces
+     * both with the time it took before it began, and whether anyone was still writing then (see StatsCollectionJob);
+     * until it does they must not be used as a zone map.
+     */
     public static ExecRow generateRowFromStats(long conglomId, String partitionId,SimpleOverheadManagedPartitionStatistics statistics) throws StandardException {
         ExecRow row = new ValueRow(SYSTABLESTATISTICSRowFactory.SYSTABLESTATISTICS_COLUMN_COUNT);
         row.setColumn(SYSTABLESTATISTICSRowFactory.CONGLOMID,new SQLLongint(conglomId));
         row.setColumn(SYSTABLESTATISTICSRowFactory.PARTITIONID,new SQLVarchar(partitionId));
         row.setColumn(SYSTABLESTATISTICSRowFactory.TIMESTAMP,new SQLTimestamp(new Timestamp(System.currentTimeMillis())));
-        row.setColumn(SYSTABLESTATISTICSRowFactory.STALENESS,new SQLBoolean(false));
+        row.setColumn(SYSTABLESTATISTICSRowFactory.STALENESS,new SQLBoolean(true));
         row.setColumn(SYSTABLESTATISTICSRowFactory.INPROGRESS,new SQLBoolean(false));
         row.setColumn(SYSTABLESTATISTICSRowFactory.ROWCOUNT,new SQLLongint(statistics.rowCount()));
         row.setColumn(SYSTABLESTATISTICSRowFactory.PARTITION_SIZE,new SQLLongint(statistics.totalSize()));
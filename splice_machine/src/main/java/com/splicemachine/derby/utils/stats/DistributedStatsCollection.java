@@ -29,13 +29,21 @@ public class DistributedStatsCollection extends DistributedJob {
     String jobGroup;
     ScanSetBuilder scanSetBuilder;
     String scope;
+    /*
+     * The time before which every row the scan can see was written, and whether anyone was still writing to
+     * the table when the scan began (in which case the statistics may miss some rows written before that time)
+     */
+    long collectionTime;
+    boolean stale;
 
     public DistributedStatsCollection() {}
 
-    public DistributedStatsCollection(ScanSetBuilder scanSetBuilder, String scope, String jobGroup) {
+    public DistributedStatsCollection(ScanSetBuilder scanSetBuilder, String scope, String jobGroup, long collectionTime, boolean stale) {
         this.scanSetBuilder = scanSetBuilder;
         this.scope = scope;
         this.jobGroup = jobGroup;
+        this.collectionTime = collectionTime;
+        this.stale = stale;
     }
 
     @Override
@@ -16,12 +16,16 @@
 package com.splicemachine.derby.utils.stats;
 
 import com.splicemachine.EngineDriver;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLBoolean;
+import com.splicemachine.db.iapi.types.SQLTimestamp;
+import com.splicemachine.db.impl.sql.catalog.SYSTABLESTATISTICSRowFactory;
 import com.splicemachine.concurrent.Clock;
 import com.splicemachine.derby.iapi.sql.olap.OlapStatus;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.stream.iapi.DistributedDataSetProcessor;
 import org.apache.log4j.Logger;
-
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.concurrent.Callable;
 
@@ -50,6 +54,13 @@ public class StatsCollectionJob implements Callable<Void> {
         dsp.setJobGroup(request.jobGroup, "");
         try {
             List<LocatedRow> result = request.scanSetBuilder.buildDataSet(request.scope).collect();
+            for (LocatedRow locatedRow : result) {
+                ExecRow row = locatedRow.getRow();
+                if (row.nColumns() == SYSTABLESTATISTICSRowFactory.SYSTABLESTATISTICS_COLUMN_COUNT) {
+                    row.setColumn(SYSTABLESTATISTICSRowFactory.TIMESTAMP, new SQLTimestamp(new Timestamp(request.collectionTime)));
+                    row.setColumn(SYSTABLESTATISTICSRowFactory.STALENESS, new SQLBoolean(request.stale));
+                }
+            }
             jobStatus.markCompleted(new StatsResult(result));
             return null;
         } catch (Exception e) {
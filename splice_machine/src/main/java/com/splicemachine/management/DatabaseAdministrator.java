@@ -16,6 +16,7 @@
 package com.splicemachine.management;
 
 import com.splicemachine.access.api.DatabaseVersion;
+import com.splicemachine.derby.management.StatementStatistics;
 
 import java.sql.SQLException;
 import java.util.List;
@@ -47,4 +48,8 @@ public interface DatabaseAdministrator{
     void setGlobalDatabaseProperty(String key, String value) throws SQLException;
 
     void emptyGlobalStatementCache() throws SQLException;
+
+    Map<String,List<StatementStatistics>> getStatementStatistics() throws SQLException;
+
+    void resetStatementStatistics() throws SQLException;
 }
@@ -19,6 +19,7 @@ import com.splicemachine.access.api.DatabaseVersion;
 import com.splicemachine.access.api.PartitionAdmin;
 import com.splicemachine.db.iapi.error.PublicAPI;
 import com.splicemachine.derby.management.StatementManagement;
+import com.splicemachine.derby.management.StatementStatistics;
 import com.splicemachine.derby.utils.DatabasePropertyManagement;
 import com.splicemachine.hbase.jmx.JMXUtils;
 import com.splicemachine.pipeline.Exceptions;
@@ -190,6 +191,32 @@ public class JmxDatabaseAdminstrator implements DatabaseAdministrator{
         });
     }
 
+    @Override
+    public Map<String,List<StatementStatistics>> getStatementStatistics() throws SQLException{
+        final Map<String,List<StatementStatistics>> data = new HashMap<>();
+        operate(new JMXServerOperation(){
+            @Override
+            public void operate(List<Pair<String, JMXConnector>> connections) throws MalformedObjectNameException, IOException, SQLException{
+                for(Pair<String, StatementManagement> managementPair : JMXUtils.getStatementManagers(connections)){
+                    data.put(managementPair.getFirst(),managementPair.getSecond().getStatementStatistics());
+                }
+            }
+        });
+        return data;
+    }
+
+    @Override
+    public void resetStatementStatistics() throws SQLException{
+        operate(new JMXServerOperation(){
+            @Override
+            public void operate(List<Pair<String, JMXConnector>> connections) throws MalformedObjectNameException, IOException, SQLException{
+                for(Pair<String, StatementManagement> managementPair : JMXUtils.getStatementManagers(connections)){
+                    managementPair.getSecond().resetStatementStatistics();
+                }
+            }
+        });
+    }
+
     /* ***************************************************************************************************************/
     /*private helper methods*/
     private interface JMXServerOperation{
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.db.impl.sql.compile;
+
+import com.splicemachine.derby.test.framework.SpliceSchemaWatcher;
+import com.splicemachine.derby.test.framework.SpliceUnitTest;
+import com.splicemachine.derby.test.framework.SpliceWatcher;
+import com.splicemachine.test_tools.TableCreator;
+import org.junit.*;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TestRule;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Estimates of predicates on groups of indexed columns, with statistics on the combined values of each
+ * group (prefixes of two or more columns of an index).
+ *
+ * CORR has 1000 rows with a = b = i%100, so each (a,b) combination appears on 10 rows, where treating a and b
+ * as independent estimates under one. INDEP_1 and INDEP_2 have 1000 rows each with a = i%10 and b = (i/10)%10,
+ * so joining them on (a,b) returns 100 combinations of 10x10 rows, where the selectivity of a single join column
+ * estimates ten times as many.
+ */
+public class ColumnGroupSelectivityIT extends SpliceUnitTest {
+    public static final String CLASS_NAME = ColumnGroupSelectivityIT.class.getSimpleName().toUpperCase();
+    protected static SpliceWatcher spliceClassWatcher = new SpliceWatcher(CLASS_NAME);
+    protected static SpliceSchemaWatcher spliceSchemaWatcher = new SpliceSchemaWatcher(CLASS_NAME);
+
+    private static final Pattern OUTPUT_ROWS = Pattern.compile("outputRows=([0-9]+)");
+
+    @ClassRule
+    public static TestRule chain = RuleChain.outerRule(spliceClassWatcher)
+            .around(spliceSchemaWatcher);
+    @Rule
+    public SpliceWatcher methodWatcher = new SpliceWatcher(CLASS_NAME);
+
+    public static void createData(Connection conn, String schemaName) throws Exception {
+        new TableCreator(conn)
+                .withCreate("create table corr (a int, b int, c int)")
+                .withIndex("create index corr_abc on corr(a, b, c)")
+                .create();
+        new TableCreator(conn)
+                .withCreate("create table corr_noindex (a int, b int, c int)")
+                .create();
+        new TableCreator(conn)
+                .withCreate("create table indep_1 (a int, b int, c int)")
+                .withIndex("create index indep_1_ab on indep_1(a, b)")
+                .create();
+        new TableCreator(conn)
+                .withCreate("create table indep_2 (a int, b int, c int)")
+                .withIndex("create index indep_2_ab on indep_2(a, b)")
+                .create();
+
+        insert(conn, "corr", 100, 1);
+        insert(conn, "corr_noindex", 100, 1);
+        insert(conn, "indep_1", 10, 10);
+        insert(conn, "indep_2", 10, 10);
+
+        conn.createStatement().executeQuery(String.format(
+                "call SYSCS_UTIL.COLLECT_SCHEMA_STATISTICS('%s',false)",
+                schemaName));
+        conn.commit();
+    }
+
+    /*
+     * Insert 1000 rows of (i%aValues, (i/bDivisor)%aValues, i)
+     */
+    private static void insert(Connection conn, String table, int aValues, int bDivisor) throws Exception {
+        try (PreparedStatement ps = conn.prepareStatement("insert into " + table + " values (?,?,?)")) {
+            for (int i = 0; i < 1000; i++) {
+                ps.setInt(1, i % aValues);
+                ps.setInt(2, (i / bDivisor) % aValues);
+                ps.setInt(3, i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    @BeforeClass
+    public static void createDataSet() throws Exception {
+        createData(spliceClassWatcher.getOrCreateConnection(), spliceSchemaWatcher.toString());
+    }
+
+    @Test
+    public void testPrefixOfIndexUsesGroupSelectivity() throws Exception {
+        long rows = outputRows("explain select * from corr --splice-properties index=null\n where a=5 and b=5", "TableScan");
+        Assert.assertTrue("Correlated columns estimated as independent: " + rows, rows >= 5 && rows <= 20);
+    }
+
+    @Test
+    public void testGroupSelectivityRegardlessOfPredicateOrder() throws Exception {
+        long rows = outputRows("explain select * from corr --splice-properties index=null\n where b=5 and a=5", "TableScan");
+        Assert.assertTrue("Correlated columns estimated as independent: " + rows, rows >= 5 && rows <= 20);
+    }
+
+    @Test
+    public void testNoGroupWithoutIndex() throws Exception {
+        long rows = outputRows("explain select * from corr_noindex where a=5 and b=5", "TableScan");
+        Assert.assertTrue("Columns with no group statistics estimated from a group: " + rows, rows < 5);
+    }
+
+    @Test
+    public void testPartialPrefixUsesSingleColumn() throws Exception {
+        long rows = outputRows("explain select * from corr --splice-properties index=null\n where a=5 and c=105", "TableScan");
+        Assert.assertTrue("(a,c) is not a prefix of the index but was estimated as a group: " + rows, rows < 5);
+    }
+
+    @Test
+    public void testJoinOnGroupUsesGroupCardinality() throws Exception {
+        long rows = outputRows("explain select * from --splice-properties joinOrder=fixed\n" +
+                " indep_1, indep_2 --splice-properties joinStrategy=BROADCAST\n" +
+                " where indep_1.a = indep_2.a and indep_1.b = indep_2.b", "Join");
+        Assert.assertTrue("Join on (a,b) not estimated from the group cardinality: " + rows,
+                rows >= 5000 && rows <= 20000);
+    }
+
+    @Test
+    public void testColumnStatisticsViewSkipsGroups() throws Exception {
+        try (PreparedStatement ps = methodWatcher.prepareStatement("select count(*) from sys.syscolumnstats cs, " +
+                "sys.sysconglomerates c, sys.systables t, sys.sysschemas s " +
+                "where cs.conglom_id = c.conglomeratenumber and c.tableid = t.tableid and c.isindex = false " +
+                "and t.schemaid = s.schemaid and s.schemaname = ? and t.tablename = ? and cs.column_id < 0")) {
+            ps.setString(1, spliceSchemaWatcher.schemaName);
+            ps.setString(2, "CORR");
+            try (ResultSet rs = ps.executeQuery()) {
+                Assert.assertTrue("No rows returned", rs.next());
+                Assert.assertTrue("No group statistics were stored", rs.getLong(1) > 0);
+            }
+        }
+        try (PreparedStatement ps = methodWatcher.prepareStatement("select columnname, cardinality " +
+                "from sys.syscolumnstatistics where schemaname = ? and tablename = ? order by columnname")) {
+            ps.setString(1, spliceSchemaWatcher.schemaName);
+            ps.setString(2, "CORR");
+            try (ResultSet rs = ps.executeQuery()) {
+                String[] columns = {"A", "B", "C"};
+                for (String column : columns) {
+                    Assert.assertTrue("Missing statistics of column " + column, rs.next());
+                    Assert.assertEquals("Incorrect column", column, rs.getString(1));
+                }
+                boolean more = rs.next();
+                Assert.assertFalse("Group statistics returned as a column: " + (more ? rs.getString(1) : null), more);
+            }
+        }
+    }
+
+    /*
+     * The estimated output rows of the first step of the plan containing the given string
+     */
+    private long outputRows(String query, String step) throws Exception {
+        try (ResultSet rs = methodWatcher.executeQuery(query)) {
+            while (rs.next()) {
+                String line = rs.getString(1);
+                if (!line.contains(step)) continue;
+                Matcher m = OUTPUT_ROWS.matcher(line);
+                Assert.assertTrue("No output rows in " + line, m.find());
+                return Long.parseLong(m.group(1));
+            }
+        }
+        Assert.fail("No " + step + " in the plan of " + query);
+        return -1;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.db;
+
+import com.splicemachine.db.iapi.jdbc.EngineConnection;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.SchemaDescriptor;
+import com.splicemachine.db.iapi.sql.execute.ExecutionContext;
+import com.splicemachine.db.iapi.store.access.TransactionController;
+import com.splicemachine.db.impl.sql.GenericStatement;
+import com.splicemachine.db.impl.sql.GenericStorablePreparedStatement;
+import com.splicemachine.db.impl.sql.catalog.DataDictionaryCache;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class StatementCacheSnapshotTest{
+    private static final String SQL="select * from t where a = ?";
+
+    @Rule public TemporaryFolder folder=new TemporaryFolder();
+
+    @Test
+    public void warmedStatementsAreFoundUnderTheirPrepareIsolationLevel() throws Exception{
+        DataDictionary dd=mock(DataDictionary.class);
+        when(dd.canUseCache(any(TransactionController.class))).thenReturn(true);
+        SchemaDescriptor schema=new SchemaDescriptor(dd,"APP","SPLICE",null,false);
+
+        // before the restart, the network server prepared the statement with READ UNCOMMITTED
+        DataDictionaryCache before=new DataDictionaryCache(new Properties(),dd);
+        GenericStatement hot=new GenericStatement(schema,SQL,true,ExecutionContext.READ_UNCOMMITTED_ISOLATION_LEVEL);
+        before.statementCacheAdd(hot,new GenericStorablePreparedStatement(hot));
+        Assert.assertNotNull(before.statementCacheFind(hot));
+
+        StatementCacheSnapshot snapshot=new StatementCacheSnapshot(new File(folder.getRoot(),"statements"),10);
+        snapshot.save(before);
+        List<StatementCacheSnapshot.Entry> entries=snapshot.load();
+        Assert.assertEquals("Incorrect number of saved statements",1,entries.size());
+        Assert.assertEquals("Incorrect saved isolation level",
+                ExecutionContext.READ_UNCOMMITTED_ISOLATION_LEVEL,entries.get(0).getIsolationLevel());
+
+        DataDictionaryCache after=new DataDictionaryCache(new Properties(),dd);
+        Assert.assertEquals("Incorrect number of warmed statements",1,snapshot.warm(connection(after,schema)));
+
+        GenericStorablePreparedStatement found=after.statementCacheFind(
+                new GenericStatement(schema,SQL,true,ExecutionContext.READ_UNCOMMITTED_ISOLATION_LEVEL));
+        Assert.assertNotNull("Warmed statement not found in the statement cache",found);
+        Assert.assertEquals("Incorrect number of cache hits",1,found.getCacheHits());
+        Assert.assertNull("Statement should only be cached under its own isolation level",
+                after.statementCacheFind(new GenericStatement(schema,SQL,true,ExecutionContext.UNSPECIFIED_ISOLATION_LEVEL)));
+    }
+
+    /*
+     * A connection which looks up and caches the statements it prepares the way the language
+     * connection context does, under its current prepare isolation level
+     */
+    private static EngineConnection connection(final DataDictionaryCache cache,final SchemaDescriptor schema) throws SQLException{
+        EngineConnection conn=mock(EngineConnection.class);
+        final int[] isolationLevel={ExecutionContext.UNSPECIFIED_ISOLATION_LEVEL};
+        doAnswer(new Answer<Void>(){
+            @Override
+            public Void answer(InvocationOnMock invocation){
+                isolationLevel[0]=(Integer)invocation.getArguments()[0];
+                return null;
+            }
+        }).when(conn).setPrepareIsolation(anyInt());
+        when(conn.createStatement()).thenReturn(mock(Statement.class));
+        when(conn.prepareStatement(anyString(),anyInt(),anyInt())).thenAnswer(new Answer<PreparedStatement>(){
+            @Override
+            public PreparedStatement answer(InvocationOnMock invocation) throws Throwable{
+                Object[] args=invocation.getArguments();
+                GenericStatement statement=new GenericStatement(schema,(String)args[0],
+                        (Integer)args[2]==ResultSet.CONCUR_READ_ONLY,isolationLevel[0]);
+                if(cache.statementCacheFind(statement)==null)
+                    cache.statementCacheAdd(statement,new GenericStorablePreparedStatement(statement));
+                return mock(PreparedStatement.class);
+            }
+        });
+        return conn;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.derby.test.framework.SpliceSchemaWatcher;
+import com.splicemachine.derby.test.framework.SpliceUnitTest;
+import com.splicemachine.derby.test.framework.SpliceWatcher;
+import com.splicemachine.test_tools.TableCreator;
+import org.junit.*;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TestRule;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+
+/**
+ * APPROX_COUNT_DISTINCT, APPROX_TOP_K and the APPROX_MEDIAN/APPROX_PERCENTILE aggregates.
+ *
+ * T has 10000 rows with I and D running from 0 to 9999, and K equal to 'hot' on 1000 rows, 'warm' on 500 and
+ * one of 1000 other values on the rest, plus 100 rows which are null in every column. T_EMPTY has no rows.
+ */
+public class ApproxAggregatesIT extends SpliceUnitTest {
+    public static final String CLASS_NAME = ApproxAggregatesIT.class.getSimpleName().toUpperCase();
+    protected static SpliceWatcher spliceClassWatcher = new SpliceWatcher(CLASS_NAME);
+    protected static SpliceSchemaWatcher spliceSchemaWatcher = new SpliceSchemaWatcher(CLASS_NAME);
+
+    private static final int ROWS = 10000;
+    private static final int NULL_ROWS = 100;
+
+    @ClassRule
+    public static TestRule chain = RuleChain.outerRule(spliceClassWatcher)
+            .around(spliceSchemaWatcher);
+    @Rule
+    public SpliceWatcher methodWatcher = new SpliceWatcher(CLASS_NAME);
+
+    @BeforeClass
+    public static void createDataSet() throws Exception {
+        Connection conn = spliceClassWatcher.getOrCreateConnection();
+        new TableCreator(conn)
+                .withCreate("create table t (i int, d double, k varchar(20))")
+                .create();
+        new TableCreator(conn)
+                .withCreate("create table t_empty (i int, d double, k varchar(20))")
+                .create();
+        try (PreparedStatement ps = conn.prepareStatement("insert into t values (?,?,?)")) {
+            for (int i = 0; i < ROWS; i++) {
+                ps.setInt(1, i);
+                ps.setDouble(2, i);
+                ps.setString(3, i < 1000 ? "hot" : i < 1500 ? "warm" : "v" + (i % 1000));
+                ps.addBatch();
+            }
+            for (int i = 0; i < NULL_ROWS; i++) {
+                ps.setNull(1, Types.INTEGER);
+                ps.setNull(2, Types.DOUBLE);
+                ps.setNull(3, Types.VARCHAR);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        conn.commit();
+    }
+
+    @Test
+    public void testCountDistinctWithinTolerance() throws Exception {
+        try (ResultSet rs = methodWatcher.executeQuery(
+                "select approx_count_distinct(i), approx_count_distinct(d), approx_count_distinct(k) from t")) {
+            Assert.assertTrue("No rows returned", rs.next());
+            assertWithin("Incorrect distinct count of an int column", ROWS, rs.getLong(1), 0.03d);
+            assertWithin("Incorrect distinct count of a double column", ROWS, rs.getLong(2), 0.03d);
+            assertWithin("Incorrect distinct count of a varchar column", 1002, rs.getLong(3), 0.03d);
+            Assert.assertFalse("Too many rows returned", rs.next());
+        }
+    }
+
+    @Test
+    public void testGroupedCountDistinct() throws Exception {
+        try (ResultSet rs = methodWatcher.executeQuery(
+                "select mod(i,4), approx_count_distinct(i) from t where i is not null group by mod(i,4) order by 1")) {
+            for (int g = 0; g < 4; g++) {
+                Assert.assertTrue("Missing group " + g, rs.next());
+                Assert.assertEquals("Incorrect group", g, rs.getInt(1));
+                assertWithin("Incorrect distinct count of group " + g, ROWS / 4, rs.getLong(2), 0.03d);
+            }
+            Assert.assertFalse("Too many groups returned", rs.next());
+        }
+    }
+
+    @Test
+    public void testTopKListsMostFrequentFirst() throws Exception {
+        try (ResultSet rs = methodWatcher.executeQuery("select approx_top_k(k) from t")) {
+            Assert.assertTrue("No rows returned", rs.next());
+            String topK = rs.getString(1);
+            Assert.assertNotNull("No frequent values", topK);
+            String[] entries = topK.split(", ");
+            Assert.assertTrue("Too many values reported: " + topK, entries.length <= 10);
+            assertEntry(topK, entries[0], "hot", 1000);
+            assertEntry(topK, entries[1], "warm", 500);
+            Assert.assertFalse("Null counted as a value: " + topK, topK.contains("null="));
+        }
+    }
+
+    @Test
+    public void testPercentilesWithinTolerance() throws Exception {
+        try (ResultSet rs = methodWatcher.executeQuery(
+                "select approx_median(d), approx_percentile_90(d), approx_percentile_99(d), approx_median(i) from t")) {
+            Assert.assertTrue("No rows returned", rs.next());
+            // 2% of the range of values
+            Assert.assertEquals("Incorrect median", 5000d, rs.getDouble(1), ROWS * 0.02d);
+            Assert.assertEquals("Incorrect 90th percentile", 9000d, rs.getDouble(2), ROWS * 0.02d);
+            Assert.assertEquals("Incorrect 99th percentile", 9900d, rs.getDouble(3), ROWS * 0.02d);
+            Assert.assertEquals("Incorrect median of an int column", 5000d, rs.getDouble(4), ROWS * 0.02d);
+        }
+    }
+
+    @Test
+    public void testEmptyInput() throws Exception {
+        assertNoValues("select approx_count_distinct(k), approx_top_k(k), approx_median(d), " +
+                "approx_percentile_90(d), approx_percentile_99(d) from t_empty");
+        assertNoValues("select approx_count_distinct(k), approx_top_k(k), approx_median(d), " +
+                "approx_percentile_90(d), approx_percentile_99(d) from t where i < 0");
+    }
+
+    @Test
+    public void testOnlyNulls() throws Exception {
+        assertNoValues("select approx_count_distinct(k), approx_top_k(k), approx_median(d), " +
+                "approx_percentile_90(d), approx_percentile_99(d) from t where i is null");
+    }
+
+    /*
+     * Expect a count of 0 and null for every other aggregate, like COUNT and MAX
+     */
+    private void assertNoValues(String query) throws Exception {
+        try (ResultSet rs = methodWatcher.executeQuery(query)) {
+            Assert.assertTrue("No rows returned", rs.next());
+            Assert.assertEquals("Incorrect distinct count", 0L, rs.getLong(1));
+            for (int i = 2; i <= 5; i++) {
+                Assert.assertNull("Incorrect result of column " + i, rs.getObject(i));
+            }
+            Assert.assertFalse("Too many rows returned", rs.next());
+        }
+    }
+
+    private static void assertWithin(String message, long expected, long actual, double tolerance) {
+        Assert.assertEquals(message, expected, actual, expected * tolerance);
+    }
+
+    private static void assertEntry(String topK, String entry, String value, long count) {
+        int separator = entry.lastIndexOf('=');
+        Assert.assertTrue("Malformed entry " + entry + " in " + topK, separator > 0);
+        Assert.assertEquals("Incorrect value in " + topK, value, entry.substring(0, separator));
+        assertWithin("Incorrect count in " + topK, count, Long.parseLong(entry.substring(separator + 1)), 0.1d);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stream.Stream;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.sparkproject.guava.base.Ticker;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+@Category(ArchitectureIndependent.class)
+public class BroadcastJoinCacheTest{
+    private final ManualTicker ticker=new ManualTicker();
+    private final CountingLoader loader=new CountingLoader();
+    private final BroadcastJoinCache cache=new BroadcastJoinCache(loader,ticker);
+
+    @Test
+    public void sequentialUsersShareTheTable() throws Exception{
+        for(int i=0;i<3;i++){
+            JoinTable table=cache.get(1l,null,null,null,null).newTable();
+            table.close();
+            ticker.advance(1,TimeUnit.SECONDS);
+        }
+        Assert.assertEquals("Table was not reused",1,loader.loads);
+        Assert.assertEquals("Table was released while cached",0,loader.releases);
+    }
+
+    @Test
+    public void releasesTheTableOnceEvicted() throws Exception{
+        cache.get(1l,null,null,null,null).newTable().close();
+        ticker.advance(3,TimeUnit.SECONDS);
+        cache.cleanUp();
+        Assert.assertEquals("Evicted table was not released",1,loader.releases);
+
+        cache.get(1l,null,null,null,null).newTable().close();
+        Assert.assertEquals("Evicted table was reused",2,loader.loads);
+    }
+
+    @Test
+    public void doesNotReleaseATableWhichIsInUse() throws Exception{
+        JoinTable table=cache.get(1l,null,null,null,null).newTable();
+        ticker.advance(3,TimeUnit.SECONDS);
+        cache.cleanUp();
+        Assert.assertEquals("Table was released while in use",0,loader.releases);
+
+        table.close();
+        table.close();
+        Assert.assertEquals("Table was not released by its last user",1,loader.releases);
+    }
+
+    private static class ManualTicker extends Ticker{
+        private long nanos;
+
+        void advance(long time,TimeUnit unit){
+            nanos+=unit.toNanos(time);
+        }
+
+        @Override
+        public long read(){
+            return nanos;
+        }
+    }
+
+    private static class CountingLoader implements BroadcastJoinCache.JoinTableLoader{
+        private int loads;
+        private int releases;
+
+        @Override
+        public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys,ExecRow outerTemplateRow){
+            loads++;
+            return new JoinTable.Factory(){
+                @Override
+                public JoinTable newTable(){
+                    return new JoinTable(){
+                        @Override
+                        public Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException{
+                            return Collections.emptyIterator();
+                        }
+
+                        @Override
+                        public Iterator<ExecRow> distinctKeyRows(){
+                            return Collections.emptyIterator();
+                        }
+
+                        @Override public void close(){}
+                    };
+                }
+
+                @Override
+                public void release(){
+                    releases++;
+                }
+            };
+        }
+    }
+}
@@ -112,6 +112,24 @@ public class ExplainPlanIT extends SpliceUnitTest  {
         Assert.assertTrue(count>0);
     }
 
+    @Test
+    public void testExplainAnalyzeSelect() throws Exception {
+        ResultSet rs  = methodWatcher.executeQuery(
+                String.format("explain analyze select * from %s --SPLICE-PROPERTIES useSpark=false\n where i = 1",
+                        this.getTableReference(TABLE_NAME)));
+
+        boolean foundActual = false;
+        String last = null;
+        while (rs.next()) {
+            last = rs.getString(1);
+            foundActual |= last.contains("actual(rows=");
+        }
+        Assert.assertTrue("expect the plan to show actual row counts", foundActual);
+        Assert.assertNotNull(last);
+        Assert.assertTrue("expect the statement to have returned 2048 rows, got " + last,
+                last.startsWith("Execution(rows=2048,"));
+    }
+
     @Test
     public void testExplainTwice() throws Exception {
         ResultSet rs  = methodWatcher.executeQuery(
@@ -31,8 +31,16 @@ import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
 import com.splicemachine.si.api.data.OperationFactory;
 import com.splicemachine.si.api.filter.RowAccumulator;
 import com.splicemachine.si.api.filter.SIFilter;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.SimpleTxnFilter;
 import com.splicemachine.si.impl.filter.HRowAccumulator;
+import com.splicemachine.si.impl.filter.PackedTxnFilter;
+import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
 import com.splicemachine.si.testenv.ArchitectureSpecific;
 import com.splicemachine.si.testenv.SITestDataEnv;
 import com.splicemachine.si.testenv.SITestEnvironment;
@@ -47,7 +55,10 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import static org.mockito.Matchers.anyInt;
@@ -186,6 +197,97 @@ public class FixedSITableScannerTest{
         testScansProperly(null,null);
     }
 
+    @Test
+    public void testLooksUpTransactionsOfManyRowsTogether() throws Exception{
+        /*
+         * Every row is written by a different transaction, none of which has been read-resolved, so
+         * looking them up a row at a time would take a round trip per row
+         */
+        int numRows=1000;
+        DataValueDescriptor[] data=new DataValueDescriptor[]{new SQLInteger(1),new SQLVarchar("Hello")};
+        ExecRow row=new ValueRow(data.length);
+        row.setRowArray(data);
+        int[] rowEncodingMap=IntArrays.count(data.length);
+        EntryDataHash hash=new EntryDataHash(rowEncodingMap,null,VersionedSerializers.latestVersion(true).getSerializers(data));
+        hash.setRow(row);
+        byte[] value=hash.encode();
+        Snowflake snowflake=new Snowflake((short)1);
+        final List<List<DataCell>> rows=new ArrayList<>(numRows);
+        for(int i=0;i<numRows;i++){
+            rows.add(Collections.singletonList(opFactory.newCell(snowflake.nextUUIDBytes(),SIConstants.DEFAULT_FAMILY_BYTES,
+                    SIConstants.PACKED_COLUMN_BYTES,i+1,value)));
+        }
+        final Iterator<List<DataCell>> rowIterator=rows.iterator();
+        DataScanner scanner=mock(DataScanner.class);
+        when(scanner.next(anyInt())).thenAnswer(new Answer<List<DataCell>>(){
+            @Override
+            public List<DataCell> answer(InvocationOnMock invocation) throws Throwable{
+                return rowIterator.hasNext()?rowIterator.next():Collections.<DataCell>emptyList();
+            }
+        });
+
+        final int[] roundTrips=new int[]{0};
+        final TxnSupplier txnStore=new TxnSupplier(){
+            @Override
+            public TxnView getTransaction(long txnId) throws IOException{
+                roundTrips[0]++;
+                return new CommittedTxn(txnId,txnId+1);
+            }
+
+            @Override
+            public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
+                return getTransaction(txnId);
+            }
+
+            @Override
+            public TxnView[] getTransactions(long[] txnIds) throws IOException{
+                roundTrips[0]++;
+                TxnView[] txns=new TxnView[txnIds.length];
+                for(int i=0;i<txnIds.length;i++){
+                    txns[i]=new CommittedTxn(txnIds[i],txnIds[i]+1);
+                }
+                return txns;
+            }
+
+            @Override public boolean transactionCached(long txnId){ return false; }
+            @Override public void cache(TxnView toCache){ }
+            @Override public TxnView getTransactionFromCache(long txnId){ return null; }
+        };
+        final TxnView myTxn=new InheritingTxnView(Txn.ROOT_TRANSACTION,5*numRows,5*numRows,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.ACTIVE);
+
+        ScanSetBuilder builder=new TableScannerBuilder(){
+            @Override
+            public DataSet buildDataSet() throws StandardException{
+                throw new UnsupportedOperationException("improper access path for test");
+            }
+        }
+                .scan(opFactory.newScan())
+                .scanner(scanner)
+                .tableVersion("2.0")
+                .rowDecodingMap(rowEncodingMap)
+                .template(row.getNewNullRow());
+        builder=((TableScannerBuilder)builder)
+                .filterFactory(new SIFilterFactory(){
+                    @Override
+                    public SIFilter newFilter(EntryPredicateFilter predicateFilter,
+                                              EntryDecoder rowEntryDecoder,
+                                              EntryAccumulator accumulator,
+                                              boolean isCountStar) throws IOException{
+                        return new PackedTxnFilter(new SimpleTxnFilter(null,myTxn,NoOpReadResolver.INSTANCE,txnStore),
+                                new HRowAccumulator(predicateFilter,rowEntryDecoder,accumulator,isCountStar));
+                    }
+                });
+        SITableScanner tableScanner=((TableScannerBuilder)builder).build();
+
+        int count=0;
+        while(tableScanner.next()!=null){
+            count++;
+        }
+        Assert.assertEquals("Incorrect number of rows returned",numRows,count);
+        Assert.assertTrue("Took "+roundTrips[0]+" round trips to look up the transactions of "+numRows+" rows",
+                roundTrips[0]<=12);
+    }
+
     private static class MockFilter implements SIFilter{
         private RowAccumulator accumulator;
 
@@ -216,6 +318,10 @@ public class FixedSITableScannerTest{
             }else return DataFilter.ReturnCode.INCLUDE;
         }
 
+        @Override
+        public void prefetch(List<DataCell> cells){
+        }
+
     }
 
     protected void testScansProperly(int[] keyDecodingMap,int[] keyColumnOrder) throws StandardException, IOException{
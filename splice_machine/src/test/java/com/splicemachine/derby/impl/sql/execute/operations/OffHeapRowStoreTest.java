@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(ArchitectureIndependent.class)
+public class OffHeapRowStoreTest{
+
+    @Test
+    public void rowsWithTheSameKeyAreReturnedInInsertionOrder() throws Exception{
+        //a small slab size forces records across several slabs
+        OffHeapRowStore store=new OffHeapRowStore(new OffHeapSlabPool(64,Long.MAX_VALUE));
+        for(int i=0;i<1000;i++){
+            store.add(Bytes.toBytes(i%100),Bytes.toBytes("row"+i));
+        }
+        Assert.assertEquals("Incorrect number of keys",100,store.numKeys());
+        Assert.assertEquals("Incorrect number of rows",1000,store.numRows());
+
+        for(int k=0;k<100;k++){
+            int expected=k;
+            for(long address=store.first(Bytes.toBytes(k));address!=OffHeapRowStore.NO_RECORD;address=store.next(address)){
+                Assert.assertEquals("Incorrect row for key "+k,"row"+expected,Bytes.toString(store.row(address)));
+                expected+=100;
+            }
+            Assert.assertEquals("Missing rows for key "+k,k+1000,expected);
+        }
+    }
+
+    @Test
+    public void missingKeyHasNoRows() throws Exception{
+        OffHeapRowStore store=new OffHeapRowStore();
+        store.add(Bytes.toBytes("a"),Bytes.toBytes("1"));
+        Assert.assertEquals(OffHeapRowStore.NO_RECORD,store.first(Bytes.toBytes("b")));
+        Assert.assertEquals(OffHeapRowStore.NO_RECORD,store.first(new byte[]{}));
+    }
+
+    @Test
+    public void recordsLargerThanASlabGetTheirOwnSlab() throws Exception{
+        OffHeapRowStore store=new OffHeapRowStore(new OffHeapSlabPool(64,Long.MAX_VALUE));
+        byte[] big=new byte[1000];
+        big[999]=7;
+        store.add(Bytes.toBytes("a"),Bytes.toBytes("small"));
+        store.add(Bytes.toBytes("b"),big);
+        store.add(Bytes.toBytes("a"),Bytes.toBytes("small2"));
+        Assert.assertArrayEquals(big,store.row(store.first(Bytes.toBytes("b"))));
+        long address=store.next(store.first(Bytes.toBytes("a")));
+        Assert.assertEquals("small2",Bytes.toString(store.row(address)));
+    }
+
+    @Test
+    public void keepsRowsOnHeapOnceTheBudgetIsUsedUp() throws Exception{
+        OffHeapSlabPool pool=new OffHeapSlabPool(64,128);
+        OffHeapRowStore store=new OffHeapRowStore(pool);
+        for(int i=0;i<100;i++){
+            store.add(Bytes.toBytes(i%10),Bytes.toBytes("row"+i));
+        }
+        Assert.assertEquals("Allocated past the budget",128,pool.bytesAllocated());
+        Assert.assertTrue("Rows past the budget should be on heap",store.bytesOnHeap()>0);
+        for(int k=0;k<10;k++){
+            int expected=k;
+            for(long address=store.first(Bytes.toBytes(k));address!=OffHeapRowStore.NO_RECORD;address=store.next(address)){
+                Assert.assertEquals("Incorrect row for key "+k,"row"+expected,Bytes.toString(store.row(address)));
+                expected+=10;
+            }
+            Assert.assertEquals("Missing rows for key "+k,k+100,expected);
+        }
+    }
+
+    @Test
+    public void freedSlabsAreReused() throws Exception{
+        OffHeapSlabPool pool=new OffHeapSlabPool(64,128);
+        OffHeapRowStore first=new OffHeapRowStore(pool);
+        for(int i=0;i<100;i++){
+            first.add(Bytes.toBytes(i),Bytes.toBytes("row"+i));
+        }
+        Assert.assertEquals(0,pool.numFreeSlabs());
+        first.free();
+        Assert.assertEquals("Slabs not returned",2,pool.numFreeSlabs());
+
+        OffHeapRowStore second=new OffHeapRowStore(pool);
+        second.add(Bytes.toBytes("a"),Bytes.toBytes("1"));
+        Assert.assertEquals("Should have reused a slab",1,pool.numFreeSlabs());
+        Assert.assertEquals("Should not have allocated",128,pool.bytesAllocated());
+        Assert.assertEquals(0,second.bytesOnHeap());
+        Assert.assertEquals("1",Bytes.toString(second.row(second.first(Bytes.toBytes("a")))));
+    }
+}
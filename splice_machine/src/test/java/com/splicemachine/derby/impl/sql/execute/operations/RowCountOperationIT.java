@@ -29,6 +29,7 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import java.sql.ResultSet;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -46,6 +47,7 @@ public class RowCountOperationIT {
     private static final int ROW_COUNT = 18;
     private static final long MIN_VALUE = 10;
     private static final long MAX_VALUE = 27;
+    private static final int D_ROW_COUNT = 1 << 14;
 
     @ClassRule
     public static SpliceSchemaWatcher spliceSchemaWatcher = new SpliceSchemaWatcher(SCHEMA);
@@ -78,6 +80,22 @@ public class RowCountOperationIT {
                 .withInsert("insert into B values(?)")
                 .withRows(rows(tableBRows)).create();
 
+        List<Iterable<Object>> tableCRows = Lists.newArrayList(
+                row(1, 1), row(1, 2), row(2, 3), row(2, 4), row(2, 5),
+                row(null, 6), row(null, 7), row(3, 8));
+        Collections.shuffle(tableCRows);
+
+        new TableCreator(conn)
+                .withCreate("create table C (a int, b int)")
+                .withInsert("insert into C values(?,?)")
+                .withRows(rows(tableCRows)).create();
+
+        // D holds 0..D_ROW_COUNT-1, more rows than the largest limit kept in a top-N heap
+        conn.execute("create table D (a int)");
+        conn.execute("insert into D values 0");
+        for (int size = 1; size < D_ROW_COUNT; size <<= 1) {
+            conn.execute("insert into D select a+" + size + " from D");
+        }
 
         conn.collectStats(spliceSchemaWatcher.schemaName,"A");
 
@@ -568,6 +586,61 @@ public class RowCountOperationIT {
     }
 
 
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - -
+    //
+    // order by under a limit (top-N sort)
+    //
+    // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - -
+
+    @Test
+    public void topN_tiesAtTheLimit() throws Exception {
+        validateValues("select a from C order by a fetch first 4 rows only", 1, 1, 2, 2);
+        validateValues("select a from C order by a offset 2 rows fetch next 3 rows only", 2, 2, 2);
+    }
+
+    @Test
+    public void topN_tiesBrokenBySecondKey() throws Exception {
+        validateValues("select b from C order by a, b desc fetch first 4 rows only", 2, 1, 5, 4);
+    }
+
+    @Test
+    public void topN_nulls() throws Exception {
+        validateValues("select a from C order by a fetch first 7 rows only", 1, 1, 2, 2, 2, 3, null);
+        validateValues("select a from C order by a desc fetch first 3 rows only", null, null, 3);
+        validateValues("select a from C order by a nulls first fetch first 3 rows only", null, null, 1);
+        validateValues("select a from C order by a desc nulls last fetch first 2 rows only", 3, 2);
+    }
+
+    @Test
+    public void topN_underProjection() throws Exception {
+        validateValues("select a*10 from C order by b fetch first 3 rows only", 10, 10, 20);
+    }
+
+    @Test
+    public void topN_limitAboveTopNThreshold() throws Exception {
+        int limit = 10001;
+        ResultSet rs = methodWatcher.executeQuery("select a from D order by a desc fetch first " + limit + " rows only");
+        int count = 0;
+        while (rs.next()) {
+            assertEquals("Incorrect row " + count, D_ROW_COUNT - 1 - count, rs.getInt(1));
+            count++;
+        }
+        assertEquals("Row count does not match expectation", limit, count);
+    }
+
+    @Test
+    public void topN_onSpark() throws Exception {
+        validateValues("select a from D --SPLICE-PROPERTIES useSpark=true\n order by a desc fetch first 5 rows only",
+                D_ROW_COUNT - 1, D_ROW_COUNT - 2, D_ROW_COUNT - 3, D_ROW_COUNT - 4, D_ROW_COUNT - 5);
+        validateValues("select a from D --SPLICE-PROPERTIES useSpark=true\n order by a offset 3 rows fetch next 2 rows only",
+                3, 4);
+    }
+
+    @Test
+    public void topN_limitAboveRowCount() throws Exception {
+        validateValues("select a from C order by a desc, b fetch first 100 rows only", null, null, 3, 2, 2, 2, 1, 1);
+    }
+
     // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - -
     //
     // test utils
@@ -589,6 +662,16 @@ public class RowCountOperationIT {
         assertEquals("Did not expect resultset to contain duplicates", rowCount, uniqueValues.size());
     }
 
+    private void validateValues(String query, Integer... expected) throws Exception {
+        ResultSet rs = methodWatcher.executeQuery(query);
+        List<Integer> actual = Lists.newArrayList();
+        while (rs.next()) {
+            int value = rs.getInt(1);
+            actual.add(rs.wasNull() ? null : value);
+        }
+        assertEquals("Incorrect rows for " + query, Arrays.asList(expected), actual);
+    }
+
     private void validateOrdered(String expectedResult, String query) throws Exception {
         ResultSet rs = methodWatcher.executeQuery(query);
         String queryResultAsString = TestUtils.FormattedResult.ResultFactory.toStringUnsorted(rs);
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+@Category(ArchitectureIndependent.class)
+public class SortOperationTest{
+
+    @Test
+    public void topNSurvivesSerialization() throws Exception{
+        SortOperation sort=new SortOperation();
+        sort.setTopN(10);
+
+        SortOperation copy=roundTrip(sort);
+        Assert.assertEquals("Top-N limit was lost when the sort was serialized",10,copy.getTopN());
+    }
+
+    @Test
+    public void fullSortStaysFullAfterSerialization() throws Exception{
+        SortOperation copy=roundTrip(new SortOperation());
+        Assert.assertEquals("Serialized sort should sort its entire input",0,copy.getTopN());
+    }
+
+    private static SortOperation roundTrip(SortOperation sort) throws Exception{
+        ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+        try(ObjectOutputStream out=new ObjectOutputStream(bytes)){
+            sort.writeExternal(out);
+        }
+        SortOperation copy=new SortOperation();
+        try(ObjectInputStream in=new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))){
+            copy.readExternal(in);
+        }
+        return copy;
+    }
+}
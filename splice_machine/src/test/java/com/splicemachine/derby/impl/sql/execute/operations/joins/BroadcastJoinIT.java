@@ -24,6 +24,8 @@ import org.junit.runner.Description;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * @author Scott Fines
@@ -34,6 +36,9 @@ public class BroadcastJoinIT{
 
     public static final SpliceTableWatcher a= new SpliceTableWatcher("A",schemaWatcher.schemaName,"(c1 int, c2 int)");
     public static final SpliceTableWatcher b= new SpliceTableWatcher("B",schemaWatcher.schemaName,"(c2 int,c3 int)");
+    public static final SpliceTableWatcher probe= new SpliceTableWatcher("PROBE",schemaWatcher.schemaName,"(c1 int, c2 int)");
+    public static final SpliceTableWatcher build= new SpliceTableWatcher("BUILD",schemaWatcher.schemaName,"(c2 int,c3 int)");
+    private static final int PROBE_ROWS=10<<14;
 
     public static final SpliceWatcher classWatcher = new SpliceWatcher();
     @ClassRule
@@ -41,6 +46,8 @@ public class BroadcastJoinIT{
             .around(schemaWatcher)
             .around(a)
             .around(b)
+            .around(probe)
+            .around(build)
             .around(new SpliceDataWatcher(){
                 @Override
                 protected void starting(Description description){
@@ -63,6 +70,40 @@ public class BroadcastJoinIT{
                         throw new RuntimeException(e);
                     }
                 }
+            }).around(new SpliceDataWatcher(){
+                @Override
+                protected void starting(Description description){
+                    //enough distinct probe rows for the planner to consider pushing the build side's keys into the scan
+                    try(PreparedStatement ps = classWatcher.prepareStatement("insert into "+probe+"(c1,c2) values (?,?)")){
+                        for(int i=0;i<10;i++){
+                            ps.setInt(1,i);ps.setInt(2,i);ps.execute();
+                        }
+                    }catch(Exception e){
+                        throw new RuntimeException(e);
+                    }
+                    try(PreparedStatement ps = classWatcher.prepareStatement("insert into "+probe+"(c1,c2) select c1+?,c2+? from "+probe)){
+                        for(int size=10;size<PROBE_ROWS;size<<=1){
+                            ps.setInt(1,size);ps.setInt(2,size);ps.execute();
+                        }
+                    }catch(Exception e){
+                        throw new RuntimeException(e);
+                    }
+                    try(PreparedStatement ps = classWatcher.prepareStatement("insert into "+build+"(c2,c3) values (?,?)")){
+                        for(int i=0;i<10;i++){
+                            ps.setInt(1,i);ps.setInt(2,i);ps.execute();
+                        }
+                        ps.setInt(1,5);ps.setInt(2,10);ps.execute(); //a duplicate key
+                        ps.setInt(1,-1);ps.setInt(2,11);ps.execute(); //a key with no partner
+                        ps.setNull(1,java.sql.Types.INTEGER);ps.setInt(2,12);ps.execute();
+                    }catch(Exception e){
+                        throw new RuntimeException(e);
+                    }
+                    try(PreparedStatement ps = classWatcher.prepareStatement("analyze schema "+schemaWatcher.schemaName)){
+                        ps.execute();
+                    }catch(Exception e){
+                        throw new RuntimeException(e);
+                    }
+                }
             });
 
     private static TestConnection conn;
@@ -91,4 +132,41 @@ public class BroadcastJoinIT{
             }
         }
     }
+
+    @Test
+    public void joinKeyFilterSkipsProbeRowsWithoutAPartner() throws Exception{
+        assertJoinKeyFilterSkipsProbeRows(false);
+    }
+
+    @Test
+    public void joinKeyFilterSkipsProbeRowsWithoutAPartnerOnSpark() throws Exception{
+        assertJoinKeyFilterSkipsProbeRows(true);
+    }
+
+    private void assertJoinKeyFilterSkipsProbeRows(boolean useSpark) throws Exception{
+        String join = " from --SPLICE-PROPERTIES joinOrder=FIXED\n" +
+                " "+probe+" p --SPLICE-PROPERTIES useSpark="+useSpark+"\n" +
+                ", "+build+" r --SPLICE-PROPERTIES joinStrategy=BROADCAST\n" +
+                " where p.c2 = r.c2";
+        try(ResultSet rs = conn.query("select count(*), sum(p.c1), sum(r.c3)"+join)){
+            Assert.assertTrue("No rows returned",rs.next());
+            Assert.assertEquals("Incorrect number of joined rows",11,rs.getInt(1));
+            Assert.assertEquals("Incorrect probe rows joined",0+1+2+3+4+5+6+7+8+9+5,rs.getInt(2));
+            Assert.assertEquals("Incorrect build rows joined",0+1+2+3+4+5+6+7+8+9+10,rs.getInt(3));
+        }
+
+        long scannedRows = -1;
+        try(ResultSet rs = conn.query("explain analyze select p.c1, r.c3"+join)){
+            while(rs.next()){
+                String line = rs.getString(1);
+                if(!line.contains("TableScan[PROBE")) continue;
+                Matcher m = Pattern.compile("actual\\(rows=(\\d+)").matcher(line);
+                Assert.assertTrue("No actual row count for the probe scan: "+line,m.find());
+                scannedRows = Long.parseLong(m.group(1));
+            }
+        }
+        Assert.assertTrue("Probe scan not found in the plan",scannedRows>=0);
+        Assert.assertTrue("Join keys were not pushed into the probe scan, which returned "+scannedRows+" rows",
+                scannedRows<PROBE_ROWS/10);
+    }
 }
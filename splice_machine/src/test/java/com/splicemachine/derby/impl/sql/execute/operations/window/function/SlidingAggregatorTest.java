@@ -0,0 +1,229 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.window.function;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link SlidingAggregator}, checked against aggregates recomputed over the whole frame.
+ */
+@Category(ArchitectureIndependent.class)
+public class SlidingAggregatorTest {
+    private static final List<Integer> VALUES = Arrays.asList(5, null, -3, 8, 8, null, null, 1, 12, -7, 0, 4);
+
+    @Test
+    public void sumOverSlidingFrames() throws Exception {
+        for (int frameSize = 1; frameSize <= VALUES.size(); frameSize++) {
+            assertSlides(Aggregate.SUM, frameSize);
+        }
+    }
+
+    @Test
+    public void avgOverSlidingFrames() throws Exception {
+        for (int frameSize = 1; frameSize <= VALUES.size(); frameSize++) {
+            assertSlides(Aggregate.AVG, frameSize);
+        }
+    }
+
+    @Test
+    public void minOverSlidingFrames() throws Exception {
+        for (int frameSize = 1; frameSize <= VALUES.size(); frameSize++) {
+            assertSlides(Aggregate.MIN, frameSize);
+        }
+    }
+
+    @Test
+    public void maxOverSlidingFrames() throws Exception {
+        for (int frameSize = 1; frameSize <= VALUES.size(); frameSize++) {
+            assertSlides(Aggregate.MAX, frameSize);
+        }
+    }
+
+    @Test
+    public void removesInArrivalOrderAcrossStackFlips() throws Exception {
+        SlidingAggregator function = Aggregate.MAX.newFunction();
+        Deque<DataValueDescriptor[]> frame = new ArrayDeque<>();
+        for (int i = 1; i <= 5; i++) {
+            frame.add(add(function, i));
+        }
+        // the first remove moves all five rows onto the front stack
+        Assert.assertSame("Incorrect row removed", frame.poll(), function.remove());
+        frame.add(add(function, 3));
+        frame.add(add(function, 1));
+        assertResult(Aggregate.MAX, function, frame);
+        // drain the front stack, leaving only the rows added after the flip
+        for (int i = 0; i < 4; i++) {
+            Assert.assertSame("Incorrect row removed", frame.poll(), function.remove());
+            assertResult(Aggregate.MAX, function, frame);
+        }
+        Assert.assertEquals("Incorrect max after the front stack drained", 3, function.getResult().getInt());
+        // and the next remove flips again
+        Assert.assertSame("Incorrect row removed", frame.poll(), function.remove());
+        Assert.assertEquals("Incorrect max after the second flip", 1, function.getResult().getInt());
+        Assert.assertSame("Incorrect row removed", frame.poll(), function.remove());
+        Assert.assertTrue("Empty frame should be null", function.getResult().isNull());
+        Assert.assertNull("Nothing left to remove", function.remove());
+    }
+
+    @Test
+    public void matchesRecomputationUnderRandomMoves() throws Exception {
+        Random random = new Random(17L);
+        for (Aggregate aggregate : Aggregate.values()) {
+            SlidingAggregator function = aggregate.newFunction();
+            Deque<DataValueDescriptor[]> frame = new ArrayDeque<>();
+            for (int i = 0; i < 2000; i++) {
+                if (frame.isEmpty() || random.nextInt(5) < 3) {
+                    frame.add(add(function, random.nextInt(4) == 0 ? null : random.nextInt(200) - 100));
+                } else {
+                    Assert.assertSame("Incorrect row removed", frame.poll(), function.remove());
+                }
+                assertResult(aggregate, function, frame);
+            }
+        }
+    }
+
+    @Test
+    public void framesOfOnlyNullsAreNull() throws Exception {
+        for (Aggregate aggregate : Aggregate.values()) {
+            SlidingAggregator function = aggregate.newFunction();
+            Assert.assertTrue(aggregate + " of an empty frame should be null", function.getResult().isNull());
+            add(function, null);
+            add(function, null);
+            Assert.assertTrue(aggregate + " of nulls should be null", function.getResult().isNull());
+            add(function, 4);
+            function.remove();
+            function.remove();
+            Assert.assertEquals(aggregate + " should ignore the nulls", 4, function.getResult().getInt());
+            function.remove();
+            Assert.assertTrue(aggregate + " of an empty frame should be null", function.getResult().isNull());
+        }
+    }
+
+    @Test
+    public void avgDividesByTheNonNullCount() throws Exception {
+        SlidingAggregator function = Aggregate.AVG.newFunction();
+        add(function, 2);
+        add(function, null);
+        add(function, 7);
+        Assert.assertEquals("Nulls should not count towards the average", 4.5d, function.getResult().getDouble(), 0d);
+        function.remove();
+        Assert.assertEquals("Incorrect average once the frame slid", 7d, function.getResult().getDouble(), 0d);
+    }
+
+    @Test
+    public void resetEmptiesTheFrame() throws Exception {
+        SlidingAggregator function = Aggregate.SUM.newFunction();
+        add(function, 2);
+        add(function, 3);
+        function.remove();
+        function.reset();
+        Assert.assertTrue("Sum of a reset frame should be null", function.getResult().isNull());
+        Assert.assertNull("Nothing left to remove", function.remove());
+        add(function, 6);
+        Assert.assertEquals("Incorrect sum after a reset", 6, function.getResult().getLong());
+    }
+
+    /*
+     * Slide a frame of frameSize rows over VALUES, as a ROWS frame of frameSize-1 PRECEDING AND CURRENT ROW would
+     */
+    private static void assertSlides(Aggregate aggregate, int frameSize) throws StandardException {
+        SlidingAggregator function = aggregate.newFunction();
+        Deque<DataValueDescriptor[]> frame = new ArrayDeque<>();
+        for (Integer value : VALUES) {
+            frame.add(add(function, value));
+            if (frame.size() > frameSize) {
+                Assert.assertSame("Incorrect row removed", frame.poll(), function.remove());
+            }
+            assertResult(aggregate, function, frame);
+        }
+    }
+
+    private static DataValueDescriptor[] add(SlidingAggregator function, Integer value) throws StandardException {
+        DataValueDescriptor[] input = new DataValueDescriptor[]{value == null ? new SQLInteger() : new SQLInteger(value)};
+        function.accumulate(input);
+        return input;
+    }
+
+    private static void assertResult(Aggregate aggregate, SlidingAggregator function, Deque<DataValueDescriptor[]> frame) throws StandardException {
+        Double expected = aggregate.recompute(frame);
+        DataValueDescriptor actual = function.getResult();
+        if (expected == null) {
+            Assert.assertTrue("Expected " + aggregate + " to be null, was " + actual, actual.isNull());
+        } else {
+            Assert.assertFalse("Expected " + aggregate + " of " + expected + ", was null", actual.isNull());
+            Assert.assertEquals("Incorrect " + aggregate, expected, actual.getDouble(), 1e-9);
+        }
+    }
+
+    private enum Aggregate {
+        SUM, AVG, MIN, MAX;
+
+        SlidingAggregator newFunction() throws StandardException {
+            SlidingAggregator function;
+            switch (this) {
+                case SUM:
+                    function = new SumAggregator();
+                    break;
+                case AVG:
+                    function = new AvgAggregator();
+                    break;
+                default:
+                    function = (SlidingAggregator) new MaxMinAggregator().setup(null, name(), null, null).newWindowFunction();
+            }
+            function.setResultType(this == AVG ? new SQLDouble() : new SQLLongint());
+            return function;
+        }
+
+        /*
+         * The aggregate of the non-null values in the frame, computed from scratch
+         */
+        Double recompute(Deque<DataValueDescriptor[]> frame) throws StandardException {
+            Double result = null;
+            int count = 0;
+            for (DataValueDescriptor[] input : frame) {
+                if (input[0].isNull()) {
+                    continue;
+                }
+                double value = input[0].getInt();
+                count++;
+                if (result == null) {
+                    result = value;
+                } else if (this == MIN) {
+                    result = Math.min(result, value);
+                } else if (this == MAX) {
+                    result = Math.max(result, value);
+                } else {
+                    result += value;
+                }
+            }
+            return this == AVG && result != null ? result / count : result;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stats.ColumnStatistics;
+import com.splicemachine.stats.PartitionStatistics;
+import com.splicemachine.stats.collector.ColumnStatsCollector;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects statistics on a group of two correlated columns, (i%100, i%100) over 1000 rows, keeping every
+ * combination in the top-k so that counts are exact.
+ */
+@Category(ArchitectureIndependent.class)
+public class ColumnGroupStatisticsTest{
+    private static final int ROWS=1000;
+    private static final int[] GROUP={1,2};
+
+    @Test
+    public void groupIdsAreNegative() throws Exception{
+        Assert.assertTrue("Group id is not negative",ColumnGroupStatistics.groupId(GROUP)<0);
+        Assert.assertTrue("Group id is not negative",ColumnGroupStatistics.groupId(new int[]{Integer.MAX_VALUE,3})<0);
+        Assert.assertEquals("Incorrect column id",ColumnGroupStatistics.groupId(GROUP),collectGroup().columnId());
+    }
+
+    @Test
+    public void countsCombinationsNotIndependentColumns() throws Exception{
+        ColumnGroupStatistics stats=collectGroup();
+        Assert.assertEquals("Incorrect group cardinality",100,stats.cardinality(),5);
+        Assert.assertEquals("Incorrect count of a combination",10,
+                stats.count(new DataValueDescriptor[]{new SQLInteger(5),new SQLInteger(5)}));
+        Assert.assertEquals("A null never matches",0,
+                stats.count(new DataValueDescriptor[]{new SQLInteger(5),new SQLInteger()}));
+    }
+
+    @Test
+    public void partitionAverageSkipsGroups() throws Exception{
+        ColumnStatistics<DataValueDescriptor> column=collectColumn(1);
+        ColumnGroupStatistics group=collectGroup();
+        PartitionStatistics partition=Mockito.mock(PartitionStatistics.class);
+        Mockito.when(partition.rowCount()).thenReturn((long)ROWS);
+        Mockito.when(partition.columnStatistics()).thenReturn(Arrays.<ColumnStatistics>asList(column,group));
+
+        PartitionAverage average=new PartitionAverage("1","average");
+        average.merge(partition);
+        List<ColumnStatistics> averaged=average.columnStatistics();
+        Assert.assertEquals("Incorrect averaged columns "+averaged,1,averaged.size());
+        Assert.assertEquals("Incorrect averaged column",1,averaged.get(0).columnId());
+        Assert.assertNull("Group was averaged",average.columnStatistics(ColumnGroupStatistics.groupId(GROUP)));
+    }
+
+    private static ColumnGroupStatistics collectGroup() throws Exception{
+        ColumnGroupStatsCollector collector=new ColumnGroupStatsCollector(GROUP,new int[]{0,1},new int[]{4,4},14,200,1d);
+        for(int i=0;i<ROWS;i++){
+            collector.update(new DataValueDescriptor[]{new SQLInteger(i%100),new SQLInteger(i%100)},1);
+        }
+        return collector.build();
+    }
+
+    private static ColumnStatistics<DataValueDescriptor> collectColumn(int columnId){
+        ColumnStatsCollector<DataValueDescriptor> collector=DvdStatsCollector.newCollector(columnId,StoredFormatIds.SQL_INTEGER_ID,4,10,14);
+        for(int i=0;i<ROWS;i++){
+            collector.update(new SQLInteger(i%100),1);
+        }
+        return collector.build();
+    }
+}
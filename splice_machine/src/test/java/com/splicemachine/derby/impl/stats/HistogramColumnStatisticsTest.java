@@ -0,0 +1,187 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stats.ColumnStatistics;
+import com.splicemachine.stats.collector.ColumnStatsCollector;
+import com.splicemachine.stats.estimate.Distribution;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Estimates selectivity over a skewed integer column: each of the values 0..99 occurs on 100 rows,
+ * and each of the values 100..9999 on a single row, so half the rows lie in the bottom 1% of the range.
+ */
+@Category(ArchitectureIndependent.class)
+public class HistogramColumnStatisticsTest{
+    private static final int DENSE_VALUES=100;
+    private static final int DENSE_REPEATS=100;
+    private static final int SPARSE_VALUES=9900;
+    private static final int BUCKETS=64;
+
+    @Test
+    public void rangeSelectivityFollowsTheData() throws Exception{
+        Distribution<DataValueDescriptor> distribution=skewed().getDistribution();
+        assertRows(DENSE_VALUES*DENSE_REPEATS,
+                distribution.rangeSelectivity(new SQLInteger(0),new SQLInteger(DENSE_VALUES),true,false),0.1d);
+        assertRows(SPARSE_VALUES,
+                distribution.rangeSelectivity(new SQLInteger(DENSE_VALUES),new SQLInteger(DENSE_VALUES+SPARSE_VALUES),true,false),0.1d);
+        assertRows(DENSE_VALUES+SPARSE_VALUES-5000,
+                distribution.rangeSelectivity(new SQLInteger(5000),null,true,false),0.1d);
+    }
+
+    @Test
+    public void emptyRangeHasNoRows() throws Exception{
+        Distribution<DataValueDescriptor> distribution=skewed().getDistribution();
+        Assert.assertEquals(0l,distribution.rangeSelectivity(new SQLInteger(50),new SQLInteger(50),true,false));
+        Assert.assertEquals(0l,distribution.rangeSelectivity(new SQLInteger(60),new SQLInteger(50),true,true));
+    }
+
+    @Test
+    public void equalitySelectivityFollowsTheData() throws Exception{
+        Distribution<DataValueDescriptor> distribution=skewed().getDistribution();
+        // stay clear of the bucket which spans both the dense and the sparse values
+        for(int value=0;value<DENSE_VALUES-10;value+=7){
+            long rows=distribution.selectivity(new SQLInteger(value));
+            Assert.assertTrue("Incorrect selectivity of dense value "+value+": "+rows,
+                    rows>=DENSE_REPEATS/2 && rows<=DENSE_REPEATS*2);
+        }
+        for(int value=2*DENSE_VALUES;value<DENSE_VALUES+SPARSE_VALUES;value+=997){
+            long rows=distribution.selectivity(new SQLInteger(value));
+            Assert.assertTrue("Incorrect selectivity of sparse value "+value+": "+rows,rows>=1 && rows<=4);
+        }
+    }
+
+    @Test
+    public void mergedPartitionsKeepTheHistogram() throws Exception{
+        // the dense and the sparse values were collected in different partitions
+        ColumnStatistics<DataValueDescriptor> merged=collect(0,DENSE_VALUES,DENSE_REPEATS)
+                .merge(collect(DENSE_VALUES,SPARSE_VALUES,1));
+        Assert.assertTrue("Histogram not kept",merged instanceof HistogramColumnStatistics);
+        Assert.assertEquals("Incorrect row count",DENSE_VALUES*DENSE_REPEATS+SPARSE_VALUES,merged.nonNullCount());
+
+        Distribution<DataValueDescriptor> distribution=merged.getDistribution();
+        assertRows(DENSE_VALUES*DENSE_REPEATS,
+                distribution.rangeSelectivity(new SQLInteger(0),new SQLInteger(DENSE_VALUES),true,false),0.1d);
+        assertRows(SPARSE_VALUES,
+                distribution.rangeSelectivity(new SQLInteger(DENSE_VALUES),null,true,false),0.1d);
+    }
+
+    @Test
+    public void mergingWithoutAHistogramDropsIt() throws Exception{
+        ColumnStatsCollector<DataValueDescriptor> plain=newCollector();
+        plain.update(new SQLInteger(1));
+        ColumnStatistics<DataValueDescriptor> merged=collect(0,DENSE_VALUES,1).merge(plain.build());
+        Assert.assertFalse("Histogram kept although it does not cover all rows",merged instanceof HistogramColumnStatistics);
+        Assert.assertEquals("Incorrect row count",DENSE_VALUES+1,merged.nonNullCount());
+    }
+
+    @Test
+    public void externalizableRoundTrip() throws Exception{
+        HistogramColumnStatistics stats=skewed();
+        ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+        try(ObjectOutputStream out=new ObjectOutputStream(bytes)){
+            out.writeObject(stats);
+        }
+        Object read;
+        try(ObjectInputStream in=new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))){
+            read=in.readObject();
+        }
+        assertSameEstimates(stats,read);
+    }
+
+    @Test
+    public void kryoRoundTrip() throws Exception{
+        KryoPool pool=new KryoPool(1);
+        pool.setKryoRegistry(new SpliceKryoRegistry());
+        Kryo kryo=pool.get();
+        try{
+            HistogramColumnStatistics stats=skewed();
+            Output output=new Output(4096,-1);
+            kryo.writeClassAndObject(output,stats);
+            Object read=kryo.readClassAndObject(new Input(output.toBytes()));
+            assertSameEstimates(stats,read);
+        }finally{
+            pool.returnInstance(kryo);
+        }
+    }
+
+    private static void assertSameEstimates(HistogramColumnStatistics expected,Object read) throws Exception{
+        Assert.assertTrue("Incorrect class "+read,read instanceof HistogramColumnStatistics);
+        HistogramColumnStatistics actual=(HistogramColumnStatistics)read;
+        Assert.assertEquals("Incorrect row count",expected.nonNullCount(),actual.nonNullCount());
+        Assert.assertEquals("Incorrect cardinality",expected.cardinality(),actual.cardinality());
+        Assert.assertEquals("Incorrect histogram",expected.getHistogram().toString(),actual.getHistogram().toString());
+        Distribution<DataValueDescriptor> e=expected.getDistribution();
+        Distribution<DataValueDescriptor> a=actual.getDistribution();
+        for(int value=0;value<DENSE_VALUES+SPARSE_VALUES;value+=491){
+            SQLInteger start=new SQLInteger(value);
+            SQLInteger stop=new SQLInteger(value+1000);
+            Assert.assertEquals("Incorrect range selectivity from "+value,
+                    e.rangeSelectivity(start,stop,true,false),a.rangeSelectivity(start,stop,true,false));
+            Assert.assertEquals("Incorrect selectivity of "+value,e.selectivity(start),a.selectivity(start));
+        }
+    }
+
+    private static void assertRows(long expected,long actual,double tolerance){
+        Assert.assertEquals("Incorrect number of rows",expected,actual,expected*tolerance);
+    }
+
+    private static HistogramColumnStatistics skewed(){
+        ColumnStatsCollector<DataValueDescriptor> collector=histogramCollector();
+        update(collector,0,DENSE_VALUES,DENSE_REPEATS);
+        update(collector,DENSE_VALUES,SPARSE_VALUES,1);
+        return (HistogramColumnStatistics)collector.build();
+    }
+
+    private static ColumnStatistics<DataValueDescriptor> collect(int first,int distinct,int repeats){
+        ColumnStatsCollector<DataValueDescriptor> collector=histogramCollector();
+        update(collector,first,distinct,repeats);
+        return collector.build();
+    }
+
+    /*
+     * Rows are added in an interleaved order, as a scan of an unsorted column would see them
+     */
+    private static void update(ColumnStatsCollector<DataValueDescriptor> collector,int first,int distinct,int repeats){
+        for(int i=0;i<distinct*repeats;i++){
+            collector.update(new SQLInteger(first+i%distinct));
+        }
+    }
+
+    private static ColumnStatsCollector<DataValueDescriptor> histogramCollector(){
+        return new HistogramStatsCollector(newCollector(),StoredFormatIds.SQL_INTEGER_ID,BUCKETS);
+    }
+
+    private static ColumnStatsCollector<DataValueDescriptor> newCollector(){
+        return DvdStatsCollector.newCollector(1,StoredFormatIds.SQL_INTEGER_ID,4,10,14);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stats.ColumnStatistics;
+import com.splicemachine.stats.collector.ColumnStatsCollector;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Random;
+
+/**
+ * Samples columns of 200000 rows with a known number of distinct values, the way statistics collection
+ * samples a partition.
+ */
+@Category(ArchitectureIndependent.class)
+public class SampledColumnStatisticsTest{
+    private static final int ROWS=200000;
+
+    @Test
+    public void uniqueValues() throws Exception{
+        ColumnStatistics<DataValueDescriptor> stats=sample(ROWS,1,0.1d,1L);
+        assertCardinality(ROWS,stats,0.05d);
+    }
+
+    @Test
+    public void repeatedValues() throws Exception{
+        ColumnStatistics<DataValueDescriptor> stats=sample(ROWS/100,100,0.1d,1L);
+        assertCardinality(ROWS/100,stats,0.05d);
+    }
+
+    @Test
+    public void fewHeavilyRepeatedValues() throws Exception{
+        ColumnStatistics<DataValueDescriptor> stats=sample(10,ROWS/10,0.1d,1L);
+        assertCardinality(10,stats,0.1d);
+    }
+
+    @Test
+    public void smallSample() throws Exception{
+        ColumnStatistics<DataValueDescriptor> stats=sample(ROWS,1,0.01d,1L);
+        assertCardinality(ROWS,stats,0.05d);
+    }
+
+    @Test
+    public void fullSampleIsNotExtrapolated() throws Exception{
+        ColumnStatistics<DataValueDescriptor> stats=sample(ROWS/4,4,1d,1L);
+        assertCardinality(ROWS/4,stats,0.05d);
+        SampledColumnStatistics full=new SampledColumnStatistics(stats,1d);
+        Assert.assertEquals("A full sample should not be extrapolated",stats.cardinality(),full.cardinality());
+        Assert.assertEquals("Incorrect row count",ROWS,full.nonNullCount());
+    }
+
+    @Test
+    public void mergedPartitions() throws Exception{
+        // two partitions holding different values, sampled at different rates
+        ColumnStatistics<DataValueDescriptor> stats=sample(0,ROWS/2,1,0.1d,1L)
+                .merge(sample(ROWS/2,ROWS/2,1,0.2d,2L));
+        Assert.assertTrue("Sample fraction not kept",stats instanceof SampledColumnStatistics);
+        assertCardinality(ROWS,stats,0.05d);
+    }
+
+    private static void assertCardinality(long expected,ColumnStatistics<DataValueDescriptor> stats,double tolerance){
+        Assert.assertEquals("Incorrect cardinality "+stats,expected,stats.cardinality(),expected*tolerance);
+    }
+
+    private static ColumnStatistics<DataValueDescriptor> sample(int distinct,int repeats,double fraction,long seed){
+        return sample(0,distinct,repeats,fraction,seed);
+    }
+
+    /*
+     * Sample distinct values starting at first, each repeated on the given number of rows, and weight every
+     * sampled row the way StatisticsCollector does
+     */
+    private static ColumnStatistics<DataValueDescriptor> sample(int first,int distinct,int repeats,double fraction,long seed){
+        ColumnStatsCollector<DataValueDescriptor> collector=DvdStatsCollector.newCollector(1,StoredFormatIds.SQL_INTEGER_ID,4,10,14);
+        if(fraction<1d)
+            collector=new SampledStatsCollector(collector,fraction);
+        Random random=new Random(seed);
+        long sampled=0;
+        for(int i=0;i<distinct*repeats;i++){
+            if(fraction<1d && random.nextDouble()>=fraction)
+                continue;
+            long weight=(long)Math.floor((sampled+1)/fraction)-(long)Math.floor(sampled/fraction);
+            sampled++;
+            collector.update(new SQLInteger(first+i%distinct),weight);
+        }
+        return collector.build();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.db.iapi.sql.dictionary.PartitionStatisticsDescriptor;
+import com.splicemachine.pipeline.PartitionWritePipeline;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.Partition;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Partitions whose statistics describe 1000 rows, refreshed once 20% of that has changed.
+ */
+@Category(ArchitectureIndependent.class)
+public class StatisticsRefresherTest{
+    private static final double RATIO=0.2d;
+    private static final long ROWS=1000l;
+
+    @Test
+    public void refreshesOnlyPartitionsAboveTheThreshold() throws Exception{
+        StatisticsRefresher refresher=new StatisticsRefresher(RATIO);
+        PartitionWritePipeline below=pipeline("below",199l);
+        PartitionWritePipeline at=pipeline("at",200l);
+        PartitionWritePipeline above=pipeline("above",500l);
+        Map<Partition,Long> stale=refresher.stalePartitions(Arrays.asList(below,at,above),
+                stored(statistics("below",1l),statistics("at",1l),statistics("above",1l)));
+        Assert.assertEquals("Incorrect stale partitions",Arrays.asList(at.getPartition(),above.getPartition()),
+                Arrays.asList(stale.keySet().toArray()));
+        Assert.assertEquals("Incorrect modification count",Long.valueOf(500l),stale.get(above.getPartition()));
+    }
+
+    @Test
+    public void ignoresPartitionsWithoutStatistics() throws Exception{
+        StatisticsRefresher refresher=new StatisticsRefresher(RATIO);
+        Map<Partition,Long> stale=refresher.stalePartitions(Arrays.asList(pipeline("split",5000l)),
+                stored(statistics("other",1l)));
+        Assert.assertTrue("A partition without statistics should not be refreshed",stale.isEmpty());
+    }
+
+    @Test
+    public void countsChangesSinceTheLastRefresh() throws Exception{
+        StatisticsRefresher refresher=new StatisticsRefresher(RATIO);
+        PartitionWritePipeline pipeline=pipeline("p",300l);
+        Map<Partition,Long> stale=refresher.stalePartitions(Arrays.asList(pipeline),stored(statistics("p",1l)));
+        Assert.assertEquals("Partition should be stale",1,stale.size());
+        refresher.markRefreshed(stale);
+
+        // 150 changes since the refresh, which collected new statistics
+        when(pipeline.getModificationCount()).thenReturn(450l);
+        Assert.assertTrue("Partition should not be stale yet",
+                refresher.stalePartitions(Arrays.asList(pipeline),stored(statistics("p",2l))).isEmpty());
+
+        when(pipeline.getModificationCount()).thenReturn(500l);
+        Assert.assertEquals("Partition should be stale again",1,
+                refresher.stalePartitions(Arrays.asList(pipeline),stored(statistics("p",2l))).size());
+    }
+
+    @Test
+    public void startsCountingAgainWhenCollectedElsewhere() throws Exception{
+        StatisticsRefresher refresher=new StatisticsRefresher(RATIO);
+        PartitionWritePipeline pipeline=pipeline("p",100l);
+        Assert.assertTrue(refresher.stalePartitions(Arrays.asList(pipeline),stored(statistics("p",1l))).isEmpty());
+
+        // an ANALYZE collected the partition's statistics again
+        when(pipeline.getModificationCount()).thenReturn(250l);
+        Assert.assertTrue("Changes before the collection should not count",
+                refresher.stalePartitions(Arrays.asList(pipeline),stored(statistics("p",2l))).isEmpty());
+
+        when(pipeline.getModificationCount()).thenReturn(450l);
+        Assert.assertEquals("Partition should be stale",1,
+                refresher.stalePartitions(Arrays.asList(pipeline),stored(statistics("p",2l))).size());
+    }
+
+    private static PartitionWritePipeline pipeline(String name,long modificationCount){
+        Partition partition=mock(Partition.class);
+        when(partition.getName()).thenReturn(name);
+        PartitionWritePipeline pipeline=mock(PartitionWritePipeline.class);
+        when(pipeline.getPartition()).thenReturn(partition);
+        when(pipeline.getModificationCount()).thenReturn(modificationCount);
+        return pipeline;
+    }
+
+    private static PartitionStatisticsDescriptor statistics(String partition,long timestamp){
+        return new PartitionStatisticsDescriptor(1l,partition,timestamp,false,false,ROWS,ROWS*100,100);
+    }
+
+    private static Map<String,PartitionStatisticsDescriptor> stored(PartitionStatisticsDescriptor... statistics){
+        Map<String,PartitionStatisticsDescriptor> stored=new HashMap<>();
+        for(PartitionStatisticsDescriptor psd : statistics){
+            stored.put(psd.getPartitionId(),psd);
+        }
+        return stored;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.stats;
+
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stats.ColumnStatistics;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Collections;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A zone map for a single column, stored first and holding values from 10 to 20.
+ */
+@Category(ArchitectureIndependent.class)
+public class ZoneMapTest{
+    private static final int[] COLUMN_POSITIONS={1};
+
+    @Test
+    public void equals() throws Exception{
+        ZoneMap zoneMap=zoneMap(0);
+        Assert.assertTrue(excludes(zoneMap,qualifier(Orderable.ORDER_OP_EQUALS,9,false)));
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_EQUALS,10,false)));
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_EQUALS,20,false)));
+        Assert.assertTrue(excludes(zoneMap,qualifier(Orderable.ORDER_OP_EQUALS,21,false)));
+    }
+
+    @Test
+    public void notEqualsExcludesNothing() throws Exception{
+        ZoneMap zoneMap=zoneMap(0);
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_EQUALS,9,true)));
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_EQUALS,15,true)));
+    }
+
+    @Test
+    public void lessThan() throws Exception{
+        ZoneMap zoneMap=zoneMap(0);
+        Assert.assertTrue(excludes(zoneMap,qualifier(Orderable.ORDER_OP_LESSTHAN,10,false)));
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_LESSTHAN,11,false)));
+    }
+
+    @Test
+    public void negatedLessThan() throws Exception{
+        //column >= value
+        ZoneMap zoneMap=zoneMap(0);
+        Assert.assertTrue(excludes(zoneMap,qualifier(Orderable.ORDER_OP_LESSTHAN,21,true)));
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_LESSTHAN,20,true)));
+    }
+
+    @Test
+    public void lessOrEquals() throws Exception{
+        ZoneMap zoneMap=zoneMap(0);
+        Assert.assertTrue(excludes(zoneMap,qualifier(Orderable.ORDER_OP_LESSOREQUALS,9,false)));
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_LESSOREQUALS,10,false)));
+    }
+
+    @Test
+    public void negatedLessOrEquals() throws Exception{
+        //column > value
+        ZoneMap zoneMap=zoneMap(0);
+        Assert.assertTrue(excludes(zoneMap,qualifier(Orderable.ORDER_OP_LESSOREQUALS,20,true)));
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_LESSOREQUALS,19,true)));
+    }
+
+    @Test
+    public void greaterThan() throws Exception{
+        ZoneMap zoneMap=zoneMap(0);
+        Assert.assertTrue(excludes(zoneMap,qualifier(Orderable.ORDER_OP_GREATERTHAN,20,false)));
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_GREATERTHAN,19,false)));
+    }
+
+    @Test
+    public void negatedGreaterThan() throws Exception{
+        //column <= value
+        ZoneMap zoneMap=zoneMap(0);
+        Assert.assertTrue(excludes(zoneMap,qualifier(Orderable.ORDER_OP_GREATERTHAN,9,true)));
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_GREATERTHAN,10,true)));
+    }
+
+    @Test
+    public void greaterOrEquals() throws Exception{
+        ZoneMap zoneMap=zoneMap(0);
+        Assert.assertTrue(excludes(zoneMap,qualifier(Orderable.ORDER_OP_GREATEROREQUALS,21,false)));
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_GREATEROREQUALS,20,false)));
+    }
+
+    @Test
+    public void negatedGreaterOrEquals() throws Exception{
+        //column < value
+        ZoneMap zoneMap=zoneMap(0);
+        Assert.assertTrue(excludes(zoneMap,qualifier(Orderable.ORDER_OP_GREATEROREQUALS,10,true)));
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_GREATEROREQUALS,11,true)));
+    }
+
+    @Test
+    public void nullsWhichDoNotSatisfyTheQualifierAreIgnored() throws Exception{
+        ZoneMap zoneMap=zoneMap(3);
+        Assert.assertTrue(excludes(zoneMap,qualifier(Orderable.ORDER_OP_LESSTHAN,10,false)));
+    }
+
+    @Test
+    public void nullsWhichSatisfyTheQualifierAreNotExcluded() throws Exception{
+        ZoneMap zoneMap=zoneMap(3);
+        Qualifier unknownIsTrue=qualifier(Orderable.ORDER_OP_LESSTHAN,10,false);
+        when(unknownIsTrue.getUnknownRV()).thenReturn(true);
+        Assert.assertFalse(excludes(zoneMap,unknownIsTrue));
+
+        //a negated qualifier turns the unknown result of a null around
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_LESSTHAN,21,true)));
+        Assert.assertTrue("Without nulls, the negated qualifier excludes the partition",
+                excludes(zoneMap(0),qualifier(Orderable.ORDER_OP_LESSTHAN,21,true)));
+    }
+
+    @Test
+    public void onlyNulls() throws Exception{
+        ZoneMap zoneMap=new ZoneMap("p",0L,Collections.singletonMap(1,stats(null,null,3,0)));
+        Assert.assertTrue(excludes(zoneMap,qualifier(Orderable.ORDER_OP_EQUALS,15,false)));
+        Assert.assertFalse(excludes(zoneMap,qualifier(Orderable.ORDER_OP_EQUALS,15,true)));
+    }
+
+    @Test
+    public void orderedNullsAndNullValuesExcludeNothing() throws Exception{
+        ZoneMap zoneMap=zoneMap(0);
+        Qualifier orderedNulls=qualifier(Orderable.ORDER_OP_EQUALS,25,false);
+        when(orderedNulls.getOrderedNulls()).thenReturn(true);
+        Assert.assertFalse(excludes(zoneMap,orderedNulls));
+
+        Qualifier nullValue=qualifier(Orderable.ORDER_OP_EQUALS,25,false);
+        when(nullValue.getOrderable()).thenReturn(new SQLInteger());
+        Assert.assertFalse(excludes(zoneMap,nullValue));
+    }
+
+    @Test
+    public void columnsWithoutStatisticsExcludeNothing() throws Exception{
+        ZoneMap zoneMap=zoneMap(0);
+        Qualifier otherColumn=qualifier(Orderable.ORDER_OP_EQUALS,25,false);
+        when(otherColumn.getStoragePosition()).thenReturn(1);
+        Assert.assertFalse(zoneMap.excludes(new Qualifier[][]{{otherColumn}},new int[]{1,2}));
+        Assert.assertFalse(zoneMap.excludes(new Qualifier[][]{{otherColumn}},COLUMN_POSITIONS));
+    }
+
+    @Test
+    public void anyExcludedAndClauseExcludes() throws Exception{
+        ZoneMap zoneMap=zoneMap(0);
+        Qualifier[][] qualifiers={{qualifier(Orderable.ORDER_OP_EQUALS,15,false),qualifier(Orderable.ORDER_OP_EQUALS,25,false)}};
+        Assert.assertTrue(zoneMap.excludes(qualifiers,COLUMN_POSITIONS));
+    }
+
+    @Test
+    public void orClauseExcludesOnlyIfEveryTermDoes() throws Exception{
+        ZoneMap zoneMap=zoneMap(0);
+        Qualifier[][] allExcluded={{},{qualifier(Orderable.ORDER_OP_EQUALS,5,false),qualifier(Orderable.ORDER_OP_EQUALS,25,false)}};
+        Assert.assertTrue(zoneMap.excludes(allExcluded,COLUMN_POSITIONS));
+
+        Qualifier[][] oneIncluded={{},{qualifier(Orderable.ORDER_OP_EQUALS,5,false),qualifier(Orderable.ORDER_OP_EQUALS,15,false)}};
+        Assert.assertFalse(zoneMap.excludes(oneIncluded,COLUMN_POSITIONS));
+    }
+
+    @Test
+    public void noQualifiersExcludeNothing() throws Exception{
+        Assert.assertFalse(zoneMap(0).excludes(null,COLUMN_POSITIONS));
+        Assert.assertFalse(zoneMap(0).excludes(new Qualifier[][]{{}},COLUMN_POSITIONS));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private static boolean excludes(ZoneMap zoneMap,Qualifier qualifier) throws Exception{
+        return zoneMap.excludes(new Qualifier[][]{{qualifier}},COLUMN_POSITIONS);
+    }
+
+    private static ZoneMap zoneMap(long nullCount){
+        return new ZoneMap("p",0L,Collections.singletonMap(1,stats(new SQLInteger(10),new SQLInteger(20),nullCount,5)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ColumnStatistics<DataValueDescriptor> stats(DataValueDescriptor min,DataValueDescriptor max,long nullCount,long nonNullCount){
+        ColumnStatistics<DataValueDescriptor> stats=mock(ColumnStatistics.class);
+        when(stats.minValue()).thenReturn(min);
+        when(stats.maxValue()).thenReturn(max);
+        when(stats.nullCount()).thenReturn(nullCount);
+        when(stats.nonNullCount()).thenReturn(nonNullCount);
+        return stats;
+    }
+
+    /*
+     * A qualifier on the first column, under which a null is unknown (and so does not qualify unless negated)
+     */
+    private static Qualifier qualifier(int operator,int value,boolean negate) throws Exception{
+        Qualifier qualifier=mock(Qualifier.class);
+        when(qualifier.getStoragePosition()).thenReturn(0);
+        when(qualifier.getOperator()).thenReturn(operator);
+        when(qualifier.negateCompareResult()).thenReturn(negate);
+        when(qualifier.getOrderedNulls()).thenReturn(false);
+        when(qualifier.getUnknownRV()).thenReturn(false);
+        when(qualifier.getOrderable()).thenReturn((DataValueDescriptor)new SQLInteger(value));
+        return qualifier;
+    }
+}
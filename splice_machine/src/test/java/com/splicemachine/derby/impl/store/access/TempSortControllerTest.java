@@ -0,0 +1,64 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.store.access;
+
+import com.splicemachine.derby.impl.sql.compile.SimpleCostEstimate;
+import com.splicemachine.derby.impl.sql.execute.operations.SortOperation;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(ArchitectureIndependent.class)
+public class TempSortControllerTest{
+    private static final double ROWS=1000000d;
+
+    @Test
+    public void topNSortCostsLessThanAFullSort() throws Exception{
+        SimpleCostEstimate full=cost();
+        new TempSortController().estimateSortCost(full);
+        SimpleCostEstimate topN=cost();
+        new TempSortController(10).estimateSortCost(topN);
+
+        Assert.assertTrue("Top-N sort was not cheaper: "+topN.localCost()+" vs "+full.localCost(),
+                topN.localCost()<full.localCost());
+        Assert.assertTrue("Top-N sort should still cost more than not sorting",topN.localCost()>cost().localCost());
+    }
+
+    @Test
+    public void limitAboveTheRowCountIsAFullSort() throws Exception{
+        SimpleCostEstimate full=cost();
+        new TempSortController().estimateSortCost(full);
+        SimpleCostEstimate limited=cost();
+        new TempSortController((long)ROWS*2).estimateSortCost(limited);
+
+        Assert.assertEquals(full.localCost(),limited.localCost(),0d);
+    }
+
+    @Test
+    public void limitAboveTheTopNThresholdIsAFullSort() throws Exception{
+        SimpleCostEstimate full=cost();
+        new TempSortController().estimateSortCost(full);
+        SimpleCostEstimate limited=cost();
+        new TempSortController(SortOperation.maxTopN()+1).estimateSortCost(limited);
+
+        Assert.assertEquals(full.localCost(),limited.localCost(),0d);
+    }
+
+    private static SimpleCostEstimate cost(){
+        return new SimpleCostEstimate(1000d,500d,ROWS,ROWS,4);
+    }
+}
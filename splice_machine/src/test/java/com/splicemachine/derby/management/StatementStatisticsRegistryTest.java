@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.management;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.List;
+
+@Category(ArchitectureIndependent.class)
+public class StatementStatisticsRegistryTest{
+
+    @Test
+    public void normalizesLiteralsAndWhitespace() throws Exception{
+        Assert.assertEquals("select * from t1 where a = ? and b = ? and \"C2\" < -?",
+                StatementStatisticsRegistry.normalize("select *\n  from t1 where a = 'it''s' and b = 1.5e3 and \"C2\" < -42 "));
+        Assert.assertEquals(StatementStatisticsRegistry.normalize("select a from t where b in (1,2)"),
+                StatementStatisticsRegistry.normalize("select a from t where b in (10,20)"));
+    }
+
+    @Test
+    public void groupsExecutionsOfTheSameStatement() throws Exception{
+        StatementStatisticsRegistry registry=new StatementStatisticsRegistry(10);
+        for(int i=1;i<=100;i++){
+            registry.record("select * from t where a = "+i,i*10,1,5,i==1?7:-1,i%10==0);
+        }
+        List<StatementStatistics> stats=registry.getStatistics();
+        Assert.assertEquals("Incorrect number of statements",1,stats.size());
+        StatementStatistics s=stats.get(0);
+        Assert.assertEquals("select * from t where a = ?",s.getStatement());
+        Assert.assertEquals(100,s.getCalls());
+        Assert.assertEquals(50500,s.getTotalTime());
+        Assert.assertEquals(10,s.getMinTime());
+        Assert.assertEquals(1000,s.getMaxTime());
+        Assert.assertEquals(100,s.getRowsReturned());
+        Assert.assertEquals(500,s.getRowsScanned());
+        Assert.assertEquals(1,s.getCompilations());
+        Assert.assertEquals(7,s.getCompileTimeMillis());
+        Assert.assertEquals(90,s.getControlExecutions());
+        Assert.assertEquals(10,s.getSparkExecutions());
+        //percentiles are only accurate to within a bucket
+        Assert.assertEquals(500d,s.getP50Time(),500*0.25);
+        Assert.assertEquals(950d,s.getP95Time(),950*0.25);
+        Assert.assertTrue(s.getP99Time()<=s.getMaxTime());
+    }
+
+    @Test
+    public void evictsTheCheapestStatementWhenFull() throws Exception{
+        StatementStatisticsRegistry registry=new StatementStatisticsRegistry(2);
+        registry.record("select a from t",1000,0,0,-1,false);
+        registry.record("select b from t",10,0,0,-1,false);
+        registry.record("select c from t",100,0,0,-1,false);
+        List<StatementStatistics> stats=registry.getStatistics();
+        Assert.assertEquals("Incorrect number of statements",2,stats.size());
+        for(StatementStatistics s : stats){
+            Assert.assertFalse("Most expensive statements were not kept","select b from t".equals(s.getStatement()));
+        }
+        registry.reset();
+        Assert.assertTrue(registry.getStatistics().isEmpty());
+    }
+
+    @Test
+    public void bucketsCoverEveryValue() throws Exception{
+        long[] values={0,1,3,4,7,8,9,100,12345,Long.MAX_VALUE};
+        for(long value : values){
+            int bucket=StatementStatisticsRegistry.bucket(value);
+            Assert.assertTrue("Value "+value+" above its bucket",value<=StatementStatisticsRegistry.bucketUpperBound(bucket));
+            Assert.assertTrue("Value "+value+" below its bucket",bucket==0 || value>StatementStatisticsRegistry.bucketUpperBound(bucket-1));
+        }
+    }
+}
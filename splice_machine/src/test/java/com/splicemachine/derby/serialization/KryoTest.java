@@ -37,6 +37,15 @@ import org.junit.Test;
 
 import com.splicemachine.db.iapi.types.SQLDecimal;
 import com.splicemachine.db.iapi.types.SQLRef;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.SpliceApproxCountDistinct;
+import com.splicemachine.derby.impl.sql.execute.operations.SpliceApproxMedian;
+import com.splicemachine.derby.impl.sql.execute.operations.SpliceApproxPercentile90;
+import com.splicemachine.derby.impl.sql.execute.operations.SpliceApproxPercentile99;
+import com.splicemachine.derby.impl.sql.execute.operations.SpliceApproxTopK;
+import com.splicemachine.derby.impl.stats.ColumnGroupStatistics;
+import com.splicemachine.derby.impl.stats.HistogramColumnStatistics;
+import com.splicemachine.derby.impl.stats.SampledColumnStatistics;
 import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
 import com.splicemachine.derby.utils.kryo.DataValueDescriptorSerializer;
 import com.splicemachine.utils.ByteSlice;
@@ -230,4 +239,26 @@ public class KryoTest  {
             e.getLocalizedMessage().contains("CachedByteSlice"));
         }
     }
+
+    /*
+     * Registration ids are written into serialized data, so they must not move once assigned
+     */
+    @Test
+    public void testStatisticsAndApproximateAggregateRegistrations() {
+        Class<?>[] registered = {
+                LocatedRow.class,
+                HistogramColumnStatistics.class,
+                SampledColumnStatistics.class,
+                ColumnGroupStatistics.class,
+                SpliceApproxCountDistinct.class,
+                SpliceApproxTopK.class,
+                SpliceApproxMedian.class,
+                SpliceApproxPercentile90.class,
+                SpliceApproxPercentile99.class
+        };
+        for (int i = 0; i < registered.length; i++) {
+            assertEquals("Incorrect registration id for " + registered[i].getSimpleName(),
+                    276 + i, kryo.getRegistration(registered[i]).getId());
+        }
+    }
 }
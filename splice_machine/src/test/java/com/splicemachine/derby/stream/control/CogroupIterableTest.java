@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.util.*;
+
+@Category(ArchitectureIndependent.class)
+public class CogroupIterableTest{
+
+    @Rule public TemporaryFolder spillDir = new TemporaryFolder();
+
+    @Test
+    public void groupsInMemoryWhenUnderBudget() throws Exception{
+        List<Tuple2<Integer,Integer>> left=randomPairs(1000,300,1L);
+        List<Tuple2<Integer,Integer>> right=randomPairs(500,400,2L);
+        long spilled=ControlSpillFile.bytesSpilledByThread();
+        Assert.assertEquals("Incorrect groups",expectedGroups(left,right),
+                collect(new CogroupIterable<>(left,right,Long.MAX_VALUE,spillDir.getRoot())));
+        Assert.assertEquals("Should not have spilled",spilled,ControlSpillFile.bytesSpilledByThread());
+    }
+
+    @Test
+    public void partitionsBothSidesWhenOverBudget() throws Exception{
+        List<Tuple2<Integer,Integer>> left=randomPairs(5000,2000,1L);
+        List<Tuple2<Integer,Integer>> right=randomPairs(3000,4000,2L);
+        Assert.assertEquals("Incorrect groups",expectedGroups(left,right),
+                collect(new CogroupIterable<>(left,right,256,spillDir.getRoot())));
+        Assert.assertEquals("Spill files not removed",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void partitionsWhenOnlyTheRightSideFits() throws Exception{
+        List<Tuple2<Integer,Integer>> left=randomPairs(5000,2000,1L);
+        List<Tuple2<Integer,Integer>> right=randomPairs(10,4000,2L);
+        long spilled=ControlSpillFile.bytesSpilledByThread();
+        Assert.assertEquals("Incorrect groups",expectedGroups(left,right),
+                collect(new CogroupIterable<>(left,right,16*1024,spillDir.getRoot())));
+        Assert.assertTrue("The left side was not bounded",ControlSpillFile.bytesSpilledByThread()>spilled);
+        Assert.assertEquals("Spill files not removed",0,spillDir.getRoot().list().length);
+    }
+
+    private static Map<Integer,String> collect(Iterable<Tuple2<Integer,Tuple2<Iterable<Integer>,Iterable<Integer>>>> groups){
+        Map<Integer,String> result=new HashMap<>();
+        for(Tuple2<Integer,Tuple2<Iterable<Integer>,Iterable<Integer>>> t : groups){
+            Assert.assertNull("Key returned more than once",result.put(t._1(),group(t._2()._1(),t._2()._2())));
+        }
+        return result;
+    }
+
+    private static Map<Integer,String> expectedGroups(List<Tuple2<Integer,Integer>> left,List<Tuple2<Integer,Integer>> right){
+        Map<Integer,List<Integer>> leftValues=valuesByKey(left);
+        Map<Integer,List<Integer>> rightValues=valuesByKey(right);
+        Set<Integer> keys=new HashSet<>(leftValues.keySet());
+        keys.addAll(rightValues.keySet());
+        Map<Integer,String> result=new HashMap<>();
+        for(Integer key : keys){
+            List<Integer> l=leftValues.get(key);
+            List<Integer> r=rightValues.get(key);
+            result.put(key,group(l==null?Collections.<Integer>emptyList():l,r==null?Collections.<Integer>emptyList():r));
+        }
+        return result;
+    }
+
+    private static Map<Integer,List<Integer>> valuesByKey(List<Tuple2<Integer,Integer>> pairs){
+        Map<Integer,List<Integer>> values=new HashMap<>();
+        for(Tuple2<Integer,Integer> t : pairs){
+            List<Integer> vs=values.get(t._1());
+            if(vs==null){
+                vs=new ArrayList<>();
+                values.put(t._1(),vs);
+            }
+            vs.add(t._2());
+        }
+        return values;
+    }
+
+    private static String group(Iterable<Integer> left,Iterable<Integer> right){
+        return sorted(left)+"|"+sorted(right);
+    }
+
+    private static List<Integer> sorted(Iterable<Integer> values){
+        List<Integer> list=new ArrayList<>();
+        for(Integer v : values){
+            list.add(v);
+        }
+        Collections.sort(list);
+        return list;
+    }
+
+    private static List<Tuple2<Integer,Integer>> randomPairs(int size,int numKeys,long seed){
+        Random random=new Random(seed);
+        List<Tuple2<Integer,Integer>> data=new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            data.add(new Tuple2<>(random.nextInt(numKeys),i));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.sql.execute.ExecPreparedStatement;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+import org.sparkproject.guava.collect.Lists;
+
+import java.util.Iterator;
+import java.util.List;
+
+@Category(ArchitectureIndependent.class)
+public class ControlRowBudgetTest{
+
+    @Test
+    public void countsRowsAcrossScans() throws Exception{
+        ControlRowBudget budget=new ControlRowBudget(10);
+        List<Integer> rows=Lists.newArrayList(1,2,3,4,5);
+        for(Integer ignored : budget.count(rows)){
+        }
+        for(Integer ignored : budget.count(rows)){
+        }
+        Assert.assertEquals("Incorrect count",10,budget.getRowsRead());
+    }
+
+    @Test
+    public void throwsOnceLimitIsExceeded() throws Exception{
+        ControlRowBudget budget=new ControlRowBudget(3);
+        int read=0;
+        try{
+            for(Integer ignored : budget.count(Lists.newArrayList(1,2,3,4,5))){
+                read++;
+            }
+            Assert.fail("Budget was not enforced");
+        }catch(ControlRowBudget.ExceededException expected){
+            Assert.assertEquals("Incorrect number of rows returned",3,read);
+        }
+    }
+
+    @Test
+    public void findsExceededThroughWrappers() throws Exception{
+        RuntimeException wrapped=new RuntimeException(new Exception(new ControlRowBudget.ExceededException(4)));
+        Assert.assertNotNull(ControlRowBudget.findExceeded(wrapped));
+        Assert.assertNull(ControlRowBudget.findExceeded(new RuntimeException(new IllegalStateException())));
+    }
+
+    @Test
+    public void exceedingBeforeTheFirstRowResubmitsWithCompleteResults() throws Exception{
+        List<Integer> rows=Lists.newArrayList(1,2,3,4,5,6,7,8,9,10);
+        ControlRowBudget budget=new ControlRowBudget(3);
+        RecordingIterator results=new RecordingIterator(greaterThan(4,budget.count(rows).iterator()),rows);
+
+        List<Integer> actual=Lists.newArrayList(results);
+        Assert.assertEquals("Resubmitted query returned incorrect rows",rows,actual);
+        Assert.assertEquals("Query was not resubmitted exactly once",1,results.resubmitted);
+        Assert.assertEquals("A resubmitted query should not count as completed",0,results.completed);
+    }
+
+    @Test
+    public void exceedingAfterTheFirstRowIsNotResubmitted() throws Exception{
+        List<Integer> rows=Lists.newArrayList(1,2,3,4,5,6,7,8,9,10);
+        ControlRowBudget budget=new ControlRowBudget(3);
+        RecordingIterator results=new RecordingIterator(budget.count(rows).iterator(),rows);
+
+        int read=0;
+        try{
+            while(results.hasNext()){
+                results.next();
+                read++;
+            }
+            Assert.fail("Budget was not enforced");
+        }catch(ControlRowBudget.ExceededException expected){
+            Assert.assertEquals("Incorrect number of rows returned",3,read);
+        }
+        Assert.assertEquals("Query which already returned rows was resubmitted",0,results.resubmitted);
+    }
+
+    @Test
+    public void withinTheBudgetCompletesOnControl() throws Exception{
+        List<Integer> rows=Lists.newArrayList(1,2,3);
+        ControlRowBudget budget=new ControlRowBudget(3);
+        RecordingIterator results=new RecordingIterator(budget.count(rows).iterator(),rows);
+
+        Assert.assertEquals("Incorrect rows",rows,Lists.newArrayList(results));
+        Assert.assertFalse(results.hasNext());
+        Assert.assertEquals("Query was resubmitted",0,results.resubmitted);
+        Assert.assertEquals("Query was not completed exactly once",1,results.completed);
+    }
+
+    @Test
+    public void remembersStatementsWhichExceededTheirBudget() throws Exception{
+        ExecPreparedStatement statement=Mockito.mock(ExecPreparedStatement.class);
+        Assert.assertFalse(ControlRowBudget.previouslyExceeded(statement));
+        ControlRowBudget.recordExecution(statement,true);
+        Assert.assertTrue(ControlRowBudget.previouslyExceeded(statement));
+        ControlRowBudget.recordExecution(statement,false);
+        Assert.assertFalse(ControlRowBudget.previouslyExceeded(statement));
+    }
+
+    /*
+     * Keeps only the rows greater than {@code min}, reading ahead in hasNext() as filtering control-side iterators do, so
+     * that the budget is exceeded before the first row is returned
+     */
+    private static Iterator<Integer> greaterThan(final int min,final Iterator<Integer> source){
+        return new Iterator<Integer>(){
+            private Integer next;
+
+            @Override
+            public boolean hasNext(){
+                while(next==null && source.hasNext()){
+                    Integer row=source.next();
+                    if(row>min)
+                        next=row;
+                }
+                return next!=null;
+            }
+
+            @Override
+            public Integer next(){
+                Integer row=next;
+                next=null;
+                return row;
+            }
+
+            @Override
+            public void remove(){
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static class RecordingIterator extends ControlRowBudget.AdaptiveIterator<Integer> implements Iterable<Integer>{
+        private final List<Integer> resubmittedRows;
+        private int resubmitted;
+        private int completed;
+
+        RecordingIterator(Iterator<Integer> delegate,List<Integer> resubmittedRows){
+            super(delegate);
+            this.resubmittedRows=resubmittedRows;
+        }
+
+        @Override
+        protected Iterator<Integer> resubmit(){
+            resubmitted++;
+            return resubmittedRows.iterator();
+        }
+
+        @Override
+        protected void completed(){
+            completed++;
+        }
+
+        @Override
+        public Iterator<Integer> iterator(){
+            return this;
+        }
+    }
+}
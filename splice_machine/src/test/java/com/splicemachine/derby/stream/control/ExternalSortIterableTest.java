@@ -0,0 +1,205 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
+import com.splicemachine.derby.stream.BaseStreamTest;
+import com.splicemachine.derby.stream.function.RowComparator;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.sparkproject.guava.collect.Lists;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+@Category(ArchitectureIndependent.class)
+public class ExternalSortIterableTest extends BaseStreamTest{
+    private static final Comparator<Integer> INT_ORDER=new Comparator<Integer>(){
+        @Override
+        public int compare(Integer o1,Integer o2){
+            return o1.compareTo(o2);
+        }
+    };
+
+    @Rule public TemporaryFolder spillDir = new TemporaryFolder();
+
+    @Test
+    public void sortsInMemoryWhenUnderBudget() throws Exception{
+        List<Tuple2<Integer,Integer>> data=randomPairs(100);
+        ExternalSortIterable<Integer,Integer> sorted=new ExternalSortIterable<>(data,INT_ORDER,Long.MAX_VALUE,spillDir.getRoot());
+        assertSortedAndStable(sorted,100);
+        Assert.assertEquals("Should not have spilled",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void spillsAndMergesRunsWhenOverBudget() throws Exception{
+        List<Tuple2<Integer,Integer>> data=randomPairs(10000);
+        ExternalSortIterable<Integer,Integer> sorted=new ExternalSortIterable<>(data,INT_ORDER,1024,spillDir.getRoot());
+        assertSortedAndStable(sorted,10000);
+        Assert.assertEquals("Spill files not removed",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void mergesInSeveralPassesWhenThereAreTooManyRuns() throws Exception{
+        List<Tuple2<Integer,Integer>> data=randomPairs(10000);
+        ExternalSortIterable<Integer,Integer> sorted=new ExternalSortIterable<>(data,INT_ORDER,1024,spillDir.getRoot(),3);
+        Iterator<Tuple2<Integer,Integer>> iterator=sorted.iterator();
+        Assert.assertTrue("Too many runs left open for the final merge",spillDir.getRoot().list().length<3);
+        assertSortedAndStable(Lists.newArrayList(iterator),10000);
+        Assert.assertEquals("Spill files not removed",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void spillsExecRows() throws Exception{
+        ExternalSortIterable<ExecRow,ExecRow> sorted=new ExternalSortIterable<>(tenRows,new RowComparator(),1,spillDir.getRoot());
+        int i=0;
+        for(Tuple2<ExecRow,ExecRow> t : sorted){
+            Assert.assertEquals("Incorrect Ordering of Rows",i<5?0:1,t._1().getColumn(1).getInt());
+            Assert.assertEquals("Value not restored",10,t._2().nColumns());
+            i++;
+        }
+        Assert.assertEquals("Incorrect Number of Rows",10,i);
+    }
+
+    @Test
+    public void spillsLocatedRows() throws Exception{
+        List<Tuple2<ExecRow,LocatedRow>> data=new ArrayList<>();
+        for(int i=0;i<100;i++){
+            data.add(new Tuple2<>(getExecRow(i%7,1),new LocatedRow(new HBaseRowLocation(Bytes.toBytes(i)),getExecRow(i,3))));
+        }
+        ExternalSortIterable<ExecRow,LocatedRow> sorted=new ExternalSortIterable<>(data,new RowComparator(),1024,spillDir.getRoot());
+        int lastKey=-1;
+        int count=0;
+        for(Tuple2<ExecRow,LocatedRow> t : sorted){
+            int key=t._1().getColumn(1).getInt();
+            Assert.assertTrue("Keys out of order",lastKey<=key);
+            int value=t._2().getRow().getColumn(1).getInt();
+            Assert.assertEquals("Row does not belong to its key",key,value%7);
+            Assert.assertEquals("Row location not restored",value,Bytes.toInt(t._2().getRowLocation().getBytes()));
+            Assert.assertEquals("Row not restored",3,t._2().getRow().nColumns());
+            lastKey=key;
+            count++;
+        }
+        Assert.assertEquals("Incorrect Number of Rows",100,count);
+        Assert.assertEquals("Spill files not removed",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void closingTheTrackerRemovesRunsOfAnAbandonedSort() throws Exception{
+        List<Tuple2<Integer,Integer>> data=randomPairs(10000);
+        ControlSpillFile.Tracker tracker=new ControlSpillFile.Tracker();
+        ControlSpillFile.Tracker previous=tracker.enter();
+        try{
+            Iterator<Tuple2<Integer,Integer>> iterator=new ExternalSortIterable<>(data,INT_ORDER,1024,spillDir.getRoot()).iterator();
+            for(int i=0;i<10;i++){
+                iterator.next();
+            }
+        }finally{
+            tracker.exit(previous);
+        }
+        Assert.assertTrue("Should have spilled",spillDir.getRoot().list().length>0);
+        Assert.assertEquals("Untracked spill files",spillDir.getRoot().list().length,tracker.numOpenFiles());
+
+        tracker.close();
+        Assert.assertEquals("Spill files not removed",0,spillDir.getRoot().list().length);
+        Assert.assertEquals(0,tracker.numOpenFiles());
+    }
+
+    @Test
+    public void sortsOnceWhenIteratedAgain() throws Exception{
+        CountingIterable data=new CountingIterable(randomPairs(10000));
+        ControlSpillFile.Tracker tracker=new ControlSpillFile.Tracker();
+        ControlSpillFile.Tracker previous=tracker.enter();
+        try{
+            ExternalSortIterable<Integer,Integer> sorted=new ExternalSortIterable<>(data,INT_ORDER,1024,spillDir.getRoot());
+            assertSortedAndStable(sorted,10000);
+            assertSortedAndStable(sorted,10000);
+            Assert.assertEquals("Source was sorted more than once",1,data.iterations);
+        }finally{
+            tracker.exit(previous);
+        }
+        Assert.assertTrue("Sorted runs were not kept",spillDir.getRoot().list().length>0);
+        tracker.close();
+        Assert.assertEquals("Spill files not removed",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void sortsOnceInMemoryWhenIteratedAgain() throws Exception{
+        CountingIterable data=new CountingIterable(randomPairs(100));
+        ExternalSortIterable<Integer,Integer> sorted=new ExternalSortIterable<>(data,INT_ORDER,Long.MAX_VALUE,spillDir.getRoot());
+        assertSortedAndStable(sorted,100);
+        assertSortedAndStable(sorted,100);
+        Assert.assertEquals("Source was sorted more than once",1,data.iterations);
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void spilledSortWithoutATrackerCanOnlyBeIteratedOnce() throws Exception{
+        ExternalSortIterable<Integer,Integer> sorted=new ExternalSortIterable<>(randomPairs(10000),INT_ORDER,1024,spillDir.getRoot());
+        assertSortedAndStable(sorted,10000);
+        Assert.assertEquals("Spill files not removed",0,spillDir.getRoot().list().length);
+        sorted.iterator();
+    }
+
+    private static class CountingIterable implements Iterable<Tuple2<Integer,Integer>>{
+        private final List<Tuple2<Integer,Integer>> data;
+        private int iterations;
+
+        CountingIterable(List<Tuple2<Integer,Integer>> data){
+            this.data=data;
+        }
+
+        @Override
+        public Iterator<Tuple2<Integer,Integer>> iterator(){
+            iterations++;
+            return data.iterator();
+        }
+    }
+
+    private static List<Tuple2<Integer,Integer>> randomPairs(int size){
+        Random random=new Random(0L);
+        List<Tuple2<Integer,Integer>> data=new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            data.add(new Tuple2<>(random.nextInt(size/10),i));
+        }
+        return data;
+    }
+
+    private static void assertSortedAndStable(Iterable<Tuple2<Integer,Integer>> sorted,int expectedSize){
+        Tuple2<Integer,Integer> last=null;
+        int count=0;
+        for(Tuple2<Integer,Integer> t : sorted){
+            if(last!=null){
+                Assert.assertTrue("Keys out of order",last._1()<=t._1());
+                if(last._1().equals(t._1()))
+                    Assert.assertTrue("Sort is not stable",last._2()<t._2());
+            }
+            last=t;
+            count++;
+        }
+        Assert.assertEquals("Incorrect Number of Rows",expectedSize,count);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.util.*;
+
+@Category(ArchitectureIndependent.class)
+public class GroupByKeyIterableTest{
+
+    @Rule public TemporaryFolder spillDir = new TemporaryFolder();
+
+    @Test
+    public void groupsInMemoryWhenUnderBudget() throws Exception{
+        List<Tuple2<Integer,Integer>> data=randomPairs(1000,300,1L);
+        long spilled=ControlSpillFile.bytesSpilledByThread();
+        Assert.assertEquals("Incorrect groups",expectedGroups(data),
+                collect(new GroupByKeyIterable<>(data,Long.MAX_VALUE,spillDir.getRoot())));
+        Assert.assertEquals("Should not have spilled",spilled,ControlSpillFile.bytesSpilledByThread());
+    }
+
+    @Test
+    public void partitionsWhenOverBudget() throws Exception{
+        List<Tuple2<Integer,Integer>> data=randomPairs(10000,2000,1L);
+        long spilled=ControlSpillFile.bytesSpilledByThread();
+        Assert.assertEquals("Incorrect groups",expectedGroups(data),
+                collect(new GroupByKeyIterable<>(data,1024,spillDir.getRoot())));
+        Assert.assertTrue("Should have spilled",ControlSpillFile.bytesSpilledByThread()>spilled);
+        Assert.assertEquals("Spill files not removed",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void controlPairDataSetGroupsThroughTheBudgetedGrouping() throws Exception{
+        List<Tuple2<Integer,Integer>> data=randomPairs(1000,10,2L);
+        Map<Integer,List<Integer>> groups=collect(((ControlPairDataSet<Integer,Iterable<Integer>>)new ControlPairDataSet<>(data).groupByKey()).source);
+        Assert.assertEquals("Incorrect groups",expectedGroups(data),groups);
+    }
+
+    private static Map<Integer,List<Integer>> collect(Iterable<Tuple2<Integer,Iterable<Integer>>> groups){
+        Map<Integer,List<Integer>> result=new HashMap<>();
+        for(Tuple2<Integer,Iterable<Integer>> t : groups){
+            List<Integer> values=new ArrayList<>();
+            for(Integer v : t._2()){
+                values.add(v);
+            }
+            Assert.assertNull("Key returned more than once",result.put(t._1(),values));
+        }
+        return result;
+    }
+
+    /*
+     * The values of each key in input order, which the grouping keeps even when it spills
+     */
+    private static Map<Integer,List<Integer>> expectedGroups(List<Tuple2<Integer,Integer>> pairs){
+        Map<Integer,List<Integer>> values=new HashMap<>();
+        for(Tuple2<Integer,Integer> t : pairs){
+            List<Integer> vs=values.get(t._1());
+            if(vs==null){
+                vs=new ArrayList<>();
+                values.put(t._1(),vs);
+            }
+            vs.add(t._2());
+        }
+        return values;
+    }
+
+    private static List<Tuple2<Integer,Integer>> randomPairs(int size,int numKeys,long seed){
+        Random random=new Random(seed);
+        List<Tuple2<Integer,Integer>> data=new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            data.add(new Tuple2<>(random.nextInt(numKeys),i));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.stream.function.SpliceFunction2;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+@Category(ArchitectureIndependent.class)
+public class HashAggregateIterableTest{
+
+    @Rule public TemporaryFolder spillDir = new TemporaryFolder();
+
+    @Test
+    public void aggregatesInMemoryWhenUnderBudget() throws Exception{
+        List<Tuple2<Integer,Long>> data=randomPairs(1000,50);
+        HashAggregateIterable<Integer,Long> agg=new HashAggregateIterable<>(data,new SumFunction(),Long.MAX_VALUE,spillDir.getRoot());
+        Assert.assertEquals("Incorrect sums",expectedSums(data),collect(agg));
+        Assert.assertEquals("Should not have spilled",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void spillsAndMergesPartitionsWhenOverBudget() throws Exception{
+        List<Tuple2<Integer,Long>> data=randomPairs(20000,2000);
+        HashAggregateIterable<Integer,Long> agg=new HashAggregateIterable<>(data,new SumFunction(),512,spillDir.getRoot());
+        Assert.assertEquals("Incorrect sums",expectedSums(data),collect(agg));
+        Assert.assertEquals("Spill files not removed",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void spillsLocatedRows() throws Exception{
+        List<Tuple2<Integer,Long>> data=randomPairs(20000,2000);
+        List<Tuple2<ExecRow,LocatedRow>> rows=new ArrayList<>(data.size());
+        for(Tuple2<Integer,Long> t : data){
+            ValueRow key=new ValueRow(1);
+            key.setColumn(1,new SQLInteger(t._1()));
+            ValueRow value=new ValueRow(2);
+            value.setColumn(1,new SQLInteger(t._1()));
+            value.setColumn(2,new SQLLongint(t._2()));
+            rows.add(new Tuple2<ExecRow,LocatedRow>(key,new LocatedRow(value)));
+        }
+        HashAggregateIterable<ExecRow,LocatedRow> agg=new HashAggregateIterable<>(rows,new RowSumFunction(),512,spillDir.getRoot());
+        Map<Integer,Long> result=new HashMap<>();
+        for(Tuple2<ExecRow,LocatedRow> t : agg){
+            int group=t._1().getColumn(1).getInt();
+            Assert.assertEquals("Row does not belong to its group",group,t._2().getRow().getColumn(1).getInt());
+            Assert.assertNull("Group returned more than once",result.put(group,t._2().getRow().getColumn(2).getLong()));
+        }
+        Assert.assertEquals("Incorrect sums",expectedSums(data),result);
+        Assert.assertEquals("Spill files not removed",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void hashTableSurvivesResize() throws Exception{
+        ControlHashTable<Integer,Integer> table=new ControlHashTable<>();
+        for(int i=0;i<10000;i++){
+            table.put(i,-i);
+        }
+        Assert.assertEquals("Incorrect size",10000,table.size());
+        for(int i=0;i<10000;i++){
+            Assert.assertEquals("Incorrect value",Integer.valueOf(-i),table.get(i));
+        }
+        Assert.assertNull("Found a missing key",table.get(10000));
+    }
+
+    private static Map<Integer,Long> collect(Iterable<Tuple2<Integer,Long>> agg){
+        Map<Integer,Long> result=new HashMap<>();
+        for(Tuple2<Integer,Long> t : agg){
+            Assert.assertNull("Group returned more than once",result.put(t._1(),t._2()));
+        }
+        return result;
+    }
+
+    private static Map<Integer,Long> expectedSums(List<Tuple2<Integer,Long>> data){
+        Map<Integer,Long> sums=new HashMap<>();
+        for(Tuple2<Integer,Long> t : data){
+            Long old=sums.get(t._1());
+            sums.put(t._1(),old==null?t._2():old+t._2());
+        }
+        return sums;
+    }
+
+    private static List<Tuple2<Integer,Long>> randomPairs(int size,int numGroups){
+        Random random=new Random(0L);
+        List<Tuple2<Integer,Long>> data=new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            data.add(new Tuple2<>(random.nextInt(numGroups),(long)random.nextInt(100)));
+        }
+        return data;
+    }
+
+    public static class SumFunction extends SpliceFunction2<SpliceOperation,Long,Long,Long>{
+        public SumFunction(){ }
+
+        @Override
+        public Long call(Long first,Long second) throws Exception{
+            if(first==null) return second;
+            if(second==null) return first;
+            return first+second;
+        }
+    }
+
+    /*
+     * Sums the second column of rows with the same first column
+     */
+    public static class RowSumFunction extends SpliceFunction2<SpliceOperation,LocatedRow,LocatedRow,LocatedRow>{
+        public RowSumFunction(){ }
+
+        @Override
+        public LocatedRow call(LocatedRow first,LocatedRow second) throws Exception{
+            if(first==null) return second;
+            if(second==null) return first;
+            ExecRow sum=first.getRow().getClone();
+            sum.getColumn(2).setValue(first.getRow().getColumn(2).getLong()+second.getRow().getColumn(2).getLong());
+            return new LocatedRow(sum);
+        }
+    }
+}
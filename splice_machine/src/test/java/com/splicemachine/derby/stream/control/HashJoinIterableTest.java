@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+import org.sparkproject.guava.collect.Iterators;
+import scala.Tuple2;
+
+import java.io.File;
+import java.util.*;
+
+@Category(ArchitectureIndependent.class)
+public class HashJoinIterableTest{
+
+    @Rule public TemporaryFolder spillDir = new TemporaryFolder();
+
+    @Test
+    public void joinsInMemoryWhenUnderBudget() throws Exception{
+        List<Tuple2<Integer,Integer>> left=randomPairs(1000,200,1L);
+        List<Tuple2<Integer,Integer>> right=randomPairs(500,400,2L);
+        Assert.assertEquals("Incorrect join",nestedLoopJoin(left,right),collect(new InnerJoin(left,right,Long.MAX_VALUE,spillDir.getRoot())));
+        Assert.assertEquals("Should not have spilled",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void partitionsBothSidesWhenOverBudget() throws Exception{
+        List<Tuple2<Integer,Integer>> left=randomPairs(5000,2000,1L);
+        List<Tuple2<Integer,Integer>> right=randomPairs(3000,4000,2L);
+        Assert.assertEquals("Incorrect join",nestedLoopJoin(left,right),collect(new InnerJoin(left,right,256,spillDir.getRoot())));
+        Assert.assertEquals("Spill files not removed",0,spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void spillsLocatedRows() throws Exception{
+        List<Tuple2<Integer,Integer>> left=randomPairs(2000,500,1L);
+        List<Tuple2<Integer,Integer>> right=randomPairs(1000,1000,2L);
+        HashJoinIterable<ExecRow,LocatedRow,LocatedRow,String> join=new HashJoinIterable<ExecRow,LocatedRow,LocatedRow,String>(locatedRows(left),locatedRows(right),256,spillDir.getRoot()){
+            @Override
+            protected Iterator<String> probe(ExecRow key,LocatedRow value,List<LocatedRow> matches){
+                if(matches==null)
+                    return Iterators.emptyIterator();
+                List<String> result=new ArrayList<>(matches.size());
+                try{
+                    for(LocatedRow match : matches){
+                        Assert.assertEquals("Row location not restored",
+                                match.getRow().getColumn(2).getInt(),Bytes.toInt(match.getRowLocation().getBytes()));
+                        result.add(key.getColumn(1).getInt()+":"+value.getRow().getColumn(2).getInt()+":"+match.getRow().getColumn(2).getInt());
+                    }
+                }catch(Exception e){
+                    throw new RuntimeException(e);
+                }
+                return result.iterator();
+            }
+        };
+        List<String> rows=new ArrayList<>();
+        for(String row : join){
+            rows.add(row);
+        }
+        Collections.sort(rows);
+        Assert.assertEquals("Incorrect join",nestedLoopJoin(left,right),rows);
+        Assert.assertEquals("Spill files not removed",0,spillDir.getRoot().list().length);
+    }
+
+    /*
+     * Rows keyed by a single integer column, holding their key and value, and located by their value
+     */
+    private static List<Tuple2<ExecRow,LocatedRow>> locatedRows(List<Tuple2<Integer,Integer>> pairs){
+        List<Tuple2<ExecRow,LocatedRow>> rows=new ArrayList<>(pairs.size());
+        for(Tuple2<Integer,Integer> t : pairs){
+            ValueRow key=new ValueRow(1);
+            key.setColumn(1,new SQLInteger(t._1()));
+            ValueRow row=new ValueRow(2);
+            row.setColumn(1,new SQLInteger(t._1()));
+            row.setColumn(2,new SQLInteger(t._2()));
+            rows.add(new Tuple2<ExecRow,LocatedRow>(key,new LocatedRow(new HBaseRowLocation(Bytes.toBytes(t._2())),row)));
+        }
+        return rows;
+    }
+
+    private static List<String> collect(Iterable<Tuple2<Integer,Tuple2<Integer,Integer>>> joined){
+        List<String> rows=new ArrayList<>();
+        for(Tuple2<Integer,Tuple2<Integer,Integer>> t : joined){
+            rows.add(t._1()+":"+t._2()._1()+":"+t._2()._2());
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static List<String> nestedLoopJoin(List<Tuple2<Integer,Integer>> left,List<Tuple2<Integer,Integer>> right){
+        List<String> rows=new ArrayList<>();
+        for(Tuple2<Integer,Integer> l : left){
+            for(Tuple2<Integer,Integer> r : right){
+                if(l._1().equals(r._1()))
+                    rows.add(l._1()+":"+l._2()+":"+r._2());
+            }
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    private static List<Tuple2<Integer,Integer>> randomPairs(int size,int numKeys,long seed){
+        Random random=new Random(seed);
+        List<Tuple2<Integer,Integer>> data=new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            data.add(new Tuple2<>(random.nextInt(numKeys),i));
+        }
+        return data;
+    }
+
+    private static class InnerJoin extends HashJoinIterable<Integer,Integer,Integer,Tuple2<Integer,Tuple2<Integer,Integer>>>{
+
+        InnerJoin(List<Tuple2<Integer,Integer>> left,List<Tuple2<Integer,Integer>> right,long memoryBudget,File spillDirectory){
+            super(left,right,memoryBudget,spillDirectory);
+        }
+
+        @Override
+        protected Iterator<Tuple2<Integer,Tuple2<Integer,Integer>>> probe(Integer key,Integer value,List<Integer> matches){
+            if(matches==null)
+                return Iterators.emptyIterator();
+            List<Tuple2<Integer,Tuple2<Integer,Integer>>> result=new ArrayList<>(matches.size());
+            for(Integer match : matches){
+                result.add(new Tuple2<>(key,new Tuple2<>(value,match)));
+            }
+            return result.iterator();
+        }
+    }
+}
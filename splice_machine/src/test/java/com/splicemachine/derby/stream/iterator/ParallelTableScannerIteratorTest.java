@@ -0,0 +1,257 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.iterator;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.SITableScanner;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
+import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.metrics.MetricFactory;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.storage.Partition;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Scans a fake table whose row keys are the integers from 0, each row holding its own key.
+ */
+@Category(ArchitectureIndependent.class)
+public class ParallelTableScannerIteratorTest{
+    private static final byte[] EMPTY=new byte[0];
+
+    private final Set<SITableScanner> openScanners=Collections.newSetFromMap(new ConcurrentHashMap<SITableScanner,Boolean>());
+    private final Set<SITableScanner> openPoolScanners=Collections.newSetFromMap(new ConcurrentHashMap<SITableScanner,Boolean>());
+    private final AtomicInteger scannersCreated=new AtomicInteger();
+    private int rowCount;
+    private int failAfterKey=-1;
+
+    @Test
+    public void returnsRowsInKeyOrder() throws Exception{
+        ParallelTableScannerIterator iterator=iterator(8,300,EMPTY,EMPTY,4);
+        assertKeys(iterator,0,2400);
+        iterator.close();
+        Assert.assertTrue("Scanners left open",openScanners.isEmpty());
+    }
+
+    @Test
+    public void returnsOnlyTheScanRange() throws Exception{
+        ParallelTableScannerIterator iterator=iterator(8,300,Bytes.toBytes(250),Bytes.toBytes(1000),4);
+        assertKeys(iterator,250,1000);
+        iterator.close();
+        Assert.assertTrue("Scanners left open",openScanners.isEmpty());
+    }
+
+    @Test
+    public void closingEarlyStopsThePrefetchingScans() throws Exception{
+        ParallelTableScannerIterator iterator=iterator(4,5000,EMPTY,EMPTY,3);
+        assertKeys(iterator,0,10);
+        iterator.close();
+        Assert.assertTrue("Scanners left open after close",waitUntilEmpty(openScanners,5000));
+    }
+
+    @Test
+    public void slowConsumersDoNotCausePartitionsToBeRescanned() throws Exception{
+        ParallelTableScannerIterator iterator=iterator(4,5000,EMPTY,EMPTY,3);
+        assertKeys(iterator,0,10);
+        Thread.sleep(1500);
+        Assert.assertEquals("Pool threads stopped waiting for a slow consumer",3,openPoolScanners.size());
+
+        assertKeys(iterator,10,20000);
+        Assert.assertFalse("Too many rows",iterator.hasNext());
+        Assert.assertEquals("Partitions were scanned more than once",4,scannersCreated.get());
+        iterator.close();
+        Assert.assertTrue("Scanners left open",openScanners.isEmpty());
+    }
+
+    @Test
+    public void errorsReachTheConsumerInOrder() throws Exception{
+        failAfterKey=2*300+5;
+        ParallelTableScannerIterator iterator=iterator(8,300,EMPTY,EMPTY,4);
+        assertKeys(iterator,0,2*300+6);
+        try{
+            iterator.hasNext();
+            Assert.fail("Expected the failure of the partition scan");
+        }catch(RuntimeException e){
+            Throwable cause=e;
+            while(cause!=null && !(cause instanceof IOException))
+                cause=cause.getCause();
+            Assert.assertNotNull("Unexpected failure "+e,cause);
+            Assert.assertEquals("scan failed",cause.getMessage());
+        }
+        iterator.close();
+        Assert.assertTrue("Scanners left open after close",waitUntilEmpty(openScanners,5000));
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    private static void assertKeys(ParallelTableScannerIterator iterator,int from,int to) throws Exception{
+        for(int key=from;key<to;key++){
+            Assert.assertTrue("Missing row "+key,iterator.hasNext());
+            Assert.assertEquals("Rows out of order",key,iterator.next().getRow().getColumn(1).getInt());
+        }
+    }
+
+    private static boolean waitUntilEmpty(Set<?> set,long timeoutMillis) throws InterruptedException{
+        long end=System.currentTimeMillis()+timeoutMillis;
+        while(!set.isEmpty() && System.currentTimeMillis()<end){
+            Thread.sleep(10);
+        }
+        return set.isEmpty();
+    }
+
+    private ParallelTableScannerIterator iterator(int numPartitions,int rowsPerPartition,byte[] start,byte[] stop,int parallelism) throws Exception{
+        rowCount=numPartitions*rowsPerPartition;
+        List<Partition> partitions=new ArrayList<>(numPartitions);
+        for(int i=0;i<numPartitions;i++){
+            Partition partition=mock(Partition.class);
+            when(partition.getStartKey()).thenReturn(i==0?EMPTY:Bytes.toBytes(i*rowsPerPartition));
+            when(partition.getEndKey()).thenReturn(i==numPartitions-1?EMPTY:Bytes.toBytes((i+1)*rowsPerPartition));
+            partitions.add(partition);
+        }
+        Partition table=mock(Partition.class);
+        when(table.openScanner(any(DataScan.class),any(MetricFactory.class))).thenReturn(null);
+
+        TableScannerBuilder<LocatedRow> builder=new TableScannerBuilder<LocatedRow>(){
+            @Override
+            public DataSet<LocatedRow> buildDataSet(){
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public SITableScanner build(){
+                return ParallelTableScannerIteratorTest.this.scanner(getScan().getStartKey(),getScan().getStopKey());
+            }
+        };
+        builder.template(new ValueRow(1)).scan(rangeScan(start,stop));
+        return new ParallelTableScannerIterator(builder,table,partitions,null,null,parallelism);
+    }
+
+    /*
+     * A scanner over the keys in [start,stop)
+     */
+    private SITableScanner scanner(byte[] start,byte[] stop){
+        try{
+            final SITableScanner scanner=mock(SITableScanner.class);
+            final int[] key={firstKey(start)-1};
+            final int end=Bytes.empty(stop)?rowCount:Bytes.toInt(stop);
+            when(scanner.next()).thenAnswer(new Answer<ExecRow>(){
+                @Override
+                public ExecRow answer(InvocationOnMock invocation) throws Throwable{
+                    if(key[0]==failAfterKey)
+                        throw new IOException("scan failed");
+                    if(++key[0]>=end) return null;
+                    ExecRow row=new ValueRow(1);
+                    row.setColumn(1,new SQLInteger(key[0]));
+                    return row;
+                }
+            });
+            when(scanner.getCurrentRowLocation()).thenAnswer(new Answer<HBaseRowLocation>(){
+                @Override
+                public HBaseRowLocation answer(InvocationOnMock invocation) throws Throwable{
+                    return new HBaseRowLocation(Bytes.toBytes(key[0]));
+                }
+            });
+            doAnswer(new Answer<Void>(){
+                @Override
+                public Void answer(InvocationOnMock invocation) throws Throwable{
+                    openScanners.remove(scanner);
+                    openPoolScanners.remove(scanner);
+                    return null;
+                }
+            }).when(scanner).close();
+            openScanners.add(scanner);
+            scannersCreated.incrementAndGet();
+            if(Thread.currentThread().getName().startsWith("control-scan"))
+                openPoolScanners.add(scanner);
+            return scanner;
+        }catch(Exception e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    /*
+     * The first key at or after the given start key, which may lie between two keys
+     */
+    private static int firstKey(byte[] start){
+        if(Bytes.empty(start)) return 0;
+        int key=Bytes.toInt(start);
+        return start.length>4?key+1:key;
+    }
+
+    /*
+     * A scan whose key range can be copied and changed, as the iterator does for each partition
+     */
+    private static DataScan rangeScan(byte[] start,byte[] stop){
+        final byte[][] range={start,stop};
+        final DataScan scan=mock(DataScan.class);
+        when(scan.getStartKey()).thenAnswer(new Answer<byte[]>(){
+            @Override
+            public byte[] answer(InvocationOnMock invocation) throws Throwable{
+                return range[0];
+            }
+        });
+        when(scan.getStopKey()).thenAnswer(new Answer<byte[]>(){
+            @Override
+            public byte[] answer(InvocationOnMock invocation) throws Throwable{
+                return range[1];
+            }
+        });
+        when(scan.startKey(any(byte[].class))).thenAnswer(new Answer<DataScan>(){
+            @Override
+            public DataScan answer(InvocationOnMock invocation) throws Throwable{
+                range[0]=(byte[])invocation.getArguments()[0];
+                return scan;
+            }
+        });
+        when(scan.stopKey(any(byte[].class))).thenAnswer(new Answer<DataScan>(){
+            @Override
+            public DataScan answer(InvocationOnMock invocation) throws Throwable{
+                range[1]=(byte[])invocation.getArguments()[0];
+                return scan;
+            }
+        });
+        when(scan.copy()).thenAnswer(new Answer<DataScan>(){
+            @Override
+            public DataScan answer(InvocationOnMock invocation) throws Throwable{
+                return rangeScan(range[0],range[1]);
+            }
+        });
+        return scan;
+    }
+}
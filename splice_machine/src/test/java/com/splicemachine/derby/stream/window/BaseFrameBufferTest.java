@@ -0,0 +1,261 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.window;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.sql.execute.WindowFunction;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.UserType;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.window.FrameDefinition;
+import com.splicemachine.derby.impl.sql.execute.operations.window.WindowAggregator;
+import com.splicemachine.derby.impl.sql.execute.operations.window.function.AvgAggregator;
+import com.splicemachine.derby.impl.sql.execute.operations.window.function.MaxMinAggregator;
+import com.splicemachine.derby.impl.sql.execute.operations.window.function.SpliceGenericWindowFunction;
+import com.splicemachine.derby.impl.sql.execute.operations.window.function.SumAggregator;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for {@link BaseFrameBuffer} over ROWS frames, checked against SUM, AVG, MIN and MAX
+ * recomputed over each row's frame.
+ */
+@Category(ArchitectureIndependent.class)
+public class BaseFrameBufferTest {
+    private static final int INPUT_COLUMN = 1;
+    private static final String[] FUNCTIONS = {"SUM", "AVG", "MIN", "MAX"};
+    private static final int NUM_COLUMNS = 1 + 2 * FUNCTIONS.length;
+
+    @Test
+    public void precedingAndFollowing() throws Exception {
+        assertFrames(frame(FrameDefinition.Frame.PRECEDING, 2, FrameDefinition.Frame.FOLLOWING, 1), -2, 1);
+    }
+
+    @Test
+    public void unboundedPrecedingAndCurrentRow() throws Exception {
+        assertFrames(frame(FrameDefinition.Frame.UNBOUNDED_PRECEDING, 0, FrameDefinition.Frame.CURRENT_ROW, 0),
+                Integer.MIN_VALUE, 0);
+    }
+
+    @Test
+    public void currentRowAndUnboundedFollowing() throws Exception {
+        assertFrames(frame(FrameDefinition.Frame.CURRENT_ROW, 0, FrameDefinition.Frame.UNBOUNDED_FOLLOWING, 0),
+                0, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void followingOnly() throws Exception {
+        assertFrames(frame(FrameDefinition.Frame.FOLLOWING, 1, FrameDefinition.Frame.FOLLOWING, 3), 1, 3);
+    }
+
+    @Test
+    public void singleRowPartition() throws Exception {
+        List<Integer> values = new ArrayList<>();
+        values.add(7);
+        assertFrames(frame(FrameDefinition.Frame.PRECEDING, 2, FrameDefinition.Frame.FOLLOWING, 1), -2, 1, values);
+    }
+
+    private static FrameDefinition frame(FrameDefinition.Frame start, long startRows, FrameDefinition.Frame end, long endRows) {
+        return new FrameDefinition(FrameDefinition.FrameMode.ROWS.ordinal(), start.ordinal(), startRows, end.ordinal(), endRows);
+    }
+
+    private static void assertFrames(FrameDefinition frameDefinition, int frameStart, int frameEnd) throws StandardException {
+        Random random = new Random(frameStart * 31L + frameEnd);
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            values.add(random.nextInt(5) == 0 ? null : random.nextInt(1000) - 500);
+        }
+        assertFrames(frameDefinition, frameStart, frameEnd, values);
+    }
+
+    /*
+     * Evaluate every function over the values, and check each row against its frame of
+     * [row+frameStart, row+frameEnd] (clamped to the partition)
+     */
+    private static void assertFrames(FrameDefinition frameDefinition, int frameStart, int frameEnd, List<Integer> values) throws StandardException {
+        WindowAggregator[] aggregators = new WindowAggregator[FUNCTIONS.length];
+        ExecRow templateRow = new ValueRow(NUM_COLUMNS);
+        templateRow.setColumn(INPUT_COLUMN, new SQLInteger());
+        for (int i = 0; i < FUNCTIONS.length; i++) {
+            aggregators[i] = new TestAggregator(newFunction(FUNCTIONS[i]), INPUT_COLUMN, 2 + i, 2 + FUNCTIONS.length + i);
+            templateRow.setColumn(2 + i, new UserType());
+            templateRow.setColumn(2 + FUNCTIONS.length + i, new SQLDouble());
+        }
+        List<ExecRow> rows = new ArrayList<>();
+        for (Integer value : values) {
+            ExecRow row = new ValueRow(NUM_COLUMNS);
+            for (int c = 1; c <= NUM_COLUMNS; c++) {
+                row.setColumn(c, new SQLInteger());
+            }
+            if (value != null) {
+                row.getColumn(INPUT_COLUMN).setValue(value.intValue());
+            }
+            rows.add(row);
+        }
+
+        WindowFrameBuffer buffer = BaseFrameBuffer.createFrameBuffer(aggregators, rows.iterator(), frameDefinition, new int[]{INPUT_COLUMN}, templateRow);
+        int n = 0;
+        while (buffer.hasNext()) {
+            ExecRow result = buffer.next();
+            int from = (int) Math.max(0L, (long) n + frameStart);
+            int to = (int) Math.min(values.size() - 1L, (long) n + frameEnd);
+            List<Integer> frame = from <= to ? values.subList(from, to + 1) : new ArrayList<Integer>();
+            for (int i = 0; i < FUNCTIONS.length; i++) {
+                Double expected = recompute(FUNCTIONS[i], frame);
+                DataValueDescriptor actual = result.getColumn(2 + FUNCTIONS.length + i);
+                String message = FUNCTIONS[i] + " of row " + n + " over " + frame;
+                if (expected == null) {
+                    Assert.assertTrue(message + " should be null, was " + actual, actual.isNull());
+                } else {
+                    Assert.assertFalse(message + " should not be null", actual.isNull());
+                    Assert.assertEquals(message, expected, actual.getDouble(), 1e-9);
+                }
+            }
+            n++;
+        }
+        Assert.assertEquals("Incorrect number of rows", values.size(), n);
+    }
+
+    private static SpliceGenericWindowFunction newFunction(String name) throws StandardException {
+        SpliceGenericWindowFunction function;
+        switch (name) {
+            case "SUM":
+                function = new SumAggregator();
+                break;
+            case "AVG":
+                function = new AvgAggregator();
+                break;
+            default:
+                function = (SpliceGenericWindowFunction) new MaxMinAggregator().setup(null, name, null, null).newWindowFunction();
+        }
+        function.setResultType(name.equals("AVG") ? new SQLDouble() : new SQLLongint());
+        return function;
+    }
+
+    private static Double recompute(String function, List<Integer> frame) {
+        Double result = null;
+        int count = 0;
+        for (Integer value : frame) {
+            if (value == null) {
+                continue;
+            }
+            count++;
+            if (result == null) {
+                result = (double) value;
+            } else if (function.equals("MIN")) {
+                result = Math.min(result, value);
+            } else if (function.equals("MAX")) {
+                result = Math.max(result, value);
+            } else {
+                result += value;
+            }
+        }
+        return function.equals("AVG") && result != null ? result / count : result;
+    }
+
+    /*
+     * Feeds one input column to a window function, as WindowAggregatorImpl does without the generated code
+     */
+    private static class TestAggregator implements WindowAggregator {
+        private final SpliceGenericWindowFunction function;
+        private final int inputColumnId;
+        private final int functionColumnId;
+        private final int resultColumnId;
+
+        TestAggregator(SpliceGenericWindowFunction function, int inputColumnId, int functionColumnId, int resultColumnId) {
+            this.function = function;
+            this.inputColumnId = inputColumnId;
+            this.functionColumnId = functionColumnId;
+            this.resultColumnId = resultColumnId;
+        }
+
+        @Override
+        public void accumulate(ExecRow nextRow, ExecRow accumulatorRow) throws StandardException {
+            WindowFunction windowFunction = (WindowFunction) accumulatorRow.getColumn(functionColumnId).getObject();
+            windowFunction.accumulate(new DataValueDescriptor[]{nextRow.getColumn(inputColumnId)});
+        }
+
+        @Override
+        public void finish(ExecRow row) throws StandardException {
+            row.getColumn(resultColumnId).setValue(function.getResult());
+        }
+
+        @Override
+        public boolean initialize(ExecRow row) throws StandardException {
+            DataValueDescriptor functionColumn = row.getColumn(functionColumnId);
+            if (functionColumn.getObject() != null) {
+                return false;
+            }
+            functionColumn.setValue(function);
+            return true;
+        }
+
+        @Override
+        public int getResultColumnId() {
+            return resultColumnId;
+        }
+
+        @Override
+        public int getFunctionColumnId() {
+            return functionColumnId;
+        }
+
+        @Override
+        public int[] getPartitionColumns() {
+            return new int[0];
+        }
+
+        @Override
+        public int[] getKeyColumns() {
+            return new int[0];
+        }
+
+        @Override
+        public int[] getSortColumns() {
+            return new int[]{inputColumnId};
+        }
+
+        @Override
+        public boolean[] getKeyOrders() {
+            return new boolean[]{true};
+        }
+
+        @Override
+        public FrameDefinition getFrameDefinition() {
+            return null;
+        }
+
+        @Override
+        public String getName() {
+            return "test";
+        }
+
+        @Override
+        public SpliceGenericWindowFunction getCachedAggregator() {
+            return function;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.window;
+
+import com.splicemachine.derby.stream.BaseStreamTest;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+@Category(ArchitectureIndependent.class)
+public class SpillableRowQueueTest extends BaseStreamTest {
+
+    @Rule public TemporaryFolder spillDir = new TemporaryFolder();
+
+    @Test
+    public void keepsRowsInMemoryWhenUnderBudget() throws Exception {
+        SpillableRowQueue queue = new SpillableRowQueue(Long.MAX_VALUE, spillDir.getRoot());
+        for (int i = 0; i < 100; i++) {
+            queue.add(getExecRow(i, 1));
+        }
+        Assert.assertEquals("Incorrect size", 100, queue.size());
+        Assert.assertEquals("Should not have spilled", 0, spillDir.getRoot().list().length);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("Incorrect row", i, queue.removeFirst().getColumn(1).getInt());
+        }
+        Assert.assertTrue("Queue should be empty", queue.isEmpty());
+    }
+
+    @Test
+    public void slidesOverSpilledRowsInOrder() throws Exception {
+        SpillableRowQueue queue = new SpillableRowQueue(1024, spillDir.getRoot());
+        int next = 0;
+        for (; next < 1000; next++) {
+            queue.add(getExecRow(next, 1));
+        }
+        Assert.assertTrue("Should have spilled", spillDir.getRoot().list().length > 0);
+        // move a frame of 10 rows over the queue, adding to the tail while rows near the head are read
+        for (int first = 0; first < 2000; first++) {
+            for (int i = 0; i < 10 && i < queue.size(); i++) {
+                Assert.assertEquals("Incorrect row", first + i, queue.get(i).getColumn(1).getInt());
+            }
+            Assert.assertEquals("Incorrect row", first, queue.removeFirst().getColumn(1).getInt());
+            if (next < 2000) {
+                queue.add(getExecRow(next++, 1));
+            }
+        }
+        Assert.assertTrue("Queue should be empty", queue.isEmpty());
+        Assert.assertEquals("Spill files not removed", 0, spillDir.getRoot().list().length);
+    }
+
+    @Test
+    public void clearRemovesSpillFiles() throws Exception {
+        SpillableRowQueue queue = new SpillableRowQueue(0, spillDir.getRoot());
+        for (int i = 0; i < 100; i++) {
+            queue.add(getExecRow(i, 1));
+        }
+        Assert.assertEquals("Incorrect row", 50, queue.get(50).getColumn(1).getInt());
+        queue.clear();
+        Assert.assertTrue("Queue should be empty", queue.isEmpty());
+        Assert.assertEquals("Spill files not removed", 0, spillDir.getRoot().list().length);
+    }
+}
@@ -19,6 +19,7 @@ import com.splicemachine.storage.DataCell;
 import com.splicemachine.storage.DataFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * @author Scott Fines
@@ -37,4 +38,12 @@ public interface SIFilter{
     RowAccumulator getAccumulator();
 
     DataFilter.ReturnCode filterCell(DataCell kv) throws IOException;
+
+    /**
+     * Look up the transactions which wrote {@code cells} ahead of filtering them, so that those
+     * which are not yet known can be fetched together rather than one cell at a time.
+     *
+     * @param cells the cells which are about to be filtered, which may span any number of rows
+     */
+    void prefetch(List<DataCell> cells) throws IOException;
 }
@@ -18,6 +18,9 @@ package com.splicemachine.si.api.filter;
 import com.splicemachine.storage.DataCell;
 import com.splicemachine.storage.DataFilter;
 
+import java.io.IOException;
+import java.util.List;
+
 public interface TxnFilter extends DataFilter{
     void nextRow();
 
@@ -25,4 +28,9 @@ public interface TxnFilter extends DataFilter{
     boolean getExcludeRow();
 
     RowAccumulator getAccumulator();
+
+    /**
+     * @see SIFilter#prefetch(List)
+     */
+    void prefetch(List<DataCell> cells) throws IOException;
 }
@@ -26,9 +26,17 @@ import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 import org.sparkproject.guava.util.concurrent.ThreadFactoryBuilder;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Read-Resolver which asynchronously submits regions for execution, discarding
@@ -36,12 +44,17 @@ import java.util.concurrent.TimeUnit;
  * <p/>
  * This implementation uses an LMAX disruptor to asynchronously pass Read-resolve events
  * to a background thread, which in turn uses a SynchronousReadResolver to actually perform the resolution.
+ * <p/>
+ * The background thread groups the rows it picks up by region and transaction, dropping rows which are
+ * already waiting, and writes each group as a single batch. A group is written once it is full, once the queue
+ * has been drained, or once its oldest row has waited for longer than the maximum batch latency, whichever
+ * comes first.
  *
  * @author Scott Fines
  *         Date: 7/1/14
  */
 @ThreadSafe
-public class AsyncReadResolver{
+public class AsyncReadResolver implements ReadResolverManagement{
     private static final Logger LOG=Logger.getLogger(AsyncReadResolver.class);
     private final RingBuffer<ResolveEvent> ringBuffer;
     private final Disruptor<ResolveEvent> disruptor;
@@ -52,8 +65,23 @@ public class AsyncReadResolver{
     private final RollForwardStatus status;
     private final TrafficControl trafficControl;
     private final KeyedReadResolver synchronousResolver;
+    private final int maxBatchSize;
+    private final long maxBatchLatencyNanos;
+
+    private final AtomicLong submittedRows=new AtomicLong(0l);
+    private final AtomicLong droppedRows=new AtomicLong(0l);
+    private final AtomicLong deduplicatedRows=new AtomicLong(0l);
+    private final AtomicLong resolvedRows=new AtomicLong(0l);
+    private final AtomicLong batchesWritten=new AtomicLong(0l);
+    private final AtomicLong pendingRows=new AtomicLong(0l);
 
+    /**
+     * @param maxBatchSize the maximum number of rows to write in a single batch
+     * @param maxBatchLatency the longest time (in milliseconds) that a row which has been picked up waits for its
+     *                        batch to fill before being written anyway
+     */
     public AsyncReadResolver(int maxThreads,int bufferSize,
+                             int maxBatchSize,long maxBatchLatency,
                              TxnSupplier txnSupplier,
                              RollForwardStatus status,
                              TrafficControl trafficControl,
@@ -62,6 +90,8 @@ public class AsyncReadResolver{
         this.trafficControl=trafficControl;
         this.status=status;
         this.synchronousResolver = synchronousResolver;
+        this.maxBatchSize=Math.max(1,maxBatchSize);
+        this.maxBatchLatencyNanos=TimeUnit.MILLISECONDS.toNanos(Math.max(0l,maxBatchLatency));
         consumerThreads=new ThreadPoolExecutor(maxThreads,maxThreads,
                 60,TimeUnit.SECONDS,
                 new LinkedBlockingQueue<Runnable>(),
@@ -92,6 +122,18 @@ public class AsyncReadResolver{
         return new PartitionReadResolver(region,rollForward);
     }
 
+    @Override public long getSubmittedRows(){ return submittedRows.get(); }
+    @Override public long getDroppedRows(){ return droppedRows.get(); }
+    @Override public long getDeduplicatedRows(){ return deduplicatedRows.get(); }
+    @Override public long getResolvedRows(){ return resolvedRows.get(); }
+    @Override public long getBatchesWritten(){ return batchesWritten.get(); }
+    @Override public long getPendingRows(){ return pendingRows.get(); }
+
+    @Override
+    public long getBacklog(){
+        return ringBuffer.getBufferSize()-ringBuffer.remainingCapacity();
+    }
+
     private static class ResolveEvent{
         Partition region;
         long txnId;
@@ -107,23 +149,120 @@ public class AsyncReadResolver{
         }
     }
 
+    /*
+     * The rows of a single transaction in a single region which are waiting to be written
+     */
+    private static class PendingBatch{
+        final Partition region;
+        final long txnId;
+        final RollForward rollForward;
+        final Set<ByteSlice> rowKeys=new LinkedHashSet<>();
+
+        PendingBatch(Partition region,long txnId,RollForward rollForward){
+            this.region=region;
+            this.txnId=txnId;
+            this.rollForward=rollForward;
+        }
+    }
+
+    private static class BatchKey{
+        private final String regionName;
+        private final long txnId;
+
+        BatchKey(String regionName,long txnId){
+            this.regionName=regionName;
+            this.txnId=txnId;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(this==o) return true;
+            if(!(o instanceof BatchKey)) return false;
+            BatchKey that=(BatchKey)o;
+            return txnId==that.txnId && regionName.equals(that.regionName);
+        }
+
+        @Override
+        public int hashCode(){
+            return 31*regionName.hashCode()+(int)(txnId^(txnId>>>32));
+        }
+    }
+
+    /*
+     * Only ever called from the single consumer thread, so the pending batches need no synchronization
+     */
     private class ResolveEventHandler implements EventHandler<ResolveEvent>{
+        private final Map<BatchKey,PendingBatch> pending=new LinkedHashMap<>();
+        private long oldestPendingTime;
 
         @Override
         public void onEvent(ResolveEvent event,long sequence,boolean endOfBatch) throws Exception{
             try{
-                if(synchronousResolver.resolve(event.region,
-                        event.rowKey,
-                        event.txnId,
-                        txnSupplier,
-                        status,
-                        false,
-                        trafficControl)){
-                    event.rollForward.recordResolved(event.rowKey,event.txnId);
+                BatchKey key=new BatchKey(event.region.getName(),event.txnId);
+                PendingBatch batch=pending.get(key);
+                if(batch==null){
+                    if(pending.isEmpty())
+                        oldestPendingTime=System.nanoTime();
+                    batch=new PendingBatch(event.region,event.txnId,event.rollForward);
+                    pending.put(key,batch);
+                }
+                //each submission copies its row key, so it is safe to hold on to the buffer past this event
+                if(batch.rowKeys.add(new ByteSlice(event.rowKey)))
+                    pendingRows.incrementAndGet();
+                else
+                    deduplicatedRows.incrementAndGet();
+
+                if(batch.rowKeys.size()>=maxBatchSize){
+                    pending.remove(key);
+                    write(batch);
                 }
+                if(endOfBatch || System.nanoTime()-oldestPendingTime>=maxBatchLatencyNanos)
+                    writeAll();
             }catch(Exception e){
                 LOG.info("Error during read resolution",e);
                 throw e;
+            }finally{
+                event.region=null;
+                event.rollForward=null;
+            }
+        }
+
+        private void writeAll(){
+            Iterator<PendingBatch> batches=pending.values().iterator();
+            while(batches.hasNext()){
+                PendingBatch batch=batches.next();
+                batches.remove();
+                write(batch);
+            }
+        }
+
+        private void write(PendingBatch batch){
+            Collection<ByteSlice> rowKeys=batch.rowKeys;
+            pendingRows.addAndGet(-rowKeys.size());
+            Collection<ByteSlice> resolved;
+            if(rowKeys.size()==1){
+                resolved=synchronousResolver.resolve(batch.region,
+                        rowKeys.iterator().next(),
+                        batch.txnId,
+                        txnSupplier,
+                        status,
+                        false,
+                        trafficControl)?rowKeys:Collections.<ByteSlice>emptyList();
+            }else{
+                resolved=synchronousResolver.resolve(batch.region,
+                        rowKeys,
+                        batch.txnId,
+                        txnSupplier,
+                        status,
+                        false,
+                        trafficControl);
+            }
+            if(resolved.isEmpty()) return;
+
+            batchesWritten.incrementAndGet();
+            resolvedRows.addAndGet(resolved.size());
+            for(ByteSlice rowKey : resolved){
+                batch.rollForward.recordResolved(rowKey,batch.txnId);
             }
         }
     }
@@ -144,10 +283,12 @@ public class AsyncReadResolver{
             try{
                 sequence=ringBuffer.tryNext();
             }catch(InsufficientCapacityException e){
+                droppedRows.incrementAndGet();
                 if(LOG.isTraceEnabled())
                     LOG.trace("Unable to submit for read resolution");
                 return;
             }
+            submittedRows.incrementAndGet();
 
             try{
                 ResolveEvent event=ringBuffer.get(sequence);
@@ -21,6 +21,8 @@ import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
 
+import java.util.Collection;
+
 /**
  * @author Scott Fines
  *         Date: 12/21/15
@@ -33,4 +35,19 @@ public interface KeyedReadResolver{
                     RollForwardStatus status,
                     boolean failOnError,
                     TrafficControl trafficControl);
+
+    /**
+     * Resolve many rows which were all written by the same transaction, in as few writes to the region as
+     * possible.
+     *
+     * @param rowKeys the (distinct) rows to resolve
+     * @return the rows which were resolved; the write can partially succeed, so this may be only some of them
+     */
+    Collection<ByteSlice> resolve(Partition region,
+                                  Collection<ByteSlice> rowKeys,
+                                  long txnId,
+                                  TxnSupplier txnSupplier,
+                                  RollForwardStatus status,
+                                  boolean failOnError,
+                                  TrafficControl trafficControl);
 }
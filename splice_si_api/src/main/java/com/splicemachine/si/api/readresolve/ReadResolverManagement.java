@@ -0,0 +1,60 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.api.readresolve;
+
+import javax.management.MXBean;
+
+/**
+ * JMX view of the throughput and backlog of asynchronous read resolution.
+ */
+@MXBean
+public interface ReadResolverManagement{
+
+    /**
+     * @return the number of rows which have been submitted for resolution
+     */
+    long getSubmittedRows();
+
+    /**
+     * @return the number of rows which were discarded because the resolution queue was full
+     */
+    long getDroppedRows();
+
+    /**
+     * @return the number of rows which were discarded because they were already waiting to be resolved
+     */
+    long getDeduplicatedRows();
+
+    /**
+     * @return the number of rows which have been written
+     */
+    long getResolvedRows();
+
+    /**
+     * @return the number of batched writes performed
+     */
+    long getBatchesWritten();
+
+    /**
+     * @return the number of rows which are in the queue, waiting to be picked up
+     */
+    long getBacklog();
+
+    /**
+     * @return the number of rows which have been picked up, and are waiting to be written in a batch
+     */
+    long getPendingRows();
+}
@@ -26,4 +26,38 @@ import javax.management.MXBean;
 @MXBean
 public interface TransactionCacheManagement {
 
+    /**
+     * @return the maximum number of transactions the cache holds
+     */
+    int getMaxSize();
+
+    /**
+     * @return the number of transactions currently in the cache
+     */
+    int getCurrentSize();
+
+    /**
+     * @return the number of lookups made against the cache
+     */
+    long getTotalRequests();
+
+    /**
+     * @return the number of lookups which were answered by the cache
+     */
+    long getTotalHits();
+
+    /**
+     * @return the number of lookups which had to go to the transaction table
+     */
+    long getTotalMisses();
+
+    /**
+     * @return the fraction of lookups which were answered by the cache
+     */
+    double getHitRate();
+
+    /**
+     * @return the number of transactions which have been evicted to make room for others
+     */
+    long getTotalEvictions();
 }
@@ -38,6 +38,8 @@ public interface TxnLifecycleStore{
 
     TxnMessage.Txn getTransaction(long txnId) throws IOException;
 
+    TxnMessage.MultiTxnResponse getTransactions(long[] txnIds) throws IOException;
+
     long[] getActiveTransactionIds(byte[] destTable, long startId, long endId) throws IOException;
 
     Source<TxnMessage.Txn> getActiveTransactions(byte[] destTable, long startId, long endId) throws IOException;
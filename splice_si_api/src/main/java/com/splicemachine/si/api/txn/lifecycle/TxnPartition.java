@@ -61,6 +61,19 @@ public interface TxnPartition{
      */
     TxnMessage.Txn getTransaction(long txnId) throws IOException;
 
+    /**
+     * Fetch all information about several transactions at once.
+     * <p/>
+     * Ids which do not belong to this partition are ignored, so the caller need not know how the
+     * transaction table is split.
+     *
+     * @param txnIds the transaction ids to fetch
+     * @return the recorded transaction information for each of the ids which belong to this partition, along
+     * with the ids which belong to this partition but have no transaction recorded.
+     * @throws IOException if something goes wrong when fetching transactions
+     */
+    TxnMessage.MultiTxnResponse getTransactions(long[] txnIds) throws IOException;
+
     /**
      * Get a list of transaction ids which are considered ACTIVE <em>at the time that they are visited</em>.
      * <p/>
@@ -87,6 +87,11 @@ public class SIConstants {
     public static final String SUPPRESS_INDEXING_ATTRIBUTE_NAME = "iu";
     public static final byte[] SUPPRESS_INDEXING_ATTRIBUTE_VALUE = new byte[]{};
     public static final String CHECK_BLOOM_ATTRIBUTE_NAME = "cb";
+    /*
+     * Asks a partition to return no rows if nothing has been written to it since the time (in milliseconds)
+     * held in the attribute
+     */
+    public static final String UNCHANGED_SINCE_ATTRIBUTE_NAME = "uc";
 
     public static final String ENTRY_PREDICATE_LABEL= "p";
 
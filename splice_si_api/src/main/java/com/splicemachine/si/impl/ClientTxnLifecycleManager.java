@@ -18,6 +18,7 @@ package com.splicemachine.si.impl;
 import com.splicemachine.annotations.ThreadSafe;
 import com.splicemachine.si.api.data.ExceptionFactory;
 import com.splicemachine.si.api.txn.*;
+import com.splicemachine.si.impl.txn.ActiveTxnTracker;
 import com.splicemachine.si.impl.txn.ReadOnlyTxn;
 import com.splicemachine.si.impl.txn.WritableTxn;
 import com.splicemachine.timestamp.api.TimestampSource;
@@ -40,6 +41,7 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
     @ThreadSafe private TxnStore store;
     @ThreadSafe private KeepAliveScheduler keepAliveScheduler;
     @ThreadSafe private final ExceptionFactory exceptionFactory;
+    @ThreadSafe private ActiveTxnTracker activeTxnTracker;
 
     private volatile boolean restoreMode=false;
 
@@ -57,6 +59,10 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
         this.keepAliveScheduler = kas;
     }
 
+    public void setActiveTxnTracker(ActiveTxnTracker activeTxnTracker){
+        this.activeTxnTracker = activeTxnTracker;
+    }
+
     @Override
     public Txn beginTransaction() throws IOException{
         return beginTransaction(Txn.ROOT_TRANSACTION.getIsolationLevel());
@@ -102,11 +108,21 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
             throw exceptionFactory.doNotRetry("Cannot create a writable child of a read-only transaction. Elevate the parent transaction("+parentTxn.getTxnId()+") first");
         if(parentTxn.getState()!=Txn.State.ACTIVE)
             throw exceptionFactory.doNotRetry("Cannot create a child of an inactive transaction. Parent: "+parentTxn);
-        if(destinationTable!=null){
-            long timestamp=timestampSource.nextTimestamp();
-            return createWritableTransaction(timestamp,isolationLevel,additive,parentTxn,destinationTable);
-        }else
-            return createReadableTransaction(isolationLevel,additive,parentTxn);
+        if(activeTxnTracker==null || !parentTxn.equals(Txn.ROOT_TRANSACTION))
+            return createTransaction(isolationLevel,additive,parentTxn,destinationTable);
+
+        /*
+         * Top-level transactions are tracked from before they acquire their begin timestamp, so that the
+         * low water mark of this server never passes them
+         */
+        long token=activeTxnTracker.beginning();
+        Txn txn=null;
+        try{
+            txn=createTransaction(isolationLevel,additive,parentTxn,destinationTable);
+            return txn;
+        }finally{
+            activeTxnTracker.begun(token,txn);
+        }
     }
 
     @Override
@@ -134,17 +150,17 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
              */
             throw exceptionFactory.doNotRetry("Cannot chain a read-only parent transaction from a read-only transaction. Elevate the transaction("+txnToCommit.getTxnId()+") first");
         }
-        txnToCommit.commit();
-        long oldTs=txnToCommit.getCommitTimestamp();
+        if(activeTxnTracker==null || !parentTxn.equals(Txn.ROOT_TRANSACTION))
+            return chain(parentTxn,isolationLevel,additive,destinationTable,txnToCommit);
 
-        if(destinationTable!=null)
-            return createWritableTransaction(oldTs,isolationLevel,additive,parentTxn,destinationTable);
-        else{
-            if(parentTxn.equals(Txn.ROOT_TRANSACTION)){
-                return ReadOnlyTxn.createReadOnlyParentTransaction(oldTs,oldTs,isolationLevel,this,exceptionFactory,additive);
-            }else{
-                return ReadOnlyTxn.createReadOnlyTransaction(oldTs,parentTxn,oldTs,isolationLevel,additive,this,exceptionFactory);
-            }
+        //the new transaction begins at the commit timestamp, so it must be tracked from before the commit
+        long token=activeTxnTracker.beginning();
+        Txn txn=null;
+        try{
+            txn=chain(parentTxn,isolationLevel,additive,destinationTable,txnToCommit);
+            return txn;
+        }finally{
+            activeTxnTracker.begun(token,txn);
         }
     }
 
@@ -161,6 +177,8 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
             Txn writableTxn=new WritableTxn(txn,this,destinationTable,exceptionFactory);
             store.recordNewTransaction(writableTxn);
             keepAliveScheduler.scheduleKeepAlive(writableTxn);
+            if(activeTxnTracker!=null && Txn.ROOT_TRANSACTION.equals(writableTxn.getParentTxnView()))
+                activeTxnTracker.track(writableTxn);
             txn=writableTxn;
         }else
             store.elevateTransaction(txn,destinationTable);
@@ -187,6 +205,36 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
 
     /**********************************************************************************************************/
         /*private helper method*/
+    private Txn createTransaction(Txn.IsolationLevel isolationLevel,
+                                  boolean additive,
+                                  TxnView parentTxn,
+                                  byte[] destinationTable) throws IOException{
+        if(destinationTable!=null){
+            long timestamp=timestampSource.nextTimestamp();
+            return createWritableTransaction(timestamp,isolationLevel,additive,parentTxn,destinationTable);
+        }else
+            return createReadableTransaction(isolationLevel,additive,parentTxn);
+    }
+
+    private Txn chain(TxnView parentTxn,
+                      Txn.IsolationLevel isolationLevel,
+                      boolean additive,
+                      byte[] destinationTable,
+                      Txn txnToCommit) throws IOException{
+        txnToCommit.commit();
+        long oldTs=txnToCommit.getCommitTimestamp();
+
+        if(destinationTable!=null)
+            return createWritableTransaction(oldTs,isolationLevel,additive,parentTxn,destinationTable);
+        else{
+            if(parentTxn.equals(Txn.ROOT_TRANSACTION)){
+                return ReadOnlyTxn.createReadOnlyParentTransaction(oldTs,oldTs,isolationLevel,this,exceptionFactory,additive);
+            }else{
+                return ReadOnlyTxn.createReadOnlyTransaction(oldTs,parentTxn,oldTs,isolationLevel,additive,this,exceptionFactory);
+            }
+        }
+    }
+
     private Txn createWritableTransaction(long timestamp,
                                           Txn.IsolationLevel isolationLevel,
                                           boolean additive,
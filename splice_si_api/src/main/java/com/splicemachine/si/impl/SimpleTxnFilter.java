@@ -30,6 +30,7 @@ import com.splicemachine.storage.DataFilter;
 import com.splicemachine.utils.ByteSlice;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Transaction filter which performs basic transactional filtering (i.e. row visibility, tombstones,
@@ -48,6 +49,9 @@ public class SimpleTxnFilter implements TxnFilter{
     private final LongArrayList antiTombstonedTxnRows=new LongArrayList(1);
     private final ByteSlice rowKey=new ByteSlice();
     private final String tableName;
+    //prefetch fields
+    private final LongOpenHashSet prefetchSeenTxnIds=new LongOpenHashSet();
+    private final LongArrayList prefetchTxnIds=new LongArrayList();
 
     /*
      * The most common case for databases is insert-only--that is, that there
@@ -111,6 +115,40 @@ public class SimpleTxnFilter implements TxnFilter{
         }
     }
 
+    @Override
+    public void prefetch(List<DataCell> cells) throws IOException{
+        prefetchSeenTxnIds.clear();
+        prefetchTxnIds.clear();
+        for(DataCell cell : cells){
+            long txnId=cell.version();
+            switch(cell.dataType()){
+                case COMMIT_TIMESTAMP:
+                    //the commit timestamp sorts first, and tells us everything we need about this version
+                    prefetchSeenTxnIds.add(txnId);
+                    break;
+                case TOMBSTONE:
+                case ANTI_TOMBSTONE:
+                case USER_DATA:
+                    if(prefetchSeenTxnIds.add(txnId) && !transactionStore.transactionCached(txnId))
+                        prefetchTxnIds.add(txnId);
+                    break;
+                default:
+                    //the remaining cells have no bearing on visibility
+            }
+        }
+        /*
+         * A single unknown transaction costs the same to look up now as when we come to its cell, so
+         * only go to the store early when we can save a round trip. We hold on to what we fetch
+         * until filterCell() asks for it.
+         */
+        if(prefetchTxnIds.size()<=1) return;
+        TxnView[] txns=transactionStore.getTransactions(prefetchTxnIds.toArray());
+        for(TxnView txn : txns){
+            if(txn!=null && !transactionStore.transactionCached(txn.getTxnId()))
+                transactionStore.cache(txn);
+        }
+    }
+
     @Override
     public DataCell produceAccumulatedResult(){
         return null;
@@ -162,6 +162,16 @@ public class StripedTxnLifecycleStore implements TxnLifecycleStore{
         }
     }
 
+    @Override
+    public TxnMessage.MultiTxnResponse getTransactions(long[] txnIds) throws IOException{
+        /*
+         * Each transaction is read as a single row, so (as with the active transaction scans) we don't need
+         * the transaction locks to see a consistent version of it. Taking them would mean holding many
+         * stripes at once.
+         */
+        return baseStore.getTransactions(txnIds);
+    }
+
     @Override
     public long[] getActiveTransactionIds(byte[] destTable,long startId,long endId) throws IOException{
         if(endId<0)
@@ -31,6 +31,7 @@ import com.splicemachine.si.api.readresolve.ReadResolver;
 import com.splicemachine.si.api.readresolve.RollForward;
 import com.splicemachine.si.api.server.TransactionalRegion;
 import com.splicemachine.si.api.server.Transactor;
+import com.splicemachine.si.api.txn.TransactionCacheManagement;
 import com.splicemachine.si.api.txn.TxnLifecycleManager;
 import com.splicemachine.si.api.txn.TxnStore;
 import com.splicemachine.si.api.txn.TxnSupplier;
@@ -40,6 +41,7 @@ import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
 import com.splicemachine.si.impl.rollforward.NoopRollForward;
 import com.splicemachine.si.impl.rollforward.RollForwardStatus;
 import com.splicemachine.si.impl.server.SITransactor;
+import com.splicemachine.si.impl.txn.ActiveTxnTracker;
 import com.splicemachine.si.impl.txn.SITransactionReadController;
 import com.splicemachine.storage.DataFilterFactory;
 import com.splicemachine.storage.Partition;
@@ -47,6 +49,14 @@ import com.splicemachine.storage.PartitionInfoCache;
 import com.splicemachine.timestamp.api.TimestampSource;
 import com.splicemachine.utils.GreenLight;
 
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanRegistrationException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.NotCompliantMBeanException;
+import javax.management.ObjectName;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 public class SIDriver {
     private static volatile SIDriver INSTANCE;
 
@@ -77,6 +87,8 @@ public class SIDriver {
     private final OperationFactory baseOpFactory;
     private final PartitionInfoCache partitionInfoCache;
     private final SnowflakeFactory snowflakeFactory;
+    private final ActiveTxnTracker activeTxnTracker;
+    private final AtomicBoolean jmxRegistered=new AtomicBoolean(false);
 
     public SIDriver(SIEnvironment env){
         this.tableFactory = env.tableFactory();
@@ -103,6 +115,8 @@ public class SIDriver {
         ClientTxnLifecycleManager clientTxnLifecycleManager=new ClientTxnLifecycleManager(this.timestampSource,env.exceptionFactory());
         clientTxnLifecycleManager.setTxnStore(this.txnStore);
         clientTxnLifecycleManager.setKeepAliveScheduler(env.keepAliveScheduler());
+        this.activeTxnTracker = new ActiveTxnTracker();
+        clientTxnLifecycleManager.setActiveTxnTracker(activeTxnTracker);
         this.lifecycleManager =clientTxnLifecycleManager;
         readController = new SITransactionReadController(txnSupplier);
         readResolver = initializedReadResolver(config,env.keyedReadResolver());
@@ -170,10 +184,40 @@ public class SIDriver {
         return readResolver.getResolver(basePartition,getRollForward());
     }
 
+    public void registerJMX(MBeanServer mbs) throws MalformedObjectNameException, NotCompliantMBeanException, InstanceAlreadyExistsException, MBeanRegistrationException{
+        if(jmxRegistered.compareAndSet(false,true)){
+            if(readResolver!=null){
+                ObjectName readResolverName=new ObjectName("com.splicemachine.si:type=ReadResolver");
+                mbs.registerMBean(readResolver,readResolverName);
+            }
+            if(txnSupplier instanceof TransactionCacheManagement){
+                ObjectName txnCacheName=new ObjectName("com.splicemachine.si:type=CompletedTransactionCache");
+                mbs.registerMBean(txnSupplier,txnCacheName);
+            }
+        }
+    }
+
     public TxnLifecycleManager lifecycleManager(){
         return lifecycleManager;
     }
 
+    /**
+     * @return the tracker of the top-level transactions begun in this JVM
+     */
+    public ActiveTxnTracker getActiveTxnTracker(){
+        return activeTxnTracker;
+    }
+
+    /**
+     * @return the timestamp below which no active or future transaction began, as last published for the cluster,
+     * or -1 if versions of data which are no longer visible should not be purged
+     */
+    public long getTxnLowWaterMark(){
+        if(config.getTransactionLowWaterMarkInterval()<=0)
+            return -1l;
+        return timestampSource.retrieveTimestamp();
+    }
+
     public DataFilterFactory filterFactory(){
         return filterFactory;
     }
@@ -217,6 +261,8 @@ public class SIDriver {
         if(bufferSize<=0) return null;
         final AsyncReadResolver asyncReadResolver=new AsyncReadResolver(maxThreads,
                 bufferSize,
+                config.getReadResolverBatchSize(),
+                config.getReadResolverMaxBatchLatency(),
                 txnSupplier,
                 new RollForwardStatus(),
                 GreenLight.INSTANCE,keyedResolver);
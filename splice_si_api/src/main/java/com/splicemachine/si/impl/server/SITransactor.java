@@ -34,6 +34,7 @@ import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.si.impl.ConflictResults;
 import com.splicemachine.si.impl.SimpleTxnFilter;
 import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
+import com.splicemachine.si.impl.store.ActiveTxnCacheSupplier;
 import com.splicemachine.storage.*;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.Pair;
@@ -234,16 +235,14 @@ public class SITransactor implements Transactor{
                                                                    TxnFilter constraintStateFilter,
                                                                    MutationStatus[] finalStatus) throws IOException {
         IntObjectOpenHashMap<DataPut> finalMutationsToWrite = IntObjectOpenHashMap.newInstance(dataAndLocks.length, 0.9f);
-        DataResult possibleConflicts = null;
+        DataResult[] possibleConflicts = new DataResult[dataAndLocks.length];
         BitSet bloomInMemoryCheck  = table.getBloomInMemoryCheck(constraintChecker!=null,dataAndLocks);
         for(int i=0;i<dataAndLocks.length;i++){
             Pair<KVPair, Lock> baseDataAndLock=dataAndLocks[i];
             if(baseDataAndLock==null) continue;
 
-            ConflictResults conflictResults=ConflictResults.NO_CONFLICT;
             KVPair kvPair=baseDataAndLock.getFirst();
-            KVPair.Type writeType=kvPair.getType();
-            if(constraintChecker!=null || !KVPair.Type.INSERT.equals(writeType)){
+            if(constraintChecker!=null || !KVPair.Type.INSERT.equals(kvPair.getType())){
                 /*
                  *
                  * If the table has no keys, then the hbase row key is a randomly generated UUID, so it's not
@@ -254,11 +253,23 @@ public class SITransactor implements Transactor{
                  * applied on key elements.
                  */
                 //todo -sf remove the Row key copy here
-                possibleConflicts=bloomInMemoryCheck==null||bloomInMemoryCheck.get(i)?table.getLatest(kvPair.getRowKey(),possibleConflicts):null;
-                if(possibleConflicts!=null){
+                possibleConflicts[i]=bloomInMemoryCheck==null||bloomInMemoryCheck.get(i)?table.getLatest(kvPair.getRowKey(),null):null;
+            }
+        }
+        TxnSupplier conflictTxns=prefetchConflictingTransactions(transaction,dataAndLocks,possibleConflicts);
+
+        for(int i=0;i<dataAndLocks.length;i++){
+            Pair<KVPair, Lock> baseDataAndLock=dataAndLocks[i];
+            if(baseDataAndLock==null) continue;
+
+            ConflictResults conflictResults=ConflictResults.NO_CONFLICT;
+            KVPair kvPair=baseDataAndLock.getFirst();
+            KVPair.Type writeType=kvPair.getType();
+            if(constraintChecker!=null || !KVPair.Type.INSERT.equals(writeType)){
+                if(possibleConflicts[i]!=null){
                     //we need to check for write conflicts
-                    conflictResults=ensureNoWriteConflict(transaction,writeType,possibleConflicts);
-                    if(applyConstraint(constraintChecker,constraintStateFilter,i,kvPair,possibleConflicts,finalStatus,conflictResults.hasAdditiveConflicts())) //filter this row out, it fails the constraint
+                    conflictResults=ensureNoWriteConflict(conflictTxns,transaction,writeType,possibleConflicts[i]);
+                    if(applyConstraint(constraintChecker,constraintStateFilter,i,kvPair,possibleConflicts[i],finalStatus,conflictResults.hasAdditiveConflicts())) //filter this row out, it fails the constraint
                         continue;
                 }
                 //TODO -sf- if type is an UPSERT, and conflict type is ADDITIVE_CONFLICT, then we
@@ -409,11 +420,59 @@ public class SITransactor implements Transactor{
         }
     }
 
+    /**
+     * Fetch, in as few requests as possible, the transactions which the write conflict checks of
+     * {@code rows} will need and which are not already cached.
+     *
+     * @return the supplier to use for the conflict checks of this batch
+     */
+    private TxnSupplier prefetchConflictingTransactions(TxnView updateTransaction,
+                                                        Pair<KVPair, Lock>[] dataAndLocks,
+                                                        DataResult[] rows) throws IOException{
+        LongOpenHashSet toFetch=new LongOpenHashSet();
+        for(int i=0;i<rows.length;i++){
+            DataResult row=rows[i];
+            if(row==null) continue;
+            DataCell commitTsKeyValue=row.commitTimestamp();
+            if(commitTsKeyValue!=null && commitTsKeyValue.valueLength()>0 && commitTsKeyValue.valueAsLong()<0)
+                addUncachedTxnId(toFetch,updateTransaction,commitTsKeyValue.version());
+            DataCell tombstoneKeyValue=row.tombstone();
+            if(tombstoneKeyValue!=null)
+                addUncachedTxnId(toFetch,updateTransaction,tombstoneKeyValue.version());
+            DataCell userDataKeyValue=row.userData();
+            if(userDataKeyValue!=null)
+                addUncachedTxnId(toFetch,updateTransaction,userDataKeyValue.version());
+            if(dataAndLocks[i].getFirst().getType()==KVPair.Type.DELETE){
+                DataCell fkCounterKeyValue=row.fkCounter();
+                if(fkCounterKeyValue!=null)
+                    addUncachedTxnId(toFetch,updateTransaction,fkCounterKeyValue.valueAsLong());
+            }
+        }
+        //a single transaction is no cheaper to fetch now than when its row is checked
+        if(toFetch.size()<=1) return txnSupplier;
+
+        /*
+         * The shared supplier need not cache what we fetch (and never caches active transactions), so
+         * we hold on to everything for the rest of this batch.
+         */
+        TxnSupplier batchSupplier=new ActiveTxnCacheSupplier(txnSupplier,toFetch.size());
+        for(TxnView txn : txnSupplier.getTransactions(toFetch.toArray())){
+            if(txn!=null)
+                batchSupplier.cache(txn);
+        }
+        return batchSupplier;
+    }
+
+    private void addUncachedTxnId(LongOpenHashSet toFetch,TxnView updateTransaction,long txnId){
+        if(txnId!=updateTransaction.getTxnId() && !txnSupplier.transactionCached(txnId))
+            toFetch.add(txnId);
+    }
+
     /**
      * While we hold the lock on the row, check to make sure that no transactions have updated the row since the
      * updating transaction started.
      */
-    private ConflictResults ensureNoWriteConflict(TxnView updateTransaction,KVPair.Type updateType,DataResult row) throws IOException{
+    private ConflictResults ensureNoWriteConflict(TxnSupplier txnSupplier,TxnView updateTransaction,KVPair.Type updateType,DataResult row) throws IOException{
 
         DataCell commitTsKeyValue=row.commitTimestamp();//opFactory.getColumnLatest(result, DEFAULT_FAMILY_BYTES, SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES);
 //        Data tombstoneKeyValue = opFactory.getColumnLatest(result, DEFAULT_FAMILY_BYTES, SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES);
@@ -421,33 +480,33 @@ public class SITransactor implements Transactor{
 
         ConflictResults conflictResults=null;
         if(commitTsKeyValue!=null){
-            conflictResults=checkCommitTimestampForConflict(updateTransaction,null,commitTsKeyValue);
+            conflictResults=checkCommitTimestampForConflict(txnSupplier,updateTransaction,null,commitTsKeyValue);
         }
         DataCell tombstoneKeyValue=row.tombstone();
         if(tombstoneKeyValue!=null){
             long dataTransactionId=tombstoneKeyValue.version();
-            conflictResults=checkDataForConflict(updateTransaction,conflictResults,tombstoneKeyValue,dataTransactionId);
+            conflictResults=checkDataForConflict(txnSupplier,updateTransaction,conflictResults,tombstoneKeyValue,dataTransactionId);
             conflictResults=(conflictResults==null)?new ConflictResults():conflictResults;
-            conflictResults.setHasTombstone(hasCurrentTransactionTombstone(updateTransaction,tombstoneKeyValue));
+            conflictResults.setHasTombstone(hasCurrentTransactionTombstone(txnSupplier,updateTransaction,tombstoneKeyValue));
         }
         DataCell userDataKeyValue=row.userData();
         if(userDataKeyValue!=null){
             long dataTransactionId=userDataKeyValue.version();
-            conflictResults=checkDataForConflict(updateTransaction,conflictResults,userDataKeyValue,dataTransactionId);
+            conflictResults=checkDataForConflict(txnSupplier,updateTransaction,conflictResults,userDataKeyValue,dataTransactionId);
         }
         // FK counter -- can only conflict with DELETE
         if(updateType==KVPair.Type.DELETE){
             DataCell fkCounterKeyValue=row.fkCounter();
             if(fkCounterKeyValue!=null){
                 long dataTransactionId=fkCounterKeyValue.valueAsLong();
-                conflictResults=checkDataForConflict(updateTransaction,conflictResults,fkCounterKeyValue,dataTransactionId);
+                conflictResults=checkDataForConflict(txnSupplier,updateTransaction,conflictResults,fkCounterKeyValue,dataTransactionId);
             }
         }
 
         return conflictResults==null?ConflictResults.NO_CONFLICT:conflictResults;
     }
 
-    private boolean hasCurrentTransactionTombstone(TxnView updateTxn,DataCell tombstoneCell) throws IOException{
+    private boolean hasCurrentTransactionTombstone(TxnSupplier txnSupplier,TxnView updateTxn,DataCell tombstoneCell) throws IOException{
         if(tombstoneCell==null) return false; //no tombstone at all
         if(tombstoneCell.dataType()==CellType.ANTI_TOMBSTONE) return false;
         TxnView tombstoneTxn=txnSupplier.getTransaction(tombstoneCell.version());
@@ -455,7 +514,8 @@ public class SITransactor implements Transactor{
     }
 
     @SuppressWarnings("StatementWithEmptyBody")
-    private ConflictResults checkCommitTimestampForConflict(TxnView updateTransaction,
+    private ConflictResults checkCommitTimestampForConflict(TxnSupplier txnSupplier,
+                                                            TxnView updateTransaction,
                                                             ConflictResults conflictResults,
                                                             DataCell commitCell) throws IOException{
 //        final long dataTransactionId = opFactory.getTimestamp(dataCommitKeyValue);
@@ -501,7 +561,8 @@ public class SITransactor implements Transactor{
         return conflictResults;
     }
 
-    private ConflictResults checkDataForConflict(TxnView updateTransaction,
+    private ConflictResults checkDataForConflict(TxnSupplier txnSupplier,
+                                                 TxnView updateTransaction,
                                                  ConflictResults conflictResults,
                                                  DataCell cell,
                                                  long dataTransactionId) throws IOException{
@@ -15,6 +15,7 @@
 
 package com.splicemachine.si.impl.store;
 
+import com.carrotsearch.hppc.IntArrayList;
 import com.splicemachine.collections.LongKeyedCache;
 import com.splicemachine.hash.HashFunctions;
 import com.splicemachine.si.api.txn.Txn;
@@ -62,6 +63,31 @@ public class ActiveTxnCacheSupplier implements TxnSupplier {
 				return txn;
 		}
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        IntArrayList misses=new IntArrayList();
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=cache.get(txnIds[i]);
+            if(txns[i]==null)
+                misses.add(i);
+        }
+        if(misses.isEmpty()) return txns;
+
+        long[] toFetch=new long[misses.size()];
+        for(int i=0;i<toFetch.length;i++){
+            toFetch[i]=txnIds[misses.get(i)];
+        }
+        TxnView[] fetched=delegate.getTransactions(toFetch);
+        for(int i=0;i<fetched.length;i++){
+            TxnView txn=fetched[i];
+            txns[misses.get(i)]=txn;
+            if(txn!=null && txn.getEffectiveState()==Txn.State.ACTIVE)
+                cache.put(txn.getTxnId(),txn);
+        }
+        return txns;
+    }
+
 		@Override
 		public boolean transactionCached(long txnId) {
         return cache.get(txnId) !=null;
@@ -15,42 +15,77 @@
 
 package com.splicemachine.si.impl.store;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
+import com.carrotsearch.hppc.IntArrayList;
+import com.splicemachine.si.api.txn.TransactionCacheManagement;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * TxnSupplier which caches transaction which have "Completed"--i.e. which have entered the COMMITTED or ROLLEDBACK
  * state.
  * <p/>
+ * Transactions are held in a {@link PackedTxnCache}, so the cache does not hold on to the destination tables of
+ * the transactions; requests for them always go to the delegate.
+ * <p/>
  * This class is thread-safe, and safe to be shared between many threads.
  *
  * @author Scott Fines
  *         Date: 6/18/14
  */
-public class CompletedTxnCacheSupplier implements TxnSupplier{
-    private ConcurrentLinkedHashMap<Long, TxnView> cache; // autobox for now
+public class CompletedTxnCacheSupplier implements TxnSupplier, TransactionCacheManagement{
+    private final PackedTxnCache cache;
     private final TxnSupplier delegate;
-    private final AtomicLong hits=new AtomicLong();
-    private final AtomicLong requests=new AtomicLong();
 
     public CompletedTxnCacheSupplier(TxnSupplier delegate,int maxSize,int concurrencyLevel){
-        cache=new ConcurrentLinkedHashMap.Builder<Long, TxnView>()
-                .maximumWeightedCapacity(maxSize)
-                .concurrencyLevel(concurrencyLevel)
-                .build();
+        this(delegate,maxSize,concurrencyLevel,false);
+    }
+
+    public CompletedTxnCacheSupplier(TxnSupplier delegate,int maxSize,int concurrencyLevel,boolean offHeap){
+        this.cache=new PackedTxnCache(maxSize,concurrencyLevel,offHeap);
         this.delegate=delegate;
     }
 
+    @Override
     public int getMaxSize(){
+        return cache.getMaxSize();
+    }
+
+    @Override
+    public int getCurrentSize(){
         return cache.size();
     }
 
+    @Override
+    public long getTotalRequests(){
+        return cache.getRequests();
+    }
+
+    @Override
+    public long getTotalHits(){
+        return cache.getHits();
+    }
+
+    @Override
+    public long getTotalMisses(){
+        return cache.getRequests()-cache.getHits();
+    }
+
+    @Override
+    public double getHitRate(){
+        long requests=cache.getRequests();
+        if(requests<=0) return 0d;
+        return ((double)cache.getHits())/requests;
+    }
+
+    @Override
+    public long getTotalEvictions(){
+        return cache.getEvictions();
+    }
+
     @Override
     public TxnView getTransaction(long txnId) throws IOException{
         if(txnId==-1)
@@ -63,11 +98,10 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
     public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
         if(txnId==-1)
             return Txn.ROOT_TRANSACTION;
-        requests.incrementAndGet();
-        TxnView txn=cache.get(txnId); // autobox until Cliff C merge
-        if(txn!=null){
-            hits.incrementAndGet();
-            return txn;
+        if(!getDestinationTables){
+            TxnView txn=cache.get(txnId);
+            if(txn!=null)
+                return txn;
         }
         //bummer, we aren't in the cache, need to check the delegate
         TxnView transaction=delegate.getTransaction(txnId,getDestinationTables);
@@ -77,28 +111,55 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
         switch(transaction.getEffectiveState()){
             case COMMITTED:
             case ROLLEDBACK:
-                cache.put(transaction.getTxnId(),transaction); // Cache for Future Use
+                cache.put(transaction); // Cache for Future Use
         }
         return transaction;
     }
 
+    @Override
+    @SuppressFBWarnings("SF_SWITCH_NO_DEFAULT") //intentional
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        IntArrayList misses=new IntArrayList();
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=txnIds[i]==-1?Txn.ROOT_TRANSACTION:cache.get(txnIds[i]);
+            if(txns[i]==null)
+                misses.add(i);
+        }
+        if(misses.isEmpty()) return txns;
+
+        //fetch everything we don't have in one go
+        long[] toFetch=new long[misses.size()];
+        for(int i=0;i<toFetch.length;i++){
+            toFetch[i]=txnIds[misses.get(i)];
+        }
+        TxnView[] fetched=delegate.getTransactions(toFetch);
+        for(int i=0;i<fetched.length;i++){
+            TxnView transaction=fetched[i];
+            txns[misses.get(i)]=transaction;
+            if(transaction==null) continue;
+            switch(transaction.getEffectiveState()){
+                case COMMITTED:
+                case ROLLEDBACK:
+                    cache.put(transaction);
+            }
+        }
+        return txns;
+    }
+
     @Override
     public boolean transactionCached(long txnId){
-        return cache.get(txnId)!=null;
+        return cache.contains(txnId);
     }
 
     @Override
     public void cache(TxnView toCache){
         if(toCache.getState()==Txn.State.ACTIVE) return; //cannot cache incomplete transactions
-        cache.put(toCache.getTxnId(),toCache);
+        cache.put(toCache);
     }
 
     @Override
     public TxnView getTransactionFromCache(long txnId){
-        requests.incrementAndGet();
-        TxnView txn=cache.get(txnId);
-        if(txn!=null)
-            hits.incrementAndGet();
-        return txn;
+        return cache.get(txnId);
     }
 }
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.annotations.ThreadSafe;
+import com.splicemachine.hash.Hash32;
+import com.splicemachine.hash.HashFunctions;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of completed transactions, keyed by primitive transaction id.
+ * <p/>
+ * Rather than holding a {@link TxnView} per transaction, each transaction is packed into a fixed-width slot of
+ * longs (id, parent id, begin, commit and global commit timestamps, and a word of flags) in a pre-allocated
+ * open-addressing table, which may optionally live off-heap. A view is only constructed when the transaction
+ * is looked up; the parent of a child transaction is looked up in the cache in turn, and if it has been evicted
+ * the child is treated as missing too. To keep that from happening to every child transaction, caching a
+ * transaction caches all of its completed ancestors along with it.
+ * <p/>
+ * The table is split into independently locked segments. Each segment uses linear probing with backward-shift
+ * deletion, and evicts with the CLOCK algorithm once it holds its share of the maximum size: every lookup sets
+ * a reference bit, and the clock hand clears reference bits until it finds an entry which has not been looked up
+ * since the hand last passed it.
+ */
+@ThreadSafe
+public class PackedTxnCache{
+    /*slot layout*/
+    private static final int TXN_ID=0;
+    private static final int PARENT_TXN_ID=1;
+    private static final int BEGIN_TS=2;
+    private static final int COMMIT_TS=3;
+    private static final int GLOBAL_COMMIT_TS=4;
+    private static final int FLAGS=5;
+    private static final int SLOT_WIDTH=6;
+
+    /*flag layout*/
+    private static final long STATE_MASK=0x03l;
+    private static final int ISOLATION_SHIFT=2;
+    private static final long ISOLATION_MASK=0x03l;
+    private static final long HAS_ADDITIVE=1l<<4;
+    private static final long ADDITIVE=1l<<5;
+    private static final long HAS_ALLOW_WRITES=1l<<6;
+    private static final long ALLOWS_WRITES=1l<<7;
+    private static final long REFERENCED=1l<<8;
+
+    private static final Txn.State[] STATES=Txn.State.values();
+    private static final long EMPTY=0l;
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final Hash32 hashFunction=HashFunctions.murmur3(0);
+
+    private final AtomicLong requests=new AtomicLong();
+    private final AtomicLong hits=new AtomicLong();
+    private final AtomicLong evictions=new AtomicLong();
+
+    /**
+     * @param maxSize the maximum number of transactions to hold
+     * @param concurrencyLevel the (approximate) number of threads which access the cache concurrently
+     * @param offHeap whether to hold the table in direct memory rather than on the heap
+     */
+    public PackedTxnCache(int maxSize,int concurrencyLevel,boolean offHeap){
+        int numSegments=1;
+        int shift=0;
+        while(numSegments<concurrencyLevel){
+            numSegments<<=1;
+            shift++;
+        }
+        this.segmentShift=32-shift;
+        this.segmentMask=numSegments-1;
+        this.segments=new Segment[numSegments];
+        int segmentSize=Math.max(1,(maxSize+numSegments-1)/numSegments);
+        for(int i=0;i<numSegments;i++){
+            segments[i]=new Segment(segmentSize,offHeap);
+        }
+    }
+
+    /**
+     * @param txnId the id of the transaction to find
+     * @return a view of the transaction, or {@code null} if it (or one of its ancestors) is not in the cache
+     */
+    public TxnView get(long txnId){
+        requests.incrementAndGet();
+        TxnView txn=lookup(txnId);
+        if(txn!=null)
+            hits.incrementAndGet();
+        return txn;
+    }
+
+    /**
+     * @return {@code true} if the transaction and all of its ancestors are in the cache, so that {@link #get(long)}
+     * would find it
+     */
+    public boolean contains(long txnId){
+        while(txnId!=-1l){
+            int hash=hashFunction.hash(txnId);
+            Segment segment=segmentFor(hash);
+            synchronized(segment){
+                int slot=segment.find(txnId,hash);
+                if(slot<0) return false;
+                txnId=segment.get(slot,PARENT_TXN_ID);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a transaction to the cache, along with each of its ancestors which is no longer active, replacing any
+     * entries they already have and evicting other transactions if the cache is full.
+     * <p/>
+     * If an ancestor is still active, the transaction is cached but cannot be looked up until the ancestor is.
+     *
+     * @param txn a transaction which is no longer active
+     */
+    public void put(TxnView txn){
+        putOne(txn);
+        TxnView parent=txn.getParentTxnView();
+        while(parent!=null && !Txn.ROOT_TRANSACTION.equals(parent) && parent.getState()!=Txn.State.ACTIVE){
+            putOne(parent);
+            parent=parent.getParentTxnView();
+        }
+    }
+
+    private void putOne(TxnView txn){
+        long txnId=txn.getTxnId();
+        if(txnId==EMPTY || txnId==-1l) return; //neither can be told apart from an empty slot or the root
+        TxnView parent=txn.getParentTxnView();
+        long parentTxnId=parent==null || Txn.ROOT_TRANSACTION.equals(parent)?-1l:parent.getTxnId();
+        long flags=txn.getState().ordinal();
+        Txn.IsolationLevel level=txn.getIsolationLevel();
+        if(level!=null)
+            flags|=((long)level.getLevel())<<ISOLATION_SHIFT;
+        flags|=HAS_ADDITIVE|HAS_ALLOW_WRITES;
+        if(txn.isAdditive())
+            flags|=ADDITIVE;
+        if(txn.allowsWrites())
+            flags|=ALLOWS_WRITES;
+
+        int hash=hashFunction.hash(txnId);
+        Segment segment=segmentFor(hash);
+        synchronized(segment){
+            int slot=segment.find(txnId,hash);
+            if(slot<0){
+                if(segment.size>=segment.maxSize){
+                    segment.evict();
+                    evictions.incrementAndGet();
+                }
+                slot=segment.emptySlot(hash);
+                segment.size++;
+            }
+            segment.set(slot,TXN_ID,txnId);
+            segment.set(slot,PARENT_TXN_ID,parentTxnId);
+            segment.set(slot,BEGIN_TS,txn.getBeginTimestamp());
+            segment.set(slot,COMMIT_TS,txn.getCommitTimestamp());
+            segment.set(slot,GLOBAL_COMMIT_TS,txn.getGlobalCommitTimestamp());
+            segment.set(slot,FLAGS,flags);
+        }
+    }
+
+    public long getRequests(){
+        return requests.get();
+    }
+
+    public long getHits(){
+        return hits.get();
+    }
+
+    public long getEvictions(){
+        return evictions.get();
+    }
+
+    public int size(){
+        int size=0;
+        for(Segment segment : segments){
+            synchronized(segment){
+                size+=segment.size;
+            }
+        }
+        return size;
+    }
+
+    public int getMaxSize(){
+        return segments.length*segments[0].maxSize;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private Segment segmentFor(int hash){
+        //the high bits pick the segment, the low bits the slot within it
+        return segmentMask==0?segments[0]:segments[(hash>>>segmentShift)&segmentMask];
+    }
+
+    private TxnView lookup(long txnId){
+        if(txnId==-1l)
+            return Txn.ROOT_TRANSACTION;
+        int hash=hashFunction.hash(txnId);
+        Segment segment=segmentFor(hash);
+        long parentTxnId;
+        long beginTimestamp;
+        long commitTimestamp;
+        long globalCommitTimestamp;
+        long flags;
+        synchronized(segment){
+            int slot=segment.find(txnId,hash);
+            if(slot<0) return null;
+            parentTxnId=segment.get(slot,PARENT_TXN_ID);
+            beginTimestamp=segment.get(slot,BEGIN_TS);
+            commitTimestamp=segment.get(slot,COMMIT_TS);
+            globalCommitTimestamp=segment.get(slot,GLOBAL_COMMIT_TS);
+            flags=segment.get(slot,FLAGS);
+            if((flags&REFERENCED)==0)
+                segment.set(slot,FLAGS,flags|REFERENCED);
+        }
+        //look up the parent outside of the lock, so that we never hold two segments at once
+        TxnView parent=lookup(parentTxnId);
+        if(parent==null) return null;
+
+        int level=(int)((flags>>>ISOLATION_SHIFT)&ISOLATION_MASK);
+        return new InheritingTxnView(parent,txnId,beginTimestamp,
+                level==0?null:Txn.IsolationLevel.fromInt(level),
+                (flags&HAS_ADDITIVE)!=0,(flags&ADDITIVE)!=0,
+                (flags&HAS_ALLOW_WRITES)!=0,(flags&ALLOWS_WRITES)!=0,
+                commitTimestamp,globalCommitTimestamp,
+                STATES[(int)(flags&STATE_MASK)]);
+    }
+
+    /*
+     * A fixed-size linear-probing table. Callers must synchronize on the segment.
+     */
+    private final class Segment{
+        private final LongBuffer slots;
+        private final int slotMask;
+        private final int maxSize;
+        private int size;
+        private int hand;
+
+        Segment(int maxSize,boolean offHeap){
+            this.maxSize=maxSize;
+            //keep the load factor at or below 3/4, so that probe sequences stay short
+            int numSlots=1;
+            while(numSlots*3<maxSize*4)
+                numSlots<<=1;
+            this.slotMask=numSlots-1;
+            int numLongs=numSlots*SLOT_WIDTH;
+            this.slots=offHeap?ByteBuffer.allocateDirect(numLongs*8).asLongBuffer():LongBuffer.allocate(numLongs);
+        }
+
+        long get(int slot,int field){
+            return slots.get(slot*SLOT_WIDTH+field);
+        }
+
+        void set(int slot,int field,long value){
+            slots.put(slot*SLOT_WIDTH+field,value);
+        }
+
+        int find(long txnId,int hash){
+            int slot=hash&slotMask;
+            long key;
+            while((key=get(slot,TXN_ID))!=EMPTY){
+                if(key==txnId) return slot;
+                slot=(slot+1)&slotMask;
+            }
+            return -1;
+        }
+
+        int emptySlot(int hash){
+            int slot=hash&slotMask;
+            while(get(slot,TXN_ID)!=EMPTY){
+                slot=(slot+1)&slotMask;
+            }
+            return slot;
+        }
+
+        void evict(){
+            while(true){
+                int slot=hand;
+                hand=(hand+1)&slotMask;
+                if(get(slot,TXN_ID)==EMPTY) continue;
+                long flags=get(slot,FLAGS);
+                if((flags&REFERENCED)!=0)
+                    set(slot,FLAGS,flags&~REFERENCED); //give it a second chance
+                else{
+                    remove(slot);
+                    return;
+                }
+            }
+        }
+
+        private void remove(int slot){
+            /*
+             * Shift back any entries further along the probe sequence which would no longer be reachable
+             * from their home slot once this one is emptied
+             */
+            int hole=slot;
+            int next=slot;
+            while(true){
+                next=(next+1)&slotMask;
+                long key=get(next,TXN_ID);
+                if(key==EMPTY) break;
+                int home=hashFunction.hash(key)&slotMask;
+                boolean reachable=hole<=next?(hole<home && home<=next):(hole<home || home<=next);
+                if(reachable) continue;
+                for(int field=0;field<SLOT_WIDTH;field++){
+                    set(hole,field,get(next,field));
+                }
+                hole=next;
+            }
+            for(int field=0;field<SLOT_WIDTH;field++){
+                set(hole,field,EMPTY);
+            }
+            size--;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.txn;
+
+import com.splicemachine.annotations.ThreadSafe;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.timestamp.api.TimestampSource;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the top-level transactions begun in this JVM, so that the oldest of them can be found.
+ * <p/>
+ * Read-only transactions are never written to the transaction table, so the table alone cannot tell how old
+ * the oldest reader in the cluster is. Each server instead publishes {@link #lowWaterMark(TimestampSource)},
+ * a timestamp which is no greater than the begin timestamp of any transaction this server has running
+ * or will ever begin.
+ * <p/>
+ * Transactions are held by weak reference, so a transaction which is dropped without being committed or rolled
+ * back only holds the low water mark down until it is garbage collected.
+ *
+ * @see com.splicemachine.si.impl.ClientTxnLifecycleManager
+ */
+@ThreadSafe
+public class ActiveTxnTracker{
+    /*
+     * Inactive transactions are swept out on every SWEEP_INTERVAL-th registration, so that read-only
+     * transactions (which never report their commit) do not pile up between computations of the low water mark
+     */
+    private static final int SWEEP_INTERVAL=1024;
+
+    private final ConcurrentMap<Long,WeakReference<TxnView>> activeTxns=new ConcurrentHashMap<>();
+    /*
+     * Transactions which are in the middle of acquiring a begin timestamp, mapped to a timestamp which is known
+     * to be less than the one they will acquire.
+     */
+    private final ConcurrentMap<Long,Long> beginning=new ConcurrentHashMap<>();
+    private final AtomicLong beginSequence=new AtomicLong();
+    private final AtomicLong registrations=new AtomicLong();
+    private volatile long lastTimestamp=0l;
+
+    /**
+     * Called before acquiring the begin timestamp of a new top-level transaction.
+     *
+     * @return a token to pass to {@link #begun(long,TxnView)} once the transaction has been created (or has
+     * failed to be)
+     */
+    public long beginning(){
+        long token=beginSequence.incrementAndGet();
+        beginning.put(token,lastTimestamp);
+        return token;
+    }
+
+    /**
+     * @param token the token returned by {@link #beginning()}
+     * @param txn the transaction which was begun, or {@code null} if it could not be created
+     */
+    public void begun(long token,TxnView txn){
+        if(txn!=null)
+            track(txn);
+        beginning.remove(token);
+    }
+
+    /**
+     * Track a transaction which already has its begin timestamp, e.g. one which has been made writable.
+     */
+    public void track(TxnView txn){
+        activeTxns.put(txn.getTxnId(),new WeakReference<>(txn));
+        if(registrations.incrementAndGet()%SWEEP_INTERVAL==0)
+            sweep();
+    }
+
+    /**
+     * Compute a timestamp which is no greater than the begin timestamp of any transaction which is active in
+     * this JVM, or which will be begun in this JVM in the future.
+     *
+     * @param timestampSource the source of begin timestamps
+     * @return the low water mark of this JVM
+     */
+    public long lowWaterMark(TimestampSource timestampSource){
+        /*
+         * Any transaction which registers after we fetch this timestamp will get a larger one. Transactions which
+         * acquire theirs concurrently are either still in the beginning map, or are already in activeTxns when we
+         * look at it, since they are added to activeTxns before being removed from the beginning map
+         */
+        long now=timestampSource.nextTimestamp();
+        long lowWaterMark=now;
+        for(Long floor : beginning.values()){
+            if(floor<lowWaterMark)
+                lowWaterMark=floor;
+        }
+        for(Map.Entry<Long,WeakReference<TxnView>> entry : activeTxns.entrySet()){
+            TxnView txn=entry.getValue().get();
+            if(txn==null || txn.getState()!=Txn.State.ACTIVE)
+                activeTxns.remove(entry.getKey(),entry.getValue());
+            else if(txn.getBeginTimestamp()<lowWaterMark)
+                lowWaterMark=txn.getBeginTimestamp();
+        }
+        lastTimestamp=now;
+        return lowWaterMark;
+    }
+
+    /**
+     * @return the number of transactions currently tracked (including ones which have finished but have not
+     * been swept yet)
+     */
+    public int size(){
+        return activeTxns.size();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void sweep(){
+        for(Map.Entry<Long,WeakReference<TxnView>> entry : activeTxns.entrySet()){
+            TxnView txn=entry.getValue().get();
+            if(txn==null || txn.getState()!=Txn.State.ACTIVE)
+                activeTxns.remove(entry.getKey(),entry.getValue()); //unless it was replaced by an elevated transaction
+        }
+    }
+}
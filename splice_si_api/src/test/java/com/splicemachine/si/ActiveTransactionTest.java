@@ -21,6 +21,7 @@ import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnLifecycleManager;
 import com.splicemachine.si.api.txn.TxnStore;
 import com.splicemachine.si.impl.ForwardingLifecycleManager;
+import com.splicemachine.si.impl.txn.ActiveTxnTracker;
 import com.splicemachine.si.testenv.ArchitectureSpecific;
 import com.splicemachine.si.testenv.SITestEnv;
 import com.splicemachine.si.testenv.SITestEnvironment;
@@ -228,6 +229,42 @@ public class ActiveTransactionTest{
         Assert.assertArrayEquals(new long[]{t0.getTxnId(),t1.getTxnId(),t2.getTxnId()},active);
     }
 
+    @Test
+    public void oldestActiveTransactionsBoundedByRememberedTimestamp() throws IOException{
+        final Txn t0=control.beginTransaction(DESTINATION_TABLE);
+        final Txn t1=control.beginTransaction(DESTINATION_TABLE);
+        //the remembered timestamp is the lower bound, so a transaction below it is not looked for even if active
+        transactorSetup.timestampSource.rememberTimestamp(t1.getTxnId());
+        final Txn t2=control.beginTransaction(DESTINATION_TABLE);
+        final long[] ids=txnStore.getActiveTransactionIds(t2,DESTINATION_TABLE);
+        Assert.assertEquals("Transaction "+t0.getTxnId()+" below the remembered timestamp returned",2,ids.length);
+        Arrays.sort(ids);
+        Assert.assertEquals(t1.getTxnId(),ids[0]);
+        Assert.assertEquals(t2.getTxnId(),ids[1]);
+    }
+
+    @Test
+    public void oldestActiveTransactionsAboveLowWaterMark() throws IOException{
+        ActiveTxnTracker tracker=new ActiveTxnTracker();
+        final Txn committed=control.beginTransaction(DESTINATION_TABLE);
+        tracker.track(committed);
+        committed.commit();
+        final Txn t0=control.beginTransaction(DESTINATION_TABLE);
+        tracker.track(t0);
+        final Txn t1=control.beginTransaction(DESTINATION_TABLE);
+        tracker.track(t1);
+
+        //the low water mark the master remembers never passes an active transaction, so none is missed
+        long lowWaterMark=tracker.lowWaterMark(transactorSetup.timestampSource);
+        Assert.assertEquals("Incorrect low water mark",t0.getBeginTimestamp(),lowWaterMark);
+        transactorSetup.timestampSource.rememberTimestamp(lowWaterMark);
+        final long[] ids=txnStore.getActiveTransactionIds(t1,DESTINATION_TABLE);
+        Assert.assertEquals(2,ids.length);
+        Arrays.sort(ids);
+        Assert.assertEquals(t0.getTxnId(),ids[0]);
+        Assert.assertEquals(t1.getTxnId(),ids[1]);
+    }
+
     @Test
     public void oldestActiveTransactionIgnoresCommitTimestampIds() throws IOException{
         final Txn t0=control.beginTransaction(DESTINATION_TABLE);
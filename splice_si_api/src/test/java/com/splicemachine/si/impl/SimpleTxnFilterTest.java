@@ -48,8 +48,10 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -132,6 +134,30 @@ public class SimpleTxnFilterTest{
     }
 
 
+    @Test
+    public void testPrefetchLooksUpUnknownTransactionsTogether() throws Exception{
+        Txn committed=txnLifecycleManager.beginTransaction(Bytes.toBytes("hello"));
+        committed.commit();
+        Txn rolledBack=txnLifecycleManager.beginTransaction(Bytes.toBytes("hello"));
+        rolledBack.rollback();
+
+        TxnSupplier baseStore=spy(txnStore);
+        TxnView myTxn=new InheritingTxnView(Txn.ROOT_TRANSACTION,100l,100l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.ACTIVE);
+        SimpleTxnFilter filterState=new SimpleTxnFilter(null,myTxn,NoOpReadResolver.INSTANCE,baseStore);
+
+        DataCell rolledBackCell=getUserCell(rolledBack);
+        DataCell committedCell=getUserCell(committed);
+        filterState.prefetch(Arrays.asList(rolledBackCell,committedCell));
+        verify(baseStore,times(1)).getTransactions(any(long[].class));
+        verify(baseStore,times(2)).getTransaction(anyLong());
+
+        Assert.assertEquals("Incorrect return code for rolled back cell!",DataFilter.ReturnCode.SKIP,filterState.filterCell(rolledBackCell));
+        Assert.assertEquals("Incorrect return code for committed cell!",DataFilter.ReturnCode.INCLUDE,filterState.filterCell(committedCell));
+        //the transactions were held from the prefetch, so filtering never went back to the store
+        verify(baseStore,times(2)).getTransaction(anyLong());
+        verify(baseStore,never()).getTransaction(anyLong(),anyBoolean());
+    }
+
 	/*Tests that Read-Resolution doesn't happen with active transactions*/
 
     @Test
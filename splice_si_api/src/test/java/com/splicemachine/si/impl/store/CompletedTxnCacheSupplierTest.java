@@ -17,6 +17,8 @@ package com.splicemachine.si.impl.store;
 
 import com.splicemachine.concurrent.IncrementingClock;
 import com.splicemachine.si.api.txn.*;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
 import com.splicemachine.si.impl.txn.WritableTxn;
 import com.splicemachine.si.testenv.ArchitectureIndependent;
 import org.junit.Assert;
@@ -29,8 +31,11 @@ import java.io.IOException;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static com.splicemachine.si.impl.TxnTestUtils.assertTxnsMatch;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -160,4 +165,22 @@ public class CompletedTxnCacheSupplierTest{
         TxnView fromCache=store.getTransaction(txn.getTxnId());
         assertTxnsMatch("Transaction from store is not correct!",txn,fromCache);
     }
+
+    @Test
+    public void testChildTransactionsAreFedFromCache() throws Exception{
+        TxnView parent=new CommittedTxn(10,20);
+        TxnView child=new InheritingTxnView(parent,12,12,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.COMMITTED);
+        TxnSupplier backStore=mock(TxnSupplier.class);
+        when(backStore.getTransaction(12l,false)).thenReturn(child);
+
+        TxnSupplier store=new CompletedTxnCacheSupplier(backStore,10,16);
+        assertTxnsMatch("Transaction from store is not correct!",child,store.getTransaction(12l));
+
+        Assert.assertTrue("Cache does not think the child is present!",store.transactionCached(12l));
+        Assert.assertTrue("Cache does not think the parent is present!",store.transactionCached(10l));
+        TxnView fromCache=store.getTransaction(12l);
+        assertTxnsMatch("Transaction from cache is not correct!",child,fromCache);
+        Assert.assertEquals("Incorrect effective commit timestamp",20l,fromCache.getEffectiveCommitTimestamp());
+        verify(backStore,times(1)).getTransaction(anyLong(),anyBoolean());
+    }
 }
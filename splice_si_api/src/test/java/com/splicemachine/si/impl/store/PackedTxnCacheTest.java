@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.store;
+
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import com.splicemachine.si.impl.txn.RolledBackTxn;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static com.splicemachine.si.impl.TxnTestUtils.assertTxnsMatch;
+
+@Category(ArchitectureIndependent.class)
+public class PackedTxnCacheTest{
+
+    @Test
+    public void rebuildsChildTransactionsFromTheirParents() throws Exception{
+        PackedTxnCache cache=new PackedTxnCache(16,4,false);
+        TxnView parent=new CommittedTxn(10,20);
+        TxnView child=new InheritingTxnView(parent,12,12,Txn.IsolationLevel.READ_COMMITTED,
+                true,true,true,true,15,-1l,Txn.State.COMMITTED);
+        cache.put(parent);
+        cache.put(child);
+
+        TxnView cached=cache.get(12);
+        Assert.assertNotNull("Child was not cached",cached);
+        assertTxnsMatch("Incorrect child",child,cached);
+        Assert.assertEquals("Incorrect effective commit timestamp",20,cached.getEffectiveCommitTimestamp());
+        Assert.assertEquals(Txn.State.COMMITTED,cached.getEffectiveState());
+        Assert.assertEquals(1,cache.getRequests());
+        Assert.assertEquals(1,cache.getHits());
+    }
+
+    @Test
+    public void cachesCompletedAncestors() throws Exception{
+        PackedTxnCache cache=new PackedTxnCache(16,4,false);
+        TxnView grandParent=new CommittedTxn(10,30);
+        TxnView parent=new InheritingTxnView(grandParent,12,12,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.COMMITTED);
+        cache.put(new InheritingTxnView(parent,14,14,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.COMMITTED));
+
+        for(long txnId : new long[]{10,12,14}){
+            Assert.assertTrue("Transaction "+txnId+" was not cached",cache.contains(txnId));
+            Assert.assertNotNull("Transaction "+txnId+" was not found",cache.get(txnId));
+        }
+        Assert.assertEquals(30,cache.get(14).getEffectiveCommitTimestamp());
+    }
+
+    @Test
+    public void missesWhenParentIsStillActive() throws Exception{
+        PackedTxnCache cache=new PackedTxnCache(16,4,false);
+        TxnView parent=new InheritingTxnView(Txn.ROOT_TRANSACTION,10,10,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.ACTIVE);
+        cache.put(new InheritingTxnView(parent,12,12,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.ROLLEDBACK));
+
+        Assert.assertFalse("Active parent was cached",cache.contains(10));
+        Assert.assertFalse("Child cannot be rebuilt without its parent",cache.contains(12));
+        Assert.assertNull("Child cannot be rebuilt without its parent",cache.get(12));
+    }
+
+    @Test
+    public void cachesRolledBackTransactions() throws Exception{
+        PackedTxnCache cache=new PackedTxnCache(16,4,true);
+        TxnView rolledBack=new RolledBackTxn(7);
+        cache.put(rolledBack);
+        assertTxnsMatch("Incorrect transaction",rolledBack,cache.get(7));
+    }
+
+    @Test
+    public void evictsUnreferencedTransactionsFirst() throws Exception{
+        PackedTxnCache cache=new PackedTxnCache(4,1,false);
+        for(long i=1;i<=4;i++){
+            cache.put(new CommittedTxn(i,i+100));
+        }
+        for(long i=1;i<=3;i++){
+            Assert.assertNotNull(cache.get(i));
+        }
+        cache.put(new CommittedTxn(5,105));
+
+        Assert.assertEquals(4,cache.size());
+        Assert.assertEquals(1,cache.getEvictions());
+        Assert.assertFalse("Unreferenced transaction was kept",cache.contains(4));
+        for(long i : new long[]{1,2,3,5}){
+            Assert.assertTrue("Transaction "+i+" was evicted",cache.contains(i));
+        }
+    }
+
+    @Test
+    public void remainsConsistentUnderEviction() throws Exception{
+        for(boolean offHeap : new boolean[]{false,true}){
+            PackedTxnCache cache=new PackedTxnCache(100,4,offHeap);
+            for(long i=1;i<=10000;i++){
+                cache.put(new CommittedTxn(i,i+1));
+                if(i%3==0)
+                    cache.get(i-1);
+            }
+            Assert.assertEquals(cache.getMaxSize(),cache.size());
+            int found=0;
+            for(long i=1;i<=10000;i++){
+                if(!cache.contains(i)) continue;
+                found++;
+                TxnView txn=cache.get(i);
+                Assert.assertNotNull("Transaction "+i+" is present but not found",txn);
+                Assert.assertEquals(i+1,txn.getCommitTimestamp());
+            }
+            Assert.assertEquals(cache.size(),found);
+        }
+    }
+}
@@ -70,6 +70,14 @@ public class TestingTxnStore implements TxnStore{
         return getTransaction(txnId);
     }
 
+    @Override
+    public TxnView[] getTransactions(long[] txnIds) throws IOException{
+        TxnView[] txns=new TxnView[txnIds.length];
+        for(int i=0;i<txnIds.length;i++){
+            txns[i]=getTransaction(txnIds[i]);
+        }
+        return txns;
+    }
 
     @Override
     public boolean transactionCached(long txnId){
@@ -30,5 +30,26 @@ public interface TimestampClientStatistics{
 	long getNumberTimestampRequests();
 	
  	double getAvgTimestampRequestDuration();
+
+	/**
+	 * @return the number of requests sent to the server, each of which
+	 * may fetch timestamps for several concurrent callers.
+	 */
+	long getNumberBatchRequests();
+
+	/**
+	 * @return the number of timestamp requests by duration in microseconds, in
+	 * power-of-two buckets: bucket {@code i} counts durations in {@code [2^(i-1), 2^i)}
+	 * (bucket 0 counts those under a microsecond), and the last bucket counts
+	 * everything longer.
+	 */
+	long[] getRequestDurationHistogram();
+
+	/**
+	 * @return the number of requests sent to the server by how many callers they
+	 * were fetching timestamps for, in power-of-two buckets: bucket {@code i} counts
+	 * batches with between {@code 2^(i-1)} and {@code 2^i - 1} callers.
+	 */
+	long[] getBatchSizeHistogram();
 	
 }
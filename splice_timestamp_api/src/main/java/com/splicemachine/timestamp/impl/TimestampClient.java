@@ -18,8 +18,10 @@ package com.splicemachine.timestamp.impl;
 import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
@@ -33,7 +35,6 @@ import javax.management.NotCompliantMBeanException;
 import javax.management.ObjectName;
 import org.sparkproject.guava.util.concurrent.ThreadFactoryBuilder;
 import com.splicemachine.concurrent.CountDownLatches;
-import com.splicemachine.timestamp.api.Callback;
 import com.splicemachine.timestamp.api.TimestampClientStatistics;
 import com.splicemachine.timestamp.api.TimestampHostProvider;
 import com.splicemachine.timestamp.api.TimestampIOException;
@@ -52,6 +53,20 @@ import org.sparkproject.jboss.netty.handler.codec.frame.FixedLengthFrameDecoder;
  * For the caller, the invocation of {@link #getNextTimestamp()}
  * is synchronous.
  * <p>
+ * Callers which arrive while a request is outstanding are coalesced into a
+ * single batch, which is sent as one request for as many timestamps as there
+ * are callers as soon as the outstanding request is answered. The server
+ * answers with the first of a contiguous range, and each caller in the batch
+ * takes its own timestamp from that range. Since every caller in a batch was
+ * waiting before the batch was sent, handing them timestamps from the same range
+ * preserves the guarantee that a timestamp is greater than any timestamp returned
+ * before it was requested. For the same reason, timestamps are never fetched ahead
+ * of demand and handed out to later callers.
+ * <p>
+ * Ranged requests are negotiated when connecting (see {@link TimestampServer#PROTOCOL_MARKER}).
+ * Against a server which predates them, every caller sends its own request for a single
+ * timestamp, as before.
+ * <p>
  * This class should generally not be constructed directly.
  *
  * @author Walt Koetke
@@ -68,18 +83,61 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
      */
     private static final int FIXED_MSG_RECEIVED_LENGTH = 10; // 2 byte client id + 8 byte timestamp
 
+    /**
+     * Fixed number of bytes in the message we send to the server.
+     */
+    private static final int FIXED_MSG_SENT_LENGTH = TimestampServer.FIXED_MSG_RECEIVED_LENGTH;
+
+    /**
+     * The most callers which will be coalesced into a single request. A full batch is sent
+     * even if that means exceeding {@link #MAX_BATCHES_IN_FLIGHT}.
+     */
+    private static final int MAX_BATCH_SIZE = 1024;
+
+    /**
+     * The number of requests which may be outstanding before callers start
+     * being coalesced into a batch.
+     */
+    private static final int MAX_BATCHES_IN_FLIGHT = 1;
+
+    private static final int NUM_DURATION_BUCKETS = 32;
+    private static final int NUM_BATCH_SIZE_BUCKETS = 12;
+
     private enum State {
         DISCONNECTED, CONNECTING, CONNECTED, SHUTDOWN
     }
 
+    private enum Protocol {
+        LEGACY, RANGED
+    }
+
     /**
      * A map representing all currently active callers to this TimestampClient
      * waiting for their response.
      */
-    private ConcurrentMap<Short, Callback> clientCallbacks = null;
+    private ConcurrentMap<Short, BatchCallback> clientCallbacks = null;
+
+    /**
+     * Guards {@link #pendingBatch} and {@link #batchesInFlight}.
+     */
+    private final Object batchLock = new Object();
+
+    /**
+     * The batch which callers join while waiting for an outstanding request to be answered,
+     * or {@code null} if no caller is waiting.
+     */
+    private BatchCallback pendingBatch;
+    private int batchesInFlight;
 
     private final AtomicReference<State> state = new AtomicReference<>(State.DISCONNECTED);
 
+    /**
+     * The kind of requests the server on the current connection accepts, or {@code null} until
+     * the server has answered the handshake. Guarded by {@link #protocolLock} for waiting.
+     */
+    private volatile Protocol protocol;
+    private final Object protocolLock = new Object();
+
     private ClientBootstrap bootstrap;
     private volatile Channel channel;
     private NioClientSocketChannelFactory factory;
@@ -101,6 +159,9 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     // for solid definitions of each metric.
     private AtomicLong numRequests = new AtomicLong(0);
     private AtomicLong totalRequestDuration = new AtomicLong(0);
+    private AtomicLong numBatchRequests = new AtomicLong(0);
+    private AtomicLongArray requestDurationHistogram = new AtomicLongArray(NUM_DURATION_BUCKETS);
+    private AtomicLongArray batchSizeHistogram = new AtomicLongArray(NUM_BATCH_SIZE_BUCKETS);
     private TimestampHostProvider timestampHostProvider;
 
 
@@ -178,6 +239,7 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
             if(s !=State.DISCONNECTED) return;
             shouldContinue = !state.compareAndSet(s,State.CONNECTING);
         }
+        protocol = null;
 
         if (LOG.isInfoEnabled()) {
             SpliceLogUtils.info(LOG, "Attempting to connect to server (host %s, port %s)", timestampHostProvider.getHost(), getPort());
@@ -203,6 +265,12 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
             throw new TimestampIOException("Unable to connect to TimestampServer");
         }
 
+        // Nothing else is written until the server has answered this, see sendBatch
+        ChannelBuffer handshake = ChannelBuffers.buffer(FIXED_MSG_SENT_LENGTH);
+        handshake.writeShort(TimestampServer.PROTOCOL_MARKER);
+        handshake.writeShort(TimestampServer.PROTOCOL_MARKER);
+        channel.write(handshake);
+
         // Can only assume connecting (not connected) until channelConnected method is invoked
         state.set(State.CONNECTING);
     }
@@ -211,71 +279,242 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
 
         // Measure duration of full client request for JMX
         long requestStartTime = System.currentTimeMillis();
+        long requestStartNanos = System.nanoTime();
 
         connectIfNeeded();
-
-        short clientCallId = (short) clientCallCounter.getAndIncrement();
-        final ClientCallback callback = new ClientCallback(clientCallId);
-        SpliceLogUtils.debug(LOG, "Starting new client call with id %s", clientCallId);
-
-        // Add this caller (id and callback) to the map of current clients.
-        // If an entry was already present for this caller id, that is a bug,
-        // so throw an exception.
-        if (clientCallbacks.putIfAbsent(clientCallId, callback) != null) {
-            doClientErrorThrow(LOG, "Found existing client callback with caller id %s, so unable to handle new call.", null, clientCallId);
+        Protocol protocol = null;
+        try {
+            protocol = awaitProtocol();
+        } catch (InterruptedException e) {
+            doClientErrorThrow(LOG, "Interrupted waiting for timestamp server handshake", e);
+        }
+        if (protocol == null) {
+            doClientErrorThrow(LOG, "Client timed out after %s ms waiting for timestamp server handshake", null, timeoutMillis);
         }
 
-        try {
-            ChannelBuffer buffer = ChannelBuffers.buffer(2);
-            buffer.writeShort(clientCallId);
-            SpliceLogUtils.trace(LOG, "Writing request message to server for client: %s", callback);
-            ChannelFuture futureWrite = channel.write(buffer);
-            futureWrite.addListener(new ChannelFutureListener() {
-                @Override
-                public void operationComplete(ChannelFuture future) throws Exception {
-                    if (!future.isSuccess()) {
-                        doClientErrorThrow(LOG, "Error writing message from timestamp client to server", future.getCause());
-                    } else {
-                        SpliceLogUtils.trace(LOG, "Request sent. Waiting for response for client: %s", callback);
-                    }
+        // Join the batch which goes out with the next request to the server. If there is
+        // no outstanding request (or the batch is full), send it right away. A server which
+        // only accepts single requests gets one from every caller.
+        BatchCallback callback;
+        int position;
+        boolean send = false;
+        synchronized (batchLock) {
+            if (protocol == Protocol.LEGACY) {
+                callback = new BatchCallback(nextCallerId());
+            } else {
+                callback = pendingBatch;
+                if (callback == null) {
+                    callback = pendingBatch = new BatchCallback(nextCallerId());
                 }
-            });
-        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can remove client call
-            clientCallbacks.remove(clientCallId);
-            callback.error(e);
-            doClientErrorThrow(LOG, "Exception writing message to timestamp server for client: %s", e, callback);
+            }
+            position = callback.size++;
+            if (protocol == Protocol.LEGACY || batchesInFlight < MAX_BATCHES_IN_FLIGHT || callback.size >= MAX_BATCH_SIZE) {
+                if (pendingBatch == callback) {
+                    pendingBatch = null;
+                }
+                batchesInFlight++;
+                callback.sent = true;
+                send = true;
+            }
+        }
+        if (send) {
+            sendBatch(callback);
         }
 
-        // If we get here, request was successfully sent without exception.
-        // However, we might not have received response yet, so we need to
-        // wait for that now.
+        // The request might not have been sent yet, and if it has we might not have
+        // received the response yet, so we need to wait for that now.
 
         try {
             boolean success = callback.await(timeoutMillis);
             if (!success) {
+                abandon(callback);
                 doClientErrorThrow(LOG, "Client timed out after %s ms waiting for new timestamp: %s", null, timeoutMillis, callback);
             }
         } catch (InterruptedException e) {
             doClientErrorThrow(LOG, "Interrupted waiting for timestamp client: %s", e, callback);
         }
 
-        // If we get here, it should mean the client received the response with the timestamp,
-        // which we can fetch now from the callback and send it back to the caller.
+        if (callback.getException() != null) {
+            doClientErrorThrow(LOG, "Exception fetching timestamp for client: %s", callback.getException(), callback);
+        }
+
+        // If we get here, it should mean the client received the response with the first timestamp
+        // in the batch's range, from which we take our own and send it back to the caller.
 
         long timestamp = callback.getNewTimestamp();
         if (timestamp < 0) {
             doClientErrorThrow(LOG, "Invalid timestamp found for client: %s", null, callback);
         }
+        timestamp += position;
 
-        SpliceLogUtils.debug(LOG, "Client call complete: %s", callback);
+        SpliceLogUtils.debug(LOG, "Client call complete: %s, timestamp = %s", callback, timestamp);
 
         // Since request was successful, update JMX metrics
         numRequests.incrementAndGet();
         totalRequestDuration.addAndGet(System.currentTimeMillis() - requestStartTime);
+        requestDurationHistogram.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - requestStartNanos), NUM_DURATION_BUCKETS));
 
         return timestamp;
     }
 
+    private short nextCallerId() {
+        short callerId = (short) clientCallCounter.getAndIncrement();
+        if (callerId == TimestampServer.PROTOCOL_MARKER) {
+            callerId = (short) clientCallCounter.getAndIncrement();
+        }
+        return callerId;
+    }
+
+    /**
+     * Wait (at most the client timeout) for the server to answer the handshake sent when connecting.
+     *
+     * @return the kind of requests the server accepts, or {@code null} if it did not answer in time
+     */
+    private Protocol awaitProtocol() throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized (protocolLock) {
+            while (protocol == null && remaining > 0) {
+                long start = System.nanoTime();
+                TimeUnit.NANOSECONDS.timedWait(protocolLock, remaining);
+                remaining -= System.nanoTime() - start;
+            }
+            return protocol;
+        }
+    }
+
+    private void handshakeReceived(long response) {
+        synchronized (protocolLock) {
+            // An older server answers each half of the handshake with a timestamp, so ignore the second answer
+            if (protocol != null) return;
+            protocol = response < 0 ? Protocol.RANGED : Protocol.LEGACY;
+            SpliceLogUtils.info(LOG, "Timestamp server accepts %s requests", protocol);
+            protocolLock.notifyAll();
+        }
+    }
+
+    /**
+     * Called by a caller which gave up waiting on its batch. The batch is only given up on once every
+     * caller in it has, so that a caller which joined later can still receive the response. Once it is,
+     * the callers queued up behind it are sent.
+     */
+    private void abandon(BatchCallback batch) {
+        synchronized (batchLock) {
+            batch.abandoned++;
+            if (batch.abandoned < batch.size) return;
+            if (!batch.sent) {
+                // Nobody is left to wait for it, so don't bother sending it
+                if (pendingBatch == batch) {
+                    pendingBatch = null;
+                }
+                return;
+            }
+        }
+        clientCallbacks.remove(batch.getCallerId(), batch);
+        batchFinished(batch);
+    }
+
+    /**
+     * Send the request for a batch which has been counted as in flight. This may be called either
+     * by a caller thread or by the thread which received the response to the previous request,
+     * so failures are delivered to the batch's callers rather than thrown.
+     */
+    private void sendBatch(final BatchCallback batch) {
+        SpliceLogUtils.debug(LOG, "Starting new client call with id %s for %s timestamps", batch.getCallerId(), batch.size);
+        numBatchRequests.incrementAndGet();
+        batchSizeHistogram.incrementAndGet(bucket(batch.size, NUM_BATCH_SIZE_BUCKETS));
+
+        Protocol protocol = this.protocol;
+        if (protocol == null) {
+            failBatch(batch, new TimestampIOException("Connection to timestamp server is being reestablished"));
+            return;
+        }
+        if (protocol == Protocol.LEGACY && batch.size > 1) {
+            failBatch(batch, new TimestampIOException("Timestamp server does not accept ranged requests"));
+            return;
+        }
+
+        // Add this batch (id and callback) to the map of current clients.
+        // If an entry was already present for this caller id, that is a bug,
+        // so fail the batch.
+        if (clientCallbacks.putIfAbsent(batch.getCallerId(), batch) != null) {
+            SpliceLogUtils.error(LOG, "Found existing client callback with caller id %s, so unable to handle new call.", batch.getCallerId());
+            failBatch(batch, new TimestampIOException("Found existing client callback with caller id " + batch.getCallerId()));
+            return;
+        }
+
+        try {
+            ChannelBuffer buffer;
+            if (protocol == Protocol.RANGED) {
+                buffer = ChannelBuffers.buffer(FIXED_MSG_SENT_LENGTH);
+                buffer.writeShort(batch.getCallerId());
+                buffer.writeShort(batch.size);
+            } else {
+                buffer = ChannelBuffers.buffer(TimestampServer.LEGACY_MSG_RECEIVED_LENGTH);
+                buffer.writeShort(batch.getCallerId());
+            }
+            SpliceLogUtils.trace(LOG, "Writing request message to server for client: %s", batch);
+            ChannelFuture futureWrite = channel.write(buffer);
+            futureWrite.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    if (!future.isSuccess()) {
+                        SpliceLogUtils.error(LOG, "Error writing message from timestamp client to server", future.getCause());
+                        failBatch(batch, new TimestampIOException("Error writing message from timestamp client to server", future.getCause()));
+                    } else {
+                        SpliceLogUtils.trace(LOG, "Request sent. Waiting for response for client: %s", batch);
+                    }
+                }
+            });
+        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can remove client call
+            SpliceLogUtils.error(LOG, "Exception writing message to timestamp server for client: " + batch, e);
+            failBatch(batch, e);
+        }
+    }
+
+    private void failBatch(BatchCallback batch, Exception e) {
+        clientCallbacks.remove(batch.getCallerId(), batch);
+        batch.error(e);
+        batchFinished(batch);
+    }
+
+    /**
+     * Mark a sent batch as no longer in flight (whether it was answered, failed or timed out),
+     * and send the batch which has been waiting on it, if any.
+     */
+    private void batchFinished(BatchCallback batch) {
+        if (!batch.finished.compareAndSet(false, true)) return;
+        BatchCallback next = null;
+        synchronized (batchLock) {
+            batchesInFlight--;
+            if (pendingBatch != null && batchesInFlight < MAX_BATCHES_IN_FLIGHT) {
+                next = pendingBatch;
+                pendingBatch = null;
+                batchesInFlight++;
+                next.sent = true;
+            }
+        }
+        if (next != null) {
+            sendBatch(next);
+        }
+    }
+
+    /**
+     * @return the index of the power-of-two bucket which {@code value} falls into: bucket {@code i}
+     * holds values in {@code [2^(i-1), 2^i)}, bucket 0 holds zero, and the last bucket holds everything
+     * larger than the buckets before it.
+     */
+    private static int bucket(long value, int numBuckets) {
+        return Math.min(64 - Long.numberOfLeadingZeros(value), numBuckets - 1);
+    }
+
+    private static long[] toArray(AtomicLongArray histogram) {
+        long[] counts = new long[histogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
         ChannelBuffer buf = (ChannelBuffer) e.getMessage();
@@ -286,19 +525,29 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         ensureReadableBytes(buf, 8);
 
         long timestamp = buf.readLong();
-        assert (timestamp > 0);
         ensureReadableBytes(buf, 0);
 
+        if (clientCallerId == TimestampServer.PROTOCOL_MARKER) {
+            handshakeReceived(timestamp);
+            super.messageReceived(ctx, e);
+            return;
+        }
+        assert (timestamp > 0);
+
         SpliceLogUtils.debug(LOG, "Response from server: clientCallerId = %s, timestamp = %s", clientCallerId, timestamp);
-        Callback cb = clientCallbacks.remove(clientCallerId);
+        BatchCallback cb = clientCallbacks.remove(clientCallerId);
         if (cb == null) {
-            doClientErrorThrow(LOG, "Client callback with id %s not found, so unable to deliver timestamp %s", null, clientCallerId, timestamp);
+            // Every caller in the batch gave up waiting for it
+            SpliceLogUtils.warn(LOG, "Client callback with id %s not found, so unable to deliver timestamp %s", clientCallerId, timestamp);
+            super.messageReceived(ctx, e);
+            return;
         }
 
-        // This releases the latch the original client thread is waiting for
-        // (to provide the synchronous behavior for that caller) and also
-        // provides the timestamp.
+        // This releases the latch the original client threads are waiting for
+        // (to provide the synchronous behavior for those callers) and also
+        // provides the first timestamp of the batch's range.
         cb.complete(timestamp);
+        batchFinished(cb);
 
         super.messageReceived(ctx, e);
     }
@@ -352,6 +601,21 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         return a / b;
     }
 
+    @Override
+    public long getNumberBatchRequests() {
+        return numBatchRequests.get();
+    }
+
+    @Override
+    public long[] getRequestDurationHistogram() {
+        return toArray(requestDurationHistogram);
+    }
+
+    @Override
+    public long[] getBatchSizeHistogram() {
+        return toArray(batchSizeHistogram);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
         if(state.get() != State.SHUTDOWN) {
@@ -364,4 +628,25 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         TimestampIOException t1 = t != null ? new TimestampIOException(message, t) : new TimestampIOException(message);
         SpliceLogUtils.logAndThrow(logger, String.format(message, args), t1);
     }
+
+    /**
+     * The callback for a single request to the server, shared by every caller coalesced into it.
+     */
+    private static class BatchCallback extends ClientCallback {
+        // Number of callers in the batch. Only changed under the batch lock, and never after the batch is sent.
+        private int size;
+        // Number of callers which gave up waiting. Only changed under the batch lock.
+        private int abandoned;
+        private boolean sent;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+
+        BatchCallback(short callerId) {
+            super(callerId);
+        }
+
+        @Override
+        public String toString() {
+            return super.toString() + "[size = " + size + "]";
+        }
+    }
 }
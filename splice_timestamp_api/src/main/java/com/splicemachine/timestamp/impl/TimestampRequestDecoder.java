@@ -0,0 +1,68 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import org.sparkproject.jboss.netty.buffer.ChannelBuffer;
+import org.sparkproject.jboss.netty.channel.Channel;
+import org.sparkproject.jboss.netty.channel.ChannelHandlerContext;
+import org.sparkproject.jboss.netty.handler.codec.frame.FrameDecoder;
+
+/**
+ * Splits the requests on a single connection into frames, accepting both ranged requests
+ * and the single timestamp requests of clients which predate them, so that clients and
+ * server can be upgraded in any order.
+ * <p>
+ * The first message on the connection decides which kind of requests it carries: a client
+ * which wants ranged requests opens with {@link TimestampServer#PROTOCOL_MARKER} twice, which
+ * an older client never does since it never sends the same caller id twice in a row. This
+ * decoder hands that opening message to the handler as a ranged frame so that it can be
+ * acknowledged. Anything else is taken to come from an older client.
+ * <p>
+ * Not sharable, a new instance is needed for each channel.
+ */
+class TimestampRequestDecoder extends FrameDecoder {
+
+    private enum Protocol {
+        UNKNOWN, LEGACY, RANGED
+    }
+
+    private Protocol protocol = Protocol.UNKNOWN;
+
+    @Override
+    protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) throws Exception {
+        if (protocol == Protocol.UNKNOWN) {
+            if (buffer.readableBytes() < TimestampServer.LEGACY_MSG_RECEIVED_LENGTH) return null;
+            int start = buffer.readerIndex();
+            if (buffer.getShort(start) != TimestampServer.PROTOCOL_MARKER) {
+                protocol = Protocol.LEGACY;
+            } else {
+                // An older client whose first caller id happens to be the marker only gets answered
+                // once it sends its next request.
+                if (buffer.readableBytes() < TimestampServer.FIXED_MSG_RECEIVED_LENGTH) return null;
+                if (buffer.getShort(start + 2) == TimestampServer.PROTOCOL_MARKER) {
+                    protocol = Protocol.RANGED;
+                } else {
+                    protocol = Protocol.LEGACY;
+                }
+            }
+        }
+        int length = protocol == Protocol.RANGED
+                ? TimestampServer.FIXED_MSG_RECEIVED_LENGTH
+                : TimestampServer.LEGACY_MSG_RECEIVED_LENGTH;
+        if (buffer.readableBytes() < length) return null;
+        return buffer.readBytes(length);
+    }
+}
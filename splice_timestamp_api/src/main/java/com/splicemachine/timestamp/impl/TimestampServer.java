@@ -31,14 +31,32 @@ public class TimestampServer {
     private static final Logger LOG = Logger.getLogger(TimestampServer.class);
 
     /**
-     * Fixed number of bytes in the message we expect to receive from the client.
+     * Fixed number of bytes in the message we expect to receive from a client which requests
+     * ranges of timestamps.
      */
-    static final int FIXED_MSG_RECEIVED_LENGTH = 2; // 2 byte client id
+    static final int FIXED_MSG_RECEIVED_LENGTH = 4; // 2 byte client id + 2 byte timestamp count
+
+    /**
+     * Fixed number of bytes in the message we expect to receive from a client which predates
+     * ranged requests, and asks for a single timestamp at a time.
+     */
+    static final int LEGACY_MSG_RECEIVED_LENGTH = 2; // 2 byte client id
+
+    /**
+     * Caller id which a client sends twice as the first message on a connection to ask for ranged
+     * requests. The server answers with this caller id and the negated {@link #PROTOCOL_VERSION}
+     * in place of a timestamp. A server which predates ranged requests answers both halves with
+     * positive timestamps instead, which tells the client to fall back to single requests. Clients
+     * never use this caller id for anything else.
+     */
+    static final short PROTOCOL_MARKER = Short.MIN_VALUE;
+
+    static final int PROTOCOL_VERSION = 2;
 
     /**
      * Fixed number of bytes in the message we expect to send back to the client.
      */
-    static final int FIXED_MSG_SENT_LENGTH = 10; // 2 byte client id + 8 byte timestamp
+    static final int FIXED_MSG_SENT_LENGTH = 10; // 2 byte client id + 8 byte first timestamp of the range
 
     private int port;
     private ChannelFactory factory;
@@ -89,6 +107,10 @@ public class TimestampServer {
         SpliceLogUtils.info(LOG, "Timestamp Server started.");
     }
 
+    int getBoundPort() {
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
     protected int getPortNumber() {
         return port;
     }
@@ -57,14 +57,33 @@ public class TimestampServerHandler extends TimestampBaseHandler {
 
         ChannelBuffer buf = (ChannelBuffer) e.getMessage();
         assert buf != null;
-        ensureReadableBytes(buf, TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
 
-        final short callerId = buf.readShort();
+        // Clients which predate ranged requests send only their caller id, see TimestampRequestDecoder
+        final short callerId;
+        short count;
+        long nextTimestamp;
+        if (buf.readableBytes() == TimestampServer.LEGACY_MSG_RECEIVED_LENGTH) {
+            callerId = buf.readShort();
+            count = 1;
+        } else {
+            ensureReadableBytes(buf, TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
+            callerId = buf.readShort();
+            ensureReadableBytes(buf, 2);
+            count = buf.readShort();
+        }
         ensureReadableBytes(buf, 0);
 
-        SpliceLogUtils.trace(LOG, "Received timestamp request from client. Caller id = %s", callerId);
-        long nextTimestamp = oracle.getNextTimestamp();
-        assert nextTimestamp > 0;
+        if (callerId == TimestampServer.PROTOCOL_MARKER && count == TimestampServer.PROTOCOL_MARKER) {
+            SpliceLogUtils.debug(LOG, "Client asked for ranged requests, acknowledging with version %s", TimestampServer.PROTOCOL_VERSION);
+            nextTimestamp = -TimestampServer.PROTOCOL_VERSION;
+        } else {
+            if (count <= 0) {
+                throw new TimestampIOException("Invalid number of timestamps " + count + " requested by caller id " + callerId);
+            }
+            SpliceLogUtils.trace(LOG, "Received request from client for %s timestamps. Caller id = %s", count, callerId);
+            nextTimestamp = oracle.getNextTimestamps(count);
+            assert nextTimestamp > 0;
+        }
 
 
         //
@@ -74,7 +93,7 @@ public class TimestampServerHandler extends TimestampBaseHandler {
         ChannelBuffer writeBuf = ChannelBuffers.buffer(TimestampServer.FIXED_MSG_SENT_LENGTH);
         writeBuf.writeShort(callerId);
         writeBuf.writeLong(nextTimestamp);
-        SpliceLogUtils.debug(LOG, "Responding to caller %s with timestamp %s", callerId, nextTimestamp);
+        SpliceLogUtils.debug(LOG, "Responding to caller %s with %s timestamps starting at %s", callerId, count, nextTimestamp);
         ChannelFuture futureResponse = e.getChannel().write(writeBuf); // Could also use Channels.write
         futureResponse.addListener(new ChannelFutureListener() {
                                        @Override
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampHostProvider;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class TimestampClientTest {
+
+    private FakeServer server;
+    private TimestampClient client;
+
+    @After
+    public void tearDown() throws Exception {
+        if (client != null) client.shutdown();
+        if (server != null) server.close();
+    }
+
+    @Test
+    public void coalescesConcurrentCallersIntoRangedRequests() throws Exception {
+        server = new FakeServer(true, 20);
+        client = new TimestampClient(10000, server);
+        int numThreads = 16;
+        int numCalls = 50;
+
+        List<long[]> results = callConcurrently(numThreads, numCalls);
+
+        assertUniqueAndIncreasing(results, numThreads * numCalls);
+        Assert.assertEquals("Every caller should be counted in exactly one request", numThreads * numCalls, server.totalCount());
+        Assert.assertTrue("Callers waiting on an outstanding request should have been coalesced, but " + server.counts.size() + " requests were sent",
+                server.counts.size() < numThreads * numCalls / 2);
+        Assert.assertEquals(server.counts.size(), client.getNumberBatchRequests());
+    }
+
+    @Test
+    public void sendsSingleRequestsToOlderServer() throws Exception {
+        server = new FakeServer(false, 5);
+        client = new TimestampClient(10000, server);
+        int numThreads = 4;
+        int numCalls = 20;
+
+        List<long[]> results = callConcurrently(numThreads, numCalls);
+
+        assertUniqueAndIncreasing(results, numThreads * numCalls);
+        // The older server answers each half of the handshake as a request of its own
+        Assert.assertEquals(numThreads * numCalls + 2, server.counts.size());
+    }
+
+    @Test
+    public void callerWhichTimesOutDoesNotStrandTheRestOfItsBatch() throws Exception {
+        // The first request is held past its caller's timeout, the second one is answered after
+        // its first caller has timed out but before its second caller does.
+        server = new FakeServer(true, 0);
+        client = new TimestampClient(1000, server);
+        client.getNextTimestamp(); // connect and warm up before the timings matter
+        server.resetDelays(1200, 300);
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Future<Long> first = executor.submit(timestampCall());
+            Thread.sleep(100);
+            Future<Long> second = executor.submit(timestampCall());
+            Thread.sleep(600);
+            Future<Long> third = executor.submit(timestampCall());
+
+            assertTimesOut(first);
+            assertTimesOut(second);
+            Assert.assertTrue(third.get(5, TimeUnit.SECONDS) > 0);
+            Assert.assertEquals("The second and third callers should have shared a request", 2, server.counts.get(server.counts.size() - 1).intValue());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Callable<Long> timestampCall() {
+        return new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                return client.getNextTimestamp();
+            }
+        };
+    }
+
+    private static void assertTimesOut(Future<Long> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail("Expected the caller to time out");
+        } catch (java.util.concurrent.ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof TimestampIOException);
+        }
+    }
+
+    private List<long[]> callConcurrently(int numThreads, final int numCalls) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                futures.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() throws Exception {
+                        long[] timestamps = new long[numCalls];
+                        for (int i = 0; i < numCalls; i++) {
+                            timestamps[i] = client.getNextTimestamp();
+                        }
+                        return timestamps;
+                    }
+                }));
+            }
+            List<long[]> results = new ArrayList<>();
+            for (Future<long[]> future : futures) {
+                results.add(future.get(60, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void assertUniqueAndIncreasing(List<long[]> results, int expectedCount) {
+        Set<Long> seen = new HashSet<>();
+        for (long[] timestamps : results) {
+            long previous = 0;
+            for (long ts : timestamps) {
+                Assert.assertTrue("Timestamps went backwards for a single caller", ts > previous);
+                Assert.assertTrue("Timestamp " + ts + " was handed out twice", seen.add(ts));
+                previous = ts;
+            }
+        }
+        Assert.assertEquals(expectedCount, seen.size());
+    }
+
+    /**
+     * Serves a single connection, either as a server which accepts ranged requests or as one which
+     * predates them. Requests are answered one at a time, each after a delay.
+     */
+    private static class FakeServer implements TimestampHostProvider, Runnable {
+        private final boolean ranged;
+        private final ServerSocket serverSocket;
+        private final Thread thread;
+        private final List<Integer> counts = new CopyOnWriteArrayList<>();
+        private volatile long[] delays;
+        private volatile int delayIndex;
+        private long nextTimestamp = 1;
+
+        FakeServer(boolean ranged, long... delays) throws IOException {
+            this.ranged = ranged;
+            this.delays = delays;
+            this.serverSocket = new ServerSocket(0);
+            this.thread = new Thread(this, "fakeTimestampServer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Apply {@code delays} to the next requests, and the last one to every request after them.
+         */
+        void resetDelays(long... delays) {
+            this.delayIndex = 0;
+            this.delays = delays;
+        }
+
+        int totalCount() {
+            int total = 0;
+            for (int count : counts) {
+                total += count;
+            }
+            return total;
+        }
+
+        @Override
+        public void run() {
+            try (Socket socket = serverSocket.accept()) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                if (ranged) {
+                    Assert.assertEquals(TimestampServer.PROTOCOL_MARKER, in.readShort());
+                    Assert.assertEquals(TimestampServer.PROTOCOL_MARKER, in.readShort());
+                    out.writeShort(TimestampServer.PROTOCOL_MARKER);
+                    out.writeLong(-TimestampServer.PROTOCOL_VERSION);
+                    out.flush();
+                }
+                while (true) {
+                    short callerId = in.readShort();
+                    int count = ranged ? in.readShort() : 1;
+                    long[] d = delays;
+                    Thread.sleep(d[Math.min(delayIndex++, d.length - 1)]);
+                    counts.add(count);
+                    out.writeShort(callerId);
+                    out.writeLong(nextTimestamp);
+                    out.flush();
+                    nextTimestamp += count;
+                }
+            } catch (IOException | InterruptedException e) {
+                // the client went away or the server was closed
+            }
+        }
+
+        void close() throws Exception {
+            serverSocket.close();
+            thread.interrupt();
+        }
+
+        @Override
+        public String getHost() throws TimestampIOException {
+            return "localhost";
+        }
+
+        @Override
+        public int getPort() {
+            return serverSocket.getLocalPort();
+        }
+    }
+}
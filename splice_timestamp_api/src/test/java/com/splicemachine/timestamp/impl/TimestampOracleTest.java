@@ -0,0 +1,135 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampBlockManager;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TimestampOracleTest {
+
+    @Test
+    public void reservesEnoughBlocksForRangesAcrossBlockBoundaries() throws Exception {
+        RecordingBlockManager blocks = new RecordingBlockManager(0L);
+        TimestampOracle oracle = new TimestampOracle(blocks, 10);
+
+        Assert.assertEquals(1L, oracle.getNextTimestamps(25));
+        Assert.assertEquals("A range larger than a block should reserve several blocks at once", Arrays.asList(30L), blocks.reserved);
+
+        Assert.assertEquals(26L, oracle.getNextTimestamps(5));
+        Assert.assertEquals("A range within the reserved block should not reserve another", Arrays.asList(30L), blocks.reserved);
+
+        Assert.assertEquals(31L, oracle.getNextTimestamps(5));
+        Assert.assertEquals(Arrays.asList(30L, 40L), blocks.reserved);
+
+        Assert.assertEquals(36L, oracle.getNextTimestamp());
+        Assert.assertEquals(2L, oracle.getNumberBlocksReserved());
+        Assert.assertEquals(36L, oracle.getNumberTimestampsCreated());
+    }
+
+    @Test
+    public void continuesFromThePreviouslyReservedBlock() throws Exception {
+        RecordingBlockManager blocks = new RecordingBlockManager(100L);
+        TimestampOracle oracle = new TimestampOracle(blocks, 10);
+
+        Assert.assertEquals(101L, oracle.getNextTimestamps(3));
+        Assert.assertEquals(Arrays.asList(110L), blocks.reserved);
+    }
+
+    @Test
+    public void rangesAreDisjointAndIncreasingUnderConcurrentCallers() throws Exception {
+        final RecordingBlockManager blocks = new RecordingBlockManager(0L);
+        final TimestampOracle oracle = new TimestampOracle(blocks, 16);
+        int numThreads = 8;
+        final int numCalls = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                final Random random = new Random(t);
+                futures.add(executor.submit(new Callable<long[]>() {
+                    @Override
+                    public long[] call() throws Exception {
+                        // pairs of (first timestamp, count)
+                        long[] ranges = new long[2 * numCalls];
+                        for (int i = 0; i < numCalls; i++) {
+                            int count = 1 + random.nextInt(20);
+                            ranges[2 * i] = oracle.getNextTimestamps(count);
+                            ranges[2 * i + 1] = count;
+                        }
+                        return ranges;
+                    }
+                }));
+            }
+
+            long total = 0;
+            long maxTimestamp = 0;
+            boolean[] seen = new boolean[numThreads * numCalls * 20 + 2];
+            for (Future<long[]> future : futures) {
+                long[] ranges = future.get();
+                long previous = 0;
+                for (int i = 0; i < ranges.length; i += 2) {
+                    long first = ranges[i];
+                    Assert.assertTrue("Timestamps went backwards for a single caller", first > previous);
+                    for (long ts = first; ts < first + ranges[i + 1]; ts++) {
+                        Assert.assertFalse("Timestamp " + ts + " was handed out twice", seen[(int) ts]);
+                        seen[(int) ts] = true;
+                    }
+                    previous = first + ranges[i + 1] - 1;
+                    maxTimestamp = Math.max(maxTimestamp, previous);
+                    total += ranges[i + 1];
+                }
+            }
+            Assert.assertEquals("Timestamps should be handed out without gaps", total, maxTimestamp);
+            Assert.assertTrue("Timestamps were handed out beyond the reserved block", blocks.maxReserved() >= maxTimestamp);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static class RecordingBlockManager implements TimestampBlockManager {
+        private final long initialMax;
+        private final List<Long> reserved = new ArrayList<>();
+
+        RecordingBlockManager(long initialMax) {
+            this.initialMax = initialMax;
+        }
+
+        @Override
+        public synchronized void reserveNextBlock(long currentMaxReserved) throws TimestampIOException {
+            reserved.add(currentMaxReserved);
+        }
+
+        @Override
+        public long initialize() throws TimestampIOException {
+            return initialMax;
+        }
+
+        synchronized long maxReserved() {
+            return reserved.isEmpty() ? initialMax : reserved.get(reserved.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampBlockManager;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.net.Socket;
+
+/**
+ * Talks to the server over plain sockets, the way both current and older clients do.
+ */
+public class TimestampServerTest {
+
+    private static TimestampServer server;
+
+    @BeforeClass
+    public static void startServer() throws Exception {
+        server = new TimestampServer(0, new TimestampBlockManager() {
+            @Override
+            public void reserveNextBlock(long currentMaxReserved) throws TimestampIOException {
+            }
+
+            @Override
+            public long initialize() throws TimestampIOException {
+                return 0L;
+            }
+        }, 100);
+        server.startServer();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.stopServer();
+    }
+
+    @Test
+    public void answersRangedRequestsAfterHandshake() throws Exception {
+        try (Socket socket = new Socket("localhost", server.getBoundPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            out.writeShort(TimestampServer.PROTOCOL_MARKER);
+            out.writeShort(TimestampServer.PROTOCOL_MARKER);
+            out.flush();
+            Assert.assertEquals(TimestampServer.PROTOCOL_MARKER, in.readShort());
+            Assert.assertEquals(-TimestampServer.PROTOCOL_VERSION, in.readLong());
+
+            out.writeShort(5);
+            out.writeShort(10);
+            out.writeShort(6);
+            out.writeShort(1);
+            out.flush();
+            Assert.assertEquals(5, in.readShort());
+            long first = in.readLong();
+            Assert.assertTrue(first > 0);
+            Assert.assertEquals(6, in.readShort());
+            Assert.assertEquals("The second request should start after the range of the first", first + 10, in.readLong());
+        }
+    }
+
+    @Test
+    public void answersSingleRequestsFromOlderClients() throws Exception {
+        try (Socket socket = new Socket("localhost", server.getBoundPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            out.writeShort(7);
+            out.flush();
+            Assert.assertEquals(7, in.readShort());
+            long first = in.readLong();
+            Assert.assertTrue(first > 0);
+
+            // The marker is an ordinary caller id once a connection carries single requests
+            out.writeShort(TimestampServer.PROTOCOL_MARKER);
+            out.writeShort(9);
+            out.flush();
+            Assert.assertEquals(TimestampServer.PROTOCOL_MARKER, in.readShort());
+            long second = in.readLong();
+            Assert.assertTrue(second > first);
+            Assert.assertEquals(9, in.readShort());
+            Assert.assertEquals(second + 1, in.readLong());
+        }
+    }
+
+    @Test
+    public void treatsAnOlderClientOpeningWithTheMarkerAsSingleRequests() throws Exception {
+        try (Socket socket = new Socket("localhost", server.getBoundPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+
+            out.writeShort(TimestampServer.PROTOCOL_MARKER);
+            out.writeShort(TimestampServer.PROTOCOL_MARKER + 1);
+            out.flush();
+            Assert.assertEquals(TimestampServer.PROTOCOL_MARKER, in.readShort());
+            long first = in.readLong();
+            Assert.assertTrue(first > 0);
+            Assert.assertEquals(TimestampServer.PROTOCOL_MARKER + 1, in.readShort());
+            Assert.assertEquals(first + 1, in.readLong());
+        }
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.stats.histogram;
+
+import com.splicemachine.encoding.Encoder;
+import com.splicemachine.stats.Mergeable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An equi-depth histogram over values mapped onto doubles, which can be built in a single pass
+ * and merged with histograms built over other partitions of the data.
+ *
+ * Unlike {@link EquiDepthIntHistogram}, which needs all of its elements in memory up front, the
+ * histogram is kept as a piecewise linear cumulative distribution: a sorted list of points
+ * {@code (value, rows)}, where {@code rows} is the number of rows at or below {@code value}. Between two
+ * points rows are assumed to be spread evenly. A value which holds at least a bucket's worth of rows
+ * is recorded exactly, as two points with the same value: the rows below it, and the rows at or below it.
+ *
+ * Merging two histograms adds their distribution functions at the union of their points, then
+ * reduces the result back to (about) the configured number of buckets, so partition histograms can be
+ * combined in any order.
+ */
+public class EquiDepthDoubleHistogram implements Mergeable<EquiDepthDoubleHistogram>{
+    private static final double[] NO_VALUES=new double[]{};
+    private static final long[] NO_ROWS=new long[]{};
+
+    private final int numBuckets;
+    private final double[] values;
+    private final long[] rows;
+
+    EquiDepthDoubleHistogram(int numBuckets,double[] values,long[] rows){
+        this.numBuckets=numBuckets;
+        this.values=values;
+        this.rows=rows;
+    }
+
+    public static Builder newBuilder(int numBuckets){
+        return new Builder(numBuckets);
+    }
+
+    public int getNumBuckets(){ return numBuckets; }
+
+    public long count(){ return rows.length==0?0l:rows[rows.length-1]; }
+
+    public double min(){ return values.length==0?Double.NaN:values[0]; }
+
+    public double max(){ return values.length==0?Double.NaN:values[values.length-1]; }
+
+    /**
+     * @param value the value to compare against
+     * @param inclusive if {@code true}, include rows equal to {@code value}
+     * @return the estimated number of rows less than (or equal to) {@code value}
+     */
+    public long before(double value,boolean inclusive){
+        int pos=inclusive?lastAtMost(value):lastBelow(value);
+        if(pos<0) return 0l;
+        if(pos==values.length-1) return rows[pos];
+        /*
+         * values[pos] <= value < values[pos+1] (or values[pos] < value <= values[pos+1]), so the
+         * two points differ, and the rows between them are spread evenly
+         */
+        double fraction=(value-values[pos])/(values[pos+1]-values[pos]);
+        return rows[pos]+Math.round(fraction*(rows[pos+1]-rows[pos]));
+    }
+
+    /**
+     * @param start the start of the range, or {@link Double#NEGATIVE_INFINITY} for no start
+     * @param stop the end of the range, or {@link Double#POSITIVE_INFINITY} for no end
+     * @param includeStart if {@code true}, include rows equal to {@code start}
+     * @param includeStop if {@code true}, include rows equal to {@code stop}
+     * @return the estimated number of rows in the range
+     */
+    public long between(double start,double stop,boolean includeStart,boolean includeStop){
+        if(stop<start) return 0l;
+        return Math.max(0l,before(stop,includeStop)-before(start,!includeStart));
+    }
+
+    /**
+     * @param value the value to match
+     * @param cardinality the number of distinct values in the whole data set
+     * @return the estimated number of rows equal to {@code value}
+     */
+    public long equal(double value,long cardinality){
+        if(values.length<2 || value<values[0] || value>values[values.length-1]) return 0l;
+        long exact=before(value,true)-before(value,false);
+        if(exact>0) return exact; //a frequent value, which has its own points
+
+        int pos=lastBelow(value);
+        if(pos<0) pos=0; //value is the minimum, which is not frequent: use the first segment
+        double width=values[pos+1]-values[pos];
+        long segmentRows=rows[pos+1]-rows[pos];
+        if(width<=0 || segmentRows<=0) return 0l;
+        /*
+         * Assume the distinct values are spread evenly over the whole range, so this segment holds its
+         * share of them, and each of those occurs equally often
+         */
+        double range=values[values.length-1]-values[0];
+        double distinct=cardinality<=0?segmentRows:cardinality*(width/range);
+        distinct=Math.min(segmentRows,Math.max(1d,distinct));
+        return Math.max(1l,Math.round(segmentRows/distinct));
+    }
+
+    /**
+     * @param fraction the fraction of rows, between 0 and 1
+     * @return the estimated value at or below which {@code fraction} of the rows lie, or {@link Double#NaN}
+     * if the histogram is empty
+     */
+    public double quantile(double fraction){
+        if(values.length==0) return Double.NaN;
+        double target=Math.max(0d,Math.min(1d,fraction))*count();
+        int pos=0;
+        while(pos<rows.length-1 && rows[pos]<target) pos++;
+        if(pos==0) return values[0];
+        long segmentRows=rows[pos]-rows[pos-1];
+        if(segmentRows<=0) return values[pos];
+        return values[pos-1]+((target-rows[pos-1])/segmentRows)*(values[pos]-values[pos-1]);
+    }
+
+    @Override
+    public EquiDepthDoubleHistogram merge(EquiDepthDoubleHistogram other){
+        if(other==null || other.count()==0) return this;
+        if(count()==0) return other;
+
+        double[] points=new double[values.length+other.values.length];
+        System.arraycopy(values,0,points,0,values.length);
+        System.arraycopy(other.values,0,points,values.length,other.values.length);
+        Arrays.sort(points);
+
+        double[] mergedValues=new double[2*points.length];
+        long[] mergedRows=new long[2*points.length];
+        int size=0;
+        for(int i=0;i<points.length;i++){
+            double value=points[i];
+            if(i>0 && points[i-1]==value) continue;
+            long below=before(value,false)+other.before(value,false);
+            long atOrBelow=before(value,true)+other.before(value,true);
+            mergedValues[size]=value;
+            mergedRows[size++]=below;
+            if(atOrBelow>below){
+                mergedValues[size]=value;
+                mergedRows[size++]=atOrBelow;
+            }
+        }
+        return reduce(Math.max(numBuckets,other.numBuckets),mergedValues,mergedRows,size);
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder sb=new StringBuilder("EquiDepthDoubleHistogram{");
+        for(int i=0;i<values.length;i++){
+            if(i>0) sb.append(',');
+            sb.append('(').append(values[i]).append(',').append(rows[i]).append(')');
+        }
+        return sb.append('}').toString();
+    }
+
+    public static Encoder<EquiDepthDoubleHistogram> encoder(){
+        return EncDec.INSTANCE;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /*
+     * Keep the first and last points, every point which closes a bucket's worth of rows, and both points of
+     * every value which holds a bucket's worth of rows by itself. Everything in between is interpolated.
+     */
+    private static EquiDepthDoubleHistogram reduce(int numBuckets,double[] values,long[] rows,int size){
+        if(size==0)
+            return new EquiDepthDoubleHistogram(numBuckets,NO_VALUES,NO_ROWS);
+        double depth=Math.max(1d,((double)rows[size-1])/numBuckets);
+        double[] keptValues=new double[size];
+        long[] keptRows=new long[size];
+        int kept=0;
+        double nextBound=rows[0]+depth;
+        for(int i=0;i<size;i++){
+            boolean keep=i==0 || i==size-1 || rows[i]>=nextBound;
+            if(i+1<size && values[i+1]==values[i] && rows[i+1]-rows[i]>=depth)
+                keep=true; //the rows below a frequent value
+            if(i>0 && values[i-1]==values[i] && rows[i]-rows[i-1]>=depth)
+                keep=true; //the rows at or below a frequent value
+            if(!keep) continue;
+            if(kept>0 && keptValues[kept-1]==values[i] && keptRows[kept-1]==rows[i]) continue;
+            keptValues[kept]=values[i];
+            keptRows[kept++]=rows[i];
+            nextBound=rows[i]+depth;
+        }
+        return new EquiDepthDoubleHistogram(numBuckets,Arrays.copyOf(keptValues,kept),Arrays.copyOf(keptRows,kept));
+    }
+
+    /*the position of the last point <= value, or -1*/
+    private int lastAtMost(double value){
+        int pos=Arrays.binarySearch(values,value);
+        if(pos<0) return -pos-2;
+        while(pos<values.length-1 && values[pos+1]==value) pos++;
+        return pos;
+    }
+
+    /*the position of the last point < value, or -1*/
+    private int lastBelow(double value){
+        int pos=Arrays.binarySearch(values,value);
+        if(pos<0) return -pos-2;
+        while(pos>=0 && values[pos]==value) pos--;
+        return pos;
+    }
+
+    /**
+     * Builds a histogram from a stream of values, in buffers which are sorted, reduced and merged
+     * into the histogram as they fill, so that memory stays bounded regardless of the number of rows.
+     */
+    public static class Builder{
+        private final int numBuckets;
+        private final double[] buffer;
+        private final long[] counts;
+        private int size;
+        private boolean unitCounts=true;
+        private EquiDepthDoubleHistogram histogram;
+
+        private Builder(int numBuckets){
+            this.numBuckets=numBuckets;
+            int bufferSize=Math.max(1024,16*numBuckets);
+            this.buffer=new double[bufferSize];
+            this.counts=new long[bufferSize];
+            this.histogram=new EquiDepthDoubleHistogram(numBuckets,NO_VALUES,NO_ROWS);
+        }
+
+        public void update(double value){
+            update(value,1l);
+        }
+
+        public void update(double value,long count){
+            if(count<=0 || Double.isNaN(value)) return;
+            buffer[size]=value;
+            counts[size]=count;
+            unitCounts&=count==1l;
+            size++;
+            if(size==buffer.length)
+                flush();
+        }
+
+        public EquiDepthDoubleHistogram build(){
+            flush();
+            return histogram;
+        }
+
+        private void flush(){
+            if(size==0) return;
+            final double[] sortedValues;
+            final long[] sortedCounts;
+            if(unitCounts){
+                Arrays.sort(buffer,0,size);
+                sortedValues=buffer;
+                sortedCounts=counts;
+            }else{
+                Integer[] order=new Integer[size];
+                for(int i=0;i<size;i++){
+                    order[i]=i;
+                }
+                Arrays.sort(order,new Comparator<Integer>(){
+                    @Override
+                    public int compare(Integer o1,Integer o2){
+                        return Double.compare(buffer[o1],buffer[o2]);
+                    }
+                });
+                sortedValues=new double[size];
+                sortedCounts=new long[size];
+                for(int i=0;i<size;i++){
+                    sortedValues[i]=buffer[order[i]];
+                    sortedCounts[i]=counts[order[i]];
+                }
+            }
+
+            /*
+             * The exact distribution of the buffer: each distinct value is a step from the rows below
+             * it to the rows at or below it
+             */
+            double[] values=new double[2*size];
+            long[] rows=new long[2*size];
+            int points=0;
+            long total=0l;
+            int i=0;
+            while(i<size){
+                double value=sortedValues[i];
+                values[points]=value;
+                rows[points++]=total;
+                while(i<size && sortedValues[i]==value){
+                    total+=sortedCounts[i];
+                    i++;
+                }
+                values[points]=value;
+                rows[points++]=total;
+            }
+            histogram=histogram.merge(reduce(numBuckets,values,rows,points));
+            size=0;
+            unitCounts=true;
+        }
+    }
+
+    static class EncDec implements Encoder<EquiDepthDoubleHistogram>{
+        public static final EncDec INSTANCE=new EncDec();
+
+        @Override
+        public void encode(EquiDepthDoubleHistogram item,DataOutput encoder) throws IOException{
+            encoder.writeInt(item.numBuckets);
+            encoder.writeInt(item.values.length);
+            for(int i=0;i<item.values.length;i++){
+                encoder.writeDouble(item.values[i]);
+                encoder.writeLong(item.rows[i]);
+            }
+        }
+
+        @Override
+        public EquiDepthDoubleHistogram decode(DataInput decoder) throws IOException{
+            int numBuckets=decoder.readInt();
+            int size=decoder.readInt();
+            double[] values=new double[size];
+            long[] rows=new long[size];
+            for(int i=0;i<size;i++){
+                values[i]=decoder.readDouble();
+                rows[i]=decoder.readLong();
+            }
+            return new EquiDepthDoubleHistogram(numBuckets,values,rows);
+        }
+    }
+}
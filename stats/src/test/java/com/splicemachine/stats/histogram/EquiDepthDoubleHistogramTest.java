@@ -0,0 +1,124 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.stats.histogram;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Random;
+
+public class EquiDepthDoubleHistogramTest{
+
+    @Test
+    public void testUniformRanges() throws Exception{
+        EquiDepthDoubleHistogram.Builder builder=EquiDepthDoubleHistogram.newBuilder(32);
+        for(int i=0;i<10000;i++){
+            builder.update(i);
+        }
+        EquiDepthDoubleHistogram histogram=builder.build();
+        Assert.assertEquals(10000l,histogram.count());
+        Assert.assertEquals(0d,histogram.min(),0d);
+        Assert.assertEquals(9999d,histogram.max(),0d);
+        assertWithin(5000l,histogram.before(5000,false),100);
+        assertWithin(2500l,histogram.between(2500,5000,true,false),100);
+        Assert.assertEquals(10000l,histogram.between(Double.NEGATIVE_INFINITY,Double.POSITIVE_INFINITY,true,true));
+        Assert.assertEquals(0l,histogram.between(20000,30000,true,true));
+        assertWithin(1l,histogram.equal(1234,10000),1);
+    }
+
+    @Test
+    public void testSkewedValuesAreExact() throws Exception{
+        EquiDepthDoubleHistogram.Builder builder=EquiDepthDoubleHistogram.newBuilder(16);
+        Random random=new Random(0l);
+        for(int i=0;i<5000;i++){
+            builder.update(random.nextInt(1000));
+        }
+        builder.update(7,5000);
+        EquiDepthDoubleHistogram histogram=builder.build();
+        Assert.assertEquals(10000l,histogram.count());
+        assertWithin(5005l,histogram.equal(7,1000),10);
+        assertWithin(5500l,histogram.before(100,false),200);
+        assertWithin(5l,histogram.equal(500,1000),5);
+    }
+
+    @Test
+    public void testMergeMatchesUnion() throws Exception{
+        EquiDepthDoubleHistogram.Builder low=EquiDepthDoubleHistogram.newBuilder(32);
+        EquiDepthDoubleHistogram.Builder high=EquiDepthDoubleHistogram.newBuilder(32);
+        for(int i=0;i<8000;i++){
+            low.update(i);
+        }
+        for(int i=0;i<2000;i++){
+            high.update(6000+i*2);
+        }
+        EquiDepthDoubleHistogram merged=low.build().merge(high.build());
+        Assert.assertEquals(10000l,merged.count());
+        Assert.assertEquals(0d,merged.min(),0d);
+        Assert.assertEquals(9998d,merged.max(),0d);
+        assertWithin(6000l,merged.before(6000,false),150);
+        assertWithin(3000l,merged.between(6000,8000,true,false),150);
+    }
+
+    @Test
+    public void testQuantiles() throws Exception{
+        EquiDepthDoubleHistogram.Builder builder=EquiDepthDoubleHistogram.newBuilder(32);
+        for(int i=0;i<10000;i++){
+            builder.update(i);
+        }
+        builder.update(20000,10000);
+        EquiDepthDoubleHistogram histogram=builder.build();
+        Assert.assertEquals(0d,histogram.quantile(0d),0d);
+        Assert.assertEquals(2500d,histogram.quantile(0.125d),100d);
+        Assert.assertEquals(8000d,histogram.quantile(0.4d),100d);
+        Assert.assertEquals(20000d,histogram.quantile(0.9d),0d);
+        Assert.assertEquals(20000d,histogram.quantile(1d),0d);
+        Assert.assertTrue(Double.isNaN(EquiDepthDoubleHistogram.newBuilder(8).build().quantile(0.5d)));
+    }
+
+    @Test
+    public void testEncoding() throws Exception{
+        EquiDepthDoubleHistogram.Builder builder=EquiDepthDoubleHistogram.newBuilder(8);
+        for(int i=0;i<100;i++){
+            builder.update(i*1.5d);
+        }
+        EquiDepthDoubleHistogram histogram=builder.build();
+
+        ByteArrayOutputStream baos=new ByteArrayOutputStream();
+        EquiDepthDoubleHistogram.encoder().encode(histogram,new DataOutputStream(baos));
+        EquiDepthDoubleHistogram decoded=EquiDepthDoubleHistogram.encoder().decode(
+                new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+        Assert.assertEquals(histogram.toString(),decoded.toString());
+        Assert.assertEquals(histogram.getNumBuckets(),decoded.getNumBuckets());
+        Assert.assertEquals(histogram.before(42,true),decoded.before(42,true));
+    }
+
+    @Test
+    public void testEmpty() throws Exception{
+        EquiDepthDoubleHistogram histogram=EquiDepthDoubleHistogram.newBuilder(8).build();
+        Assert.assertEquals(0l,histogram.count());
+        Assert.assertEquals(0l,histogram.between(Double.NEGATIVE_INFINITY,Double.POSITIVE_INFINITY,true,true));
+        Assert.assertEquals(0l,histogram.equal(1,1));
+        Assert.assertSame(histogram,histogram.merge(EquiDepthDoubleHistogram.newBuilder(8).build()));
+    }
+
+    private static void assertWithin(long expected,long actual,long tolerance){
+        Assert.assertTrue("Expected "+expected+" (+/-"+tolerance+") but was "+actual,Math.abs(expected-actual)<=tolerance);
+    }
+}